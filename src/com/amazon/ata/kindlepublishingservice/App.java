@@ -6,17 +6,35 @@ import com.amazon.ata.kindlepublishingservice.dagger.DaggerApplicationComponent;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import javax.annotation.PreDestroy;
+
 @SpringBootApplication
 public class App {
     public static final ApplicationComponent component = DaggerApplicationComponent.create();
     public static void main(String[] args) {
+        ATAKindlePublishingServiceManager publishingManager = component.provideATAKindlePublishingServiceManager();
+        // Requeue the previous run's requests before the web server takes new submissions.
+        publishingManager.initialize();
+
         SpringApplication.run(App.class, args);
 
-        ATAKindlePublishingServiceManager publishingManager = component.provideATAKindlePublishingServiceManager();
         try {
             publishingManager.start();
         } catch (Exception e) {
             System.out.println(e);
         }
     }
+
+    /**
+     * Stops publishing and flushes the journal when the application context closes on shutdown, which happens after
+     * the web server stopped taking submissions.
+     */
+    @PreDestroy
+    public void stopPublishing() {
+        try {
+            component.provideATAKindlePublishingServiceManager().stop();
+        } catch (Exception e) {
+            System.out.println(e);
+        }
+    }
 }
@@ -0,0 +1,65 @@
+package com.amazon.ata.kindlepublishingservice.activity;
+
+import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
+import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
+import com.amazon.ata.kindlepublishingservice.exceptions.PublishingNotCancellableException;
+import com.amazon.ata.kindlepublishingservice.exceptions.PublishingStatusNotFoundException;
+import com.amazon.ata.kindlepublishingservice.models.requests.CancelBookPublishingRequest;
+import com.amazon.ata.kindlepublishingservice.models.response.CancelBookPublishingResponse;
+import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequest;
+import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequestManager;
+
+import javax.inject.Inject;
+
+/**
+ * Implementation of the CancelBookPublishingActivity for ATACurriculumKindlePublishingService's
+ * CancelBookPublishing API.
+ *
+ * This API allows the client to withdraw a submitted book before it is published, so it is neither converted nor
+ * saved to the catalog.
+ */
+public class CancelBookPublishingActivity {
+
+    private PublishingStatusDao publishingStatusDao;
+    private BookPublishRequestManager bookPublishRequestManager;
+
+    /**
+     * Instantiates a new CancelBookPublishingActivity object.
+     *
+     * @param publishingStatusDao PublishingStatusDao to access the publishing status table.
+     * @param bookPublishRequestManager the queue the submitted book is waiting in.
+     */
+    @Inject
+    public CancelBookPublishingActivity(PublishingStatusDao publishingStatusDao,
+                                        BookPublishRequestManager bookPublishRequestManager) {
+        this.publishingStatusDao = publishingStatusDao;
+        this.bookPublishRequestManager = bookPublishRequestManager;
+    }
+
+    /**
+     * Removes the publishing request from the queue and records it as CANCELLED.
+     *
+     * @param request Request object containing the publishing record id returned when the book was submitted.
+     * @return CancelBookPublishingResponse Response object that includes the cancelled publishing record id.
+     * @throws PublishingStatusNotFoundException if there is no publishing record for the id.
+     * @throws PublishingNotCancellableException if the request is being published or already reached a final status.
+     */
+    public CancelBookPublishingResponse execute(CancelBookPublishingRequest request) {
+        String publishingRecordId = request.getPublishingRecordId();
+
+        BookPublishRequest cancelled = bookPublishRequestManager.cancelBookPublishRequest(publishingRecordId);
+        if (cancelled == null) {
+            // throws if the id is unknown
+            publishingStatusDao.getPublishingStatuses(publishingRecordId);
+            throw new PublishingNotCancellableException("Publishing record " + publishingRecordId +
+                " is no longer queued");
+        }
+
+        publishingStatusDao.setPublishingStatus(publishingRecordId, PublishingRecordStatus.CANCELLED,
+            cancelled.getBookId());
+
+        return CancelBookPublishingResponse.builder()
+            .withPublishingRecordId(publishingRecordId)
+            .build();
+    }
+}
@@ -0,0 +1,146 @@
+package com.amazon.ata.kindlepublishingservice.activity;
+
+import com.amazon.ata.kindlepublishingservice.clients.RecommendationsServiceClient;
+import com.amazon.ata.kindlepublishingservice.converters.CatalogItemConverter;
+import com.amazon.ata.kindlepublishingservice.converters.RecommendationsCoralConverter;
+import com.amazon.ata.kindlepublishingservice.dao.CatalogDao;
+import com.amazon.ata.kindlepublishingservice.dynamodb.models.CatalogItemVersion;
+import com.amazon.ata.kindlepublishingservice.exceptions.BookLookupLimitException;
+import com.amazon.ata.kindlepublishingservice.exceptions.BookNotFoundException;
+import com.amazon.ata.kindlepublishingservice.models.BookLookupResult;
+import com.amazon.ata.kindlepublishingservice.models.BookRecommendation;
+import com.amazon.ata.kindlepublishingservice.models.requests.GetBooksRequest;
+import com.amazon.ata.kindlepublishingservice.models.response.GetBooksResponse;
+import com.amazon.ata.recommendationsservice.types.BookGenre;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Implementation of the GetBooksActivity for ATACurriculumKindlePublishingService's GetBooks API.
+ *
+ * This API allows the client to retrieve many books in one call, such as a page of the storefront. Every distinct book
+ * is read from the catalog at once, and the recommendations of each genre are requested once, as soon as the first
+ * book of that genre is found, and shared by every book of the genre. The reads and the recommendation calls run on a
+ * shared pool of threads, which bounds how many run at once across all callers. A single call may ask for at most
+ * {@link #MAX_BOOK_IDS} book ids, so one caller cannot fill the pool.
+ */
+public class GetBooksActivity {
+
+    // Most book ids one call may ask for, enough for a storefront page, override with
+    // -Dkindlepublishing.getBooks.maxIds=N
+    public static final int MAX_BOOK_IDS = Math.max(1, Integer.getInteger("kindlepublishing.getBooks.maxIds", 50));
+
+    private static final String BOOK_NOT_FOUND = "Book does not exist";
+
+    private CatalogDao catalogDao;
+    private RecommendationsServiceClient recommendationServiceClient;
+    private ExecutorService lookupExecutor;
+
+    /**
+     * Instantiates a new GetBooksActivity object.
+     *
+     * @param catalogDao CatalogDao to access the Catalog table.
+     * @param recommendationServiceClient Returns recommendations based on genre.
+     * @param lookupExecutor the threads the catalog reads and recommendation calls run on.
+     */
+    @Inject
+    public GetBooksActivity(CatalogDao catalogDao, RecommendationsServiceClient recommendationServiceClient,
+                            @Named("bookLookup") ExecutorService lookupExecutor) {
+        this.catalogDao = catalogDao;
+        this.recommendationServiceClient = recommendationServiceClient;
+        this.lookupExecutor = lookupExecutor;
+    }
+
+    /**
+     * Retrieves the books associated with the provided book ids.
+     *
+     * @param request Request object containing the book ids of the books to get from the Catalog.
+     * @return GetBooksResponse Response object with one result per book id, in the order of the request, holding
+     * either the book and the recommendations for its genre or why it was not found. A book id asked for more than
+     * once is read once.
+     * @throws BookLookupLimitException if the request asks for more than {@link #MAX_BOOK_IDS} book ids.
+     */
+    public GetBooksResponse execute(final GetBooksRequest request) {
+        List<String> bookIds = request.getBookIds() == null ? Collections.emptyList() : request.getBookIds();
+        if (bookIds.size() > MAX_BOOK_IDS) {
+            throw new BookLookupLimitException(String.format("Asked for %d books, but at most %d can be looked up " +
+                "in one call", bookIds.size(), MAX_BOOK_IDS));
+        }
+
+        Map<BookGenre, CompletableFuture<List<BookRecommendation>>> recommendationsByGenre =
+            new ConcurrentHashMap<>();
+        Map<String, CompletableFuture<BookLookupResult>> lookups = new HashMap<>();
+        for (String bookId : bookIds) {
+            if (bookId != null && !lookups.containsKey(bookId)) {
+                lookups.put(bookId, lookUp(bookId, recommendationsByGenre));
+            }
+        }
+
+        List<BookLookupResult> results = new ArrayList<>(bookIds.size());
+        for (String bookId : bookIds) {
+            results.add(bookId == null ? notFound(null) : join(lookups.get(bookId)));
+        }
+        return GetBooksResponse.builder()
+            .withResults(results)
+            .build();
+    }
+
+    private CompletableFuture<BookLookupResult> lookUp(String bookId,
+            Map<BookGenre, CompletableFuture<List<BookRecommendation>>> recommendationsByGenre) {
+        return CompletableFuture.supplyAsync(() -> findBook(bookId), lookupExecutor)
+            .thenCompose(catalogItem -> {
+                if (catalogItem == null) {
+                    return CompletableFuture.completedFuture(notFound(bookId));
+                }
+                return recommendationsByGenre.computeIfAbsent(catalogItem.getGenre(), this::recommendationsFor)
+                    .thenApply(recommendations -> BookLookupResult.builder()
+                        .withBookId(bookId)
+                        .withBook(CatalogItemConverter.toBook(catalogItem))
+                        .withRecommendations(recommendations)
+                        .build());
+            });
+    }
+
+    private CompletableFuture<List<BookRecommendation>> recommendationsFor(BookGenre genre) {
+        return CompletableFuture.supplyAsync(() -> RecommendationsCoralConverter.toCoral(
+            recommendationServiceClient.getBookRecommendations(genre)), lookupExecutor);
+    }
+
+    // Null if the book does not exist or has been removed from the catalog.
+    private CatalogItemVersion findBook(String bookId) {
+        try {
+            return catalogDao.getBookFromCatalog(bookId);
+        } catch (BookNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static BookLookupResult join(CompletableFuture<BookLookupResult> lookup) {
+        try {
+            return lookup.join();
+        } catch (CompletionException e) {
+            // Fail the call the way GetBook would, with the catalog or recommendations error itself.
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static BookLookupResult notFound(String bookId) {
+        return BookLookupResult.builder()
+            .withBookId(bookId)
+            .withError(BOOK_NOT_FOUND)
+            .build();
+    }
+}
@@ -0,0 +1,39 @@
+package com.amazon.ata.kindlepublishingservice.activity;
+
+import com.amazon.ata.kindlepublishingservice.converters.DeadLetterConverter;
+import com.amazon.ata.kindlepublishingservice.models.response.GetDeadLettersResponse;
+import com.amazon.ata.kindlepublishingservice.publishing.PublishFailureHandler;
+
+import javax.inject.Inject;
+
+/**
+ * Implementation of the GetDeadLettersActivity for ATACurriculumKindlePublishingService's
+ * GetDeadLetters API.
+ *
+ * This API allows the client to inspect the publishing requests that failed for good, before replaying them.
+ */
+public class GetDeadLettersActivity {
+
+    private PublishFailureHandler publishFailureHandler;
+
+    /**
+     * Instantiates a new GetDeadLettersActivity object.
+     *
+     * @param publishFailureHandler the handler that keeps the requests it gave up on.
+     */
+    @Inject
+    public GetDeadLettersActivity(PublishFailureHandler publishFailureHandler) {
+        this.publishFailureHandler = publishFailureHandler;
+    }
+
+    /**
+     * Lists every dead letter, oldest failure first.
+     *
+     * @return GetDeadLettersResponse Response object that includes the dead letters, without their text.
+     */
+    public GetDeadLettersResponse execute() {
+        return GetDeadLettersResponse.builder()
+            .withDeadLetters(DeadLetterConverter.toDeadLetterRecords(publishFailureHandler.listDeadLetters()))
+            .build();
+    }
+}
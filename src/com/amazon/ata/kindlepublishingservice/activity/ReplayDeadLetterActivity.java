@@ -0,0 +1,53 @@
+package com.amazon.ata.kindlepublishingservice.activity;
+
+import com.amazon.ata.kindlepublishingservice.exceptions.DeadLetterNotFoundException;
+import com.amazon.ata.kindlepublishingservice.exceptions.PublishingQueueFullException;
+import com.amazon.ata.kindlepublishingservice.models.requests.ReplayDeadLetterRequest;
+import com.amazon.ata.kindlepublishingservice.models.response.ReplayDeadLetterResponse;
+import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequest;
+import com.amazon.ata.kindlepublishingservice.publishing.PublishFailureHandler;
+
+import javax.inject.Inject;
+
+/**
+ * Implementation of the ReplayDeadLetterActivity for ATACurriculumKindlePublishingService's
+ * ReplayDeadLetter API.
+ *
+ * This API allows the client to publish a request that failed for good again, once whatever made it fail is fixed.
+ */
+public class ReplayDeadLetterActivity {
+
+    private PublishFailureHandler publishFailureHandler;
+
+    /**
+     * Instantiates a new ReplayDeadLetterActivity object.
+     *
+     * @param publishFailureHandler the handler that keeps the requests it gave up on.
+     */
+    @Inject
+    public ReplayDeadLetterActivity(PublishFailureHandler publishFailureHandler) {
+        this.publishFailureHandler = publishFailureHandler;
+    }
+
+    /**
+     * Removes the dead letter and queues its request for publishing again, under the same publishing record id.
+     *
+     * @param request Request object containing the publishing record id of the dead letter.
+     * @return ReplayDeadLetterResponse Response object that includes the publishing record id to poll.
+     * @throws DeadLetterNotFoundException if there is no dead letter for the id.
+     * @throws PublishingQueueFullException if the queue is at capacity, the dead letter is then kept.
+     */
+    public ReplayDeadLetterResponse execute(ReplayDeadLetterRequest request) {
+        String publishingRecordId = request.getPublishingRecordId();
+
+        BookPublishRequest replayed = publishFailureHandler.replayDeadLetter(publishingRecordId);
+        if (replayed == null) {
+            throw new DeadLetterNotFoundException("No dead letter found for publishing record " +
+                publishingRecordId);
+        }
+
+        return ReplayDeadLetterResponse.builder()
+            .withPublishingRecordId(publishingRecordId)
+            .build();
+    }
+}
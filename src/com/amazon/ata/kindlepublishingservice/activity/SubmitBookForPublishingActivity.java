@@ -6,6 +6,7 @@ import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
 import com.amazon.ata.kindlepublishingservice.dynamodb.models.PublishingStatusItem;
 import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
 import com.amazon.ata.kindlepublishingservice.exceptions.BookNotFoundException;
+import com.amazon.ata.kindlepublishingservice.exceptions.PublishingQueueFullException;
 import com.amazon.ata.kindlepublishingservice.models.requests.SubmitBookForPublishingRequest;
 import com.amazon.ata.kindlepublishingservice.models.response.SubmitBookForPublishingResponse;
 import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequest;
@@ -21,6 +22,8 @@ import javax.inject.Inject;
  */
 public class SubmitBookForPublishingActivity {
 
+    private static final String NOT_QUEUED = "Request could not be queued for publishing";
+
     private PublishingStatusDao publishingStatusDao;
     private CatalogDao catalogDao;
     private BookPublishRequestManager bookPublishRequestManager;
@@ -43,8 +46,13 @@ public class SubmitBookForPublishingActivity {
      * @param request Request object containing the book data to be published. If the request is updating an existing
      *                book, then the corresponding book id should be provided. Otherwise, the request will be treated
      *                as a new book.
+     *                An earlier request for the same book that is still queued is marked SUPERSEDED, only this
+     *                request is published.
      * @return SubmitBookForPublishingResponse Response object that includes the publishing status id, which can be used
      * to check the publishing state of the book.
+     * @throws PublishingQueueFullException if the publishing queue is at capacity, the caller should retry after the
+     * delay carried by the exception. If the queue only filled up once the request was recorded, the request is
+     * marked FAILED.
      */
     public SubmitBookForPublishingResponse execute(SubmitBookForPublishingRequest request) {
 
@@ -53,6 +61,11 @@ public class SubmitBookForPublishingActivity {
 
         String bookId = request.getBookId();
 
+        final BookPublishRequest bookPublishRequest = BookPublishRequestConverter.toBookPublishRequest(request);
+
+        // reject before touching the catalog if the queue has no room for this book
+        bookPublishRequestManager.ensureCapacityFor(bookPublishRequest);
+
         if(bookId != null) {
             try {
                 catalogDao.validateBookExists(bookId);
@@ -65,16 +78,35 @@ public class SubmitBookForPublishingActivity {
             catalogDao.removeActiveOrInactiveBookFromCatalog(bookId);
         }
 
-        final BookPublishRequest bookPublishRequest = BookPublishRequestConverter.toBookPublishRequest(request);
-
-        bookPublishRequestManager.addBookPublishRequest(bookPublishRequest);
-
-
-
+        // record the request before queueing it, a worker can take it and write the next status right away
         PublishingStatusItem item =  publishingStatusDao.setPublishingStatus(bookPublishRequest.getPublishingRecordId(),
                 PublishingRecordStatus.QUEUED,
                 bookPublishRequest.getBookId());
 
+        BookPublishRequest superseded;
+        try {
+            superseded = bookPublishRequestManager.addBookPublishRequest(bookPublishRequest);
+        } catch (RuntimeException e) {
+            // the queue filled up since the capacity check, or the request could not be journaled
+            try {
+                publishingStatusDao.setPublishingStatus(bookPublishRequest.getPublishingRecordId(),
+                    PublishingRecordStatus.FAILED,
+                    bookPublishRequest.getBookId(),
+                    NOT_QUEUED);
+            } catch (RuntimeException statusFailure) {
+                e.addSuppressed(statusFailure);
+            }
+            throw e;
+        }
+
+        // an older request for this book was still waiting, only this one will be published
+        if (superseded != null) {
+            publishingStatusDao.setPublishingStatus(superseded.getPublishingRecordId(),
+                PublishingRecordStatus.SUPERSEDED,
+                superseded.getBookId(),
+                "Superseded by publishing record " + bookPublishRequest.getPublishingRecordId());
+        }
+
         return SubmitBookForPublishingResponse.builder()
                 .withPublishingRecordId(item.getPublishingRecordId())
                 .build();
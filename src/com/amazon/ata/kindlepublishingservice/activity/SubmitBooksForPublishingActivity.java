@@ -0,0 +1,167 @@
+package com.amazon.ata.kindlepublishingservice.activity;
+
+import com.amazon.ata.kindlepublishingservice.converters.BookPublishRequestConverter;
+import com.amazon.ata.kindlepublishingservice.dao.CatalogDao;
+import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
+import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
+import com.amazon.ata.kindlepublishingservice.exceptions.PublishingQueueFullException;
+import com.amazon.ata.kindlepublishingservice.models.BookSubmissionResult;
+import com.amazon.ata.kindlepublishingservice.models.requests.SubmitBookForPublishingRequest;
+import com.amazon.ata.kindlepublishingservice.models.requests.SubmitBooksForPublishingRequest;
+import com.amazon.ata.kindlepublishingservice.models.response.SubmitBooksForPublishingResponse;
+import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequest;
+import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequestManager;
+import com.amazon.ata.recommendationsservice.types.BookGenre;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Implementation of the SubmitBooksForPublishingActivity for ATACurriculumKindlePublishingService's
+ * SubmitBooksForPublishing API.
+ *
+ * This API allows the client to submit many books for publishing in one call. Existing books are validated with
+ * batched catalog reads, every valid book is queued in a single operation and the QUEUED statuses are written with
+ * batched writes, so a submission costs a handful of round trips however many books it holds. Unlike a single
+ * submission, the current version of an updated book is left active until the new version is published in its place.
+ */
+public class SubmitBooksForPublishingActivity {
+
+    private static final String BOOK_NOT_FOUND = "Book does not exist";
+    private static final String INVALID_GENRE = "Invalid genre: ";
+    private static final String NOT_QUEUED = "Request could not be queued for publishing";
+
+    private PublishingStatusDao publishingStatusDao;
+    private CatalogDao catalogDao;
+    private BookPublishRequestManager bookPublishRequestManager;
+
+    /**
+     * Instantiates a new SubmitBooksForPublishingActivity object.
+     *
+     * @param publishingStatusDao PublishingStatusDao to access the publishing status table.
+     * @param catalogDao CatalogDao to validate the books being updated exist.
+     * @param bookPublishRequestManager the queue the books are submitted to.
+     */
+    @Inject
+    public SubmitBooksForPublishingActivity(PublishingStatusDao publishingStatusDao, CatalogDao catalogDao,
+                                            BookPublishRequestManager bookPublishRequestManager) {
+        this.publishingStatusDao = publishingStatusDao;
+        this.catalogDao = catalogDao;
+        this.bookPublishRequestManager = bookPublishRequestManager;
+    }
+
+    /**
+     * Submits every book in the request for publishing.
+     *
+     * @param request Request object containing the books to be published. A book with a book id updates that book,
+     *                a book without one is published as a new book.
+     * @return SubmitBooksForPublishingResponse Response object with one result per book, in the order of the request,
+     * holding either the publishing record id of the queued book or why it was not queued.
+     * @throws PublishingQueueFullException if the publishing queue does not have room for the valid books, none of
+     * them is queued then. If the queue fills up after the QUEUED statuses are written, they are recorded as FAILED.
+     */
+    public SubmitBooksForPublishingResponse execute(SubmitBooksForPublishingRequest request) {
+        List<SubmitBookForPublishingRequest> books = request.getBooks() == null ?
+            Collections.emptyList() : request.getBooks();
+        BookSubmissionResult[] results = new BookSubmissionResult[books.size()];
+
+        List<BookPublishRequest> converted = new ArrayList<>(books.size());
+        List<Integer> positions = new ArrayList<>(books.size());
+        for (int i = 0; i < books.size(); i++) {
+            SubmitBookForPublishingRequest book = books.get(i);
+            if (!isValidGenre(book.getGenre())) {
+                results[i] = failure(book.getBookId(), INVALID_GENRE + book.getGenre());
+                continue;
+            }
+            converted.add(BookPublishRequestConverter.toBookPublishRequest(book));
+            positions.add(i);
+        }
+
+        // reject before touching the catalog if the queue has no room for these books
+        bookPublishRequestManager.ensureCapacityFor(converted);
+
+        List<String> bookIds = new ArrayList<>();
+        for (BookPublishRequest bookPublishRequest : converted) {
+            if (bookPublishRequest.getBookId() != null) {
+                bookIds.add(bookPublishRequest.getBookId());
+            }
+        }
+        Set<String> existingBookIds = catalogDao.findExistingBookIds(bookIds);
+
+        List<BookPublishRequest> toQueue = new ArrayList<>(converted.size());
+        for (int i = 0; i < converted.size(); i++) {
+            BookPublishRequest bookPublishRequest = converted.get(i);
+            int position = positions.get(i);
+            if (bookPublishRequest.getBookId() != null && !existingBookIds.contains(bookPublishRequest.getBookId())) {
+                results[position] = failure(bookPublishRequest.getBookId(), BOOK_NOT_FOUND);
+                continue;
+            }
+            toQueue.add(bookPublishRequest);
+            results[position] = BookSubmissionResult.builder()
+                .withBookId(bookPublishRequest.getBookId())
+                .withPublishingRecordId(bookPublishRequest.getPublishingRecordId())
+                .build();
+        }
+
+        // record the requests before queueing them, a worker can take one and write the next status right away
+        publishingStatusDao.setPublishingStatuses(toQueue, PublishingRecordStatus.QUEUED);
+
+        List<BookPublishRequest> superseded;
+        try {
+            superseded = bookPublishRequestManager.addBookPublishRequests(toQueue);
+        } catch (RuntimeException e) {
+            // the queue filled up since the capacity check, or the requests could not be journaled
+            try {
+                publishingStatusDao.setPublishingStatuses(toQueue, PublishingRecordStatus.FAILED, NOT_QUEUED);
+            } catch (RuntimeException statusFailure) {
+                e.addSuppressed(statusFailure);
+            }
+            throw e;
+        }
+
+        // older requests for these books were still waiting, only the newest request for each book will be published
+        if (!superseded.isEmpty()) {
+            Map<String, String> newestByBookId = new HashMap<>();
+            for (BookPublishRequest bookPublishRequest : toQueue) {
+                if (bookPublishRequest.getBookId() != null) {
+                    newestByBookId.put(bookPublishRequest.getBookId(), bookPublishRequest.getPublishingRecordId());
+                }
+            }
+            for (BookPublishRequest supersededRequest : superseded) {
+                publishingStatusDao.setPublishingStatus(supersededRequest.getPublishingRecordId(),
+                    PublishingRecordStatus.SUPERSEDED,
+                    supersededRequest.getBookId(),
+                    "Superseded by publishing record " + newestByBookId.get(supersededRequest.getBookId()));
+            }
+        }
+
+        return SubmitBooksForPublishingResponse.builder()
+            .withResults(Arrays.asList(results))
+            .build();
+    }
+
+    private static boolean isValidGenre(String genre) {
+        if (genre == null) {
+            return false;
+        }
+        try {
+            BookGenre.valueOf(genre);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static BookSubmissionResult failure(String bookId, String error) {
+        return BookSubmissionResult.builder()
+            .withBookId(bookId)
+            .withError(error)
+            .build();
+    }
+}
@@ -0,0 +1,114 @@
+package com.amazon.ata.kindlepublishingservice.activity;
+
+import com.amazon.ata.kindlepublishingservice.converters.PublishingStatusRecordConverter;
+import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
+import com.amazon.ata.kindlepublishingservice.dynamodb.models.PublishingStatusItem;
+import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
+import com.amazon.ata.kindlepublishingservice.exceptions.PublishingStatusNotFoundException;
+import com.amazon.ata.kindlepublishingservice.models.requests.WaitForPublishingStatusRequest;
+import com.amazon.ata.kindlepublishingservice.models.response.GetPublishingStatusResponse;
+import com.amazon.ata.kindlepublishingservice.publishing.PublishingStatusNotifier;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of the WaitForPublishingStatus API, a long-poll alternative to reading the publishing status in a
+ * loop. The caller passes how many statuses of the request it already knows, and the response is sent as soon as
+ * there are more, without reading the status table again, or once the timeout elapses with the statuses unchanged.
+ */
+public class WaitForPublishingStatusActivity {
+
+    /** The longest a caller may wait, below the async request timeout of the HTTP server. */
+    public static final long MAX_TIMEOUT_SECONDS = 30;
+
+    // After one of these nothing is published for the request, so there is nothing to wait for.
+    private static final Set<PublishingRecordStatus> FINAL_STATUSES = EnumSet.of(PublishingRecordStatus.SUCCESSFUL,
+        PublishingRecordStatus.FAILED, PublishingRecordStatus.SUPERSEDED, PublishingRecordStatus.CANCELLED);
+
+    private final PublishingStatusDao publishingStatusDao;
+    private final PublishingStatusNotifier publishingStatusNotifier;
+
+    /**
+     * Instantiates a new WaitForPublishingStatusActivity object.
+     *
+     * @param publishingStatusDao PublishingStatusDao to access the publishing status table.
+     * @param publishingStatusNotifier Notifies the activity of statuses as they are written.
+     */
+    @Inject
+    public WaitForPublishingStatusActivity(PublishingStatusDao publishingStatusDao,
+                                           PublishingStatusNotifier publishingStatusNotifier) {
+        this.publishingStatusDao = publishingStatusDao;
+        this.publishingStatusNotifier = publishingStatusNotifier;
+    }
+
+    /**
+     * Returns the publishing status history of a request once it holds more statuses than the caller knows of.
+     *
+     * @param request Request object containing the publishing record id, the number of statuses the caller already
+     *                knows of and how long to wait, up to {@link #MAX_TIMEOUT_SECONDS}.
+     * @return a future of the status history, completed when it changes or the timeout elapses.
+     * @throws PublishingStatusNotFoundException if the request has no status.
+     * @throws com.amazon.ata.kindlepublishingservice.exceptions.PublishingStatusWaitLimitException if too many
+     * callers are waiting already.
+     */
+    public CompletableFuture<GetPublishingStatusResponse> execute(WaitForPublishingStatusRequest request) {
+        String publishingRecordId = request.getPublishingRecordId();
+        long timeoutSeconds = Math.max(0, Math.min(MAX_TIMEOUT_SECONDS, request.getTimeoutSeconds()));
+
+        // Waits before reading, so a status written in between is not missed.
+        CompletableFuture<PublishingStatusItem> nextStatus = publishingStatusNotifier.awaitNextStatus(
+            publishingRecordId, timeoutSeconds, TimeUnit.SECONDS);
+
+        List<PublishingStatusItem> publishingStatusItems;
+        try {
+            publishingStatusItems = publishingStatusDao.getPublishingStatuses(publishingRecordId);
+        } catch (PublishingStatusNotFoundException e) {
+            nextStatus.cancel(false);
+            throw new PublishingStatusNotFoundException("Publishing status not found", e);
+        }
+
+        if (publishingStatusItems.size() > request.getKnownStatusCount() || timeoutSeconds == 0
+                || isFinal(publishingStatusItems)) {
+            nextStatus.cancel(false);
+            return CompletableFuture.completedFuture(toResponse(publishingStatusItems));
+        }
+        return nextStatus.thenApply(item -> toResponse(withStatus(publishingStatusItems, item)));
+    }
+
+    private static boolean isFinal(List<PublishingStatusItem> publishingStatusItems) {
+        for (PublishingStatusItem item : publishingStatusItems) {
+            if (FINAL_STATUSES.contains(item.getStatus())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A status is written once per request, writing it again replaces it.
+    private static List<PublishingStatusItem> withStatus(List<PublishingStatusItem> publishingStatusItems,
+                                                         PublishingStatusItem written) {
+        List<PublishingStatusItem> merged = new ArrayList<>(publishingStatusItems.size() + 1);
+        for (PublishingStatusItem item : publishingStatusItems) {
+            if (written == null || item.getStatus() != written.getStatus()) {
+                merged.add(item);
+            }
+        }
+        if (written != null) {
+            merged.add(written);
+        }
+        return merged;
+    }
+
+    private static GetPublishingStatusResponse toResponse(List<PublishingStatusItem> publishingStatusItems) {
+        return GetPublishingStatusResponse.builder()
+            .withPublishingStatusHistory(PublishingStatusRecordConverter.toPublishingStatusRecords(
+                publishingStatusItems))
+            .build();
+    }
+}
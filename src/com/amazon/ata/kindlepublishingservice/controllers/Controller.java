@@ -1,15 +1,39 @@
 package com.amazon.ata.kindlepublishingservice.controllers;
 
 import com.amazon.ata.kindlepublishingservice.*;
+import com.amazon.ata.kindlepublishingservice.activity.CancelBookPublishingActivity;
 import com.amazon.ata.kindlepublishingservice.activity.GetBookActivity;
+import com.amazon.ata.kindlepublishingservice.activity.GetBooksActivity;
+import com.amazon.ata.kindlepublishingservice.activity.GetDeadLettersActivity;
+import com.amazon.ata.kindlepublishingservice.activity.ReplayDeadLetterActivity;
+import com.amazon.ata.kindlepublishingservice.activity.SubmitBookForPublishingActivity;
+import com.amazon.ata.kindlepublishingservice.activity.SubmitBooksForPublishingActivity;
+import com.amazon.ata.kindlepublishingservice.activity.WaitForPublishingStatusActivity;
 import com.amazon.ata.kindlepublishingservice.dagger.ApplicationComponent;
+import com.amazon.ata.kindlepublishingservice.exceptions.BookLookupLimitException;
+import com.amazon.ata.kindlepublishingservice.exceptions.DeadLetterNotFoundException;
+import com.amazon.ata.kindlepublishingservice.exceptions.PublishingNotCancellableException;
+import com.amazon.ata.kindlepublishingservice.exceptions.PublishingQueueFullException;
+import com.amazon.ata.kindlepublishingservice.exceptions.PublishingStatusWaitLimitException;
 import com.amazon.ata.kindlepublishingservice.models.*;
+import com.amazon.ata.kindlepublishingservice.models.requests.CancelBookPublishingRequest;
 import com.amazon.ata.kindlepublishingservice.models.requests.GetBookRequest;
+import com.amazon.ata.kindlepublishingservice.models.requests.GetBooksRequest;
+import com.amazon.ata.kindlepublishingservice.models.requests.ReplayDeadLetterRequest;
+import com.amazon.ata.kindlepublishingservice.models.requests.SubmitBookForPublishingRequest;
+import com.amazon.ata.kindlepublishingservice.models.requests.SubmitBooksForPublishingRequest;
+import com.amazon.ata.kindlepublishingservice.models.requests.WaitForPublishingStatusRequest;
+import com.amazon.ata.kindlepublishingservice.publishing.SpooledText;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 public class Controller {
@@ -22,6 +46,18 @@ public class Controller {
         return new ResponseEntity<>(bookActivity.execute(getBookRequest), HttpStatus.OK);
     }
 
+    /**
+     * Looks up many books in one call, such as GET /books?ids=book.1,book.2. Responds with one result per id, in
+     * order, holding either the book and its recommendations or why it was not found. Asking for more than
+     * {@link GetBooksActivity#MAX_BOOK_IDS} ids responds with 400.
+     */
+    @GetMapping(value = "/books", params = "ids", produces = {"application/json"})
+    public ResponseEntity<?> getBooks(@RequestParam List<String> ids) {
+        GetBooksActivity booksActivity = component.provideGetBooksActivity();
+        GetBooksRequest getBooksRequest = GetBooksRequest.builder().withBookIds(ids).build();
+        return new ResponseEntity<>(booksActivity.execute(getBooksRequest), HttpStatus.OK);
+    }
+
     @DeleteMapping(value = "/books/{id}")
     public ResponseEntity<?> removeBook(@PathVariable String id) {
         return null;
@@ -29,6 +65,147 @@ public class Controller {
 
     @PostMapping(value = "/books", consumes = {"application/json"}, produces = {"application/json"})
     public ResponseEntity<?> submitBookForPublishing(@Valid @RequestBody Book book) {
-        return null;
+        SubmitBookForPublishingActivity submitActivity = component.provideSubmitBookForPublishingActivity();
+        SubmitBookForPublishingRequest submitRequest = SubmitBookForPublishingRequest.builder()
+            .withBookId(book.getBookId())
+            .withTitle(book.getTitle())
+            .withAuthor(book.getAuthor())
+            .withText(book.getText())
+            .withGenre(book.getGenre())
+            .build();
+        return new ResponseEntity<>(submitActivity.execute(submitRequest), HttpStatus.OK);
+    }
+
+    /**
+     * Submits a book whose text is streamed as the plain UTF-8 request body, with the other fields as query
+     * parameters. The text is spooled to disk as it arrives rather than read onto the heap.
+     */
+    @PostMapping(value = "/books", consumes = {"text/plain", "application/octet-stream"},
+        produces = {"application/json"})
+    public ResponseEntity<?> submitBookForPublishing(@RequestParam(required = false) String bookId,
+                                                     @RequestParam String title, @RequestParam String author,
+                                                     @RequestParam String genre, InputStream text) {
+        SubmitBookForPublishingActivity submitActivity = component.provideSubmitBookForPublishingActivity();
+        SpooledText spooledText = component.provideManuscriptSpool().spool(text);
+        SubmitBookForPublishingRequest submitRequest = SubmitBookForPublishingRequest.builder()
+            .withBookId(bookId)
+            .withTitle(title)
+            .withAuthor(author)
+            .withSpooledText(spooledText)
+            .withGenre(genre)
+            .build();
+        boolean accepted = false;
+        try {
+            ResponseEntity<?> response = new ResponseEntity<>(submitActivity.execute(submitRequest), HttpStatus.OK);
+            accepted = true;
+            return response;
+        } finally {
+            // Unless the request was queued, nothing else will delete the spooled text.
+            if (!accepted && !spooledText.isClaimed()) {
+                spooledText.delete();
+            }
+        }
+    }
+
+    @PostMapping(value = "/books/batch", consumes = {"application/json"}, produces = {"application/json"})
+    public ResponseEntity<?> submitBooksForPublishing(@Valid @RequestBody List<Book> books) {
+        SubmitBooksForPublishingActivity submitActivity = component.provideSubmitBooksForPublishingActivity();
+        List<SubmitBookForPublishingRequest> submitRequests = new ArrayList<>(books.size());
+        for (Book book : books) {
+            submitRequests.add(SubmitBookForPublishingRequest.builder()
+                .withBookId(book.getBookId())
+                .withTitle(book.getTitle())
+                .withAuthor(book.getAuthor())
+                .withText(book.getText())
+                .withGenre(book.getGenre())
+                .build());
+        }
+        SubmitBooksForPublishingRequest submitRequest = SubmitBooksForPublishingRequest.builder()
+            .withBooks(submitRequests)
+            .build();
+        return new ResponseEntity<>(submitActivity.execute(submitRequest), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/publishingstatuses/{id}/cancel", produces = {"application/json"})
+    public ResponseEntity<?> cancelBookPublishing(@PathVariable String id) {
+        CancelBookPublishingActivity cancelActivity = component.provideCancelBookPublishingActivity();
+        CancelBookPublishingRequest cancelRequest = CancelBookPublishingRequest.builder()
+            .withPublishingRecordId(id)
+            .build();
+        return new ResponseEntity<>(cancelActivity.execute(cancelRequest), HttpStatus.OK);
+    }
+
+    /**
+     * Long-polls the publishing status history of a request: responds once it holds more than knownStatusCount
+     * statuses, or after timeoutSeconds with the history unchanged. No servlet thread is held while waiting.
+     */
+    @GetMapping(value = "/publishingstatuses/{id}/wait", produces = {"application/json"})
+    public CompletableFuture<ResponseEntity<?>> waitForPublishingStatus(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "0") int knownStatusCount,
+            @RequestParam(defaultValue = "20") long timeoutSeconds) {
+        WaitForPublishingStatusActivity waitActivity = component.provideWaitForPublishingStatusActivity();
+        WaitForPublishingStatusRequest waitRequest = WaitForPublishingStatusRequest.builder()
+            .withPublishingRecordId(id)
+            .withKnownStatusCount(knownStatusCount)
+            .withTimeoutSeconds(timeoutSeconds)
+            .build();
+        return waitActivity.execute(waitRequest).thenApply(response -> new ResponseEntity<>(response, HttpStatus.OK));
+    }
+
+    /**
+     * Lists the publishing requests that failed for good, oldest failure first, without their text.
+     */
+    @GetMapping(value = "/deadletters", produces = {"application/json"})
+    public ResponseEntity<?> getDeadLetters() {
+        GetDeadLettersActivity deadLettersActivity = component.provideGetDeadLettersActivity();
+        return new ResponseEntity<>(deadLettersActivity.execute(), HttpStatus.OK);
+    }
+
+    /**
+     * Queues a dead letter for publishing again under its publishing record id. Responds with 404 if there is no
+     * dead letter for the id, and with 503 if the queue is full, the dead letter is then kept.
+     */
+    @PostMapping(value = "/deadletters/{id}/replay", produces = {"application/json"})
+    public ResponseEntity<?> replayDeadLetter(@PathVariable String id) {
+        ReplayDeadLetterActivity replayActivity = component.provideReplayDeadLetterActivity();
+        ReplayDeadLetterRequest replayRequest = ReplayDeadLetterRequest.builder()
+            .withPublishingRecordId(id)
+            .build();
+        return new ResponseEntity<>(replayActivity.execute(replayRequest), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/metrics", produces = {"application/json"})
+    public ResponseEntity<?> getMetrics() {
+        return new ResponseEntity<>(component.provideMetricsPublisher().snapshot(), HttpStatus.OK);
+    }
+
+    @ExceptionHandler(BookLookupLimitException.class)
+    public ResponseEntity<?> bookLookupLimit(BookLookupLimitException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(PublishingQueueFullException.class)
+    public ResponseEntity<?> publishingQueueFull(PublishingQueueFullException e) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        return new ResponseEntity<>(e.getMessage(), headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(PublishingStatusWaitLimitException.class)
+    public ResponseEntity<?> publishingStatusWaitLimit(PublishingStatusWaitLimitException e) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        return new ResponseEntity<>(e.getMessage(), headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(DeadLetterNotFoundException.class)
+    public ResponseEntity<?> deadLetterNotFound(DeadLetterNotFoundException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(PublishingNotCancellableException.class)
+    public ResponseEntity<?> publishingNotCancellable(PublishingNotCancellableException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
     }
 }
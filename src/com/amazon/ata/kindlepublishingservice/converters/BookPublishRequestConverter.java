@@ -26,6 +26,7 @@ public class BookPublishRequestConverter {
         return BookPublishRequest.builder()
             .withPublishingRecordId(publishingRecordId)
             .withText(request.getText())
+            .withSpooledText(request.getSpooledText())
             .withTitle(request.getTitle())
             .withBookId(request.getBookId())
             .withGenre(BookGenre.valueOf(request.getGenre()))
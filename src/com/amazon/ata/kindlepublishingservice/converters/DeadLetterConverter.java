@@ -0,0 +1,35 @@
+package com.amazon.ata.kindlepublishingservice.converters;
+
+import com.amazon.ata.coral.converter.CoralConverterUtil;
+import com.amazon.ata.kindlepublishingservice.models.DeadLetterRecord;
+import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequest;
+import com.amazon.ata.kindlepublishingservice.publishing.DeadLetter;
+
+import java.util.List;
+
+/**
+ * Converts dead letters into the records returned by the API. The text of the book is left out.
+ */
+public class DeadLetterConverter {
+
+    private DeadLetterConverter() {
+    }
+
+    public static List<DeadLetterRecord> toDeadLetterRecords(List<DeadLetter> deadLetters) {
+        return CoralConverterUtil.convertList(deadLetters, DeadLetterConverter::toDeadLetterRecord);
+    }
+
+    public static DeadLetterRecord toDeadLetterRecord(DeadLetter deadLetter) {
+        BookPublishRequest request = deadLetter.getRequest();
+        return DeadLetterRecord.builder()
+            .withPublishingRecordId(request.getPublishingRecordId())
+            .withBookId(request.getBookId())
+            .withTitle(request.getTitle())
+            .withAuthor(request.getAuthor())
+            .withGenre(request.getGenre() == null ? null : request.getGenre().name())
+            .withAttempts(deadLetter.getAttempts())
+            .withReason(deadLetter.getReason())
+            .withFailedAtMillis(deadLetter.getFailedAtMillis())
+            .build();
+    }
+}
@@ -1,12 +1,19 @@
 package com.amazon.ata.kindlepublishingservice.dagger;
 
+import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
+import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsLogReporter;
+import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequest;
+import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequestManager;
 import com.amazon.ata.kindlepublishingservice.publishing.BookPublisher;
+import com.amazon.ata.kindlepublishingservice.publishing.PublishWorkerAutoscaler;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.List;
 
 /**
  * The ATAKindlePublishingServiceManager controls initializing, starting, verifying, and stopping the
@@ -18,17 +25,48 @@ public class ATAKindlePublishingServiceManager {
     private static final Logger log = LogManager.getLogger(ATAKindlePublishingServiceManager.class);
 
     private final BookPublisher bookPublisher;
+    private final BookPublishRequestManager bookPublishRequestManager;
+    private final MetricsLogReporter metricsLogReporter;
+    private final PublishWorkerAutoscaler publishWorkerAutoscaler;
+    private final PublishingStatusDao publishingStatusDao;
 
     /**
      * Construct a ATAKindlePublishingServiceManager.
      * @param bookPublisher handles asynchronous publishing of books
+     * @param bookPublishRequestManager holds the queued publish requests
+     * @param metricsLogReporter periodically logs the service's metrics
+     * @param publishWorkerAutoscaler resizes the publisher to the load
+     * @param publishingStatusDao records the status of recovered requests that were superseded
      */
     @Inject
-    ATAKindlePublishingServiceManager(BookPublisher bookPublisher) {
+    ATAKindlePublishingServiceManager(BookPublisher bookPublisher,
+                                      BookPublishRequestManager bookPublishRequestManager,
+                                      MetricsLogReporter metricsLogReporter,
+                                      PublishWorkerAutoscaler publishWorkerAutoscaler,
+                                      PublishingStatusDao publishingStatusDao) {
         this.bookPublisher = bookPublisher;
+        this.bookPublishRequestManager = bookPublishRequestManager;
+        this.metricsLogReporter = metricsLogReporter;
+        this.publishWorkerAutoscaler = publishWorkerAutoscaler;
+        this.publishingStatusDao = publishingStatusDao;
     }
 
+    /**
+     * Queues the requests left unfinished by the previous run. Must be called before the service accepts
+     * submissions, so a recovered request can never supersede a newer one.
+     */
     public void initialize() {
+        List<BookPublishRequest> superseded = bookPublishRequestManager.recoverJournaledRequests();
+        for (BookPublishRequest request : superseded) {
+            publishingStatusDao.setPublishingStatus(request.getPublishingRecordId(),
+                PublishingRecordStatus.SUPERSEDED, request.getBookId(),
+                "Superseded by a newer publishing record for the book");
+        }
+        int recovered = bookPublishRequestManager.getQueueDepth();
+        if (recovered > 0) {
+            log.info("Queued {} publish requests left unfinished by the previous run, {} superseded", recovered,
+                superseded.size());
+        }
     }
 
     public void verify() throws Exception {
@@ -36,9 +74,18 @@ public class ATAKindlePublishingServiceManager {
 
     public void start() throws Exception {
         bookPublisher.start();
+        publishWorkerAutoscaler.start();
+        metricsLogReporter.start();
     }
 
     public void stop() throws Exception {
-        bookPublisher.stop();
+        publishWorkerAutoscaler.stop();
+        // Waits for the books being published, so they can still be completed in the journal before it closes.
+        if (!bookPublisher.stop()) {
+            log.warn("Closing the publish request journal with books still being published, they are published " +
+                "again on the next start");
+        }
+        bookPublishRequestManager.close();
+        metricsLogReporter.stop();
     }
 }
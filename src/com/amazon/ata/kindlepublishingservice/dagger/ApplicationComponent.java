@@ -1,9 +1,17 @@
 package com.amazon.ata.kindlepublishingservice.dagger;
 
+import com.amazon.ata.kindlepublishingservice.activity.CancelBookPublishingActivity;
 import com.amazon.ata.kindlepublishingservice.activity.GetBookActivity;
+import com.amazon.ata.kindlepublishingservice.activity.GetBooksActivity;
+import com.amazon.ata.kindlepublishingservice.activity.GetDeadLettersActivity;
 import com.amazon.ata.kindlepublishingservice.activity.GetPublishingStatusActivity;
 import com.amazon.ata.kindlepublishingservice.activity.RemoveBookFromCatalogActivity;
+import com.amazon.ata.kindlepublishingservice.activity.ReplayDeadLetterActivity;
 import com.amazon.ata.kindlepublishingservice.activity.SubmitBookForPublishingActivity;
+import com.amazon.ata.kindlepublishingservice.activity.SubmitBooksForPublishingActivity;
+import com.amazon.ata.kindlepublishingservice.activity.WaitForPublishingStatusActivity;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import com.amazon.ata.kindlepublishingservice.publishing.ManuscriptSpool;
 import dagger.Component;
 
 import javax.inject.Singleton;
@@ -17,12 +25,28 @@ import javax.inject.Singleton;
 public interface ApplicationComponent {
     GetBookActivity provideGetBookActivity();
 
+    GetBooksActivity provideGetBooksActivity();
+
     GetPublishingStatusActivity provideGetPublishingStatusActivity();
 
     RemoveBookFromCatalogActivity provideRemoveBookFromCatalogActivity();
 
     SubmitBookForPublishingActivity provideSubmitBookForPublishingActivity();
 
+    SubmitBooksForPublishingActivity provideSubmitBooksForPublishingActivity();
+
+    CancelBookPublishingActivity provideCancelBookPublishingActivity();
+
+    WaitForPublishingStatusActivity provideWaitForPublishingStatusActivity();
+
+    GetDeadLettersActivity provideGetDeadLettersActivity();
+
+    ReplayDeadLetterActivity provideReplayDeadLetterActivity();
+
     ATAKindlePublishingServiceManager provideATAKindlePublishingServiceManager();
 
+    MetricsPublisher provideMetricsPublisher();
+
+    ManuscriptSpool provideManuscriptSpool();
+
 }
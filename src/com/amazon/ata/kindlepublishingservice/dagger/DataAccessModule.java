@@ -1,18 +1,51 @@
 package com.amazon.ata.kindlepublishingservice.dagger;
 
+import com.amazon.ata.kindlepublishingservice.dao.CatalogDao;
+import com.amazon.ata.kindlepublishingservice.dao.CatalogItemCache;
+import com.amazon.ata.kindlepublishingservice.dao.FileTextBlobStore;
+import com.amazon.ata.kindlepublishingservice.dao.PublishRequestLeaseDao;
+import com.amazon.ata.kindlepublishingservice.dao.S3TextBlobStore;
+import com.amazon.ata.kindlepublishingservice.dao.TextBlobStore;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
 import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import dagger.Module;
 import dagger.Provides;
 
+import javax.inject.Named;
 import javax.inject.Singleton;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Module
 public class DataAccessModule {
 
+    // Where large book text is offloaded to: "table" to keep it in the catalog table, "file" for a local directory or
+    // "s3" for a bucket shared by every node, override with -Dkindlepublishing.textStore.backend=s3
+    private static final String TEXT_STORE_BACKEND = System.getProperty("kindlepublishing.textStore.backend", "table");
+    private static final String TEXT_STORE_DIRECTORY = System.getProperty("kindlepublishing.textStore.dir", "book-text");
+    private static final String TEXT_STORE_BUCKET = System.getProperty("kindlepublishing.textStore.bucket");
+    private static final String TEXT_STORE_KEY_PREFIX = System.getProperty("kindlepublishing.textStore.keyPrefix",
+        "book-text/");
+    // Heap for the latest versions of books served by GetBook, set -Dkindlepublishing.catalogCache.maxBytes=0 to
+    // read every book from the catalog table
+    private static final long CATALOG_CACHE_MAX_BYTES =
+        Long.getLong("kindlepublishing.catalogCache.maxBytes", 32L << 20);
+    // Bounds how long an update made by another node can go unseen, override with
+    // -Dkindlepublishing.catalogCache.ttlSeconds=N
+    private static final long CATALOG_CACHE_TTL_SECONDS = Long.getLong("kindlepublishing.catalogCache.ttlSeconds", 60);
+    // Catalog reads and recommendation calls GetBooks makes at once across all callers, override with
+    // -Dkindlepublishing.getBooks.threads=N
+    private static final int GET_BOOKS_THREADS =
+        Math.max(1, Integer.getInteger("kindlepublishing.getBooks.threads", 16));
+
     @Singleton
     @Provides
     public DynamoDBMapper provideDynamoDBMapper() {
@@ -23,4 +56,52 @@ public class DataAccessModule {
 
         return new DynamoDBMapper(amazonDynamoDBClient);
     }
+
+    @Singleton
+    @Provides
+    public CatalogDao provideCatalogDao(DynamoDBMapper dynamoDBMapper, CatalogItemCache catalogItemCache) {
+        return new CatalogDao(dynamoDBMapper, textBlobStore(), catalogItemCache);
+    }
+
+    @Singleton
+    @Provides
+    public PublishRequestLeaseDao providePublishRequestLeaseDao(DynamoDBMapper dynamoDBMapper) {
+        return new PublishRequestLeaseDao(dynamoDBMapper, textBlobStore());
+    }
+
+    @Singleton
+    @Provides
+    public CatalogItemCache provideCatalogItemCache(MetricsPublisher metricsPublisher) {
+        return new CatalogItemCache(metricsPublisher, CATALOG_CACHE_MAX_BYTES, CATALOG_CACHE_TTL_SECONDS,
+            TimeUnit.SECONDS);
+    }
+
+    @Singleton
+    @Provides
+    @Named("bookLookup")
+    public ExecutorService provideBookLookupExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(GET_BOOKS_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "book-lookup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Null keeps all text in the catalog table.
+    private static TextBlobStore textBlobStore() {
+        if ("file".equalsIgnoreCase(TEXT_STORE_BACKEND)) {
+            return new FileTextBlobStore(Paths.get(TEXT_STORE_DIRECTORY));
+        }
+        if ("s3".equalsIgnoreCase(TEXT_STORE_BACKEND)) {
+            if (TEXT_STORE_BUCKET == null) {
+                throw new IllegalStateException("kindlepublishing.textStore.bucket is required for the s3 backend");
+            }
+            return new S3TextBlobStore(AmazonS3ClientBuilder.standard()
+                .withCredentials(DefaultAWSCredentialsProviderChain.getInstance())
+                .withRegion(Regions.US_WEST_2)
+                .build(), TEXT_STORE_BUCKET, TEXT_STORE_KEY_PREFIX);
+        }
+        return null;
+    }
 }
@@ -1,28 +1,165 @@
 package com.amazon.ata.kindlepublishingservice.dagger;
 
+import com.amazon.ata.kindlepublishingservice.dao.CatalogDao;
+import com.amazon.ata.kindlepublishingservice.dao.PublishRequestLeaseDao;
+import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsConstants;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsLogReporter;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
 import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequestManager;
 import com.amazon.ata.kindlepublishingservice.publishing.BookPublishTask;
 import com.amazon.ata.kindlepublishingservice.publishing.BookPublisher;
+import com.amazon.ata.kindlepublishingservice.publishing.DeadLetterStore;
+import com.amazon.ata.kindlepublishingservice.publishing.DrainingPublishWorker;
+import com.amazon.ata.kindlepublishingservice.publishing.KindleConversionCache;
+import com.amazon.ata.kindlepublishingservice.publishing.LeasedPublishQueue;
+import com.amazon.ata.kindlepublishingservice.publishing.ManuscriptSpool;
+import com.amazon.ata.kindlepublishingservice.publishing.MappedPublishRequestJournal;
+import com.amazon.ata.kindlepublishingservice.publishing.NoOpPublishRequestJournal;
+import com.amazon.ata.kindlepublishingservice.publishing.PublishFailureHandler;
+import com.amazon.ata.kindlepublishingservice.publishing.PublishQueueFairness;
+import com.amazon.ata.kindlepublishingservice.publishing.PublishRequestJournal;
+import com.amazon.ata.kindlepublishingservice.publishing.PublishRetryPolicy;
+import com.amazon.ata.kindlepublishingservice.publishing.PublishSuccessRecorder;
+import com.amazon.ata.kindlepublishingservice.publishing.PublishWorkerAutoscaler;
+import com.amazon.ata.kindlepublishingservice.publishing.PublishingPipeline;
+import com.amazon.ata.kindlepublishingservice.publishing.PublishingStatusNotifier;
+import com.amazon.ata.kindlepublishingservice.publishing.StripedExecutor;
 import dagger.Module;
 import dagger.Provides;
 
 import javax.inject.Singleton;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
 @Module
 public class PublishingModule {
 
+    // Publish with the staged pipeline, set -Dkindlepublishing.publisher.pipeline=false to use draining workers instead
+    private static final boolean PIPELINE_ENABLED =
+        Boolean.parseBoolean(System.getProperty("kindlepublishing.publisher.pipeline", "true"));
+    // Pipeline stage sizes, override with -Dkindlepublishing.pipeline.<stage>Threads=N and
+    // -Dkindlepublishing.pipeline.stageCapacity=N
+    private static final int VALIDATE_THREADS = Integer.getInteger("kindlepublishing.pipeline.validateThreads", 1);
+    private static final int CONVERT_THREADS = Integer.getInteger("kindlepublishing.pipeline.convertThreads", 4);
+    private static final int PERSIST_THREADS = Integer.getInteger("kindlepublishing.pipeline.persistThreads", 2);
+    private static final int PUBLISH_STATUS_THREADS =
+        Integer.getInteger("kindlepublishing.pipeline.publishStatusThreads", 1);
+    private static final int STAGE_CAPACITY = Integer.getInteger("kindlepublishing.pipeline.stageCapacity", 16);
+    // Kindle conversion cache, the disk tier is only used when -Dkindlepublishing.conversionCache.dir is set
+    private static final long CONVERSION_CACHE_MAX_BYTES =
+        Long.getLong("kindlepublishing.conversionCache.maxBytes", 64L << 20);
+    private static final String CONVERSION_CACHE_DIRECTORY = System.getProperty("kindlepublishing.conversionCache.dir");
+    private static final long CONVERSION_CACHE_MAX_DISK_BYTES =
+        Long.getLong("kindlepublishing.conversionCache.maxDiskBytes", 1L << 30);
+    // Number of books drain mode publishes at once, override with -Dkindlepublishing.publisher.workers=N
+    private static final int PUBLISH_WORKER_COUNT = Math.max(1, Integer.getInteger("kindlepublishing.publisher.workers", 1));
+    // Requests waiting on each drain lane, the rest stay in the publish queue where newer submissions can replace them
+    private static final int LANE_CAPACITY = 2;
+    // Resize the publish workers from queue depth, queue age and DynamoDB latency, set
+    // -Dkindlepublishing.autoscale.enabled=false to keep the configured worker count. Override the bounds and signals
+    // with -Dkindlepublishing.autoscale.<setting>=N
+    private static final boolean AUTOSCALE_ENABLED =
+        Boolean.parseBoolean(System.getProperty("kindlepublishing.autoscale.enabled", "true"));
+    private static final int AUTOSCALE_MIN_WORKERS = Integer.getInteger("kindlepublishing.autoscale.minWorkers", 1);
+    private static final int AUTOSCALE_MAX_WORKERS = Integer.getInteger("kindlepublishing.autoscale.maxWorkers", 16);
+    private static final long AUTOSCALE_INTERVAL_SECONDS = Long.getLong("kindlepublishing.autoscale.intervalSeconds", 5);
+    private static final long AUTOSCALE_TARGET_QUEUE_AGE_MILLIS =
+        Long.getLong("kindlepublishing.autoscale.targetQueueAgeMillis", 10000);
+    private static final long AUTOSCALE_LATENCY_LIMIT_MILLIS =
+        Long.getLong("kindlepublishing.autoscale.latencyLimitMillis", 200);
+    // Publish queue capacity, override with -Dkindlepublishing.queue.maxRequests and -Dkindlepublishing.queue.maxTextBytes
+    private static final int MAX_QUEUED_REQUESTS = Integer.getInteger("kindlepublishing.queue.maxRequests", 1000);
+    private static final long MAX_QUEUED_TEXT_BYTES = Long.getLong("kindlepublishing.queue.maxTextBytes", 256L << 20);
+    // Order of the local publish queue, set -Dkindlepublishing.queue.order=author to let authors take turns. Give
+    // authors more requests per turn with -Dkindlepublishing.queue.authorWeights="Author One=4;Author Two=2"
+    private static final String QUEUE_ORDER = System.getProperty("kindlepublishing.queue.order", "fifo");
+    private static final String QUEUE_AUTHOR_WEIGHTS = System.getProperty("kindlepublishing.queue.authorWeights");
+    // Publish request journal, disable with -Dkindlepublishing.journal.enabled=false
+    private static final boolean JOURNAL_ENABLED =
+        Boolean.parseBoolean(System.getProperty("kindlepublishing.journal.enabled", "true"));
+    private static final String JOURNAL_DIRECTORY = System.getProperty("kindlepublishing.journal.dir", "publish-journal");
+    // Retries of transiently failed publishes, override with -Dkindlepublishing.retry.maxAttempts,
+    // -Dkindlepublishing.retry.baseDelayMillis and -Dkindlepublishing.retry.maxDelayMillis
+    private static final int RETRY_MAX_ATTEMPTS = Integer.getInteger("kindlepublishing.retry.maxAttempts", 5);
+    private static final long RETRY_BASE_DELAY_MILLIS = Long.getLong("kindlepublishing.retry.baseDelayMillis", 500);
+    private static final long RETRY_MAX_DELAY_MILLIS = Long.getLong("kindlepublishing.retry.maxDelayMillis", 30000);
+    // Requests that failed for good, override with -Dkindlepublishing.deadLetter.dir
+    private static final String DEAD_LETTER_DIRECTORY =
+        System.getProperty("kindlepublishing.deadLetter.dir", "publish-dead-letters");
+    // Seconds between metric dumps to the log, override with -Dkindlepublishing.metrics.logIntervalSeconds, 0 disables
+    private static final long METRICS_LOG_INTERVAL_SECONDS =
+        Long.getLong("kindlepublishing.metrics.logIntervalSeconds", 60);
+    // Where publish requests wait: "local" keeps them in this node's queue, "dynamodb" shares them with every node
+    // through the PublishRequestLeases table, override with -Dkindlepublishing.queue.backend
+    private static final String QUEUE_BACKEND = System.getProperty("kindlepublishing.queue.backend", "local");
+    // Shared queue leases, override with -Dkindlepublishing.lease.millis, -Dkindlepublishing.lease.prefetch,
+    // -Dkindlepublishing.lease.idlePollMillis and -Dkindlepublishing.lease.owner
+    private static final long LEASE_MILLIS = Long.getLong("kindlepublishing.lease.millis", 30000);
+    private static final int LEASE_PREFETCH = Integer.getInteger("kindlepublishing.lease.prefetch", 4);
+    private static final long LEASE_IDLE_POLL_MILLIS = Long.getLong("kindlepublishing.lease.idlePollMillis", 1000);
+    private static final String LEASE_OWNER = System.getProperty("kindlepublishing.lease.owner");
+    // Directory streamed manuscripts are spooled to, override with -Dkindlepublishing.spool.dir=path
+    private static final String SPOOL_DIRECTORY = System.getProperty("kindlepublishing.spool.dir",
+        Paths.get(System.getProperty("java.io.tmpdir"), "kindle-manuscripts").toString());
+    // Callers that may wait for a publishing status change at once, override with
+    // -Dkindlepublishing.statusWait.maxWaiters=N
+    private static final int STATUS_WAIT_MAX_WAITERS = Integer.getInteger("kindlepublishing.statusWait.maxWaiters",
+        50000);
+    private static final int JOURNAL_SEGMENT_BYTES = Integer.getInteger("kindlepublishing.journal.segmentBytes", 64 << 20);
+
     @Provides
     @Singleton
-    public BookPublisher provideBookPublisher(ScheduledExecutorService scheduledExecutorService, BookPublishTask bookPublishTask) {
-        return new BookPublisher(scheduledExecutorService, bookPublishTask);
+    public BookPublisher provideBookPublisher(ScheduledExecutorService scheduledExecutorService,
+                                              BookPublishRequestManager bookPublishRequestManager,
+                                              BookPublishTask bookPublishTask,
+                                              MetricsPublisher metricsPublisher,
+                                              PublishingStatusDao publishingStatusDao,
+                                              CatalogDao catalogDao,
+                                              KindleConversionCache kindleConversionCache,
+                                              PublishFailureHandler publishFailureHandler,
+                                              PublishSuccessRecorder publishSuccessRecorder) {
+        if (PIPELINE_ENABLED) {
+            return new BookPublisher(PublishingPipeline.builder()
+                .withBookPublishRequestManager(bookPublishRequestManager)
+                .withPublishingStatusDao(publishingStatusDao)
+                .withCatalogDao(catalogDao)
+                .withMetricsPublisher(metricsPublisher)
+                .withKindleConversionCache(kindleConversionCache)
+                .withPublishFailureHandler(publishFailureHandler)
+                .withPublishSuccessRecorder(publishSuccessRecorder)
+                .withValidateThreads(VALIDATE_THREADS)
+                .withConvertThreads(CONVERT_THREADS)
+                .withPersistThreads(PERSIST_THREADS)
+                .withPublishStatusThreads(PUBLISH_STATUS_THREADS)
+                .withStageCapacity(STAGE_CAPACITY)
+                .withMaxWorkerCount(AUTOSCALE_ENABLED ? AUTOSCALE_MAX_WORKERS : CONVERT_THREADS)
+                .build());
+        }
+
+        if (PUBLISH_WORKER_COUNT == 1 && !AUTOSCALE_ENABLED) {
+            return new BookPublisher(scheduledExecutorService, Collections.singletonList(
+                new DrainingPublishWorker(1, bookPublishRequestManager, bookPublishTask, metricsPublisher)));
+        }
+
+        // Several workers draining the queue could publish two requests for the same book at once, so a single
+        // worker hands each request to one of PUBLISH_WORKER_COUNT lanes picked by its book id.
+        StripedExecutor lanes = new StripedExecutor(MetricsConstants.PUBLISH_WORKER_LANES, PUBLISH_WORKER_COUNT,
+            AUTOSCALE_ENABLED ? AUTOSCALE_MAX_WORKERS : PUBLISH_WORKER_COUNT, LANE_CAPACITY, metricsPublisher);
+        return new BookPublisher(scheduledExecutorService, Collections.singletonList(
+            new DrainingPublishWorker(1, bookPublishRequestManager, bookPublishTask, metricsPublisher, lanes)));
     }
 
     @Provides
     @Singleton
     public ScheduledExecutorService provideBookPublisherScheduler() {
+        // Drain mode schedules a single worker, extra workers run as its lanes
         return Executors.newScheduledThreadPool(1);
 
     }
@@ -32,8 +169,115 @@ public class PublishingModule {
 
     @Provides
     @Singleton
-    public BookPublishRequestManager provideBookPublishManager() {
-        return new BookPublishRequestManager(new ConcurrentLinkedQueue<>());
+    public BookPublishRequestManager provideBookPublishManager(MetricsPublisher metricsPublisher,
+                                                               PublishRequestJournal publishRequestJournal,
+                                                               PublishRequestLeaseDao publishRequestLeaseDao) {
+        if ("dynamodb".equalsIgnoreCase(QUEUE_BACKEND)) {
+            return new BookPublishRequestManager(metricsPublisher, new LeasedPublishQueue(
+                publishRequestLeaseDao, leaseOwner(), LEASE_MILLIS, LEASE_PREFETCH,
+                LEASE_IDLE_POLL_MILLIS, metricsPublisher));
+        }
+        PublishQueueFairness fairness = "author".equalsIgnoreCase(QUEUE_ORDER)
+            ? PublishQueueFairness.byAuthor(PublishQueueFairness.parseWeights(QUEUE_AUTHOR_WEIGHTS))
+            : PublishQueueFairness.fifo();
+        return new BookPublishRequestManager(metricsPublisher, MAX_QUEUED_REQUESTS, MAX_QUEUED_TEXT_BYTES,
+            publishRequestJournal, fairness);
+    }
+
+    @Provides
+    @Singleton
+    public KindleConversionCache provideKindleConversionCache(MetricsPublisher metricsPublisher) {
+        return new KindleConversionCache(metricsPublisher, CONVERSION_CACHE_MAX_BYTES,
+            CONVERSION_CACHE_DIRECTORY == null ? null : Paths.get(CONVERSION_CACHE_DIRECTORY),
+            CONVERSION_CACHE_MAX_DISK_BYTES);
+    }
+
+    @Provides
+    @Singleton
+    public PublishRetryPolicy providePublishRetryPolicy() {
+        return new PublishRetryPolicy(RETRY_MAX_ATTEMPTS, RETRY_BASE_DELAY_MILLIS, RETRY_MAX_DELAY_MILLIS);
+    }
+
+    @Provides
+    @Singleton
+    public PublishFailureHandler providePublishFailureHandler(BookPublishRequestManager bookPublishRequestManager,
+                                                              PublishingStatusDao publishingStatusDao,
+                                                              PublishRetryPolicy publishRetryPolicy,
+                                                              MetricsPublisher metricsPublisher) {
+        return new PublishFailureHandler(bookPublishRequestManager, publishingStatusDao, publishRetryPolicy,
+            new DeadLetterStore(Paths.get(DEAD_LETTER_DIRECTORY), metricsPublisher), metricsPublisher);
+    }
+
+    @Provides
+    @Singleton
+    public PublishSuccessRecorder providePublishSuccessRecorder(PublishingStatusDao publishingStatusDao,
+                                                                BookPublishRequestManager bookPublishRequestManager,
+                                                                PublishRetryPolicy publishRetryPolicy) {
+        return new PublishSuccessRecorder(publishingStatusDao, bookPublishRequestManager, publishRetryPolicy);
+    }
+
+    @Provides
+    @Singleton
+    public PublishWorkerAutoscaler providePublishWorkerAutoscaler(BookPublisher bookPublisher,
+                                                                  BookPublishRequestManager bookPublishRequestManager,
+                                                                  MetricsPublisher metricsPublisher) {
+        // The DynamoDB calls the pipeline makes are timed per stage, the draining workers time them per step.
+        String persistLatency = String.format(MetricsConstants.PIPELINE_STAGE_LATENCY, "Persist");
+        String statusLatency = String.format(MetricsConstants.PIPELINE_STAGE_LATENCY, "PublishStatus");
+        return PublishWorkerAutoscaler.builder()
+            .withBookPublisher(bookPublisher)
+            .withBookPublishRequestManager(bookPublishRequestManager)
+            .withMetricsPublisher(metricsPublisher)
+            .withLatencyMetrics(PIPELINE_ENABLED ? Arrays.asList(persistLatency, statusLatency)
+                : Arrays.asList(MetricsConstants.PUBLISH_TASK_CATALOG_WRITE_TIME,
+                    MetricsConstants.PUBLISH_TASK_STATUS_WRITE_TIME))
+            .withMinWorkers(AUTOSCALE_MIN_WORKERS)
+            .withMaxWorkers(AUTOSCALE_MAX_WORKERS)
+            .withIntervalSeconds(AUTOSCALE_ENABLED ? AUTOSCALE_INTERVAL_SECONDS : 0)
+            .withTargetQueueAgeMillis(AUTOSCALE_TARGET_QUEUE_AGE_MILLIS)
+            .withLatencyLimitMillis(AUTOSCALE_LATENCY_LIMIT_MILLIS)
+            .build();
+    }
+
+    @Provides
+    @Singleton
+    public MetricsLogReporter provideMetricsLogReporter(MetricsPublisher metricsPublisher) {
+        return new MetricsLogReporter(metricsPublisher, METRICS_LOG_INTERVAL_SECONDS);
+    }
+
+    @Provides
+    @Singleton
+    public PublishRequestJournal providePublishRequestJournal() {
+        if (!JOURNAL_ENABLED) {
+            return new NoOpPublishRequestJournal();
+        }
+        return new MappedPublishRequestJournal(Paths.get(JOURNAL_DIRECTORY), JOURNAL_SEGMENT_BYTES);
+    }
+
+    @Provides
+    @Singleton
+    public PublishingStatusNotifier providePublishingStatusNotifier(MetricsPublisher metricsPublisher) {
+        return new PublishingStatusNotifier(STATUS_WAIT_MAX_WAITERS, metricsPublisher);
+    }
+
+    @Provides
+    @Singleton
+    public ManuscriptSpool provideManuscriptSpool() {
+        return new ManuscriptSpool(Paths.get(SPOOL_DIRECTORY));
+    }
+
+    // Unique per process, so a restarted node never mistakes the leases of its previous run for its own
+    private static String leaseOwner() {
+        if (LEASE_OWNER != null) {
+            return LEASE_OWNER;
+        }
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown-host";
+        }
+        return host + "/" + UUID.randomUUID();
     }
 
 
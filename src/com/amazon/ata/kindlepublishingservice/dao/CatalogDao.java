@@ -2,26 +2,118 @@ package com.amazon.ata.kindlepublishingservice.dao;
 
 import com.amazon.ata.kindlepublishingservice.dynamodb.models.CatalogItemVersion;
 import com.amazon.ata.kindlepublishingservice.exceptions.BookNotFoundException;
+import com.amazon.ata.kindlepublishingservice.exceptions.CatalogVersionConflictException;
 import com.amazon.ata.kindlepublishingservice.publishing.KindleFormattedBook;
 import com.amazon.ata.kindlepublishingservice.utils.KindlePublishingUtils;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
-
-import javax.inject.Inject;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTransactionWriteExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.TransactionWriteRequest;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads and writes the versions of books in the catalog table.
+ *
+ * With a {@link TextBlobStore}, text of at least the offload threshold is written to the blob store and the item
+ * holds only its digest. Every version of a book with unchanged text then shares one copy of it, and the text is only
+ * fetched when a caller asks an item for it.
+ *
+ * With a {@link CatalogItemCache}, reads of a book's latest version through {@link #getBookFromCatalog} are served
+ * from the cache when possible, and every write invalidates the written book's entry before it returns.
+ *
+ * Every book also has a latest-version pointer, an item under the reserved version 0 that is written in the same
+ * transaction as the book's latest version. It holds the number of that version, its title, author, genre and inactive
+ * flag and the digest of text kept in a blob store, but never the text itself, so a new version never writes the
+ * manuscript twice. Finding a book's latest version is then a strongly consistent GetItem instead of a query, followed
+ * by a GetItem of that version by key when its text is in the table. If that version is inactive although the pointer
+ * was not, an update committed between the two reads and the pointer is read once more. Books last written before
+ * pointers were kept get one the first time they are read.
+ *
+ * Updating a book writes the next version, marks the previous one inactive and moves the pointer in one transaction
+ * that only succeeds if the pointer still names the version the update read. When another writer added a version in
+ * between, the update reads the new latest version and tries again on top of it.
+ *
+ * Existence checks, soft deletes and updates only need a book's version and inactive flag, so they read the pointer
+ * with a projection that leaves out the title and author, and mark versions inactive with updates that only set the
+ * flag. The manuscript is never transferred just to flip it.
+ */
 public class CatalogDao {
 
+    // Text of this many chars or more is offloaded to the blob store, override with
+    // -Dkindlepublishing.textStore.minChars=N
+    static final int TEXT_OFFLOAD_MIN_CHARS = Integer.getInteger("kindlepublishing.textStore.minChars",
+        64 * 1024);
+
+    // Range key of the latest-version pointer, versions of a book start at 1.
+    @VisibleForTesting
+    static final int LATEST_POINTER_VERSION = 0;
+    private static final DynamoDBMapperConfig CONSISTENT_READS = DynamoDBMapperConfig.builder()
+        .withConsistentReads(DynamoDBMapperConfig.ConsistentReads.CONSISTENT)
+        .build();
+    // The pointer never moves back to an older version, such as one written by a publisher that lost a race.
+    private static final String POINTER_NOT_NEWER_CONDITION =
+        "attribute_not_exists(bookId) OR latestVersion <= :version";
+    private static final String ITEM_EXISTS_CONDITION = "attribute_exists(bookId)";
+    private static final String ITEM_NOT_EXISTS_CONDITION = "attribute_not_exists(bookId)";
+    private static final String POINTER_UNCHANGED_CONDITION = "latestVersion = :previous";
+    private static final String METADATA_PROJECTION = "bookId, #version, latestVersion, inactive, genre";
+    // Times an update reads the latest version and tries to write the next one before giving up on a busy book,
+    // override with -Dkindlepublishing.catalog.versionBumpAttempts=N
+    private static final int VERSION_BUMP_ATTEMPTS =
+        Math.max(1, Integer.getInteger("kindlepublishing.catalog.versionBumpAttempts", 5));
+
     private final DynamoDBMapper dynamoDbMapper;
+    private final TextBlobStore textBlobStore;
+    private final CatalogItemCache catalogItemCache;
 
     /**
-     * Instantiates a new CatalogDao object.
+     * Instantiates a new CatalogDao object that keeps all text in the catalog table.
      *
      * @param dynamoDbMapper The {@link DynamoDBMapper} used to interact with the catalog table.
      */
-    @Inject
     public CatalogDao(DynamoDBMapper dynamoDbMapper) {
+        this(dynamoDbMapper, null);
+    }
+
+    /**
+     * Instantiates a new CatalogDao object.
+     *
+     * @param dynamoDbMapper The {@link DynamoDBMapper} used to interact with the catalog table.
+     * @param textBlobStore The store large text is offloaded to, or null to keep all text in the catalog table.
+     */
+    public CatalogDao(DynamoDBMapper dynamoDbMapper, TextBlobStore textBlobStore) {
+        this(dynamoDbMapper, textBlobStore, null);
+    }
+
+    /**
+     * Instantiates a new CatalogDao object.
+     *
+     * @param dynamoDbMapper The {@link DynamoDBMapper} used to interact with the catalog table.
+     * @param textBlobStore The store large text is offloaded to, or null to keep all text in the catalog table.
+     * @param catalogItemCache The cache of the latest version of books, or null to read every book from the table.
+     */
+    public CatalogDao(DynamoDBMapper dynamoDbMapper, TextBlobStore textBlobStore, CatalogItemCache catalogItemCache) {
         this.dynamoDbMapper = dynamoDbMapper;
+        this.textBlobStore = textBlobStore;
+        this.catalogItemCache = catalogItemCache == null ? CatalogItemCache.disabled() : catalogItemCache;
     }
 
     /**
@@ -31,23 +123,88 @@ public class CatalogDao {
      * @return The corresponding CatalogItem from the catalog table.
      */
     public CatalogItemVersion getBookFromCatalog(String bookId) {
-        CatalogItemVersion book = getLatestVersionOfBook(bookId);
+        CatalogItemVersion book = catalogItemCache.get(bookId, this::getLatestVersionOfBook);
 
         if (book == null || book.isInactive()) {
             throw new BookNotFoundException(String.format("No book found for id: %s", bookId));
         }
 
-        return book;
+        // Copies served from the cache do not carry the text loader.
+        return withTextLoader(book);
     }
 
     // Returns null if no version exists for the provided bookId
     private CatalogItemVersion getLatestVersionOfBook(String bookId) {
+        CatalogItemVersion pointer = loadLatestVersionPointer(bookId);
+        CatalogItemVersion latest = loadVersionNamedBy(pointer);
+        if (latest != null && latest.isInactive() && !pointer.isInactive()) {
+            // The two reads are not atomic, an update committed in between marked the version the pointer named
+            // inactive and moved the pointer to the next one.
+            pointer = loadLatestVersionPointer(bookId);
+            latest = loadVersionNamedBy(pointer);
+        }
+        if (latest == null) {
+            latest = queryLatestVersion(bookId);
+            if (latest != null) {
+                backfillLatestVersionPointer(latest);
+            }
+        }
+        return withTextLoader(latest);
+    }
+
+    // Returns the pointer itself when it holds the text of the version it names, null if there is no pointer.
+    private CatalogItemVersion loadVersionNamedBy(CatalogItemVersion pointer) {
+        if (pointer == null || holdsText(pointer)) {
+            return pointer;
+        }
+        return dynamoDbMapper.load(CatalogItemVersion.class, pointer.getBookId(), pointer.getVersion(),
+            CONSISTENT_READS);
+    }
+
+    // Pointers hold the digest of text kept in a blob store. Pointers written before they stopped copying the text
+    // still hold the text itself.
+    private static boolean holdsText(CatalogItemVersion pointer) {
+        return pointer.getTextDigest() != null || pointer.getUncompressedText() != null
+            || pointer.getCompressedText() != null;
+    }
+
+    /**
+     * Reads the latest-version pointer of a book, with a single GetItem.
+     *
+     * @param bookId Id associated with the book.
+     * @return The latest version, without its text unless the text is kept in a blob store, or null if the book has
+     * no pointer.
+     */
+    @VisibleForTesting
+    CatalogItemVersion loadLatestVersionPointer(String bookId) {
+        CatalogItemVersion pointer = dynamoDbMapper.load(CatalogItemVersion.class, bookId, LATEST_POINTER_VERSION,
+            CONSISTENT_READS);
+        if (pointer == null || pointer.getLatestVersion() == null) {
+            return null;
+        }
+        pointer.setVersion(pointer.getLatestVersion());
+        pointer.setLatestVersion(null);
+        return pointer;
+    }
+
+    /**
+     * Reads the latest version of a book by querying its versions newest first, without using its pointer.
+     *
+     * @param bookId Id associated with the book.
+     * @return The latest version, or null if the book has no version.
+     */
+    @VisibleForTesting
+    CatalogItemVersion queryLatestVersion(String bookId) {
         CatalogItemVersion book = new CatalogItemVersion();
         book.setBookId(bookId);
 
         DynamoDBQueryExpression<CatalogItemVersion> queryExpression = new DynamoDBQueryExpression()
             .withHashKeyValues(book)
+            .withRangeKeyCondition("version", new Condition()
+                .withComparisonOperator(ComparisonOperator.GT)
+                .withAttributeValueList(new AttributeValue().withN(String.valueOf(LATEST_POINTER_VERSION))))
             .withScanIndexForward(false)
+            .withConsistentRead(true)
             .withLimit(1);
 
         List<CatalogItemVersion> results = dynamoDbMapper.query(CatalogItemVersion.class, queryExpression);
@@ -57,50 +214,246 @@ public class CatalogDao {
         return results.get(0);
     }
 
-    public CatalogItemVersion removeBookFromCatalog(String bookId) {
-        CatalogItemVersion bookToSoftDelete;
+    /**
+     * Reads the keys, version, inactive flag and genre of the latest version of a book through its pointer, leaving
+     * out its title and author.
+     *
+     * @param bookId Id associated with the book.
+     * @return The latest version, possibly without its title, author and text, or null if the book has no version.
+     */
+    @VisibleForTesting
+    CatalogItemVersion getLatestVersionMetadata(String bookId) {
+        CatalogItemVersion book = new CatalogItemVersion();
+        book.setBookId(bookId);
+
+        DynamoDBQueryExpression<CatalogItemVersion> queryExpression = new DynamoDBQueryExpression()
+            .withHashKeyValues(book)
+            .withRangeKeyCondition("version", new Condition()
+                .withComparisonOperator(ComparisonOperator.EQ)
+                .withAttributeValueList(new AttributeValue().withN(String.valueOf(LATEST_POINTER_VERSION))))
+            .withProjectionExpression(METADATA_PROJECTION)
+            .withExpressionAttributeNames(Collections.singletonMap("#version", "version"))
+            .withConsistentRead(true)
+            .withLimit(1);
 
-        bookToSoftDelete =  getLatestVersionOfBook(bookId);
+        List<CatalogItemVersion> results = dynamoDbMapper.query(CatalogItemVersion.class, queryExpression);
+        CatalogItemVersion pointer = results.isEmpty() ? null : results.get(0);
+        if (pointer == null || pointer.getLatestVersion() == null) {
+            // A book without a pointer is read in full once, which records its pointer.
+            return getLatestVersionOfBook(bookId);
+        }
+        pointer.setVersion(pointer.getLatestVersion());
+        pointer.setLatestVersion(null);
+        return pointer;
+    }
 
-        if(bookToSoftDelete == null || bookToSoftDelete.isInactive()) {
-            throw new BookNotFoundException("Book with id: " + bookId + "has never existed");
+    private void backfillLatestVersionPointer(CatalogItemVersion latest) {
+        try {
+            dynamoDbMapper.save(toLatestVersionPointer(latest), new DynamoDBSaveExpression()
+                .withExpectedEntry("bookId", new ExpectedAttributeValue(false)));
+        } catch (ConditionalCheckFailedException e) {
+            // A write since the query recorded its own pointer.
         }
+    }
 
-        bookToSoftDelete.setInactive(true);
-        return saveCatalogItemVersion(bookToSoftDelete);
+    private CatalogItemVersion withTextLoader(CatalogItemVersion book) {
+        if (book != null && textBlobStore != null) {
+            book.setTextLoader(textBlobStore::get);
+        }
+        return book;
     }
 
+    /**
+     * Marks the latest version of a book inactive.
+     *
+     * @param bookId Id associated with the book.
+     * @return The removed version, possibly without its title, author and text.
+     * @throws BookNotFoundException if the book has no version or its latest version is already inactive
+     */
+    public CatalogItemVersion removeBookFromCatalog(String bookId) {
+        return softDeleteLatestVersion(bookId, false);
+    }
+
+    /**
+     * Marks the latest version of a book inactive, whether or not it already is.
+     *
+     * @param bookId Id associated with the book.
+     * @return The removed version, possibly without its title, author and text.
+     * @throws BookNotFoundException if the book has no version
+     */
     public CatalogItemVersion removeActiveOrInactiveBookFromCatalog(String bookId) {
-        CatalogItemVersion bookToSoftDelete;
+        return softDeleteLatestVersion(bookId, true);
+    }
 
-        bookToSoftDelete =  getLatestVersionOfBook(bookId);
+    private CatalogItemVersion softDeleteLatestVersion(String bookId, boolean allowInactive) {
+        for (int attempt = 1; ; attempt++) {
+            CatalogItemVersion bookToSoftDelete = getLatestVersionMetadata(bookId);
 
-        if(bookToSoftDelete == null) {
-            throw new BookNotFoundException("Book with id: " + bookId + "has never existed");
+            if (bookToSoftDelete == null || (!allowInactive && bookToSoftDelete.isInactive())) {
+                throw new BookNotFoundException("Book with id: " + bookId + "has never existed");
+            }
+
+            bookToSoftDelete.setInactive(true);
+            try {
+                writeInactive(bookToSoftDelete);
+                return bookToSoftDelete;
+            } catch (TransactionCanceledException e) {
+                if (!isVersionConflict(e)) {
+                    throw e;
+                }
+                if (attempt >= VERSION_BUMP_ATTEMPTS) {
+                    throw new CatalogVersionConflictException(String.format("Book %s kept gaining new versions, " +
+                        "gave up removing it after %d attempts", bookId, attempt), e);
+                }
+            }
         }
+    }
 
-        bookToSoftDelete.setInactive(true);
-        return saveCatalogItemVersion(bookToSoftDelete);
+    // Sets the inactive flag of a version and of the pointer to it in a single transaction, conditional on the
+    // version still being the latest. Only the flag is written.
+    private void writeInactive(CatalogItemVersion latestVersion) {
+        try {
+            dynamoDbMapper.transactionWrite(new TransactionWriteRequest()
+                .addUpdate(inactiveFlagOf(latestVersion.getBookId(), latestVersion.getVersion()),
+                    new DynamoDBTransactionWriteExpression().withConditionExpression(ITEM_EXISTS_CONDITION))
+                .addUpdate(inactiveFlagOf(latestVersion.getBookId(), LATEST_POINTER_VERSION),
+                    pointerUnchangedSince(latestVersion.getVersion())));
+        } finally {
+            catalogItemCache.invalidate(latestVersion.getBookId());
+        }
+    }
 
+    // An update of a key-only item writes nothing but the inactive flag, the mapper skips null attributes in
+    // transactional updates.
+    private static CatalogItemVersion inactiveFlagOf(String bookId, int version) {
+        CatalogItemVersion flag = new CatalogItemVersion();
+        flag.setBookId(bookId);
+        flag.setVersion(version);
+        flag.setInactive(true);
+        return flag;
     }
 
+    private static DynamoDBTransactionWriteExpression pointerUnchangedSince(int version) {
+        return new DynamoDBTransactionWriteExpression()
+            .withConditionExpression(POINTER_UNCHANGED_CONDITION)
+            .withExpressionAttributeValues(Collections.singletonMap(":previous",
+                new AttributeValue().withN(String.valueOf(version))));
+    }
 
     private CatalogItemVersion saveCatalogItemVersion(CatalogItemVersion book) {
-        dynamoDbMapper.save(book);
+        // An item already pointing at stored text keeps pointing at it.
+        if (book.getTextDigest() == null) {
+            setText(book, book.getText(), offloadText(book.getText()));
+        }
+        CatalogItemVersion pointer = toLatestVersionPointer(book);
+        try {
+            dynamoDbMapper.transactionWrite(new TransactionWriteRequest()
+                .addPut(book)
+                .addPut(pointer, new DynamoDBTransactionWriteExpression()
+                    .withConditionExpression(POINTER_NOT_NEWER_CONDITION)
+                    .withExpressionAttributeValues(Collections.singletonMap(":version",
+                        new AttributeValue().withN(String.valueOf(book.getVersion()))))));
+        } finally {
+            // Even a failed save may have been written.
+            catalogItemCache.invalidate(book.getBookId());
+        }
         return book;
 
     }
 
+    // Returns the digest the text is stored under in the blob store, or null if the text stays in the item.
+    private String offloadText(String text) {
+        if (textBlobStore == null || text == null || text.length() < TEXT_OFFLOAD_MIN_CHARS) {
+            return null;
+        }
+        return textBlobStore.put(text);
+    }
+
+    private void setText(CatalogItemVersion book, String text, String textDigest) {
+        book.setText(text);
+        if (textDigest != null) {
+            book.setTextDigest(textDigest);
+            book.setTextLoader(textBlobStore::get);
+        }
+    }
+
+    // The pointer to a version, with its metadata and the digest of text kept in a blob store but without the text.
+    private static CatalogItemVersion toLatestVersionPointer(CatalogItemVersion book) {
+        CatalogItemVersion pointer = new CatalogItemVersion();
+        pointer.setBookId(book.getBookId());
+        pointer.setVersion(LATEST_POINTER_VERSION);
+        pointer.setLatestVersion(book.getVersion());
+        pointer.setInactive(book.isInactive());
+        pointer.setTitle(book.getTitle());
+        pointer.setAuthor(book.getAuthor());
+        pointer.setGenre(book.getGenre());
+        pointer.setTextDigest(book.getTextDigest());
+        return pointer;
+    }
+
+    /**
+     * Copies the stored attributes of an item. Text kept in a blob store is neither fetched nor copied, only its
+     * digest.
+     *
+     * @param item The item to copy.
+     * @return The copy, without a text loader.
+     */
+    static CatalogItemVersion copyOf(CatalogItemVersion item) {
+        CatalogItemVersion copy = new CatalogItemVersion();
+        copy.setBookId(item.getBookId());
+        copy.setVersion(item.getVersion());
+        copy.setInactive(item.isInactive());
+        copy.setTitle(item.getTitle());
+        copy.setAuthor(item.getAuthor());
+        copy.setGenre(item.getGenre());
+        copy.setUncompressedText(item.getUncompressedText());
+        copy.setCompressedText(item.getCompressedText());
+        copy.setTextDigest(item.getTextDigest());
+        copy.setLatestVersion(item.getLatestVersion());
+        return copy;
+    }
+
     public void validateBookExists(String bookId) {
         CatalogItemVersion book;
 
-        book = this.getLatestVersionOfBook(bookId);
+        book = this.getLatestVersionMetadata(bookId);
 
         if(book == null) {
             throw new BookNotFoundException("This book does not and has never existed");
         }
     }
 
+    /**
+     * Returns which of the given books exist in the catalog, active or not, using batched reads rather than a query
+     * per book. Every book's first version is kept when it is updated or removed, so a book exists exactly when its
+     * version 1 does, which lets the check look items up by key.
+     *
+     * @param bookIds Ids of the books to check.
+     * @return The ids of the books that exist.
+     */
+    public Set<String> findExistingBookIds(Collection<String> bookIds) {
+        List<CatalogItemVersion> keys = new ArrayList<>();
+        for (String bookId : new LinkedHashSet<>(bookIds)) {
+            CatalogItemVersion key = new CatalogItemVersion();
+            key.setBookId(bookId);
+            key.setVersion(1);
+            keys.add(key);
+        }
+
+        Set<String> existing = new HashSet<>();
+        if (keys.isEmpty()) {
+            return existing;
+        }
+        // The mapper splits the keys into batches of 100 and retries unprocessed keys.
+        Map<String, List<Object>> loaded = dynamoDbMapper.batchLoad(keys);
+        for (List<Object> items : loaded.values()) {
+            for (Object item : items) {
+                existing.add(((CatalogItemVersion) item).getBookId());
+            }
+        }
+        return existing;
+    }
+
     public CatalogItemVersion createOrUpdateBook(KindleFormattedBook kindleBook) {
         CatalogItemVersion catalogItemVersion;
 
@@ -137,32 +490,67 @@ public class CatalogDao {
 
 
     private CatalogItemVersion updateExistingKindleBook(KindleFormattedBook book) {
+        // Stored once, however many attempts the update takes.
+        String textDigest = offloadText(book.getText());
 
-        CatalogItemVersion catalogItemVersion = this.getLatestVersionOfBook(book.getBookId());
-
-        if(catalogItemVersion == null) {
-            throw new BookNotFoundException("Book to update with id:" + book.getBookId() + " does not Exist");
-        }
-
-        //set previous version inactive
-        this.removeActiveOrInactiveBookFromCatalog(book.getBookId());
+        for (int attempt = 1; ; attempt++) {
+            CatalogItemVersion catalogItemVersion = this.getLatestVersionMetadata(book.getBookId());
 
-        //update catalog item version by 1
-        int currentVersion = catalogItemVersion.getVersion();
+            if (catalogItemVersion == null) {
+                throw new BookNotFoundException("Book to update with id:" + book.getBookId() + " does not Exist");
+            }
 
-        catalogItemVersion.setVersion(catalogItemVersion.getVersion() + 1);
-        catalogItemVersion.setBookId(catalogItemVersion.getBookId());
-        catalogItemVersion.setAuthor(catalogItemVersion.getAuthor());
-        catalogItemVersion.setInactive(false);
-        catalogItemVersion.setTitle(catalogItemVersion.getTitle());
-        catalogItemVersion.setText(catalogItemVersion.getText());
-        catalogItemVersion.setGenre(catalogItemVersion.getGenre());
+            //set previous version inactive
+            int previousVersion = catalogItemVersion.getVersion();
 
+            //update catalog item version by 1
+            catalogItemVersion.setVersion(catalogItemVersion.getVersion() + 1);
+            catalogItemVersion.setAuthor(book.getAuthor());
+            catalogItemVersion.setInactive(false);
+            catalogItemVersion.setTitle(book.getTitle());
+            setText(catalogItemVersion, book.getText(), textDigest);
+            catalogItemVersion.setGenre(book.getGenre());
 
+            try {
+                writeNextVersion(previousVersion, catalogItemVersion);
+                return catalogItemVersion;
+            } catch (TransactionCanceledException e) {
+                if (!isVersionConflict(e)) {
+                    throw e;
+                }
+                if (attempt >= VERSION_BUMP_ATTEMPTS) {
+                    throw new CatalogVersionConflictException(String.format("Book %s kept gaining new versions, " +
+                        "gave up after %d attempts", book.getBookId(), attempt), e);
+                }
+            }
+        }
+    }
 
-        //save updated catalog item to data store
-       catalogItemVersion = saveCatalogItemVersion(catalogItemVersion);
-       return catalogItemVersion;
+    // Inactivates the previous version, inserts the next one and moves the pointer to it in a single transaction,
+    // conditional on nobody having written a newer version since the previous one was read.
+    private void writeNextVersion(int previousVersion, CatalogItemVersion nextVersion) {
+        try {
+            dynamoDbMapper.transactionWrite(new TransactionWriteRequest()
+                .addUpdate(inactiveFlagOf(nextVersion.getBookId(), previousVersion),
+                    new DynamoDBTransactionWriteExpression().withConditionExpression(ITEM_EXISTS_CONDITION))
+                .addPut(nextVersion, new DynamoDBTransactionWriteExpression()
+                    .withConditionExpression(ITEM_NOT_EXISTS_CONDITION))
+                .addPut(toLatestVersionPointer(nextVersion), pointerUnchangedSince(previousVersion)));
+        } finally {
+            catalogItemCache.invalidate(nextVersion.getBookId());
+        }
+    }
 
+    // A failed condition or a clash with a concurrent transaction means another writer got there first.
+    private static boolean isVersionConflict(TransactionCanceledException e) {
+        boolean conflict = false;
+        for (CancellationReason reason : e.getCancellationReasons()) {
+            if ("ConditionalCheckFailed".equals(reason.getCode()) || "TransactionConflict".equals(reason.getCode())) {
+                conflict = true;
+            } else if (reason.getCode() != null && !"None".equals(reason.getCode())) {
+                return false;
+            }
+        }
+        return conflict;
     }
 }
@@ -0,0 +1,171 @@
+package com.amazon.ata.kindlepublishingservice.dao;
+
+import com.amazon.ata.kindlepublishingservice.dynamodb.models.CatalogItemVersion;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsConstants;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Caches the latest version of books by book id, so repeated reads of popular books skip the catalog table.
+ *
+ * The cache is bounded by the heap its entries hold and evicts in the W-TinyLFU style, so a scan across many books
+ * read once does not displace the books read all the time. Every write to a book invalidates its entry before the
+ * write returns, and entries expire after a time to live so updates made by other nodes are picked up.
+ *
+ * Callers always get their own copy of a cached version, so changing it cannot change the cache. Text kept in a blob
+ * store is not held by the cache, only its digest.
+ */
+public class CatalogItemCache {
+
+    // Heap held by a cached entry besides its strings: the item, the cache nodes and the map entries.
+    private static final long ENTRY_OVERHEAD_BYTES = 256;
+    // Typical heap of an entry, sizes the frequency sketch from the byte limit.
+    private static final long TYPICAL_ENTRY_BYTES = 4096;
+
+    private final MetricsPublisher metricsPublisher;
+    private final long maxBytes;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoClock;
+    // Guarded by this.
+    private final TinyLfuCache<String, Entry> entries;
+    // Bumped by every invalidation, guarded by this. A load only fills the cache if no invalidation happened while it
+    // ran, since the version it read may predate the write.
+    private long invalidations;
+    private long hits;
+    private long misses;
+
+    /**
+     * Instantiates a new, empty CatalogItemCache.
+     *
+     * @param metricsPublisher registry the cache hits, misses and evictions are reported to
+     * @param maxBytes the most heap the cached versions may hold, zero or less disables the cache
+     * @param timeToLive how long a cached version is served before it is read again, zero or less never expires
+     * @param unit the unit of the time to live
+     */
+    public CatalogItemCache(MetricsPublisher metricsPublisher, long maxBytes, long timeToLive, TimeUnit unit) {
+        this(metricsPublisher, maxBytes, unit.toNanos(timeToLive), System::nanoTime);
+    }
+
+    @VisibleForTesting
+    CatalogItemCache(MetricsPublisher metricsPublisher, long maxBytes, long timeToLiveNanos, LongSupplier nanoClock) {
+        this.metricsPublisher = metricsPublisher;
+        this.maxBytes = maxBytes;
+        this.timeToLiveNanos = timeToLiveNanos;
+        this.nanoClock = nanoClock;
+        this.entries = new TinyLfuCache<>(maxBytes, (int) Math.min(1 << 20, Math.max(1024,
+            maxBytes / TYPICAL_ENTRY_BYTES)),
+            (bookId, entry) -> metricsPublisher.addCount(MetricsConstants.CATALOG_CACHE_EVICTION_COUNT, 1));
+        metricsPublisher.registerGauge(MetricsConstants.CATALOG_CACHE_SIZE, this::getSize);
+        metricsPublisher.registerGauge(MetricsConstants.CATALOG_CACHE_MEMORY_BYTES, this::getMemoryBytes);
+        metricsPublisher.registerGauge(MetricsConstants.CATALOG_CACHE_HIT_RATIO, this::getHitRatioPercent);
+    }
+
+    /**
+     * Returns a cache that holds nothing, so every read goes to the catalog table.
+     *
+     * @return a disabled cache
+     */
+    public static CatalogItemCache disabled() {
+        return new CatalogItemCache(new MetricsPublisher(), 0, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the latest version of a book, from the cache if possible. Books with no version are not cached.
+     *
+     * @param bookId the book id
+     * @param loader reads the latest version of a book from the catalog table, returning null if it has none
+     * @return a copy of the latest version, or null if the book has no version
+     */
+    public CatalogItemVersion get(String bookId, Function<String, CatalogItemVersion> loader) {
+        if (maxBytes <= 0) {
+            return loader.apply(bookId);
+        }
+
+        long stamp;
+        synchronized (this) {
+            Entry entry = entries.get(bookId);
+            if (entry != null && !isExpired(entry)) {
+                hits++;
+                metricsPublisher.addCount(MetricsConstants.CATALOG_CACHE_HIT_COUNT, 1);
+                return CatalogDao.copyOf(entry.item);
+            }
+            if (entry != null) {
+                entries.remove(bookId);
+            }
+            misses++;
+            stamp = invalidations;
+        }
+        metricsPublisher.addCount(MetricsConstants.CATALOG_CACHE_MISS_COUNT, 1);
+
+        CatalogItemVersion loaded = loader.apply(bookId);
+        if (loaded != null) {
+            CatalogItemVersion cached = CatalogDao.copyOf(loaded);
+            long now = nanoClock.getAsLong();
+            synchronized (this) {
+                if (stamp == invalidations) {
+                    entries.put(bookId, new Entry(cached, now), weigh(cached));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Drops the cached version of a book. Called after every write to the book, so the next read sees the write.
+     *
+     * @param bookId the book id
+     */
+    public synchronized void invalidate(String bookId) {
+        invalidations++;
+        entries.remove(bookId);
+    }
+
+    public synchronized long getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getMemoryBytes() {
+        return entries.weight();
+    }
+
+    /**
+     * Returns the share of reads served from the cache since it was created.
+     *
+     * @return the hit ratio in percent, zero before the first read
+     */
+    public synchronized long getHitRatioPercent() {
+        long reads = hits + misses;
+        return reads == 0 ? 0 : hits * 100 / reads;
+    }
+
+    private boolean isExpired(Entry entry) {
+        return timeToLiveNanos > 0 && nanoClock.getAsLong() - entry.loadedAtNanos >= timeToLiveNanos;
+    }
+
+    private static long weigh(CatalogItemVersion item) {
+        return ENTRY_OVERHEAD_BYTES + 2L * (length(item.getBookId()) + length(item.getTitle())
+            + length(item.getAuthor()) + length(item.getUncompressedText()) + length(item.getCompressedText())
+            + length(item.getTextDigest()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    /**
+     * A cached version along with when it was read.
+     */
+    private static final class Entry {
+        private final CatalogItemVersion item;
+        private final long loadedAtNanos;
+
+        private Entry(CatalogItemVersion item, long loadedAtNanos) {
+            this.item = item;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+}
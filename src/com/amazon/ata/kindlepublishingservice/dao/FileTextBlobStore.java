@@ -0,0 +1,67 @@
+package com.amazon.ata.kindlepublishingservice.dao;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A {@link TextBlobStore} keeping each text in a file named by its digest, for running the service locally. Files
+ * are spread over subdirectories named by the first two digits of the digest so no directory grows too large.
+ */
+public class FileTextBlobStore implements TextBlobStore {
+
+    private static final String FILE_SUFFIX = ".txt";
+
+    private final Path directory;
+
+    /**
+     * Instantiates a new FileTextBlobStore.
+     *
+     * @param directory the directory text is stored in, created on first use
+     */
+    public FileTextBlobStore(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public String put(String text) {
+        String digest = TextBlobStore.digestOf(text);
+        Path file = fileOf(digest);
+        if (Files.exists(file)) {
+            return digest;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            // Written aside and moved into place, so a reader never sees part of a file.
+            Path temporary = Files.createTempFile(file.getParent(), digest, ".tmp");
+            try {
+                Files.write(temporary, text.getBytes(StandardCharsets.UTF_8));
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to store text " + digest, e);
+        }
+        return digest;
+    }
+
+    @Override
+    public String get(String digest) {
+        try {
+            return new String(Files.readAllBytes(fileOf(digest)), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            throw new IllegalStateException("No text stored for digest " + digest, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read text " + digest, e);
+        }
+    }
+
+    private Path fileOf(String digest) {
+        return directory.resolve(digest.substring(0, 2)).resolve(digest + FILE_SUFFIX);
+    }
+}
@@ -0,0 +1,266 @@
+package com.amazon.ata.kindlepublishingservice.dao;
+
+import com.amazon.ata.kindlepublishingservice.dynamodb.converters.CompressedTextConverter;
+import com.amazon.ata.kindlepublishingservice.dynamodb.models.PublishRequestLeaseItem;
+import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequest;
+import com.amazon.ata.kindlepublishingservice.publishing.LeasedPublishRequest;
+import com.amazon.ata.kindlepublishingservice.publishing.PublishRequestLeaseStore;
+import com.amazon.ata.recommendationsservice.types.BookGenre;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBDeleteExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * Accesses the Publish Request Leases table, a {@link PublishRequestLeaseStore} shared by every node of the service.
+ *
+ * Finding requests to lease and counting them query the queue index, which holds no text, and the lease itself is
+ * taken with an update of the owner and expiry only, conditional on the lease having expired. Renewing, releasing and
+ * completing a lease are likewise conditional on the caller still holding it, so a node that lost its lease fails its
+ * write with a {@link ConditionalCheckFailedException} instead of overwriting another node's. Only the oldest pending
+ * request of a book can be leased, so a book's requests are published one at a time and in order.
+ *
+ * Large text is stored by digest in the text blob store when one is configured, and compressed in the item otherwise,
+ * which keeps items well under the DynamoDB item size limit.
+ */
+public class PublishRequestLeaseDao implements PublishRequestLeaseStore {
+
+    // Writes only the attributes set on the item, leaving the text and the rest of the request as they are.
+    private static final DynamoDBMapperConfig UPDATE_SET_ATTRIBUTES = DynamoDBMapperConfig.builder()
+        .withSaveBehavior(DynamoDBMapperConfig.SaveBehavior.UPDATE_SKIP_NULL_ATTRIBUTES)
+        .build();
+    private static final DynamoDBMapperConfig CONSISTENT_READS = DynamoDBMapperConfig.builder()
+        .withConsistentReads(DynamoDBMapperConfig.ConsistentReads.CONSISTENT)
+        .build();
+    // Lease expiry of a request no node holds.
+    private static final long NOT_LEASED = 0L;
+
+    private final DynamoDBMapper dynamoDbMapper;
+    private final TextBlobStore textBlobStore;
+    private final LongSupplier clockMillis;
+
+    /**
+     * Instantiates a new PublishRequestLeaseDao object.
+     *
+     * @param dynamoDbMapper The {@link DynamoDBMapper} used to interact with the publish request leases table.
+     * @param textBlobStore The store large text is offloaded to, or null to keep all text in the table, compressed.
+     */
+    public PublishRequestLeaseDao(DynamoDBMapper dynamoDbMapper, TextBlobStore textBlobStore) {
+        this(dynamoDbMapper, textBlobStore, System::currentTimeMillis);
+    }
+
+    /**
+     * Instantiates a new PublishRequestLeaseDao object.
+     *
+     * @param dynamoDbMapper The {@link DynamoDBMapper} used to interact with the publish request leases table.
+     * @param textBlobStore The store large text is offloaded to, or null to keep all text in the table, compressed.
+     * @param clockMillis supplies the current time in milliseconds, leases expire on it
+     */
+    public PublishRequestLeaseDao(DynamoDBMapper dynamoDbMapper, TextBlobStore textBlobStore,
+                                  LongSupplier clockMillis) {
+        this.dynamoDbMapper = dynamoDbMapper;
+        this.textBlobStore = textBlobStore;
+        this.clockMillis = clockMillis;
+    }
+
+    @Override
+    public void put(BookPublishRequest request) {
+        long now = clockMillis.getAsLong();
+        PublishRequestLeaseItem item = new PublishRequestLeaseItem();
+        item.setId(request.getPublishingRecordId());
+        item.setQueue(PublishRequestLeaseItem.PUBLISH_QUEUE);
+        item.setBookId(request.getBookId());
+        item.setTitle(request.getTitle());
+        item.setAuthor(request.getAuthor());
+        item.setGenre(request.getGenre() == null ? null : request.getGenre().name());
+        setText(item, request.getText());
+        item.setEnqueuedAt(now);
+        item.setAvailableAt(now);
+        item.setLeaseExpiresAt(NOT_LEASED);
+        item.setAttempts(0);
+        try {
+            dynamoDbMapper.save(item, new DynamoDBSaveExpression()
+                .withExpectedEntry("id", new ExpectedAttributeValue(false)));
+        } catch (ConditionalCheckFailedException e) {
+            throw new IllegalStateException("Publish request " + request.getPublishingRecordId() +
+                " already exists", e);
+        }
+    }
+
+    @Override
+    public List<LeasedPublishRequest> acquire(String owner, int maxRequests, long leaseMillis) {
+        long now = clockMillis.getAsLong();
+        Set<String> seenBooks = new HashSet<>();
+        List<LeasedPublishRequest> leased = new ArrayList<>();
+        // The query reads the index a page at a time, oldest first, and stops being read once enough are leased.
+        for (PublishRequestLeaseItem entry : dynamoDbMapper.query(PublishRequestLeaseItem.class, queueQuery())) {
+            if (leased.size() >= maxRequests) {
+                break;
+            }
+            // Only the oldest request of a book may go, and only while no node holds it.
+            if (entry.getBookId() != null && !seenBooks.add(entry.getBookId())) {
+                continue;
+            }
+            if (isLeased(entry, now) || entry.getAvailableAt() > now) {
+                continue;
+            }
+
+            PublishRequestLeaseItem lease = leaseUpdate(entry.getId());
+            lease.setOwner(owner);
+            lease.setLeaseExpiresAt(now + leaseMillis);
+            // The index lags the table, so the table decides whether the request is still there and free.
+            if (!conditionally(() -> dynamoDbMapper.save(lease, new DynamoDBSaveExpression()
+                    .withExpectedEntry("leaseExpiresAt", atMost(now))
+                    .withExpectedEntry("availableAt", atMost(now)), UPDATE_SET_ATTRIBUTES))) {
+                continue;
+            }
+            PublishRequestLeaseItem item = dynamoDbMapper.load(PublishRequestLeaseItem.class, entry.getId(),
+                CONSISTENT_READS);
+            if (item != null) {
+                leased.add(new LeasedPublishRequest(toRequest(item), item.getAttempts()));
+            }
+        }
+        return leased;
+    }
+
+    @Override
+    public boolean renew(String publishingRecordId, String owner, long leaseMillis) {
+        long now = clockMillis.getAsLong();
+        PublishRequestLeaseItem lease = leaseUpdate(publishingRecordId);
+        lease.setLeaseExpiresAt(now + leaseMillis);
+        return conditionally(() -> dynamoDbMapper.save(lease,
+            new DynamoDBSaveExpression().withExpected(heldBy(owner, now)), UPDATE_SET_ATTRIBUTES));
+    }
+
+    @Override
+    public boolean complete(String publishingRecordId, String owner) {
+        long now = clockMillis.getAsLong();
+        return conditionally(() -> dynamoDbMapper.delete(leaseUpdate(publishingRecordId),
+            new DynamoDBDeleteExpression().withExpected(heldBy(owner, now))));
+    }
+
+    @Override
+    public boolean release(String publishingRecordId, String owner, long delayMillis, int attempts) {
+        long now = clockMillis.getAsLong();
+        PublishRequestLeaseItem lease = leaseUpdate(publishingRecordId);
+        // The owner stays as the last node to hold it, an expired lease is not held by anyone.
+        lease.setLeaseExpiresAt(NOT_LEASED);
+        lease.setAvailableAt(now + delayMillis);
+        lease.setAttempts(attempts);
+        return conditionally(() -> dynamoDbMapper.save(lease,
+            new DynamoDBSaveExpression().withExpected(heldBy(owner, now)), UPDATE_SET_ATTRIBUTES));
+    }
+
+    @Override
+    public BookPublishRequest remove(String publishingRecordId) {
+        long now = clockMillis.getAsLong();
+        PublishRequestLeaseItem item = dynamoDbMapper.load(PublishRequestLeaseItem.class, publishingRecordId,
+            CONSISTENT_READS);
+        if (item == null || isLeased(item, now)) {
+            return null;
+        }
+        // Fails if a node leased the request since it was loaded.
+        DynamoDBDeleteExpression notLeased = new DynamoDBDeleteExpression()
+            .withExpectedEntry("leaseExpiresAt", atMost(now));
+        return conditionally(() -> dynamoDbMapper.delete(leaseUpdate(publishingRecordId), notLeased))
+            ? toRequest(item) : null;
+    }
+
+    @Override
+    public int countPending() {
+        return dynamoDbMapper.count(PublishRequestLeaseItem.class, queueQuery());
+    }
+
+    private static DynamoDBQueryExpression<PublishRequestLeaseItem> queueQuery() {
+        PublishRequestLeaseItem queue = new PublishRequestLeaseItem();
+        queue.setQueue(PublishRequestLeaseItem.PUBLISH_QUEUE);
+        // Secondary indexes only support eventually consistent reads.
+        return new DynamoDBQueryExpression<PublishRequestLeaseItem>()
+            .withIndexName(PublishRequestLeaseItem.QUEUE_INDEX)
+            .withHashKeyValues(queue)
+            .withScanIndexForward(true)
+            .withConsistentRead(false);
+    }
+
+    // An item holding only the id, the attributes set on it are the ones an update writes.
+    private static PublishRequestLeaseItem leaseUpdate(String publishingRecordId) {
+        PublishRequestLeaseItem lease = new PublishRequestLeaseItem();
+        lease.setId(publishingRecordId);
+        return lease;
+    }
+
+    // The owner holds the lease and it has not expired.
+    private static Map<String, ExpectedAttributeValue> heldBy(String owner, long now) {
+        Map<String, ExpectedAttributeValue> expected = new HashMap<>();
+        expected.put("owner", new ExpectedAttributeValue(new AttributeValue().withS(owner)));
+        expected.put("leaseExpiresAt", new ExpectedAttributeValue()
+            .withComparisonOperator(ComparisonOperator.GT)
+            .withAttributeValueList(new AttributeValue().withN(Long.toString(now))));
+        return expected;
+    }
+
+    // Also fails if the attribute, and so the request, no longer exists.
+    private static ExpectedAttributeValue atMost(long millis) {
+        return new ExpectedAttributeValue()
+            .withComparisonOperator(ComparisonOperator.LE)
+            .withAttributeValueList(new AttributeValue().withN(Long.toString(millis)));
+    }
+
+    private static boolean conditionally(Runnable write) {
+        try {
+            write.run();
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    private static boolean isLeased(PublishRequestLeaseItem item, long now) {
+        return item.getOwner() != null && item.getLeaseExpiresAt() != null && item.getLeaseExpiresAt() > now;
+    }
+
+    private void setText(PublishRequestLeaseItem item, String text) {
+        if (textBlobStore != null && text != null && text.length() >= CatalogDao.TEXT_OFFLOAD_MIN_CHARS) {
+            item.setTextDigest(textBlobStore.put(text));
+        } else if (CompressedTextConverter.shouldCompress(text)) {
+            item.setCompressedText(text);
+        } else {
+            item.setText(text);
+        }
+    }
+
+    private String getText(PublishRequestLeaseItem item) {
+        if (item.getTextDigest() != null) {
+            if (textBlobStore == null) {
+                throw new IllegalStateException("Publish request " + item.getId() + " has its text in the text " +
+                    "store, but no text store is configured");
+            }
+            return textBlobStore.get(item.getTextDigest());
+        }
+        return item.getCompressedText() != null ? item.getCompressedText() : item.getText();
+    }
+
+    private BookPublishRequest toRequest(PublishRequestLeaseItem item) {
+        return BookPublishRequest.builder()
+            .withPublishingRecordId(item.getId())
+            .withBookId(item.getBookId())
+            .withTitle(item.getTitle())
+            .withAuthor(item.getAuthor())
+            .withGenre(item.getGenre() == null ? null : BookGenre.valueOf(item.getGenre()))
+            .withText(getText(item))
+            .build();
+    }
+}
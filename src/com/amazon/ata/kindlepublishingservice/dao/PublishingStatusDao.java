@@ -3,6 +3,8 @@ package com.amazon.ata.kindlepublishingservice.dao;
 import com.amazon.ata.kindlepublishingservice.dynamodb.models.PublishingStatusItem;
 import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
 import com.amazon.ata.kindlepublishingservice.exceptions.PublishingStatusNotFoundException;
+import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequest;
+import com.amazon.ata.kindlepublishingservice.publishing.PublishingStatusNotifier;
 import com.amazon.ata.kindlepublishingservice.utils.KindlePublishingUtils;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
@@ -10,6 +12,7 @@ import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedQueryList;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -19,15 +22,27 @@ public class PublishingStatusDao {
 
     private static final String ADDITIONAL_NOTES_PREFIX = " Additional Notes: ";
     private final DynamoDBMapper dynamoDbMapper;
+    private final PublishingStatusNotifier publishingStatusNotifier;
+
+    /**
+     * Instantiates a new PublishingStatusDao object that notifies no one of the statuses it writes.
+     *
+     * @param dynamoDbMapper The {@link DynamoDBMapper} used to interact with the publishing status table.
+     */
+    public PublishingStatusDao(DynamoDBMapper dynamoDbMapper) {
+        this(dynamoDbMapper, null);
+    }
 
     /**
      * Instantiates a new PublishingStatusDao object.
      *
      * @param dynamoDbMapper The {@link DynamoDBMapper} used to interact with the publishing status table.
+     * @param publishingStatusNotifier Wakes callers waiting for a status once it is written, may be null.
      */
     @Inject
-    public PublishingStatusDao(DynamoDBMapper dynamoDbMapper) {
+    public PublishingStatusDao(DynamoDBMapper dynamoDbMapper, PublishingStatusNotifier publishingStatusNotifier) {
         this.dynamoDbMapper = dynamoDbMapper;
+        this.publishingStatusNotifier = publishingStatusNotifier;
     }
 
     /**
@@ -75,9 +90,69 @@ public class PublishingStatusDao {
         item.setStatusMessage(statusMessage);
         item.setBookId(bookId);
         dynamoDbMapper.save(item);
+        notifyWritten(item);
         return item;
     }
 
+    /**
+     * Records the same publishingRecordStatus for every request with batched writes, rather than a write per request.
+     * The bookId of each request is stored in its record when provided.
+     *
+     * @param requests The requests whose publishing records to update.
+     * @param publishingRecordStatus The PublishingRecordStatus to save into the table.
+     * @return The stored PublishingStatusItems, in the order of the requests.
+     */
+    public List<PublishingStatusItem> setPublishingStatuses(List<BookPublishRequest> requests,
+                                                            PublishingRecordStatus publishingRecordStatus) {
+        return setPublishingStatuses(requests, publishingRecordStatus, null);
+    }
+
+    /**
+     * Records the same publishingRecordStatus for every request with batched writes, rather than a write per request.
+     * The bookId of each request is stored in its record when provided. If a message is provided, it will be
+     * appended to the publishing status message of every record.
+     *
+     * @param requests The requests whose publishing records to update.
+     * @param publishingRecordStatus The PublishingRecordStatus to save into the table.
+     * @param message additional notes stored with the status
+     * @return The stored PublishingStatusItems, in the order of the requests.
+     */
+    public List<PublishingStatusItem> setPublishingStatuses(List<BookPublishRequest> requests,
+                                                            PublishingRecordStatus publishingRecordStatus,
+                                                            String message) {
+        String statusMessage = KindlePublishingUtils.generatePublishingStatusMessage(publishingRecordStatus);
+        if (StringUtils.isNotBlank(message)) {
+            statusMessage = new StringBuffer()
+                .append(statusMessage)
+                .append(ADDITIONAL_NOTES_PREFIX)
+                .append(message)
+                .toString();
+        }
+        List<PublishingStatusItem> items = new ArrayList<>(requests.size());
+        for (BookPublishRequest request : requests) {
+            PublishingStatusItem item = new PublishingStatusItem();
+            item.setPublishingRecordId(request.getPublishingRecordId());
+            item.setStatus(publishingRecordStatus);
+            item.setStatusMessage(statusMessage);
+            item.setBookId(request.getBookId());
+            items.add(item);
+        }
+        if (items.isEmpty()) {
+            return items;
+        }
+
+        // The mapper writes 25 items per request and retries unprocessed items, a failed batch is what is left.
+        List<DynamoDBMapper.FailedBatch> failedBatches = dynamoDbMapper.batchSave(items);
+        if (!failedBatches.isEmpty()) {
+            throw new IllegalStateException(String.format("Unable to write %d of %d batches of publishing statuses",
+                failedBatches.size(), (items.size() + 24) / 25), failedBatches.get(0).getException());
+        }
+        for (PublishingStatusItem item : items) {
+            notifyWritten(item);
+        }
+        return items;
+    }
+
     public List<PublishingStatusItem> getPublishingStatuses(String publishingRecordId) {
 
 
@@ -96,4 +171,10 @@ public class PublishingStatusDao {
 
         return statusItemList;
     }
+
+    private void notifyWritten(PublishingStatusItem item) {
+        if (publishingStatusNotifier != null) {
+            publishingStatusNotifier.publish(item);
+        }
+    }
 }
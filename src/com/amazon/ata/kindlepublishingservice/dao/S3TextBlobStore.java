@@ -0,0 +1,42 @@
+package com.amazon.ata.kindlepublishingservice.dao;
+
+import com.amazonaws.services.s3.AmazonS3;
+
+/**
+ * A {@link TextBlobStore} keeping each text in an S3 object keyed by its digest, shared by every node of the service.
+ */
+public class S3TextBlobStore implements TextBlobStore {
+
+    private final AmazonS3 s3;
+    private final String bucket;
+    private final String keyPrefix;
+
+    /**
+     * Instantiates a new S3TextBlobStore.
+     *
+     * @param s3 the client objects are read and written through
+     * @param bucket the bucket text is stored in
+     * @param keyPrefix prepended to the digest to form an object key, such as "book-text/"
+     */
+    public S3TextBlobStore(AmazonS3 s3, String bucket, String keyPrefix) {
+        this.s3 = s3;
+        this.bucket = bucket;
+        this.keyPrefix = keyPrefix;
+    }
+
+    @Override
+    public String put(String text) {
+        String digest = TextBlobStore.digestOf(text);
+        String key = keyPrefix + digest;
+        // Objects are never changed once written, so an existing object already holds this text.
+        if (!s3.doesObjectExist(bucket, key)) {
+            s3.putObject(bucket, key, text);
+        }
+        return digest;
+    }
+
+    @Override
+    public String get(String digest) {
+        return s3.getObjectAsString(bucket, keyPrefix + digest);
+    }
+}
@@ -0,0 +1,49 @@
+package com.amazon.ata.kindlepublishingservice.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content addressed storage for book text too large to copy into every catalog item version. Text is stored under
+ * the SHA-256 digest of its UTF-8 bytes, so identical text, such as an unchanged manuscript across versions, is
+ * stored once.
+ */
+public interface TextBlobStore {
+
+    /**
+     * Stores the text, unless text with the same digest is already stored.
+     *
+     * @param text the text to store
+     * @return the digest the text can be read back by
+     */
+    String put(String text);
+
+    /**
+     * Reads stored text back.
+     *
+     * @param digest the digest returned when the text was stored
+     * @return the text
+     * @throws IllegalStateException if no text is stored under the digest
+     */
+    String get(String digest);
+
+    /**
+     * Returns the hex SHA-256 digest of the text's UTF-8 bytes, the key text is stored under.
+     *
+     * @param text the text to digest
+     * @return the digest
+     */
+    static String digestOf(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.amazon.ata.kindlepublishingservice.dao;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache bounded by the total weight of its entries, evicting in the W-TinyLFU style so that a burst of keys read
+ * once, such as a crawl of the whole catalog, cannot flush the keys read all the time.
+ *
+ * New entries go into a small window kept in least recently used order. An entry leaving the window is only admitted
+ * into the main area if its key has been read more often than the key it would evict there, going by a count-min
+ * sketch of recent reads that is halved periodically so old popularity fades. The main area is split into a
+ * probation segment, for entries read once since admission, and a protected segment for entries read again.
+ *
+ * Not thread safe, callers synchronize.
+ *
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+final class TinyLfuCache<K, V> {
+
+    /**
+     * Receives the entries the cache evicts to stay within its weight.
+     *
+     * @param <K> the type of key
+     * @param <V> the type of value
+     */
+    interface EvictionListener<K, V> {
+        void onEviction(K key, V value);
+    }
+
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final long maxWeight;
+    private final long maxWindowWeight;
+    private final long maxProtectedWeight;
+    private final FrequencySketch sketch;
+    private final EvictionListener<K, V> evictionListener;
+    private final Map<K, Node<K, V>> nodes = new HashMap<>();
+    // Insertion ordered, so the first entry is the least recently used: a read removes and re-inserts.
+    private final LinkedHashMap<K, Node<K, V>> window = new LinkedHashMap<>();
+    private final LinkedHashMap<K, Node<K, V>> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<K, Node<K, V>> protectedSegment = new LinkedHashMap<>();
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+
+    /**
+     * Instantiates a new, empty TinyLfuCache.
+     *
+     * @param maxWeight the most total weight the cache holds
+     * @param expectedEntries roughly how many entries fit in the cache, sizes the frequency sketch
+     * @param evictionListener receives evicted entries
+     */
+    TinyLfuCache(long maxWeight, int expectedEntries, EvictionListener<K, V> evictionListener) {
+        this.maxWeight = Math.max(1, maxWeight);
+        this.maxWindowWeight = Math.max(1, this.maxWeight * WINDOW_PERCENT / 100);
+        this.maxProtectedWeight = (this.maxWeight - maxWindowWeight) * PROTECTED_PERCENT / 100;
+        this.sketch = new FrequencySketch(Math.max(16, expectedEntries));
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * Returns the value of a key and records the read.
+     *
+     * @param key the key
+     * @return the value, or null if the key is not cached
+     */
+    V get(K key) {
+        sketch.increment(key);
+        Node<K, V> node = nodes.get(key);
+        if (node == null) {
+            return null;
+        }
+        onRead(node);
+        return node.value;
+    }
+
+    /**
+     * Adds or replaces the value of a key, evicting other entries as needed to stay within the maximum weight. An
+     * entry heavier than the whole cache is not kept.
+     *
+     * @param key the key
+     * @param value the value
+     * @param weight the weight of the entry
+     */
+    void put(K key, V value, long weight) {
+        remove(key);
+        if (weight > maxWeight) {
+            return;
+        }
+        Node<K, V> node = new Node<>(key, value, weight);
+        nodes.put(key, node);
+        window.put(key, node);
+        windowWeight += weight;
+        evict();
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key the key
+     * @return the removed value, or null if the key was not cached
+     */
+    V remove(K key) {
+        Node<K, V> node = nodes.remove(key);
+        if (node == null) {
+            return null;
+        }
+        unlink(node);
+        return node.value;
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    long weight() {
+        return windowWeight + probationWeight + protectedWeight;
+    }
+
+    int frequency(K key) {
+        return sketch.frequency(key);
+    }
+
+    private void onRead(Node<K, V> node) {
+        if (node.segment == Segment.WINDOW) {
+            window.remove(node.key);
+            window.put(node.key, node);
+        } else if (node.segment == Segment.PROBATION) {
+            probation.remove(node.key);
+            probationWeight -= node.weight;
+            node.segment = Segment.PROTECTED;
+            protectedSegment.put(node.key, node);
+            protectedWeight += node.weight;
+            demoteProtectedOverflow();
+        } else {
+            protectedSegment.remove(node.key);
+            protectedSegment.put(node.key, node);
+        }
+    }
+
+    private void demoteProtectedOverflow() {
+        while (protectedWeight > maxProtectedWeight && protectedSegment.size() > 1) {
+            Node<K, V> demoted = removeFirst(protectedSegment);
+            protectedWeight -= demoted.weight;
+            demoted.segment = Segment.PROBATION;
+            probation.put(demoted.key, demoted);
+            probationWeight += demoted.weight;
+        }
+    }
+
+    private void evict() {
+        // Entries leaving the window compete with the main area's least recently used entry for their place.
+        while (windowWeight > maxWindowWeight && window.size() > 1) {
+            Node<K, V> candidate = removeFirst(window);
+            windowWeight -= candidate.weight;
+            candidate.segment = Segment.PROBATION;
+            probation.put(candidate.key, candidate);
+            probationWeight += candidate.weight;
+            admit(candidate);
+        }
+        while (weight() > maxWeight) {
+            Map<K, Node<K, V>> segment = !probation.isEmpty() ? probation
+                : !protectedSegment.isEmpty() ? protectedSegment : window;
+            evict(segment.values().iterator().next());
+        }
+    }
+
+    private void admit(Node<K, V> candidate) {
+        while (weight() > maxWeight) {
+            Node<K, V> victim = firstOther(probation, candidate);
+            if (victim == null) {
+                victim = firstOther(protectedSegment, candidate);
+            }
+            if (victim == null || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                evict(candidate);
+                return;
+            }
+            evict(victim);
+        }
+    }
+
+    private void evict(Node<K, V> node) {
+        nodes.remove(node.key);
+        unlink(node);
+        evictionListener.onEviction(node.key, node.value);
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.segment == Segment.WINDOW) {
+            window.remove(node.key);
+            windowWeight -= node.weight;
+        } else if (node.segment == Segment.PROBATION) {
+            probation.remove(node.key);
+            probationWeight -= node.weight;
+        } else {
+            protectedSegment.remove(node.key);
+            protectedWeight -= node.weight;
+        }
+    }
+
+    private static <K, V> Node<K, V> firstOther(Map<K, Node<K, V>> segment, Node<K, V> excluded) {
+        for (Node<K, V> node : segment.values()) {
+            if (node != excluded) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private static <K, V> Node<K, V> removeFirst(Map<K, Node<K, V>> segment) {
+        Iterator<Node<K, V>> iterator = segment.values().iterator();
+        Node<K, V> first = iterator.next();
+        iterator.remove();
+        return first;
+    }
+
+    private enum Segment { WINDOW, PROBATION, PROTECTED }
+
+    /**
+     * A cached value along with its weight and the segment holding it.
+     */
+    private static final class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final long weight;
+        private Segment segment = Segment.WINDOW;
+
+        private Node(K key, V value, long weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * A count-min sketch of how often keys were read, with four 4-bit counters per key. Once it has counted ten reads
+     * per expected entry every counter is halved, so the sketch tracks recent popularity.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+            0xcbf29ce484222325L};
+        private static final long HALVE_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int counterMask;
+        private final int resetAt;
+        private int additions;
+
+        private FrequencySketch(int expectedEntries) {
+            int longs = Integer.highestOneBit(Math.min(expectedEntries, 1 << 26) - 1) << 1;
+            this.table = new long[longs];
+            // Every long holds sixteen counters.
+            this.counterMask = longs * 16 - 1;
+            this.resetAt = 10 * expectedEntries;
+        }
+
+        private int frequency(Object key) {
+            int hash = key.hashCode();
+            int frequency = 15;
+            for (int i = 0; i < SEEDS.length; i++) {
+                frequency = Math.min(frequency, counter(indexOf(hash, i)));
+            }
+            return frequency;
+        }
+
+        private void increment(Object key) {
+            int hash = key.hashCode();
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = indexOf(hash, i);
+                if (counter(index) < 15) {
+                    table[index >>> 4] += 1L << ((index & 15) << 2);
+                    added = true;
+                }
+            }
+            if (added && ++additions >= resetAt) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & HALVE_MASK;
+                }
+                additions /= 2;
+            }
+        }
+
+        private int counter(int index) {
+            return (int) ((table[index >>> 4] >>> ((index & 15) << 2)) & 15L);
+        }
+
+        private int indexOf(int hash, int i) {
+            long mixed = (hash + SEEDS[i]) * SEEDS[i];
+            mixed ^= mixed >>> 32;
+            return (int) mixed & counterMask;
+        }
+    }
+}
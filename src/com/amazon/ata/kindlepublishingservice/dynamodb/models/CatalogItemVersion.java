@@ -1,14 +1,18 @@
 package com.amazon.ata.kindlepublishingservice.dynamodb.models;
 
+import com.amazon.ata.kindlepublishingservice.dynamodb.converters.CompressedTextConverter;
 import com.amazon.ata.recommendationsservice.types.BookGenre;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIgnore;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBRangeKey;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConverted;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConvertedEnum;
 
 import java.util.Objects;
+import java.util.function.UnaryOperator;
 
 @DynamoDBTable(tableName = "CatalogItemVersions")
 public class CatalogItemVersion {
@@ -18,7 +22,10 @@ public class CatalogItemVersion {
     private String title;
     private String author;
     private String text;
+    private String textDigest;
+    private UnaryOperator<String> textLoader;
     private BookGenre genre;
+    private Integer latestVersion;
 
     @DynamoDBHashKey(attributeName = "bookId")
     public String getBookId() {
@@ -56,13 +63,84 @@ public class CatalogItemVersion {
         this.author = author;
     }
 
-    @DynamoDBAttribute(attributeName = "text")
+    /**
+     * Returns the text of the book. Text kept in a blob store is fetched on the first call.
+     *
+     * @return the text
+     */
+    @DynamoDBIgnore
     public String getText() {
+        if (text == null && textDigest != null && textLoader != null) {
+            text = textLoader.apply(textDigest);
+        }
         return text;
     }
 
+    /**
+     * Sets the text of the book, replacing any text kept in a blob store.
+     *
+     * @param text the text
+     */
     public void setText(String text) {
         this.text = text;
+        this.textDigest = null;
+    }
+
+    /**
+     * Returns the digest of the text if it is kept in a blob store rather than in this item.
+     *
+     * @return the digest, or null if the text is in this item
+     */
+    @DynamoDBAttribute(attributeName = "textDigest")
+    public String getTextDigest() {
+        return textDigest;
+    }
+
+    public void setTextDigest(String textDigest) {
+        this.textDigest = textDigest;
+    }
+
+    /**
+     * Sets how text kept in a blob store is fetched, given its digest.
+     *
+     * @param textLoader returns the text stored under a digest
+     */
+    public void setTextLoader(UnaryOperator<String> textLoader) {
+        this.textLoader = textLoader;
+    }
+
+    /**
+     * Returns the text if it is short enough to be stored as a plain string. Items written before text was compressed
+     * hold all of their text here.
+     *
+     * @return the text, or null if it is stored compressed or in a blob store
+     */
+    @DynamoDBAttribute(attributeName = "text")
+    public String getUncompressedText() {
+        return textDigest != null || CompressedTextConverter.shouldCompress(text) ? null : text;
+    }
+
+    public void setUncompressedText(String uncompressedText) {
+        if (uncompressedText != null) {
+            this.text = uncompressedText;
+        }
+    }
+
+    /**
+     * Returns the text if it is long enough to be stored compressed.
+     *
+     * @return the text, or null if it is stored as a plain string or in a blob store
+     */
+    @DynamoDBTypeConverted(converter = CompressedTextConverter.class)
+    @DynamoDBAttribute(attributeName = "compressedText")
+    public String getCompressedText() {
+        return textDigest == null && CompressedTextConverter.shouldCompress(text) ? text : null;
+    }
+
+    public void setCompressedText(String compressedText) {
+        if (compressedText != null) {
+            this.text = compressedText;
+        }
     }
 
     @DynamoDBTypeConvertedEnum
@@ -75,6 +153,21 @@ public class CatalogItemVersion {
         this.genre = genre;
     }
 
+    /**
+     * Returns the version this item points at, if it is the latest-version pointer of its book rather than one of its
+     * versions.
+     *
+     * @return the latest version of the book, or null for an item holding a version
+     */
+    @DynamoDBAttribute(attributeName = "latestVersion")
+    public Integer getLatestVersion() {
+        return latestVersion;
+    }
+
+    public void setLatestVersion(Integer latestVersion) {
+        this.latestVersion = latestVersion;
+    }
+
     @DynamoDBAttribute(attributeName = "inactive")
     public boolean isInactive() {
         return inactive;
@@ -93,6 +186,7 @@ public class CatalogItemVersion {
                 ", title='" + title + '\'' +
                 ", author='" + author + '\'' +
                 ", text='" + text + '\'' +
+                ", textDigest='" + textDigest + '\'' +
                 ", genre=" + genre +
                 '}';
     }
@@ -111,7 +205,9 @@ public class CatalogItemVersion {
                 Objects.equals(getBookId(), that.getBookId()) &&
                 Objects.equals(getTitle(), that.getTitle()) &&
                 Objects.equals(getAuthor(), that.getAuthor()) &&
-                Objects.equals(getText(), that.getText()) &&
+                // Text kept in a blob store is compared by digest, without fetching it.
+                Objects.equals(textDigest, that.textDigest) &&
+                (textDigest != null || Objects.equals(text, that.text)) &&
                 getGenre() == that.getGenre();
     }
 
@@ -122,7 +218,7 @@ public class CatalogItemVersion {
                 isInactive(),
                 getTitle(),
                 getAuthor(),
-                getText(),
+                textDigest != null ? textDigest : text,
                 getGenre());
     }
 }
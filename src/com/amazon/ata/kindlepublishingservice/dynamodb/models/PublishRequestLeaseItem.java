@@ -0,0 +1,169 @@
+package com.amazon.ata.kindlepublishingservice.dynamodb.models;
+
+import com.amazon.ata.kindlepublishingservice.dynamodb.converters.CompressedTextConverter;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIndexHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIndexRangeKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConverted;
+
+/**
+ * A pending publish request in the shared publish queue, keyed by its publishing record id, along with the node
+ * leasing it and until when. A lease that expired, or a request never leased, has a lease expiry in the past.
+ *
+ * Every item sits in the same partition of the {@link #QUEUE_INDEX}, sorted by when it was queued. The index only
+ * projects what picking a request to lease needs, never the text, so finding work reads a few small entries rather
+ * than whole manuscripts. The text is held as a plain string, compressed, or as the digest of text kept in a blob
+ * store, whichever the writer chose.
+ */
+@DynamoDBTable(tableName = "PublishRequestLeases")
+public class PublishRequestLeaseItem {
+    /** Global secondary index of the pending requests in the order they were queued. */
+    public static final String QUEUE_INDEX = "QueueIndex";
+    /** The queue every request is in, the hash key of the {@link #QUEUE_INDEX}. */
+    public static final String PUBLISH_QUEUE = "publish";
+
+    private String id;
+    private String queue;
+    private String bookId;
+    private String title;
+    private String author;
+    private String genre;
+    private String text;
+    private String compressedText;
+    private String textDigest;
+    private Long enqueuedAt;
+    private Long availableAt;
+    private String owner;
+    private Long leaseExpiresAt;
+    private Integer attempts;
+
+    @DynamoDBHashKey(attributeName = "id")
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    @DynamoDBIndexHashKey(globalSecondaryIndexName = QUEUE_INDEX, attributeName = "queue")
+    public String getQueue() {
+        return queue;
+    }
+
+    public void setQueue(String queue) {
+        this.queue = queue;
+    }
+
+    @DynamoDBAttribute(attributeName = "bookId")
+    public String getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(String bookId) {
+        this.bookId = bookId;
+    }
+
+    @DynamoDBAttribute(attributeName = "title")
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    @DynamoDBAttribute(attributeName = "author")
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    @DynamoDBAttribute(attributeName = "genre")
+    public String getGenre() {
+        return genre;
+    }
+
+    public void setGenre(String genre) {
+        this.genre = genre;
+    }
+
+    @DynamoDBAttribute(attributeName = "text")
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    @DynamoDBTypeConverted(converter = CompressedTextConverter.class)
+    @DynamoDBAttribute(attributeName = "compressedText")
+    public String getCompressedText() {
+        return compressedText;
+    }
+
+    public void setCompressedText(String compressedText) {
+        this.compressedText = compressedText;
+    }
+
+    @DynamoDBAttribute(attributeName = "textDigest")
+    public String getTextDigest() {
+        return textDigest;
+    }
+
+    public void setTextDigest(String textDigest) {
+        this.textDigest = textDigest;
+    }
+
+    @DynamoDBIndexRangeKey(globalSecondaryIndexName = QUEUE_INDEX, attributeName = "enqueuedAt")
+    public Long getEnqueuedAt() {
+        return enqueuedAt;
+    }
+
+    public void setEnqueuedAt(Long enqueuedAt) {
+        this.enqueuedAt = enqueuedAt;
+    }
+
+    @DynamoDBAttribute(attributeName = "availableAt")
+    public Long getAvailableAt() {
+        return availableAt;
+    }
+
+    public void setAvailableAt(Long availableAt) {
+        this.availableAt = availableAt;
+    }
+
+    @DynamoDBAttribute(attributeName = "owner")
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    @DynamoDBAttribute(attributeName = "leaseExpiresAt")
+    public Long getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    public void setLeaseExpiresAt(Long leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    @DynamoDBAttribute(attributeName = "attempts")
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+}
@@ -4,5 +4,7 @@ public enum PublishingRecordStatus {
     QUEUED,
     IN_PROGRESS,
     FAILED,
-    SUCCESSFUL;
+    SUCCESSFUL,
+    SUPERSEDED,
+    CANCELLED;
 }
@@ -0,0 +1,18 @@
+package com.amazon.ata.kindlepublishingservice.exceptions;
+
+/**
+ * Exception to be thrown when a caller asks for more books in one call than the service looks up at once. The caller
+ * can split the ids across several calls.
+ */
+public class BookLookupLimitException extends RuntimeException {
+
+    private static final long serialVersionUID = -3871240563150982217L;
+
+    /**
+     * Exception with a message, but no cause.
+     * @param message A descriptive message for this exception.
+     */
+    public BookLookupLimitException(String message) {
+        super(message);
+    }
+}
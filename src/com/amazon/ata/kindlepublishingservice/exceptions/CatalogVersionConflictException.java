@@ -0,0 +1,27 @@
+package com.amazon.ata.kindlepublishingservice.exceptions;
+
+/**
+ * Exception to be thrown when a new version of a book cannot be written because other writers kept adding versions
+ * of the same book first.
+ */
+public class CatalogVersionConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 5318043261789150226L;
+
+    /**
+     * Exception with a message, but no cause.
+     * @param message A descriptive message for this exception.
+     */
+    public CatalogVersionConflictException(String message) {
+        super(message);
+    }
+
+    /**
+     * Exception with message and cause.
+     * @param message A descriptive message for this exception.
+     * @param cause The original throwable resulting in this exception.
+     */
+    public CatalogVersionConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,26 @@
+package com.amazon.ata.kindlepublishingservice.exceptions;
+
+/**
+ * Exception to be thrown when there is no dead letter for a given publishing record ID.
+ */
+public class DeadLetterNotFoundException extends RuntimeException {
+
+    private static final long serialVersionUID = 4719207446377014322L;
+
+    /**
+     * Exception with a message, but no cause.
+     * @param message A descriptive message for this exception.
+     */
+    public DeadLetterNotFoundException(String message) {
+        super(message);
+    }
+
+    /**
+     * Exception with message and cause.
+     * @param message A descriptive message for this exception.
+     * @param cause The original throwable resulting in this exception.
+     */
+    public DeadLetterNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
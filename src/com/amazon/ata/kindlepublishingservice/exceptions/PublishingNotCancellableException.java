@@ -0,0 +1,27 @@
+package com.amazon.ata.kindlepublishingservice.exceptions;
+
+/**
+ * Exception to be thrown when a publishing request cannot be cancelled because it is no longer queued, either
+ * because it is being published or because it already reached a final status.
+ */
+public class PublishingNotCancellableException extends RuntimeException {
+
+    private static final long serialVersionUID = 2740951367280516263L;
+
+    /**
+     * Exception with a message, but no cause.
+     * @param message A descriptive message for this exception.
+     */
+    public PublishingNotCancellableException(String message) {
+        super(message);
+    }
+
+    /**
+     * Exception with message and cause.
+     * @param message A descriptive message for this exception.
+     * @param cause The original throwable resulting in this exception.
+     */
+    public PublishingNotCancellableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
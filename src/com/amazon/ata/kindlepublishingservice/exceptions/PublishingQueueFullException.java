@@ -0,0 +1,26 @@
+package com.amazon.ata.kindlepublishingservice.exceptions;
+
+/**
+ * Exception to be thrown when the publishing queue is at capacity and cannot accept another book. The request can be
+ * retried after the suggested delay.
+ */
+public class PublishingQueueFullException extends RuntimeException {
+
+    private static final long serialVersionUID = 3265108213486457310L;
+
+    private final long retryAfterSeconds;
+
+    /**
+     * Exception with a message and a retry hint.
+     * @param message A descriptive message for this exception.
+     * @param retryAfterSeconds How long the caller should wait before retrying.
+     */
+    public PublishingQueueFullException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,26 @@
+package com.amazon.ata.kindlepublishingservice.exceptions;
+
+/**
+ * Exception to be thrown when the most callers the service lets wait for a publishing status change at once are
+ * already waiting. The caller can retry after the suggested delay or read the status without waiting.
+ */
+public class PublishingStatusWaitLimitException extends RuntimeException {
+
+    private static final long serialVersionUID = 6019342781507753104L;
+
+    private final long retryAfterSeconds;
+
+    /**
+     * Exception with a message and a retry hint.
+     * @param message A descriptive message for this exception.
+     * @param retryAfterSeconds How long the caller should wait before retrying.
+     */
+    public PublishingStatusWaitLimitException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,131 @@
+package com.amazon.ata.kindlepublishingservice.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe count, total, maximum and distribution of a latency metric.
+ *
+ * The distribution is kept in a log-linear histogram in the style of HdrHistogram: every power of two range of
+ * nanoseconds is split into 64 equal buckets, so a percentile is reported within 1.6% of the true sample value no
+ * matter its magnitude, in a fixed 20KB per metric. Recording is a single atomic increment and never allocates.
+ * Samples above 2^44 ns (about 4.9 hours) are counted in the top bucket.
+ */
+public class LatencyStats {
+
+    // Values below 128 ns get a bucket each, every power of two range above that is split into 64 buckets.
+    private static final int LINEAR_BUCKETS = 128;
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE = 44;
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (MAX_MAGNITUDE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final long MAX_TRACKABLE_NANOS = (1L << (MAX_MAGNITUDE + 1)) - 1;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Records a single latency sample.
+     *
+     * @param durationNanos The measured latency in nanoseconds.
+     */
+    public void record(long durationNanos) {
+        long duration = Math.max(0, durationNanos);
+        count.increment();
+        totalNanos.add(duration);
+        maxNanos.accumulate(duration);
+        buckets.incrementAndGet(bucketOf(duration));
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the average of all recorded samples.
+     *
+     * @param unit The unit to return the average in.
+     * @return The average latency, or zero if nothing has been recorded.
+     */
+    public long getAverage(TimeUnit unit) {
+        long samples = count.sum();
+        if (samples == 0) {
+            return 0;
+        }
+        return unit.convert(totalNanos.sum() / samples, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the sum of all recorded samples. Together with {@link #getCount()} it gives the average latency between
+     * two readings.
+     *
+     * @param unit The unit to return the total in.
+     * @return The total latency, or zero if nothing has been recorded.
+     */
+    public long getTotal(TimeUnit unit) {
+        return unit.convert(totalNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the largest recorded sample.
+     *
+     * @param unit The unit to return the maximum in.
+     * @return The maximum latency, or zero if nothing has been recorded.
+     */
+    public long getMax(TimeUnit unit) {
+        return unit.convert(maxNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the latency that the given percentage of samples were at or below. The result is the upper bound of
+     * the histogram bucket holding that sample, capped at the recorded maximum.
+     *
+     * @param percentile The percentile between 0 and 100, such as 99.9.
+     * @param unit The unit to return the latency in.
+     * @return The latency at the percentile, or zero if nothing has been recorded.
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        long samples = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            samples += buckets.get(i);
+        }
+        if (samples == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * samples));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return unit.convert(Math.min(upperBoundOf(i), maxNanos.get()), TimeUnit.NANOSECONDS);
+            }
+        }
+        return getMax(unit);
+    }
+
+    static int bucketOf(long nanos) {
+        long value = Math.min(nanos, MAX_TRACKABLE_NANOS);
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return LINEAR_BUCKETS + (magnitude - SUB_BUCKET_BITS - 1) * SUB_BUCKETS
+            + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int magnitude = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return ((long) (subBucket + 1) << shift) - 1;
+    }
+}
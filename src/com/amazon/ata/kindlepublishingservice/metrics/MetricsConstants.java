@@ -0,0 +1,118 @@
+package com.amazon.ata.kindlepublishingservice.metrics;
+
+/**
+ * Names of the metrics reported by the Kindle Publishing Service.
+ */
+public final class MetricsConstants {
+
+    /** Format of the per worker count of books published, takes the worker id. */
+    public static final String PUBLISH_WORKER_PUBLISHED_COUNT = "BookPublisher.Worker%d.PublishedCount";
+    /** Format of the per worker time spent publishing in milliseconds, takes the worker id. */
+    public static final String PUBLISH_WORKER_BUSY_TIME_MILLIS = "BookPublisher.Worker%d.BusyTimeMillis";
+    /** Format of the per worker throughput in books per minute, takes the worker id. */
+    public static final String PUBLISH_WORKER_THROUGHPUT = "BookPublisher.Worker%d.BooksPerMinute";
+    /** Time a publish request spends in the queue between being added and being taken by a worker. */
+    public static final String PUBLISH_QUEUE_WAIT_TIME = "BookPublishRequestManager.QueueWaitTime";
+    /** Number of publish requests waiting in the queue. */
+    public static final String PUBLISH_QUEUE_DEPTH = "BookPublishRequestManager.QueueDepth";
+    /** Heap held by the text of the publish requests waiting in the queue. */
+    public static final String PUBLISH_QUEUE_TEXT_BYTES = "BookPublishRequestManager.QueuedTextBytes";
+    /** Format of the number of publish requests waiting for an author in fair order, takes the author. */
+    public static final String PUBLISH_TENANT_QUEUE_DEPTH = "BookPublishRequestManager.Author.%s.QueueDepth";
+    /** Format of the time an author's publish requests spend in the queue in fair order, takes the author. */
+    public static final String PUBLISH_TENANT_WAIT_TIME = "BookPublishRequestManager.Author.%s.QueueWaitTime";
+    /** Number of submissions rejected because the publish queue was full. */
+    public static final String PUBLISH_QUEUE_REJECTED_COUNT = "BookPublishRequestManager.RejectedCount";
+    /** Number of queued publish requests dropped because a newer request for the same book was queued. */
+    public static final String PUBLISH_QUEUE_SUPERSEDED_COUNT = "BookPublishRequestManager.SupersededCount";
+    /** Number of queued publish requests cancelled before they were published. */
+    public static final String PUBLISH_QUEUE_CANCELLED_COUNT = "BookPublishRequestManager.CancelledCount";
+    /** Number of failed publish requests waiting for their retry to become due. */
+    public static final String PUBLISH_QUEUE_RETRY_DEPTH = "BookPublishRequestManager.RetryDepth";
+    /** Number of failed publishes scheduled to retry. */
+    public static final String PUBLISH_RETRY_COUNT = "PublishFailureHandler.RetryCount";
+    /** Number of publish requests given up on and written to the dead-letter store. */
+    public static final String PUBLISH_DEAD_LETTERED_COUNT = "PublishFailureHandler.DeadLetteredCount";
+    /** Time from a publish request being queued to it reaching a final status, across retries. */
+    public static final String PUBLISH_END_TO_END_LATENCY = "BookPublishRequestManager.EndToEndLatency";
+    /** Time a publish task spends publishing a request, from taking it to recording its status. */
+    public static final String PUBLISH_TASK_PUBLISH_TIME = "BookPublishTask.PublishTime";
+    /** Time a publish task spends converting a book to its Kindle format. */
+    public static final String PUBLISH_TASK_CONVERSION_TIME = "BookPublishTask.ConversionTime";
+    /** Time a publish task spends saving a book to the catalog table. */
+    public static final String PUBLISH_TASK_CATALOG_WRITE_TIME = "BookPublishTask.CatalogWriteTime";
+    /** Time a publish task spends writing a publishing status. */
+    public static final String PUBLISH_TASK_STATUS_WRITE_TIME = "BookPublishTask.StatusWriteTime";
+    /** Number of requests a publish task published. */
+    public static final String PUBLISH_TASK_SUCCEEDED_COUNT = "BookPublishTask.SucceededCount";
+    /** Number of requests a publish task failed to publish, including those scheduled to retry. */
+    public static final String PUBLISH_TASK_FAILED_COUNT = "BookPublishTask.FailedCount";
+    /** Number of publish requests waiting in the dead-letter store. */
+    public static final String DEAD_LETTER_DEPTH = "DeadLetterStore.Depth";
+    /** Format of the number of jobs waiting for a publishing pipeline stage, takes the stage name. */
+    public static final String PIPELINE_STAGE_QUEUE_DEPTH = "PublishingPipeline.%s.QueueDepth";
+    /** Format of the number of a publishing pipeline stage's threads working on a job, takes the stage name. */
+    public static final String PIPELINE_STAGE_BUSY_THREADS = "PublishingPipeline.%s.BusyThreads";
+    /** Format of the time a job waits for a publishing pipeline stage, takes the stage name. */
+    public static final String PIPELINE_STAGE_WAIT_TIME = "PublishingPipeline.%s.WaitTime";
+    /** Format of the time a publishing pipeline stage spends on a job, takes the stage name. */
+    public static final String PIPELINE_STAGE_LATENCY = "PublishingPipeline.%s.Latency";
+    /** Format of the number of jobs a publishing pipeline stage failed with an exception, takes the stage name. */
+    public static final String PIPELINE_STAGE_FAILED_COUNT = "PublishingPipeline.%s.FailedCount";
+    /** Format of the name of a publishing pipeline stage's striped lanes, takes the stage name. */
+    public static final String PIPELINE_STAGE_LANES = "PublishingPipeline.%s";
+    /** Name of the striped lanes the drain worker publishes on. */
+    public static final String PUBLISH_WORKER_LANES = "BookPublisher";
+    /** Format of the number of tasks waiting on a striped executor lane, takes the executor name and lane id. */
+    public static final String STRIPED_LANE_QUEUE_DEPTH = "%s.Lane%d.QueueDepth";
+    /** Format of the number of tasks a striped executor lane has run, takes the executor name and lane id. */
+    public static final String STRIPED_LANE_EXECUTED_COUNT = "%s.Lane%d.ExecutedCount";
+    /** Format of how many percent more load a striped executor's busiest lane has than its average, takes the name. */
+    public static final String STRIPED_LANE_IMBALANCE = "%s.LaneImbalancePercent";
+    /** Number of Kindle conversions served from the in-memory conversion cache or an in-flight conversion. */
+    public static final String CONVERSION_CACHE_HIT_COUNT = "KindleConversionCache.HitCount";
+    /** Number of Kindle conversions served from the on-disk conversion cache. */
+    public static final String CONVERSION_CACHE_DISK_HIT_COUNT = "KindleConversionCache.DiskHitCount";
+    /** Number of Kindle conversions that missed the conversion cache and had to be converted. */
+    public static final String CONVERSION_CACHE_MISS_COUNT = "KindleConversionCache.MissCount";
+    /** Heap held by the text in the in-memory conversion cache. */
+    public static final String CONVERSION_CACHE_MEMORY_BYTES = "KindleConversionCache.MemoryBytes";
+
+    /** Number of publish requests pending in the shared lease store, across every node. */
+    public static final String LEASED_QUEUE_PENDING_DEPTH = "LeasedPublishQueue.PendingDepth";
+    /** Number of publish requests this node holds a lease on. */
+    public static final String LEASED_QUEUE_HELD_LEASES = "LeasedPublishQueue.HeldLeases";
+    /** Number of publish requests this node leased from the shared lease store. */
+    public static final String LEASED_QUEUE_ACQUIRED_COUNT = "LeasedPublishQueue.AcquiredCount";
+    /** Number of leases this node lost before finishing the request, for example after a long pause. */
+    public static final String LEASED_QUEUE_LEASE_LOST_COUNT = "LeasedPublishQueue.LeaseLostCount";
+
+    /** Number of callers waiting for a publishing status change. */
+    public static final String STATUS_WAITERS = "PublishingStatusNotifier.Waiters";
+    /** Number of waits for a publishing status change refused because too many callers were waiting. */
+    public static final String STATUS_WAIT_REJECTED_COUNT = "PublishingStatusNotifier.RejectedCount";
+
+    /** Number of books the publisher publishes at once. */
+    public static final String PUBLISH_WORKER_COUNT = "BookPublisher.WorkerCount";
+    /** Number of times the autoscaler added publish workers. */
+    public static final String AUTOSCALER_SCALE_UP_COUNT = "PublishWorkerAutoscaler.ScaleUpCount";
+    /** Number of times the autoscaler removed publish workers. */
+    public static final String AUTOSCALER_SCALE_DOWN_COUNT = "PublishWorkerAutoscaler.ScaleDownCount";
+    /** Number of resizes the publisher could not apply, because the worker count was outside its bounds. */
+    public static final String AUTOSCALER_RESIZE_FAILED_COUNT = "PublishWorkerAutoscaler.ResizeFailedCount";
+
+    /** Number of catalog reads served from the catalog cache. */
+    public static final String CATALOG_CACHE_HIT_COUNT = "CatalogItemCache.HitCount";
+    /** Number of catalog reads that missed the catalog cache and read the catalog table. */
+    public static final String CATALOG_CACHE_MISS_COUNT = "CatalogItemCache.MissCount";
+    /** Number of book versions evicted from the catalog cache to stay within its byte limit. */
+    public static final String CATALOG_CACHE_EVICTION_COUNT = "CatalogItemCache.EvictionCount";
+    /** Share of catalog reads served from the catalog cache, in percent. */
+    public static final String CATALOG_CACHE_HIT_RATIO = "CatalogItemCache.HitRatioPercent";
+    /** Number of book versions in the catalog cache. */
+    public static final String CATALOG_CACHE_SIZE = "CatalogItemCache.Size";
+    /** Heap held by the book versions in the catalog cache. */
+    public static final String CATALOG_CACHE_MEMORY_BYTES = "CatalogItemCache.MemoryBytes";
+
+    private MetricsConstants() {}
+}
@@ -0,0 +1,106 @@
+package com.amazon.ata.kindlepublishingservice.metrics;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically writes every metric of a {@link MetricsPublisher} to the log: one line per latency with its count and
+ * its median, 99th, 99.9th percentile and maximum in milliseconds, followed by one line with every counter and gauge.
+ * Percentiles cover every sample since the service started.
+ */
+public class MetricsLogReporter {
+
+    private static final Logger log = LogManager.getLogger(MetricsLogReporter.class);
+
+    private final MetricsPublisher metricsPublisher;
+    private final long intervalSeconds;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Instantiates a new, stopped MetricsLogReporter.
+     *
+     * @param metricsPublisher the registry to report
+     * @param intervalSeconds the time between reports, zero or less to never report
+     */
+    public MetricsLogReporter(MetricsPublisher metricsPublisher, long intervalSeconds) {
+        this.metricsPublisher = metricsPublisher;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    /**
+     * Starts reporting on a daemon thread.
+     */
+    public synchronized void start() {
+        if (scheduler != null || intervalSeconds <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-log-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops reporting, after writing one last report.
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+        report();
+    }
+
+    /**
+     * Writes every metric to the log.
+     */
+    public void report() {
+        try {
+            for (String line : formatReport()) {
+                log.info(line);
+            }
+        } catch (RuntimeException e) {
+            // An exception escaping a scheduled run would cancel every future report.
+            log.warn("Unable to report metrics", e);
+        }
+    }
+
+    /**
+     * Formats every metric into the lines of one report.
+     *
+     * @return one line per latency with samples, followed by the line of counters and gauges
+     */
+    @VisibleForTesting
+    List<String> formatReport() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, LatencyStats> latency : metricsPublisher.getLatencies().entrySet()) {
+            LatencyStats stats = latency.getValue();
+            if (stats.getCount() == 0) {
+                continue;
+            }
+            lines.add(String.format("%s count=%d p50=%sms p99=%sms p999=%sms max=%sms", latency.getKey(),
+                stats.getCount(),
+                millis(stats.getPercentile(50, TimeUnit.MICROSECONDS)),
+                millis(stats.getPercentile(99, TimeUnit.MICROSECONDS)),
+                millis(stats.getPercentile(99.9, TimeUnit.MICROSECONDS)),
+                millis(stats.getMax(TimeUnit.MICROSECONDS))));
+        }
+        lines.add("Counters and gauges: " + metricsPublisher.snapshotCountsAndGauges());
+        return lines;
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.3f", micros / 1000.0);
+    }
+}
@@ -0,0 +1,124 @@
+package com.amazon.ata.kindlepublishingservice.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * In-process registry for the counters, gauges and latencies reported by the Kindle Publishing Service.
+ *
+ * Counters are cumulative and safe to update from any thread. Gauges are sampled from the registered supplier each
+ * time a snapshot is taken. Latencies are reported in the snapshot as their count, and their average, maximum, median,
+ * 99th and 99.9th percentile in microseconds.
+ */
+@Singleton
+public class MetricsPublisher {
+
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyStats> latencies = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new, empty MetricsPublisher.
+     */
+    @Inject
+    public MetricsPublisher() {
+    }
+
+    /**
+     * Adds the given delta to the named counter, creating the counter if needed.
+     *
+     * @param name The name of the counter.
+     * @param delta The amount to add.
+     */
+    public void addCount(String name, long delta) {
+        counters.computeIfAbsent(name, key -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Returns the current value of the named counter, or zero if nothing has been counted yet.
+     *
+     * @param name The name of the counter.
+     * @return The counter value.
+     */
+    public long getCount(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Registers a gauge that is sampled whenever a snapshot is taken. Registering the same name again replaces the
+     * previous supplier.
+     *
+     * @param name The name of the gauge.
+     * @param supplier Supplies the current value of the gauge.
+     */
+    public void registerGauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * Records a latency sample for the named metric, creating the metric if needed.
+     *
+     * @param name The name of the latency metric.
+     * @param durationNanos The measured latency in nanoseconds.
+     */
+    public void recordLatency(String name, long durationNanos) {
+        getLatency(name).record(durationNanos);
+    }
+
+    /**
+     * Returns the named latency metric, creating it if needed.
+     *
+     * @param name The name of the latency metric.
+     * @return The latency statistics recorded so far.
+     */
+    public LatencyStats getLatency(String name) {
+        return latencies.computeIfAbsent(name, key -> new LatencyStats());
+    }
+
+    /**
+     * Returns the current value of every metric, sorted by name.
+     *
+     * @return A point in time copy of all metric values.
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> values = snapshotCountsAndGauges();
+        latencies.forEach((name, stats) -> {
+            values.put(name + ".Count", stats.getCount());
+            values.put(name + ".AvgMicros", stats.getAverage(TimeUnit.MICROSECONDS));
+            values.put(name + ".MaxMicros", stats.getMax(TimeUnit.MICROSECONDS));
+            values.put(name + ".P50Micros", stats.getPercentile(50, TimeUnit.MICROSECONDS));
+            values.put(name + ".P99Micros", stats.getPercentile(99, TimeUnit.MICROSECONDS));
+            values.put(name + ".P999Micros", stats.getPercentile(99.9, TimeUnit.MICROSECONDS));
+        });
+        return values;
+    }
+
+    /**
+     * Returns the current value of every counter and gauge, sorted by name.
+     *
+     * @return A point in time copy of the counter and gauge values.
+     */
+    public Map<String, Long> snapshotCountsAndGauges() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        gauges.forEach((name, supplier) -> values.put(name, supplier.getAsLong()));
+        return values;
+    }
+
+    /**
+     * Returns every latency metric, sorted by name.
+     *
+     * @return The live latency metrics.
+     */
+    public Map<String, LatencyStats> getLatencies() {
+        return new TreeMap<>(latencies);
+    }
+}
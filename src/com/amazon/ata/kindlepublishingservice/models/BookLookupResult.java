@@ -0,0 +1,112 @@
+package com.amazon.ata.kindlepublishingservice.models;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The outcome of one book of a bulk lookup: the book and the recommendations for its genre if it was found, otherwise
+ * why not.
+ */
+public class BookLookupResult {
+    private String bookId;
+    private Book book;
+    private List<BookRecommendation> recommendations;
+    private String error;
+
+    public BookLookupResult(String bookId, Book book, List<BookRecommendation> recommendations, String error) {
+        this.bookId = bookId;
+        this.book = book;
+        this.recommendations = recommendations;
+        this.error = error;
+    }
+
+    public String getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(String bookId) {
+        this.bookId = bookId;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public void setBook(Book book) {
+        this.book = book;
+    }
+
+    public List<BookRecommendation> getRecommendations() {
+        return recommendations;
+    }
+
+    public void setRecommendations(List<BookRecommendation> recommendations) {
+        this.recommendations = recommendations;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BookLookupResult that = (BookLookupResult) o;
+        return Objects.equals(bookId, that.bookId) &&
+                Objects.equals(book, that.book) &&
+                Objects.equals(recommendations, that.recommendations) &&
+                Objects.equals(error, that.error);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bookId, book, recommendations, error);
+    }
+
+    public BookLookupResult(Builder builder) {
+        this.bookId = builder.bookId;
+        this.book = builder.book;
+        this.recommendations = builder.recommendations;
+        this.error = builder.error;
+    }
+
+    public static Builder builder() {return new Builder();}
+
+    public static final class Builder {
+        private String bookId;
+        private Book book;
+        private List<BookRecommendation> recommendations;
+        private String error;
+
+        private Builder() {
+
+        }
+
+        public Builder withBookId(String bookIdToUse) {
+            this.bookId = bookIdToUse;
+            return this;
+        }
+
+        public Builder withBook(Book bookToUse) {
+            this.book = bookToUse;
+            return this;
+        }
+
+        public Builder withRecommendations(List<BookRecommendation> recommendationsToUse) {
+            this.recommendations = recommendationsToUse;
+            return this;
+        }
+
+        public Builder withError(String errorToUse) {
+            this.error = errorToUse;
+            return this;
+        }
+
+        public BookLookupResult build() { return new BookLookupResult(this); }
+    }
+}
@@ -0,0 +1,92 @@
+package com.amazon.ata.kindlepublishingservice.models;
+
+import java.util.Objects;
+
+/**
+ * The outcome of one book of a bulk submission: the publishing record id if it was queued, otherwise why not.
+ */
+public class BookSubmissionResult {
+    private String bookId;
+    private String publishingRecordId;
+    private String error;
+
+    public BookSubmissionResult(String bookId, String publishingRecordId, String error) {
+        this.bookId = bookId;
+        this.publishingRecordId = publishingRecordId;
+        this.error = error;
+    }
+
+    public String getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(String bookId) {
+        this.bookId = bookId;
+    }
+
+    public String getPublishingRecordId() {
+        return publishingRecordId;
+    }
+
+    public void setPublishingRecordId(String publishingRecordId) {
+        this.publishingRecordId = publishingRecordId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BookSubmissionResult that = (BookSubmissionResult) o;
+        return Objects.equals(bookId, that.bookId) &&
+                Objects.equals(publishingRecordId, that.publishingRecordId) &&
+                Objects.equals(error, that.error);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bookId, publishingRecordId, error);
+    }
+
+    public BookSubmissionResult(Builder builder) {
+        this.bookId = builder.bookId;
+        this.publishingRecordId = builder.publishingRecordId;
+        this.error = builder.error;
+    }
+
+    public static Builder builder() {return new Builder();}
+
+    public static final class Builder {
+        private String bookId;
+        private String publishingRecordId;
+        private String error;
+
+        private Builder() {
+
+        }
+
+        public Builder withBookId(String bookIdToUse) {
+            this.bookId = bookIdToUse;
+            return this;
+        }
+
+        public Builder withPublishingRecordId(String publishingRecordIdToUse) {
+            this.publishingRecordId = publishingRecordIdToUse;
+            return this;
+        }
+
+        public Builder withError(String errorToUse) {
+            this.error = errorToUse;
+            return this;
+        }
+
+        public BookSubmissionResult build() { return new BookSubmissionResult(this); }
+    }
+}
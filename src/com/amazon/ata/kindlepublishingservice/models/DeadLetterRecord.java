@@ -0,0 +1,180 @@
+package com.amazon.ata.kindlepublishingservice.models;
+
+import java.util.Objects;
+
+public class DeadLetterRecord {
+    private String publishingRecordId;
+    private String bookId;
+    private String title;
+    private String author;
+    private String genre;
+    private int attempts;
+    private String reason;
+    private long failedAtMillis;
+
+    public DeadLetterRecord(String publishingRecordId, String bookId, String title, String author, String genre,
+                            int attempts, String reason, long failedAtMillis) {
+        this.publishingRecordId = publishingRecordId;
+        this.bookId = bookId;
+        this.title = title;
+        this.author = author;
+        this.genre = genre;
+        this.attempts = attempts;
+        this.reason = reason;
+        this.failedAtMillis = failedAtMillis;
+    }
+
+    public String getPublishingRecordId() {
+        return publishingRecordId;
+    }
+
+    public void setPublishingRecordId(String publishingRecordId) {
+        this.publishingRecordId = publishingRecordId;
+    }
+
+    public String getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(String bookId) {
+        this.bookId = bookId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public void setGenre(String genre) {
+        this.genre = genre;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    public long getFailedAtMillis() {
+        return failedAtMillis;
+    }
+
+    public void setFailedAtMillis(long failedAtMillis) {
+        this.failedAtMillis = failedAtMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DeadLetterRecord that = (DeadLetterRecord) o;
+        return attempts == that.attempts &&
+                failedAtMillis == that.failedAtMillis &&
+                Objects.equals(publishingRecordId, that.publishingRecordId) &&
+                Objects.equals(bookId, that.bookId) &&
+                Objects.equals(title, that.title) &&
+                Objects.equals(author, that.author) &&
+                Objects.equals(genre, that.genre) &&
+                Objects.equals(reason, that.reason);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(publishingRecordId, bookId, title, author, genre, attempts, reason, failedAtMillis);
+    }
+
+    public static Builder builder() {return new Builder();}
+
+    public DeadLetterRecord(Builder builder) {
+        this.publishingRecordId = builder.publishingRecordId;
+        this.bookId = builder.bookId;
+        this.title = builder.title;
+        this.author = builder.author;
+        this.genre = builder.genre;
+        this.attempts = builder.attempts;
+        this.reason = builder.reason;
+        this.failedAtMillis = builder.failedAtMillis;
+    }
+
+    public static final class Builder {
+        private String publishingRecordId;
+        private String bookId;
+        private String title;
+        private String author;
+        private String genre;
+        private int attempts;
+        private String reason;
+        private long failedAtMillis;
+
+        private Builder() {
+
+        }
+
+        public Builder withPublishingRecordId(String publishingRecordIdToUse) {
+            this.publishingRecordId = publishingRecordIdToUse;
+            return this;
+        }
+
+        public Builder withBookId(String bookIdToUse) {
+            this.bookId = bookIdToUse;
+            return this;
+        }
+
+        public Builder withTitle(String titleToUse) {
+            this.title = titleToUse;
+            return this;
+        }
+
+        public Builder withAuthor(String authorToUse) {
+            this.author = authorToUse;
+            return this;
+        }
+
+        public Builder withGenre(String genreToUse) {
+            this.genre = genreToUse;
+            return this;
+        }
+
+        public Builder withAttempts(int attemptsToUse) {
+            this.attempts = attemptsToUse;
+            return this;
+        }
+
+        public Builder withReason(String reasonToUse) {
+            this.reason = reasonToUse;
+            return this;
+        }
+
+        public Builder withFailedAtMillis(long failedAtMillisToUse) {
+            this.failedAtMillis = failedAtMillisToUse;
+            return this;
+        }
+
+        public DeadLetterRecord build() { return new DeadLetterRecord(this); }
+    }
+}
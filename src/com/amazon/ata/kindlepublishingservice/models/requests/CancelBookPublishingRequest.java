@@ -0,0 +1,53 @@
+package com.amazon.ata.kindlepublishingservice.models.requests;
+
+import java.util.Objects;
+
+public class CancelBookPublishingRequest {
+    private String publishingRecordId;
+
+    public CancelBookPublishingRequest(String publishingRecordId) {
+        this.publishingRecordId = publishingRecordId;
+    }
+
+    public String getPublishingRecordId() {
+        return publishingRecordId;
+    }
+
+    public void setPublishingRecordId(String publishingRecordId) {
+        this.publishingRecordId = publishingRecordId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CancelBookPublishingRequest that = (CancelBookPublishingRequest) o;
+        return Objects.equals(publishingRecordId, that.publishingRecordId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(publishingRecordId);
+    }
+
+    public CancelBookPublishingRequest(Builder builder) {
+        this.publishingRecordId = builder.publishingRecordId;
+    }
+
+    public static Builder builder() {return new Builder();}
+
+    public static final class Builder {
+        private String publishingRecordId;
+
+        private Builder() {
+
+        }
+
+        public Builder withPublishingRecordId(String publishingRecordIdToUse) {
+            this.publishingRecordId = publishingRecordIdToUse;
+            return this;
+        }
+
+        public CancelBookPublishingRequest build() { return new CancelBookPublishingRequest(this); }
+    }
+}
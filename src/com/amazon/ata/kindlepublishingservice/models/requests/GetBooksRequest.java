@@ -0,0 +1,54 @@
+package com.amazon.ata.kindlepublishingservice.models.requests;
+
+import java.util.List;
+import java.util.Objects;
+
+public class GetBooksRequest {
+    private List<String> bookIds;
+
+    public GetBooksRequest(List<String> bookIds) {
+        this.bookIds = bookIds;
+    }
+
+    public List<String> getBookIds() {
+        return bookIds;
+    }
+
+    public void setBookIds(List<String> bookIds) {
+        this.bookIds = bookIds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GetBooksRequest that = (GetBooksRequest) o;
+        return Objects.equals(bookIds, that.bookIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bookIds);
+    }
+
+    public GetBooksRequest(Builder builder) {
+        this.bookIds = builder.bookIds;
+    }
+
+    public static Builder builder() {return new Builder();}
+
+    public static final class Builder {
+        private List<String> bookIds;
+
+        private Builder() {
+
+        }
+
+        public Builder withBookIds(List<String> bookIdsToUse) {
+            this.bookIds = bookIdsToUse;
+            return this;
+        }
+
+        public GetBooksRequest build() { return new GetBooksRequest(this); }
+    }
+}
@@ -1,5 +1,7 @@
 package com.amazon.ata.kindlepublishingservice.models.requests;
 
+import com.amazon.ata.kindlepublishingservice.publishing.SpooledText;
+
 import java.util.Objects;
 
 public class SubmitBookForPublishingRequest {
@@ -7,6 +9,7 @@ public class SubmitBookForPublishingRequest {
     private String title;
     private String author;
     private String text;
+    private SpooledText spooledText;
     private String genre;
 
     public SubmitBookForPublishingRequest(String bookId, String title, String author, String text, String genre) {
@@ -49,6 +52,14 @@ public class SubmitBookForPublishingRequest {
         this.text = text;
     }
 
+    public SpooledText getSpooledText() {
+        return spooledText;
+    }
+
+    public void setSpooledText(SpooledText spooledText) {
+        this.spooledText = spooledText;
+    }
+
     public String getGenre() {
         return genre;
     }
@@ -66,12 +77,13 @@ public class SubmitBookForPublishingRequest {
                 Objects.equals(title, that.title) &&
                 Objects.equals(author, that.author) &&
                 Objects.equals(text, that.text) &&
+                Objects.equals(spooledText, that.spooledText) &&
                 genre == that.genre;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(bookId, title, author, text, genre);
+        return Objects.hash(bookId, title, author, text, spooledText, genre);
     }
 
     public SubmitBookForPublishingRequest(Builder builder) {
@@ -79,6 +91,7 @@ public class SubmitBookForPublishingRequest {
         this.title = builder.title;
         this.author = builder.author;
         this.text = builder.text;
+        this.spooledText = builder.spooledText;
         this.genre = builder.genre;
     }
 
@@ -90,6 +103,7 @@ public class SubmitBookForPublishingRequest {
         private String title;
         private String author;
         private String text;
+        private SpooledText spooledText;
         private String genre;
 
         private Builder() {
@@ -116,6 +130,11 @@ public class SubmitBookForPublishingRequest {
             return this;
         }
 
+        public Builder withSpooledText(SpooledText spooledTextToUse) {
+            this.spooledText = spooledTextToUse;
+            return this;
+        }
+
         public Builder withGenre(String genreToUse) {
             this.genre = genreToUse;
             return this;
@@ -0,0 +1,54 @@
+package com.amazon.ata.kindlepublishingservice.models.requests;
+
+import java.util.List;
+import java.util.Objects;
+
+public class SubmitBooksForPublishingRequest {
+    private List<SubmitBookForPublishingRequest> books;
+
+    public SubmitBooksForPublishingRequest(List<SubmitBookForPublishingRequest> books) {
+        this.books = books;
+    }
+
+    public List<SubmitBookForPublishingRequest> getBooks() {
+        return books;
+    }
+
+    public void setBooks(List<SubmitBookForPublishingRequest> books) {
+        this.books = books;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SubmitBooksForPublishingRequest that = (SubmitBooksForPublishingRequest) o;
+        return Objects.equals(books, that.books);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(books);
+    }
+
+    public SubmitBooksForPublishingRequest(Builder builder) {
+        this.books = builder.books;
+    }
+
+    public static Builder builder() {return new Builder();}
+
+    public static final class Builder {
+        private List<SubmitBookForPublishingRequest> books;
+
+        private Builder() {
+
+        }
+
+        public Builder withBooks(List<SubmitBookForPublishingRequest> booksToUse) {
+            this.books = booksToUse;
+            return this;
+        }
+
+        public SubmitBooksForPublishingRequest build() { return new SubmitBooksForPublishingRequest(this); }
+    }
+}
@@ -0,0 +1,89 @@
+package com.amazon.ata.kindlepublishingservice.models.requests;
+
+import java.util.Objects;
+
+public class WaitForPublishingStatusRequest {
+    private String publishingRecordId;
+    private int knownStatusCount;
+    private long timeoutSeconds;
+
+    public WaitForPublishingStatusRequest(String publishingRecordId, int knownStatusCount, long timeoutSeconds) {
+        this.publishingRecordId = publishingRecordId;
+        this.knownStatusCount = knownStatusCount;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    public String getPublishingRecordId() {
+        return publishingRecordId;
+    }
+
+    public void setPublishingRecordId(String publishingRecordId) {
+        this.publishingRecordId = publishingRecordId;
+    }
+
+    public int getKnownStatusCount() {
+        return knownStatusCount;
+    }
+
+    public void setKnownStatusCount(int knownStatusCount) {
+        this.knownStatusCount = knownStatusCount;
+    }
+
+    public long getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public void setTimeoutSeconds(long timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        WaitForPublishingStatusRequest that = (WaitForPublishingStatusRequest) o;
+        return knownStatusCount == that.knownStatusCount &&
+                timeoutSeconds == that.timeoutSeconds &&
+                Objects.equals(publishingRecordId, that.publishingRecordId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(publishingRecordId, knownStatusCount, timeoutSeconds);
+    }
+
+    public WaitForPublishingStatusRequest(Builder builder) {
+        this.publishingRecordId = builder.publishingRecordId;
+        this.knownStatusCount = builder.knownStatusCount;
+        this.timeoutSeconds = builder.timeoutSeconds;
+    }
+
+    public static Builder builder() {return new Builder();}
+
+    public static final class Builder {
+        private String publishingRecordId;
+        private int knownStatusCount;
+        private long timeoutSeconds;
+
+        private Builder() {
+
+        }
+
+        public Builder withPublishingRecordId(String publishingRecordIdToUse) {
+            this.publishingRecordId = publishingRecordIdToUse;
+            return this;
+        }
+
+        public Builder withKnownStatusCount(int knownStatusCountToUse) {
+            this.knownStatusCount = knownStatusCountToUse;
+            return this;
+        }
+
+        public Builder withTimeoutSeconds(long timeoutSecondsToUse) {
+            this.timeoutSeconds = timeoutSecondsToUse;
+            return this;
+        }
+
+        public WaitForPublishingStatusRequest build() { return new WaitForPublishingStatusRequest(this); }
+    }
+}
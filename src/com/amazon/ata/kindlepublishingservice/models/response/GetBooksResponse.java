@@ -0,0 +1,56 @@
+package com.amazon.ata.kindlepublishingservice.models.response;
+
+import com.amazon.ata.kindlepublishingservice.models.BookLookupResult;
+
+import java.util.List;
+import java.util.Objects;
+
+public class GetBooksResponse {
+    private List<BookLookupResult> results;
+
+    public GetBooksResponse(List<BookLookupResult> results) {
+        this.results = results;
+    }
+
+    public List<BookLookupResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<BookLookupResult> results) {
+        this.results = results;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GetBooksResponse that = (GetBooksResponse) o;
+        return Objects.equals(results, that.results);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(results);
+    }
+
+    public GetBooksResponse(Builder builder) {
+        this.results = builder.results;
+    }
+
+    public static Builder builder() {return new Builder();}
+
+    public static final class Builder {
+        private List<BookLookupResult> results;
+
+        private Builder() {
+
+        }
+
+        public Builder withResults(List<BookLookupResult> resultsToUse) {
+            this.results = resultsToUse;
+            return this;
+        }
+
+        public GetBooksResponse build() { return new GetBooksResponse(this); }
+    }
+}
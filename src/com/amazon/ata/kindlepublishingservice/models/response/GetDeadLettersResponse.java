@@ -0,0 +1,56 @@
+package com.amazon.ata.kindlepublishingservice.models.response;
+
+import com.amazon.ata.kindlepublishingservice.models.DeadLetterRecord;
+
+import java.util.List;
+import java.util.Objects;
+
+public class GetDeadLettersResponse {
+    private List<DeadLetterRecord> deadLetters;
+
+    public GetDeadLettersResponse(List<DeadLetterRecord> deadLetters) {
+        this.deadLetters = deadLetters;
+    }
+
+    public List<DeadLetterRecord> getDeadLetters() {
+        return deadLetters;
+    }
+
+    public void setDeadLetters(List<DeadLetterRecord> deadLetters) {
+        this.deadLetters = deadLetters;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GetDeadLettersResponse that = (GetDeadLettersResponse) o;
+        return Objects.equals(deadLetters, that.deadLetters);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(deadLetters);
+    }
+
+    public GetDeadLettersResponse(Builder builder) {
+        this.deadLetters = builder.deadLetters;
+    }
+
+    public static Builder builder() {return new Builder();}
+
+    public static final class Builder {
+        private List<DeadLetterRecord> deadLetters;
+
+        private Builder() {
+
+        }
+
+        public Builder withDeadLetters(List<DeadLetterRecord> deadLettersToUse) {
+            this.deadLetters = deadLettersToUse;
+            return this;
+        }
+
+        public GetDeadLettersResponse build() { return new GetDeadLettersResponse(this); }
+    }
+}
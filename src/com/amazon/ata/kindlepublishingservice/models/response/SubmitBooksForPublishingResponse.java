@@ -0,0 +1,56 @@
+package com.amazon.ata.kindlepublishingservice.models.response;
+
+import com.amazon.ata.kindlepublishingservice.models.BookSubmissionResult;
+
+import java.util.List;
+import java.util.Objects;
+
+public class SubmitBooksForPublishingResponse {
+    private List<BookSubmissionResult> results;
+
+    public SubmitBooksForPublishingResponse(List<BookSubmissionResult> results) {
+        this.results = results;
+    }
+
+    public List<BookSubmissionResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<BookSubmissionResult> results) {
+        this.results = results;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SubmitBooksForPublishingResponse that = (SubmitBooksForPublishingResponse) o;
+        return Objects.equals(results, that.results);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(results);
+    }
+
+    public SubmitBooksForPublishingResponse(Builder builder) {
+        this.results = builder.results;
+    }
+
+    public static Builder builder() {return new Builder();}
+
+    public static final class Builder {
+        private List<BookSubmissionResult> results;
+
+        private Builder() {
+
+        }
+
+        public Builder withResults(List<BookSubmissionResult> resultsToUse) {
+            this.results = resultsToUse;
+            return this;
+        }
+
+        public SubmitBooksForPublishingResponse build() { return new SubmitBooksForPublishingResponse(this); }
+    }
+}
@@ -14,6 +14,7 @@ public final class BookPublishRequest {
     private final String title;
     private final String author;
     private final String text;
+    private final SpooledText spooledText;
     private final BookGenre genre;
 
 
@@ -23,6 +24,7 @@ public final class BookPublishRequest {
         this.title = builder.title;
         this.author = builder.author;
         this.text = builder.text;
+        this.spooledText = builder.spooledText;
         this.genre = builder.genre;
     }
 
@@ -42,10 +44,47 @@ public final class BookPublishRequest {
         return author;
     }
 
+    /**
+     * Returns the text of the book. The text of a request whose text was spooled to disk is read from its file on
+     * every call, prefer {@link #getSpooledText()} where it can be read incrementally.
+     *
+     * @return the text
+     */
     public String getText() {
+        if (text == null && spooledText != null) {
+            return spooledText.read();
+        }
         return text;
     }
 
+    /**
+     * Returns the handle to the text of the book, if it was spooled to disk rather than held in memory.
+     *
+     * @return the spooled text, or null if the text is in memory
+     */
+    public SpooledText getSpooledText() {
+        return spooledText;
+    }
+
+    /**
+     * Returns this request with its text in memory, for keeping it after its spool file is deleted.
+     *
+     * @return a copy holding the text read from the spool file, or this request if the text is already in memory
+     */
+    public BookPublishRequest withTextInMemory() {
+        if (spooledText == null) {
+            return this;
+        }
+        return builder()
+            .withPublishingRecordId(publishingRecordId)
+            .withBookId(bookId)
+            .withTitle(title)
+            .withAuthor(author)
+            .withText(getText())
+            .withGenre(genre)
+            .build();
+    }
+
     public BookGenre getGenre() {
         return genre;
     }
@@ -67,6 +106,7 @@ public final class BookPublishRequest {
         private String title;
         private String author;
         private String text;
+        private SpooledText spooledText;
         private BookGenre genre;
 
         /**
@@ -136,6 +176,18 @@ public final class BookPublishRequest {
             return this;
         }
 
+        /**
+         *  Sets the spooled text and returns a reference to this Builder to the methods can be chained
+         *  together.
+         *
+         * @param spooledText The text spooled to disk to set, used when no text is set.
+         * @return a reference to this Builder.
+         */
+        public Builder withSpooledText(SpooledText spooledText) {
+            this.spooledText = spooledText;
+            return this;
+        }
+
         /**
          *  Sets the genre and returns a reference to this Builder to the methods can be chained
          *  together.
@@ -1,39 +1,669 @@
 package com.amazon.ata.kindlepublishingservice.publishing;
 
-import javax.inject.Inject;
+import com.amazon.ata.kindlepublishingservice.exceptions.PublishingQueueFullException;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsConstants;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+
 import javax.inject.Singleton;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Holds the book publish requests waiting to be processed. Workers can either poll for the next request or block
+ * until one is added, so an idle worker picks up a new submission as soon as it is queued.
+ *
+ * The queue is bounded both by the number of requests and by the heap held by their text. A request that does not
+ * fit is rejected with a {@link PublishingQueueFullException} carrying a retry hint based on the recent drain rate.
+ * A request is always admitted into an empty queue, so a single book larger than the byte limit can still publish.
+ *
+ * Every admitted request is written to a {@link PublishRequestJournal} before it is queued and marked complete once it
+ * reaches a final status, so requests still queued when the service stops are queued again on the next start.
+ *
+ * Only the newest queued request for a book is published. A request for a book that already has a request waiting
+ * supersedes the waiting one, which is dropped from the queue without being converted or saved.
+ *
+ * A request whose publish failed for a transient reason can be scheduled to retry after a delay. Until the delay
+ * elapses it waits in a separate delay queue, so no worker is held up by it. It still counts towards the queue depth
+ * and can be superseded by a newer request for the same book like any other waiting request.
+ *
+ * Requests are taken in the order they were submitted, or with {@link PublishQueueFairness#byAuthor(Map)} from a
+ * queue per author with the authors taking turns, so a single author submitting thousands of revisions cannot hold
+ * back everyone else. In fair order the queue depth and wait time of each author are reported too. Retries that are
+ * due are taken before either.
+ *
+ * A request whose text was spooled to disk counts only towards the request limit, holding no text on the heap. Its
+ * spool file is deleted once the request reaches a final status, the journal keeping its own link to the file
+ * meanwhile.
+ *
+ * A waiting request can be cancelled by its publishing record id. Like a superseded request it is found through an
+ * index and flagged rather than removed from the queue, so cancelling takes constant time however long the queue is.
+ *
+ * Built on a {@link LeasedPublishQueue}, the requests are instead kept in a store shared by every node of the service
+ * and taken by whichever node has a worker free. The store is durable and bounded only by the table, so there is no
+ * journal and no capacity limit, retries wait in the store and a book's requests are published oldest first rather
+ * than superseded.
+ */
 @Singleton
 public final class BookPublishRequestManager {
 
-//    private final Queue<BookPublishRequest> publishRequests = new ConcurrentLinkedQueue<>();
-        private final Queue<BookPublishRequest> publishRequests;
+    private static final int DRAIN_RATE_WINDOW_SECONDS = 60;
+    private static final long MIN_RETRY_AFTER_SECONDS = 1;
+    private static final long MAX_RETRY_AFTER_SECONDS = 600;
+    // Authors beyond this many are still queued fairly but get no metrics of their own.
+    private static final int MAX_TENANT_METRICS = 200;
 
+    private final DeficitRoundRobinQueue<QueuedRequest> publishRequests;
+    private final PublishQueueFairness fairness;
+    private final Set<String> tenantsWithMetrics = ConcurrentHashMap.newKeySet();
+    // Counts requests admitted but still being journaled as well as those already in the queue.
+    private final AtomicInteger queuedRequests = new AtomicInteger();
+    private final AtomicLong queuedTextBytes = new AtomicLong();
+    // The queued request of each book, guarded by this.
+    private final Map<String, QueuedRequest> queuedByBookId = new HashMap<>();
+    // Every waiting request by publishing record id, guarded by this.
+    private final Map<String, QueuedRequest> queuedByRecordId = new HashMap<>();
+    private final DelayQueue<ScheduledRetry> retries = new DelayQueue<>();
+    private final ConcurrentMap<String, Integer> retryCounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> queuedAtNanos = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, SpooledText> spooledTexts = new ConcurrentHashMap<>();
+    private final DrainRateTracker drainRateTracker = new DrainRateTracker(DRAIN_RATE_WINDOW_SECONDS);
+    private final int maxQueuedRequests;
+    private final long maxQueuedTextBytes;
+    private final MetricsPublisher metricsPublisher;
+    private final PublishRequestJournal journal;
+    private final LeasedPublishQueue leasedQueue;
 
-    @Inject
-    public BookPublishRequestManager(ConcurrentLinkedQueue<BookPublishRequest> linkedQueue) {
-        this.publishRequests = linkedQueue;
+    /**
+     * Instantiates a new, empty BookPublishRequestManager without a capacity limit.
+     *
+     * @param metricsPublisher records the queue depth and the time requests wait in the queue
+     */
+    public BookPublishRequestManager(MetricsPublisher metricsPublisher) {
+        this(metricsPublisher, Integer.MAX_VALUE, Long.MAX_VALUE);
     }
 
+    /**
+     * Instantiates a new, empty BookPublishRequestManager.
+     *
+     * @param metricsPublisher records the queue depth and the time requests wait in the queue
+     * @param maxQueuedRequests the most requests that may wait in the queue
+     * @param maxQueuedTextBytes the most heap the text of the queued requests may hold
+     */
+    public BookPublishRequestManager(MetricsPublisher metricsPublisher, int maxQueuedRequests,
+                                     long maxQueuedTextBytes) {
+        this(metricsPublisher, maxQueuedRequests, maxQueuedTextBytes, new NoOpPublishRequestJournal());
+    }
 
-    public void addBookPublishRequest(BookPublishRequest book) {
-        publishRequests.add(book);
+    /**
+     * Instantiates a new, empty BookPublishRequestManager that journals its requests.
+     *
+     * @param metricsPublisher records the queue depth and the time requests wait in the queue
+     * @param maxQueuedRequests the most requests that may wait in the queue
+     * @param maxQueuedTextBytes the most heap the text of the queued requests may hold
+     * @param journal durably records the queued requests
+     */
+    public BookPublishRequestManager(MetricsPublisher metricsPublisher, int maxQueuedRequests,
+                                     long maxQueuedTextBytes, PublishRequestJournal journal) {
+        this(metricsPublisher, maxQueuedRequests, maxQueuedTextBytes, journal, PublishQueueFairness.fifo());
     }
 
-    public BookPublishRequest getBookPublishRequestToProcess() {
-        if(publishRequests.isEmpty()) {
+    /**
+     * Instantiates a new, empty BookPublishRequestManager that journals its requests and takes them in the given
+     * order.
+     *
+     * @param metricsPublisher records the queue depth and the time requests wait in the queue
+     * @param maxQueuedRequests the most requests that may wait in the queue
+     * @param maxQueuedTextBytes the most heap the text of the queued requests may hold
+     * @param journal durably records the queued requests
+     * @param fairness the order waiting requests are taken in
+     */
+    public BookPublishRequestManager(MetricsPublisher metricsPublisher, int maxQueuedRequests,
+                                     long maxQueuedTextBytes, PublishRequestJournal journal,
+                                     PublishQueueFairness fairness) {
+        this(metricsPublisher, maxQueuedRequests, maxQueuedTextBytes, journal, fairness, null);
+    }
+
+    /**
+     * Instantiates a new BookPublishRequestManager that shares its requests with every node using the same store.
+     *
+     * @param metricsPublisher records the queue depth and the time requests wait in the queue
+     * @param leasedQueue leases requests from the store shared by every node
+     */
+    public BookPublishRequestManager(MetricsPublisher metricsPublisher, LeasedPublishQueue leasedQueue) {
+        this(metricsPublisher, Integer.MAX_VALUE, Long.MAX_VALUE, new NoOpPublishRequestJournal(),
+            PublishQueueFairness.fifo(), leasedQueue);
+    }
+
+    private BookPublishRequestManager(MetricsPublisher metricsPublisher, int maxQueuedRequests,
+                                      long maxQueuedTextBytes, PublishRequestJournal journal,
+                                      PublishQueueFairness fairness, LeasedPublishQueue leasedQueue) {
+        this.fairness = fairness;
+        this.publishRequests = new DeficitRoundRobinQueue<>(queuedRequest -> queuedRequest.tenant,
+            fairness::weightOf, queuedRequest -> !queuedRequest.dropped);
+        this.metricsPublisher = metricsPublisher;
+        this.journal = journal;
+        this.leasedQueue = leasedQueue;
+        this.maxQueuedRequests = maxQueuedRequests;
+        this.maxQueuedTextBytes = maxQueuedTextBytes;
+        metricsPublisher.registerGauge(MetricsConstants.PUBLISH_QUEUE_DEPTH, this::getQueueDepth);
+        metricsPublisher.registerGauge(MetricsConstants.PUBLISH_QUEUE_TEXT_BYTES, queuedTextBytes::get);
+        metricsPublisher.registerGauge(MetricsConstants.PUBLISH_QUEUE_RETRY_DEPTH, retries::size);
+    }
+
+    /**
+     * Adds a request to the end of the queue, waking a waiting worker if there is one. Returns once the request is
+     * journaled. If a request for the same book is still waiting, it is superseded by this one and returned so the
+     * caller can record its final status.
+     *
+     * @param book the request to publish
+     * @return the superseded request, or null if no request for the book was waiting
+     * @throws PublishingQueueFullException if the queue is at capacity
+     */
+    public BookPublishRequest addBookPublishRequest(BookPublishRequest book) {
+        List<BookPublishRequest> superseded = addBookPublishRequests(Collections.singletonList(book));
+        return superseded.isEmpty() ? null : superseded.get(0);
+    }
+
+    /**
+     * Adds several requests to the end of the queue in order, as a single operation: either every request is admitted
+     * or, if the queue does not have room for all of them, none is. Returns once the whole batch is journaled, with a
+     * single flush. A request supersedes any waiting request for the same book, including an earlier one in the batch.
+     *
+     * @param books the requests to publish
+     * @return the superseded requests, empty if no request for any of the books was waiting
+     * @throws PublishingQueueFullException if the queue does not have room for the batch
+     */
+    public List<BookPublishRequest> addBookPublishRequests(List<BookPublishRequest> books) {
+        if (books.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (leasedQueue != null) {
+            for (BookPublishRequest book : books) {
+                leasedQueue.add(book);
+                // The shared store holds a copy of the text from here on.
+                if (book.getSpooledText() != null) {
+                    book.getSpooledText().claim();
+                    book.getSpooledText().delete();
+                }
+            }
+            return Collections.emptyList();
+        }
+
+        long textBytes = 0;
+        for (BookPublishRequest book : books) {
+            textBytes += textBytes(book);
+        }
+        reserve(books.size(), textBytes);
+        // Journal outside the lock so concurrent submissions share a flush.
+        try {
+            journal.appendAll(books);
+        } catch (RuntimeException e) {
+            release(books.size(), textBytes);
+            throw e;
+        }
+
+        // Journaled, so the spooled text is the manager's to delete from here on.
+        for (BookPublishRequest book : books) {
+            if (book.getSpooledText() != null) {
+                book.getSpooledText().claim();
+                spooledTexts.put(book.getPublishingRecordId(), book.getSpooledText());
+            }
+        }
+        return enqueue(books);
+    }
+
+    /**
+     * Queues the requests left unfinished by the previous run of the service, before any new request is added. They
+     * bypass the capacity limit, having been admitted before. Like new requests, a recovered request supersedes an
+     * earlier recovered request for the same book, which happens when the service stopped before the earlier one's
+     * completion was durable.
+     *
+     * @return the recovered requests that were superseded, so the caller can record their final status
+     */
+    public List<BookPublishRequest> recoverJournaledRequests() {
+        if (leasedQueue != null) {
+            return Collections.emptyList();
+        }
+        List<BookPublishRequest> requests = journal.recover();
+        long textBytes = 0;
+        for (BookPublishRequest request : requests) {
+            textBytes += textBytes(request);
+        }
+        synchronized (this) {
+            queuedRequests.addAndGet(requests.size());
+            queuedTextBytes.addAndGet(textBytes);
+        }
+        return enqueue(requests);
+    }
+
+    // Queues requests already counted towards the queue depth, superseding any waiting request for the same book.
+    private List<BookPublishRequest> enqueue(List<BookPublishRequest> books) {
+        List<QueuedRequest> superseded = new ArrayList<>();
+        List<QueuedRequest> added = new ArrayList<>(books.size());
+        for (BookPublishRequest book : books) {
+            QueuedRequest queuedRequest = new QueuedRequest(book, textBytes(book), fairness.tenantOf(book));
+            registerTenantMetrics(queuedRequest.tenant);
+            queuedAtNanos.put(book.getPublishingRecordId(), queuedRequest.enqueuedAtNanos);
+            added.add(queuedRequest);
+        }
+        synchronized (this) {
+            for (QueuedRequest queuedRequest : added) {
+                BookPublishRequest book = queuedRequest.request;
+                QueuedRequest previous = null;
+                if (book.getBookId() != null) {
+                    previous = queuedByBookId.put(book.getBookId(), queuedRequest);
+                }
+                queuedByRecordId.put(book.getPublishingRecordId(), queuedRequest);
+                publishRequests.add(queuedRequest);
+                if (previous != null) {
+                    drop(previous);
+                    superseded.add(previous);
+                }
+            }
+        }
+
+        List<BookPublishRequest> supersededRequests = new ArrayList<>(superseded.size());
+        for (QueuedRequest queuedRequest : superseded) {
+            String publishingRecordId = queuedRequest.request.getPublishingRecordId();
+            retryCounts.remove(publishingRecordId);
+            queuedAtNanos.remove(publishingRecordId);
+            journal.complete(publishingRecordId);
+            deleteSpooledText(publishingRecordId);
+            supersededRequests.add(queuedRequest.request);
+        }
+        if (!superseded.isEmpty()) {
+            metricsPublisher.addCount(MetricsConstants.PUBLISH_QUEUE_SUPERSEDED_COUNT, superseded.size());
+        }
+        return supersededRequests;
+    }
+
+    /**
+     * Queues a request whose publish failed again once the delay elapses. The request is still journaled, having not
+     * been completed, so it bypasses the capacity limit. If a newer request for the same book is already waiting, the
+     * retry is not scheduled and the newer request is returned instead, so the caller can record the retry as
+     * superseded.
+     *
+     * @param request the request to publish again
+     * @param delay how long to wait before the request can be taken
+     * @param unit the unit of the delay
+     * @return null if the retry was scheduled, otherwise the waiting request that supersedes it
+     */
+    public BookPublishRequest scheduleRetry(BookPublishRequest request, long delay, TimeUnit unit) {
+        if (leasedQueue != null) {
+            leasedQueue.release(request, unit.toMillis(delay));
             return null;
         }
+        long textBytes = textBytes(request);
+        QueuedRequest queuedRequest = new QueuedRequest(request, textBytes, fairness.tenantOf(request));
+        synchronized (this) {
+            if (request.getBookId() != null) {
+                QueuedRequest newer = queuedByBookId.putIfAbsent(request.getBookId(), queuedRequest);
+                if (newer != null) {
+                    return newer.request;
+                }
+            }
+            queuedRequests.incrementAndGet();
+            queuedTextBytes.addAndGet(textBytes);
+            queuedByRecordId.put(request.getPublishingRecordId(), queuedRequest);
+            retries.add(new ScheduledRetry(queuedRequest, System.nanoTime() + unit.toNanos(delay)));
+        }
+        retryCounts.merge(request.getPublishingRecordId(), 1, Integer::sum);
+        return null;
+    }
+
+    /**
+     * Cancels a request that is waiting to be published, including one waiting to retry. A request a worker already
+     * took is not cancelled.
+     *
+     * @param publishingRecordId the publishing record id of the request
+     * @return the cancelled request, or null if no request with the id was waiting
+     */
+    public BookPublishRequest cancelBookPublishRequest(String publishingRecordId) {
+        if (leasedQueue != null) {
+            return leasedQueue.cancel(publishingRecordId);
+        }
+        QueuedRequest cancelled;
+        synchronized (this) {
+            cancelled = queuedByRecordId.get(publishingRecordId);
+            if (cancelled == null) {
+                return null;
+            }
+            if (cancelled.request.getBookId() != null) {
+                queuedByBookId.remove(cancelled.request.getBookId(), cancelled);
+            }
+            drop(cancelled);
+        }
+
+        retryCounts.remove(publishingRecordId);
+        queuedAtNanos.remove(publishingRecordId);
+        journal.complete(publishingRecordId);
+        deleteSpooledText(publishingRecordId);
+        metricsPublisher.addCount(MetricsConstants.PUBLISH_QUEUE_CANCELLED_COUNT, 1);
+        return cancelled.request;
+    }
+
+    /**
+     * Returns how many times a request has been scheduled to retry since it was last queued or recovered.
+     *
+     * @param publishingRecordId the publishing record id of the request
+     * @return the number of retries
+     */
+    public int getRetryCount(String publishingRecordId) {
+        if (leasedQueue != null) {
+            return leasedQueue.getAttempts(publishingRecordId);
+        }
+        return retryCounts.getOrDefault(publishingRecordId, 0);
+    }
+
+    /**
+     * Records that a request reached a final publishing status, so it is not queued again after a restart, along with
+     * how long it took to get there since it was queued.
+     *
+     * @param publishingRecordId the publishing record id of the finished request
+     */
+    public void markBookPublishRequestComplete(String publishingRecordId) {
+        if (leasedQueue != null) {
+            leasedQueue.complete(publishingRecordId);
+            return;
+        }
+        retryCounts.remove(publishingRecordId);
+        Long queuedAt = queuedAtNanos.remove(publishingRecordId);
+        if (queuedAt != null) {
+            metricsPublisher.recordLatency(MetricsConstants.PUBLISH_END_TO_END_LATENCY, System.nanoTime() - queuedAt);
+        }
+        journal.complete(publishingRecordId);
+        deleteSpooledText(publishingRecordId);
+    }
+
+    /**
+     * Flushes and closes the journal, or gives the leases this node holds back to the shared store.
+     */
+    public void close() {
+        if (leasedQueue != null) {
+            leasedQueue.close();
+        }
+        journal.close();
+    }
+
+    /**
+     * Checks whether the request would currently be admitted, without queueing it. Lets callers reject a submission
+     * before doing any other work for it.
+     *
+     * @param book the request that is about to be submitted
+     * @throws PublishingQueueFullException if the queue is at capacity
+     */
+    public void ensureCapacityFor(BookPublishRequest book) {
+        ensureCapacityFor(Collections.singletonList(book));
+    }
+
+    /**
+     * Checks whether the requests would currently be admitted together, without queueing them.
+     *
+     * @param books the requests that are about to be submitted
+     * @throws PublishingQueueFullException if the queue does not have room for all of them
+     */
+    public synchronized void ensureCapacityFor(List<BookPublishRequest> books) {
+        if (leasedQueue != null) {
+            return;
+        }
+        long textBytes = 0;
+        for (BookPublishRequest book : books) {
+            textBytes += textBytes(book);
+        }
+        ensureCapacity(books.size(), textBytes);
+    }
+
+    /**
+     * Removes and returns the next request without waiting.
+     *
+     * @return the next request, or null if the queue is empty
+     */
+    public BookPublishRequest getBookPublishRequestToProcess() {
+        if (leasedQueue != null) {
+            return leasedQueue.poll();
+        }
+        ScheduledRetry dueRetry;
+        while ((dueRetry = retries.poll()) != null) {
+            if (dequeued(dueRetry.queuedRequest)) {
+                return dueRetry.queuedRequest.request;
+            }
+        }
+
+        QueuedRequest queuedRequest;
+        while ((queuedRequest = publishRequests.poll()) != null) {
+            if (dequeued(queuedRequest)) {
+                return queuedRequest.request;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes and returns the next request, waiting up to the given timeout for one to be added or for a retry to
+     * become due. Retries that are due are taken first.
+     *
+     * @param timeout how long to wait before giving up
+     * @param unit the unit of the timeout
+     * @return the next request, or null if none was added before the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public BookPublishRequest takeBookPublishRequest(long timeout, TimeUnit unit) throws InterruptedException {
+        if (leasedQueue != null) {
+            return leasedQueue.take(timeout, unit);
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            ScheduledRetry dueRetry = retries.poll();
+            if (dueRetry != null) {
+                if (dequeued(dueRetry.queuedRequest)) {
+                    return dueRetry.queuedRequest.request;
+                }
+                continue;
+            }
+
+            long waitNanos = deadline - System.nanoTime();
+            if (waitNanos <= 0) {
+                return null;
+            }
+            // Wake up for the next retry if it is due before the timeout.
+            ScheduledRetry nextRetry = retries.peek();
+            if (nextRetry != null) {
+                waitNanos = Math.max(0, Math.min(waitNanos, nextRetry.getDelay(TimeUnit.NANOSECONDS)));
+            }
+            QueuedRequest queuedRequest = publishRequests.poll(waitNanos, TimeUnit.NANOSECONDS);
+            if (queuedRequest != null && dequeued(queuedRequest)) {
+                return queuedRequest.request;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of requests waiting to be processed.
+     *
+     * @return the queue depth, across every node when the requests are shared
+     */
+    public int getQueueDepth() {
+        if (leasedQueue != null) {
+            return leasedQueue.getPendingCount();
+        }
+        return queuedRequests.get();
+    }
+
+    /**
+     * Returns how long the oldest waiting request has been in the queue. Retries waiting out their backoff are not
+     * counted.
+     *
+     * @return the age of the oldest waiting request in milliseconds, zero if none are waiting or the requests are
+     *         shared through a {@link LeasedPublishQueue}
+     */
+    public long getOldestQueuedAgeMillis() {
+        if (leasedQueue != null) {
+            return 0;
+        }
+        QueuedRequest oldest = publishRequests.peekLowest(queuedRequest -> queuedRequest.enqueuedAtNanos);
+        return oldest == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.enqueuedAtNanos);
+    }
+
+    /**
+     * Returns the number of requests waiting for an author in fair order.
+     *
+     * @param author the author
+     * @return the author's queue depth, including superseded and cancelled requests not yet reached, or zero in
+     *         FIFO order
+     */
+    public int getQueueDepth(String author) {
+        if (!fairness.isByAuthor()) {
+            return 0;
+        }
+        return publishRequests.size(fairness.tenantOfAuthor(author));
+    }
+
+    private void registerTenantMetrics(String tenant) {
+        if (!fairness.isByAuthor() || tenantsWithMetrics.contains(tenant)
+            || tenantsWithMetrics.size() >= MAX_TENANT_METRICS || !tenantsWithMetrics.add(tenant)) {
+            return;
+        }
+        metricsPublisher.registerGauge(String.format(MetricsConstants.PUBLISH_TENANT_QUEUE_DEPTH, tenant),
+            () -> publishRequests.size(tenant));
+    }
+
+    private synchronized void reserve(int requests, long textBytes) {
+        ensureCapacity(requests, textBytes);
+        queuedRequests.addAndGet(requests);
+        queuedTextBytes.addAndGet(textBytes);
+    }
 
-        return publishRequests.remove();
+    private void release(long textBytes) {
+        release(1, textBytes);
     }
 
+    private void release(int requests, long textBytes) {
+        queuedRequests.addAndGet(-requests);
+        queuedTextBytes.addAndGet(-textBytes);
+    }
+
+    private void ensureCapacity(int requests, long textBytes) {
+        int depth = queuedRequests.get();
+        long excessRequests = depth + (long) requests - maxQueuedRequests;
+        // The byte limit does not apply to an empty queue, so a single large book can still publish.
+        long excessBytes = depth == 0 ? 0 : queuedTextBytes.get() + textBytes - maxQueuedTextBytes;
+        if (excessRequests <= 0 && excessBytes <= 0) {
+            return;
+        }
 
+        // Convert excess bytes into the number of average sized requests that must drain to make room.
+        long averageRequestBytes = Math.max(1, queuedTextBytes.get() / Math.max(1, depth));
+        long requestsToDrain = Math.max(excessRequests, (excessBytes + averageRequestBytes - 1) / averageRequestBytes);
 
+        metricsPublisher.addCount(MetricsConstants.PUBLISH_QUEUE_REJECTED_COUNT, 1);
+        throw new PublishingQueueFullException(String.format("Publishing queue is full with %d requests holding %d " +
+            "bytes of text", depth, queuedTextBytes.get()), retryAfterSeconds(requestsToDrain));
+    }
+
+    private long retryAfterSeconds(long requestsToDrain) {
+        double drainedPerSecond = drainRateTracker.getDrainedPerSecond();
+        if (drainedPerSecond <= 0) {
+            return MAX_RETRY_AFTER_SECONDS;
+        }
+        long seconds = (long) Math.ceil(requestsToDrain / drainedPerSecond);
+        return Math.min(MAX_RETRY_AFTER_SECONDS, Math.max(MIN_RETRY_AFTER_SECONDS, seconds));
+    }
 
+    // Left in its queue and skipped when reached, removing it now would mean a linear scan. Called holding this.
+    private void drop(QueuedRequest queuedRequest) {
+        queuedRequest.dropped = true;
+        queuedByRecordId.remove(queuedRequest.request.getPublishingRecordId(), queuedRequest);
+        release(queuedRequest.textBytes);
+    }
 
+    // Returns false for a superseded or cancelled request, which was released when it was dropped.
+    private boolean dequeued(QueuedRequest queuedRequest) {
+        synchronized (this) {
+            if (queuedRequest.dropped) {
+                return false;
+            }
+            if (queuedRequest.request.getBookId() != null) {
+                queuedByBookId.remove(queuedRequest.request.getBookId(), queuedRequest);
+            }
+            queuedByRecordId.remove(queuedRequest.request.getPublishingRecordId(), queuedRequest);
+            release(queuedRequest.textBytes);
+        }
+        drainRateTracker.recordDrained();
+        long waitNanos = System.nanoTime() - queuedRequest.enqueuedAtNanos;
+        metricsPublisher.recordLatency(MetricsConstants.PUBLISH_QUEUE_WAIT_TIME, waitNanos);
+        if (tenantsWithMetrics.contains(queuedRequest.tenant)) {
+            metricsPublisher.recordLatency(String.format(MetricsConstants.PUBLISH_TENANT_WAIT_TIME,
+                queuedRequest.tenant), waitNanos);
+        }
+        return true;
+    }
 
+    private void deleteSpooledText(String publishingRecordId) {
+        SpooledText spooledText = spooledTexts.remove(publishingRecordId);
+        if (spooledText != null) {
+            spooledText.delete();
+        }
+    }
 
+    // Strings hold two bytes per char on the heap, spooled text holds none.
+    private static long textBytes(BookPublishRequest book) {
+        if (book.getSpooledText() != null) {
+            return 0;
+        }
+        return book.getText() == null ? 0 : 2L * book.getText().length();
+    }
+
+    /**
+     * A request along with the time it was added to the queue, the heap held by its text, the tenant it is queued for
+     * and whether it was dropped because a newer request for the same book superseded it or it was cancelled.
+     */
+    private static final class QueuedRequest {
+        private final BookPublishRequest request;
+        private final long textBytes;
+        private final long enqueuedAtNanos;
+        private final String tenant;
+        // Written holding the manager, read by the queue to skip dropped requests.
+        private volatile boolean dropped;
+
+        private QueuedRequest(BookPublishRequest request, long textBytes, String tenant) {
+            this.request = request;
+            this.textBytes = textBytes;
+            this.enqueuedAtNanos = System.nanoTime();
+            this.tenant = tenant;
+        }
+    }
+
+    /**
+     * A request waiting in the delay queue until its retry is due.
+     */
+    private static final class ScheduledRetry implements Delayed {
+        private final QueuedRequest queuedRequest;
+        private final long dueAtNanos;
+
+        private ScheduledRetry(QueuedRequest queuedRequest, long dueAtNanos) {
+            this.queuedRequest = queuedRequest;
+            this.dueAtNanos = dueAtNanos;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
 }
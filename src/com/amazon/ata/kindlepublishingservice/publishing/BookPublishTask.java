@@ -5,6 +5,8 @@ import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
 import com.amazon.ata.kindlepublishingservice.dynamodb.models.CatalogItemVersion;
 import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
 import com.amazon.ata.kindlepublishingservice.exceptions.BookNotFoundException;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsConstants;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
 
 import javax.inject.Inject;
 
@@ -14,50 +16,106 @@ public final class BookPublishTask implements Runnable {
     private final BookPublishRequestManager bookPublishRequestManager;
     private final PublishingStatusDao publishingStatusDao;
     private final CatalogDao catalogDao;
-
+    private final KindleConversionCache kindleConversionCache;
+    private final PublishFailureHandler publishFailureHandler;
+    private final PublishSuccessRecorder publishSuccessRecorder;
+    private final MetricsPublisher metricsPublisher;
+
+    /**
+     * Instantiates a new BookPublishTask.
+     *
+     * @param bookPublishRequestManager the queue requests are taken from
+     * @param publishingStatusDao the DAO publishing statuses are written to
+     * @param catalogDao the DAO published books are saved to
+     * @param kindleConversionCache the cache of Kindle conversions
+     * @param publishFailureHandler retries or dead-letters requests whose publish threw
+     * @param publishSuccessRecorder records the status of requests whose book was saved and completes them
+     * @param metricsPublisher registry the time spent in each step of a publish is reported to
+     */
     @Inject
-    public BookPublishTask(BookPublishRequestManager bookPublishRequestManager, PublishingStatusDao publishingStatusDao, CatalogDao catalogDao) {
+    public BookPublishTask(BookPublishRequestManager bookPublishRequestManager, PublishingStatusDao publishingStatusDao,
+                           CatalogDao catalogDao, KindleConversionCache kindleConversionCache,
+                           PublishFailureHandler publishFailureHandler, PublishSuccessRecorder publishSuccessRecorder,
+                           MetricsPublisher metricsPublisher) {
         this.bookPublishRequestManager = bookPublishRequestManager;
         this.publishingStatusDao = publishingStatusDao;
         this.catalogDao = catalogDao;
+        this.kindleConversionCache = kindleConversionCache;
+        this.publishFailureHandler = publishFailureHandler;
+        this.publishSuccessRecorder = publishSuccessRecorder;
+        this.metricsPublisher = metricsPublisher;
     }
 
 
 
     @Override
     public void run() {
+        processNextRequest();
+    }
 
+    /**
+     * Publishes the next request waiting in the {@link BookPublishRequestManager}, if there is one.
+     *
+     * @return true if a request was processed, false if there was nothing to process.
+     */
+    public boolean processNextRequest() {
+        return publish(bookPublishRequestManager.getBookPublishRequestToProcess());
+    }
 
-            BookPublishRequest bookPublishRequest = bookPublishRequestManager.getBookPublishRequestToProcess();
-            if (bookPublishRequest == null) {
-                return;
-            }
+    /**
+     * Publishes the given request and records exactly one final status for it. A request whose publish threw is
+     * handed to the {@link PublishFailureHandler}, which may schedule it to retry instead. Once the book is saved the
+     * request is only ever handed to the {@link PublishSuccessRecorder}, which completes it even if its status cannot
+     * be written.
+     *
+     * @param bookPublishRequest the request to publish, may be null
+     * @return true if a request was processed, false if the request was null.
+     */
+    boolean publish(BookPublishRequest bookPublishRequest) {
+        if (bookPublishRequest == null) {
+            return false;
+        }
 
-            String bookRecordId = bookPublishRequest.getPublishingRecordId();
-            String bookId = bookPublishRequest.getBookId();
+        String bookRecordId = bookPublishRequest.getPublishingRecordId();
+        String bookId = bookPublishRequest.getBookId();
+        long publishStart = System.nanoTime();
 
-        try{
+        try {
             //set Publishing status in progress
+            long stepStart = System.nanoTime();
             publishingStatusDao.setPublishingStatus(bookRecordId, PublishingRecordStatus.IN_PROGRESS, bookId);
+            metricsPublisher.recordLatency(MetricsConstants.PUBLISH_TASK_STATUS_WRITE_TIME, System.nanoTime() - stepStart);
 
-            //format to KindleBook
-            KindleFormattedBook kindleFormattedBook = KindleFormatConverter.format(bookPublishRequest);
+            //format to KindleBook, skipping the conversion if the same text was converted before
+            stepStart = System.nanoTime();
+            KindleFormattedBook kindleFormattedBook = kindleConversionCache.format(bookPublishRequest);
+            metricsPublisher.recordLatency(MetricsConstants.PUBLISH_TASK_CONVERSION_TIME, System.nanoTime() - stepStart);
 
             //call to catalog Dao to add or update existing book
-            try {
-                CatalogItemVersion catalogItemVersion = catalogDao.createOrUpdateBook(kindleFormattedBook);
-                bookId = catalogItemVersion.getBookId();
-            } catch (BookNotFoundException e) {
-                publishingStatusDao.setPublishingStatus(bookRecordId, PublishingRecordStatus.FAILED, bookId, "Book to update does not exist");
-            }
-
+            stepStart = System.nanoTime();
+            CatalogItemVersion catalogItemVersion = catalogDao.createOrUpdateBook(kindleFormattedBook);
+            metricsPublisher.recordLatency(MetricsConstants.PUBLISH_TASK_CATALOG_WRITE_TIME, System.nanoTime() - stepStart);
+            bookId = catalogItemVersion.getBookId();
+        } catch (BookNotFoundException e) {
+            publishingStatusDao.setPublishingStatus(bookRecordId, PublishingRecordStatus.FAILED, bookId, "Book to update does not exist");
+            bookPublishRequestManager.markBookPublishRequestComplete(bookRecordId);
+            recordPublish(MetricsConstants.PUBLISH_TASK_FAILED_COUNT, publishStart);
+            return true;
         } catch (Exception e) {
-            publishingStatusDao.setPublishingStatus(bookRecordId, PublishingRecordStatus.FAILED, bookId, "Exception during processing");
+            publishFailureHandler.handleFailure(bookPublishRequest, bookId, e);
+            recordPublish(MetricsConstants.PUBLISH_TASK_FAILED_COUNT, publishStart);
+            return true;
         }
 
-        publishingStatusDao.setPublishingStatus(bookRecordId, PublishingRecordStatus.SUCCESSFUL, bookId );
-
+        long stepStart = System.nanoTime();
+        publishSuccessRecorder.recordSuccess(bookRecordId, bookId);
+        metricsPublisher.recordLatency(MetricsConstants.PUBLISH_TASK_STATUS_WRITE_TIME, System.nanoTime() - stepStart);
+        recordPublish(MetricsConstants.PUBLISH_TASK_SUCCEEDED_COUNT, publishStart);
+        return true;
     }
 
-
+    private void recordPublish(String outcomeCount, long publishStart) {
+        metricsPublisher.addCount(outcomeCount, 1);
+        metricsPublisher.recordLatency(MetricsConstants.PUBLISH_TASK_PUBLISH_TIME, System.nanoTime() - publishStart);
+    }
 }
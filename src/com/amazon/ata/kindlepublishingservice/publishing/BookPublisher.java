@@ -6,24 +6,41 @@ import org.apache.logging.log4j.Logger;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Class responsible for executing publishing tasks. The publisher is created in an off state. A call to start will
  * start the publishing process.
+ *
+ * The publisher runs in one of three modes. In fixed delay mode a single task is scheduled to publish at most one book
+ * per run. In drain mode every {@link DrainingPublishWorker} is scheduled on its own thread and publishes books until
+ * the queue is empty before waiting for the next run. In pipeline mode books are published by a
+ * {@link PublishingPipeline}.
+ *
+ * A publisher whose single draining worker publishes on lanes, or whose pipeline was built with room to grow, can
+ * change how many books it publishes at once while it runs, see {@link #resizeWorkers(int)}.
  */
 @Singleton
 public class BookPublisher {
 
     private static final Logger log = LogManager.getLogger(BookPublisher.class);
 
+    // Longest a stop waits for the books being published, longer than the slowest Kindle conversion, override with
+    // -Dkindlepublishing.publisher.stopTimeoutMillis=N
+    static final long STOP_TIMEOUT_MILLIS = Long.getLong("kindlepublishing.publisher.stopTimeoutMillis", 30000);
+
     private final ScheduledExecutorService scheduledExecutorService;
     private final Runnable publishTask;
+    private final List<DrainingPublishWorker> drainWorkers;
+    private final PublishingPipeline publishingPipeline;
     private boolean isRunning;  //initialized to an off state
 
     /**
-     * Instantiates a new BookPublisher object.
+     * Instantiates a new BookPublisher object in fixed delay mode.
      *
      * @param scheduledExecutorService will schedule publishing tasks
      * @param publishTask the task that should be scheduled to publish books
@@ -33,6 +50,34 @@ public class BookPublisher {
                          Runnable publishTask) {
         this.publishTask = publishTask;
         this.scheduledExecutorService = scheduledExecutorService;
+        this.drainWorkers = Collections.emptyList();
+        this.publishingPipeline = null;
+    }
+
+    /**
+     * Instantiates a new BookPublisher object in drain mode.
+     *
+     * @param scheduledExecutorService will schedule the workers, needs at least one thread per worker
+     * @param drainWorkers the workers that drain the publish queue
+     */
+    public BookPublisher(ScheduledExecutorService scheduledExecutorService,
+                         List<DrainingPublishWorker> drainWorkers) {
+        this.publishTask = null;
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.drainWorkers = new ArrayList<>(drainWorkers);
+        this.publishingPipeline = null;
+    }
+
+    /**
+     * Instantiates a new BookPublisher object in pipeline mode.
+     *
+     * @param publishingPipeline the pipeline that publishes books
+     */
+    public BookPublisher(PublishingPipeline publishingPipeline) {
+        this.publishTask = null;
+        this.scheduledExecutorService = null;
+        this.drainWorkers = Collections.emptyList();
+        this.publishingPipeline = publishingPipeline;
     }
 
     /**
@@ -43,16 +88,118 @@ public class BookPublisher {
             return;
         }
         isRunning = true;
-        //calls Book Publish task run()
-        scheduledExecutorService.scheduleWithFixedDelay(publishTask, 0, 1, TimeUnit.SECONDS);
+
+        if (publishingPipeline != null) {
+            publishingPipeline.start();
+            return;
+        }
+
+        if (drainWorkers.isEmpty()) {
+            //calls Book Publish task run()
+            scheduledExecutorService.scheduleWithFixedDelay(publishTask, 0, 1, TimeUnit.SECONDS);
+            return;
+        }
+
+        for (DrainingPublishWorker worker : drainWorkers) {
+            worker.reset();
+            scheduledExecutorService.scheduleWithFixedDelay(worker, 0, 1, TimeUnit.SECONDS);
+        }
+        log.info("Started {} draining publish workers", drainWorkers.size());
     }
 
     /**
-     * Stop publishing books.
+     * Stop publishing books, waiting up to {@link #STOP_TIMEOUT_MILLIS} for the books being published. Requests not
+     * finished by then are left in the publish request journal, which queues them again on the next start.
+     *
+     * @return true if every book being published finished in time, so the journal can be closed safely
      */
-    public void stop() {
+    public boolean stop() {
         isRunning = false;
+        if (publishingPipeline != null) {
+            return publishingPipeline.stop();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STOP_TIMEOUT_MILLIS);
+        for (DrainingPublishWorker worker : drainWorkers) {
+            worker.stop();
+        }
         scheduledExecutorService.shutdown();
+
+        boolean stopped;
+        try {
+            stopped = scheduledExecutorService.awaitTermination(remainingMillis(deadline), TimeUnit.MILLISECONDS);
+            for (DrainingPublishWorker worker : drainWorkers) {
+                stopped &= worker.awaitStopped(remainingMillis(deadline));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = false;
+        }
+        for (DrainingPublishWorker worker : drainWorkers) {
+            log.info("Publish worker {} stopped after publishing {} books at {} books/s", worker.getWorkerId(),
+                worker.getPublishedCount(), String.format("%.3f", worker.getBooksPerSecond()));
+        }
+        return stopped;
+    }
+
+    // At least a millisecond, since a join of zero would wait forever.
+    private static long remainingMillis(long deadline) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    /**
+     * Returns the number of books the publisher publishes at once.
+     *
+     * @return the pipeline's convert threads, the lanes of a single draining worker, or the number of workers
+     */
+    public int getWorkerCount() {
+        if (publishingPipeline != null) {
+            return publishingPipeline.getWorkerCount();
+        }
+        if (drainWorkers.size() == 1) {
+            return drainWorkers.get(0).getLaneCount();
+        }
+        return Math.max(1, drainWorkers.size());
+    }
+
+    /**
+     * Returns the most books the publisher can be resized to publish at once.
+     *
+     * @return the maximum worker count, equal to the worker count when the publisher cannot be resized
+     */
+    public int getMaxWorkerCount() {
+        if (publishingPipeline != null) {
+            return publishingPipeline.getMaxWorkerCount();
+        }
+        if (drainWorkers.size() == 1) {
+            return drainWorkers.get(0).getMaxLaneCount();
+        }
+        return getWorkerCount();
+    }
+
+    /**
+     * Changes the number of books the publisher publishes at once, without waiting for the books in progress. A book
+     * already handed to a worker keeps that worker, so the requests for a book stay in order.
+     *
+     * @param workerCount the number of books to publish at once
+     * @return true if the publisher now publishes the requested number of books at once, false if it cannot be
+     *         resized to that count
+     */
+    public boolean resizeWorkers(int workerCount) {
+        if (publishingPipeline != null) {
+            return publishingPipeline.resizeWorkers(workerCount);
+        }
+        if (drainWorkers.size() == 1) {
+            return drainWorkers.get(0).resizeLanes(workerCount);
+        }
+        return workerCount == getWorkerCount();
+    }
+
+    /**
+     * Returns the drain mode workers, empty when running in fixed delay mode.
+     * @return the workers scheduled by this publisher.
+     */
+    public List<DrainingPublishWorker> getDrainWorkers() {
+        return Collections.unmodifiableList(drainWorkers);
     }
 
     /**
@@ -0,0 +1,43 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+/**
+ * A publish request that was given up on, along with why and after how many attempts.
+ */
+public final class DeadLetter {
+
+    private final BookPublishRequest request;
+    private final int attempts;
+    private final String reason;
+    private final long failedAtMillis;
+
+    /**
+     * Instantiates a new DeadLetter.
+     *
+     * @param request the request that could not be published
+     * @param attempts the number of times it was attempted
+     * @param reason a description of the last failure
+     * @param failedAtMillis when the last attempt failed, in epoch milliseconds
+     */
+    public DeadLetter(BookPublishRequest request, int attempts, String reason, long failedAtMillis) {
+        this.request = request;
+        this.attempts = attempts;
+        this.reason = reason;
+        this.failedAtMillis = failedAtMillis;
+    }
+
+    public BookPublishRequest getRequest() {
+        return request;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public long getFailedAtMillis() {
+        return failedAtMillis;
+    }
+}
@@ -0,0 +1,216 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsConstants;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import com.amazon.ata.recommendationsservice.types.BookGenre;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the publish requests that failed for good on disk, one file per request, so they can be inspected and
+ * published again once whatever made them fail is fixed. The files are read once, on first use, and kept in memory
+ * after that.
+ */
+public class DeadLetterStore {
+
+    private static final Logger log = LogManager.getLogger(DeadLetterStore.class);
+
+    private static final String FILE_SUFFIX = ".dlq";
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path directory;
+    private Map<String, DeadLetter> deadLetters;
+
+    /**
+     * Instantiates a new DeadLetterStore.
+     *
+     * @param directory the directory dead letters are written to, created on first use
+     * @param metricsPublisher registry the number of dead letters is reported to
+     */
+    public DeadLetterStore(Path directory, MetricsPublisher metricsPublisher) {
+        this.directory = directory;
+        metricsPublisher.registerGauge(MetricsConstants.DEAD_LETTER_DEPTH, this::size);
+    }
+
+    /**
+     * Writes a dead letter to disk, replacing any earlier one for the same publishing record.
+     *
+     * @param deadLetter the request that failed and why
+     */
+    public synchronized void add(DeadLetter deadLetter) {
+        load();
+        String publishingRecordId = deadLetter.getRequest().getPublishingRecordId();
+        try {
+            // Write to a temporary file first so a crash never leaves a partial dead letter behind.
+            Path temporary = Files.createTempFile(directory, "dead-letter", ".tmp");
+            Files.write(temporary, encode(deadLetter));
+            Files.move(temporary, fileFor(publishingRecordId), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write dead letter for " + publishingRecordId, e);
+        }
+        deadLetters.put(publishingRecordId, deadLetter);
+    }
+
+    /**
+     * Returns every dead letter, oldest failure first.
+     *
+     * @return the dead letters
+     */
+    public synchronized List<DeadLetter> list() {
+        load();
+        List<DeadLetter> list = new ArrayList<>(deadLetters.values());
+        list.sort(Comparator.comparingLong(DeadLetter::getFailedAtMillis));
+        return list;
+    }
+
+    /**
+     * Returns the dead letter of a publishing record without removing it.
+     *
+     * @param publishingRecordId the publishing record id of the failed request
+     * @return the dead letter, or null if there is none
+     */
+    public synchronized DeadLetter get(String publishingRecordId) {
+        load();
+        return deadLetters.get(publishingRecordId);
+    }
+
+    /**
+     * Removes the dead letter of a publishing record, typically to publish it again.
+     *
+     * @param publishingRecordId the publishing record id of the failed request
+     * @return the removed dead letter, or null if there was none
+     */
+    public synchronized DeadLetter remove(String publishingRecordId) {
+        load();
+        DeadLetter deadLetter = deadLetters.remove(publishingRecordId);
+        if (deadLetter != null) {
+            try {
+                Files.deleteIfExists(fileFor(publishingRecordId));
+            } catch (IOException e) {
+                deadLetters.put(publishingRecordId, deadLetter);
+                throw new UncheckedIOException("Unable to delete dead letter for " + publishingRecordId, e);
+            }
+        }
+        return deadLetter;
+    }
+
+    /**
+     * Returns the number of dead letters.
+     *
+     * @return the number of requests waiting to be inspected or replayed
+     */
+    public synchronized int size() {
+        load();
+        return deadLetters.size();
+    }
+
+    private void load() {
+        if (deadLetters != null) {
+            return;
+        }
+        Map<String, DeadLetter> loaded = new LinkedHashMap<>();
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+                for (Path file : files) {
+                    try {
+                        DeadLetter deadLetter = decode(Files.readAllBytes(file));
+                        loaded.put(deadLetter.getRequest().getPublishingRecordId(), deadLetter);
+                    } catch (IOException | RuntimeException e) {
+                        log.warn("Skipping unreadable dead letter {}", file, e);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read dead letters in " + directory, e);
+        }
+        deadLetters = loaded;
+    }
+
+    // Publishing record ids are generated, but keep anything unexpected from escaping the directory.
+    private Path fileFor(String publishingRecordId) {
+        return directory.resolve(publishingRecordId.replaceAll("[^A-Za-z0-9._-]", "_") + FILE_SUFFIX);
+    }
+
+    private static byte[] encode(DeadLetter deadLetter) throws IOException {
+        BookPublishRequest request = deadLetter.getRequest();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, request.getPublishingRecordId());
+            writeString(out, request.getBookId());
+            writeString(out, request.getTitle());
+            writeString(out, request.getAuthor());
+            writeString(out, request.getGenre() == null ? null : request.getGenre().name());
+            writeString(out, request.getText());
+            out.writeInt(deadLetter.getAttempts());
+            writeString(out, deadLetter.getReason());
+            out.writeLong(deadLetter.getFailedAtMillis());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static DeadLetter decode(byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unknown dead letter format " + version);
+            }
+            String publishingRecordId = readString(in);
+            String bookId = readString(in);
+            String title = readString(in);
+            String author = readString(in);
+            String genre = readString(in);
+            BookPublishRequest request = BookPublishRequest.builder()
+                .withPublishingRecordId(publishingRecordId)
+                .withBookId(bookId)
+                .withTitle(title)
+                .withAuthor(author)
+                .withGenre(genre == null ? null : BookGenre.valueOf(genre))
+                .withText(readString(in))
+                .build();
+            int attempts = in.readInt();
+            String reason = readString(in);
+            return new DeadLetter(request, attempts, reason, in.readLong());
+        }
+    }
+
+    // Strings are written as their UTF-8 length and bytes, writeUTF would limit the text to 64KB.
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,203 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * A blocking queue that shares its output fairly between tenants, using deficit round robin. Every tenant has its own
+ * FIFO sub-queue, and the tenants with waiting elements take turns. A turn gives the tenant as many elements as its
+ * weight, every element costing one, so a tenant of weight 4 gets four times the throughput of a tenant of weight 1
+ * while both have elements waiting, however many each has queued. A tenant whose sub-queue empties leaves the rotation
+ * and forfeits the rest of its turn.
+ *
+ * Elements that stop being live while queued, such as superseded or cancelled requests, are left in place and
+ * discarded when reached, without costing their tenant any of its turn.
+ *
+ * With a single tenant the queue is a plain FIFO.
+ *
+ * @param <E> the type of element held in the queue
+ */
+final class DeficitRoundRobinQueue<E> {
+
+    private final Function<E, String> tenantOf;
+    private final ToIntFunction<String> weightOf;
+    private final Predicate<E> isLive;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    // Tenants with queued elements, guarded by lock.
+    private final Map<String, Tenant<E>> tenants = new HashMap<>();
+    // The tenant at the head is the one whose turn it is, guarded by lock.
+    private final Deque<Tenant<E>> rotation = new ArrayDeque<>();
+
+    /**
+     * Instantiates a new, empty DeficitRoundRobinQueue.
+     *
+     * @param tenantOf returns the tenant an element is queued for
+     * @param weightOf returns how many elements a tenant takes per turn, values below one count as one
+     * @param isLive returns false for an element that should be discarded instead of returned
+     */
+    DeficitRoundRobinQueue(Function<E, String> tenantOf, ToIntFunction<String> weightOf, Predicate<E> isLive) {
+        this.tenantOf = tenantOf;
+        this.weightOf = weightOf;
+        this.isLive = isLive;
+    }
+
+    /**
+     * Adds an element to the end of its tenant's sub-queue.
+     *
+     * @param element the element to add
+     */
+    void add(E element) {
+        String key = tenantOf.apply(element);
+        lock.lock();
+        try {
+            Tenant<E> tenant = tenants.get(key);
+            if (tenant == null) {
+                tenant = new Tenant<>(key, Math.max(1, weightOf.applyAsInt(key)));
+                tenants.put(key, tenant);
+                rotation.addLast(tenant);
+            }
+            tenant.elements.addLast(element);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns the next live element without waiting.
+     *
+     * @return the element, or null if no live element is queued
+     */
+    E poll() {
+        lock.lock();
+        try {
+            return next();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns the next live element, waiting up to the timeout for one to be added.
+     *
+     * @param timeout how long to wait
+     * @param unit the unit of the timeout
+     * @return the element, or null if none was added before the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long waitNanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                E element = next();
+                if (element != null || waitNanos <= 0) {
+                    return element;
+                }
+                waitNanos = notEmpty.awaitNanos(waitNanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the live element at the head of a sub-queue with the smallest value, without removing it.
+     *
+     * @param value the value to compare, such as the time the element was queued
+     * @return the element, or null if no live element is queued
+     */
+    E peekLowest(ToLongFunction<E> value) {
+        lock.lock();
+        try {
+            E lowest = null;
+            for (Tenant<E> tenant : rotation) {
+                for (E element : tenant.elements) {
+                    if (isLive.test(element)) {
+                        if (lowest == null || value.applyAsLong(element) < value.applyAsLong(lowest)) {
+                            lowest = element;
+                        }
+                        break;
+                    }
+                }
+            }
+            return lowest;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of elements queued for a tenant, including those no longer live that were not reached yet.
+     *
+     * @param key the tenant
+     * @return the length of the tenant's sub-queue
+     */
+    int size(String key) {
+        lock.lock();
+        try {
+            Tenant<E> tenant = tenants.get(key);
+            return tenant == null ? 0 : tenant.elements.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called holding lock.
+    private E next() {
+        while (!rotation.isEmpty()) {
+            Tenant<E> tenant = rotation.peekFirst();
+            E element = tenant.elements.pollFirst();
+            while (element != null && !isLive.test(element)) {
+                element = tenant.elements.pollFirst();
+            }
+            if (element == null) {
+                leave(tenant);
+                continue;
+            }
+
+            if (tenant.deficit == 0) {
+                tenant.deficit = tenant.weight;
+            }
+            tenant.deficit--;
+            if (tenant.elements.isEmpty()) {
+                leave(tenant);
+            } else if (tenant.deficit == 0) {
+                rotation.addLast(rotation.pollFirst());
+            }
+            return element;
+        }
+        return null;
+    }
+
+    private void leave(Tenant<E> tenant) {
+        rotation.pollFirst();
+        tenants.remove(tenant.key);
+    }
+
+    /**
+     * A tenant's sub-queue along with what is left of its current turn.
+     */
+    private static final class Tenant<E> {
+        private final String key;
+        private final int weight;
+        private final Deque<E> elements = new ArrayDeque<>();
+        // Elements left in the current turn, zero between turns.
+        private int deficit;
+
+        private Tenant(String key, int weight) {
+            this.key = key;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks how many requests are taken off the publish queue per second over a sliding window of one second buckets.
+ */
+public class DrainRateTracker {
+
+    private final long[] bucketCounts;
+    private final long[] bucketSeconds;
+    private final LongSupplier nanoClock;
+
+    /**
+     * Instantiates a new DrainRateTracker using the system clock.
+     *
+     * @param windowSeconds how many seconds of history the rate is averaged over
+     */
+    public DrainRateTracker(int windowSeconds) {
+        this(windowSeconds, System::nanoTime);
+    }
+
+    /**
+     * Instantiates a new DrainRateTracker.
+     *
+     * @param windowSeconds how many seconds of history the rate is averaged over
+     * @param nanoClock source of the current time in nanoseconds
+     */
+    DrainRateTracker(int windowSeconds, LongSupplier nanoClock) {
+        this.bucketCounts = new long[windowSeconds];
+        this.bucketSeconds = new long[windowSeconds];
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Records that a request was taken off the queue.
+     */
+    public synchronized void recordDrained() {
+        long second = currentSecond();
+        int bucket = (int) (second % bucketCounts.length);
+        if (bucketSeconds[bucket] != second) {
+            bucketSeconds[bucket] = second;
+            bucketCounts[bucket] = 0;
+        }
+        bucketCounts[bucket]++;
+    }
+
+    /**
+     * Returns the average number of requests drained per second over the window.
+     *
+     * @return requests per second, zero if nothing was drained within the window
+     */
+    public synchronized double getDrainedPerSecond() {
+        long second = currentSecond();
+        long drained = 0;
+        for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+            if (second - bucketSeconds[bucket] < bucketCounts.length) {
+                drained += bucketCounts[bucket];
+            }
+        }
+        return (double) drained / bucketCounts.length;
+    }
+
+    private long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(nanoClock.getAsLong());
+    }
+}
@@ -0,0 +1,221 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsConstants;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A publish worker that keeps pulling requests from the {@link BookPublishRequestManager} until it is stopped, instead
+ * of publishing a single book per scheduled run. While the queue is empty the worker blocks on it, so a new submission
+ * is picked up as soon as it is added. Each worker tracks how many books it has published and how long it spent doing
+ * so, so the worker pool can be sized against the submission rate.
+ *
+ * Workers that take requests from the same queue may publish two requests for the same book at once, and the older
+ * one may finish last. To publish in parallel while keeping each book's requests in order, give a single worker a
+ * {@link StripedExecutor}: the worker then only takes requests and hands each to the lane of its book.
+ */
+public class DrainingPublishWorker implements Runnable {
+
+    private static final Logger log = LogManager.getLogger(DrainingPublishWorker.class);
+
+    // Upper bound on how long a stop request can go unnoticed by an idle worker.
+    private static final long IDLE_WAIT_MILLIS = 1000;
+
+    private final int workerId;
+    private final BookPublishRequestManager bookPublishRequestManager;
+    private final BookPublishTask publishTask;
+    private final StripedExecutor lanes;
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong busyTimeNanos = new AtomicLong();
+    private volatile boolean stopRequested;
+
+    /**
+     * Instantiates a new DrainingPublishWorker.
+     *
+     * @param workerId identifies this worker in logs and metrics
+     * @param bookPublishRequestManager the queue to take requests from
+     * @param publishTask publishes a single request
+     * @param metricsPublisher registry the worker's throughput is reported to
+     */
+    public DrainingPublishWorker(int workerId, BookPublishRequestManager bookPublishRequestManager,
+                                 BookPublishTask publishTask, MetricsPublisher metricsPublisher) {
+        this(workerId, bookPublishRequestManager, publishTask, metricsPublisher, null);
+    }
+
+    /**
+     * Instantiates a new DrainingPublishWorker that publishes on the lanes of a striped executor, ordered by book id.
+     *
+     * @param workerId identifies this worker in logs and metrics
+     * @param bookPublishRequestManager the queue to take requests from
+     * @param publishTask publishes a single request
+     * @param metricsPublisher registry the worker's throughput is reported to
+     * @param lanes the lanes requests are published on, or null to publish on the worker's own thread
+     */
+    public DrainingPublishWorker(int workerId, BookPublishRequestManager bookPublishRequestManager,
+                                 BookPublishTask publishTask, MetricsPublisher metricsPublisher,
+                                 StripedExecutor lanes) {
+        this.workerId = workerId;
+        this.bookPublishRequestManager = bookPublishRequestManager;
+        this.publishTask = publishTask;
+        this.lanes = lanes;
+
+        metricsPublisher.registerGauge(String.format(MetricsConstants.PUBLISH_WORKER_PUBLISHED_COUNT, workerId),
+            publishedCount::get);
+        metricsPublisher.registerGauge(String.format(MetricsConstants.PUBLISH_WORKER_BUSY_TIME_MILLIS, workerId),
+            () -> TimeUnit.NANOSECONDS.toMillis(busyTimeNanos.get()));
+        metricsPublisher.registerGauge(String.format(MetricsConstants.PUBLISH_WORKER_THROUGHPUT, workerId),
+            () -> Math.round(getBooksPerSecond() * 60));
+    }
+
+    /**
+     * Publishes books until the worker is stopped, waiting on the queue whenever it is empty.
+     */
+    @Override
+    public void run() {
+        if (lanes != null && !stopRequested) {
+            lanes.start();
+        }
+
+        long drained = 0;
+        long drainNanos = 0;
+
+        while (!stopRequested) {
+            BookPublishRequest request;
+            try {
+                request = bookPublishRequestManager.takeBookPublishRequest(IDLE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                if (request != null && lanes != null) {
+                    lanes.execute(request.getBookId(), () -> publish(request));
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            if (request == null) {
+                logDrainCycle(drained, drainNanos);
+                drained = 0;
+                drainNanos = 0;
+                continue;
+            }
+
+            drained++;
+            drainNanos += publish(request);
+        }
+
+        logDrainCycle(drained, drainNanos);
+    }
+
+    // Publishes a single request and returns the time it took.
+    private long publish(BookPublishRequest request) {
+        long startTime = System.nanoTime();
+        try {
+            publishTask.publish(request);
+        } catch (RuntimeException e) {
+            // An exception escaping a scheduled run would cancel every future run of this worker.
+            log.error("Publish worker {} failed to process request {}", workerId,
+                request.getPublishingRecordId(), e);
+        }
+        long elapsedNanos = System.nanoTime() - startTime;
+
+        publishedCount.incrementAndGet();
+        busyTimeNanos.addAndGet(elapsedNanos);
+        return elapsedNanos;
+    }
+
+    private void logDrainCycle(long drained, long drainNanos) {
+        if (drained == 0) {
+            return;
+        }
+        log.info("Publish worker {} drained {} books in {} ms. Lifetime throughput: {} books/s over {} books.",
+            workerId, drained, TimeUnit.NANOSECONDS.toMillis(drainNanos),
+            String.format("%.3f", getBooksPerSecond()), publishedCount.get());
+    }
+
+    /**
+     * Asks the worker to stop after the request it is currently processing. Requests still waiting on its lanes are
+     * dropped, the publish request journal queues them again on the next start.
+     */
+    public void stop() {
+        stopRequested = true;
+        if (lanes != null) {
+            lanes.shutdown();
+        }
+    }
+
+    /**
+     * Waits for the requests running on the worker's lanes to finish after {@link #stop()}. A worker without lanes
+     * publishes on the thread it was scheduled on, which the caller waits for instead.
+     *
+     * @param timeoutMillis how long to wait
+     * @return true if every lane finished in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitStopped(long timeoutMillis) throws InterruptedException {
+        return lanes == null || lanes.awaitTermination(timeoutMillis);
+    }
+
+    /**
+     * Allows a stopped worker to be scheduled again.
+     */
+    public void reset() {
+        stopRequested = false;
+    }
+
+    public int getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * Returns the number of requests the worker publishes at once.
+     *
+     * @return the number of lanes in use, one for a worker publishing on its own thread
+     */
+    public int getLaneCount() {
+        return lanes == null ? 1 : lanes.getLaneCount();
+    }
+
+    /**
+     * Returns the most requests the worker can be resized to publish at once.
+     *
+     * @return the lanes of its striped executor, one for a worker publishing on its own thread
+     */
+    public int getMaxLaneCount() {
+        return lanes == null ? 1 : lanes.getMaxLaneCount();
+    }
+
+    /**
+     * Changes the number of requests the worker publishes at once. Requests already waiting on a lane stay there, so
+     * the requests for a book stay in order.
+     *
+     * @param laneCount the number of lanes to use
+     * @return true if the worker now uses the requested number of lanes
+     */
+    public boolean resizeLanes(int laneCount) {
+        if (lanes == null) {
+            return laneCount == 1;
+        }
+        return lanes.resize(laneCount);
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    /**
+     * Returns the number of books this worker publishes per second of busy time.
+     *
+     * @return books published per second, or zero if the worker has not published anything.
+     */
+    public double getBooksPerSecond() {
+        long busyNanos = busyTimeNanos.get();
+        if (busyNanos == 0) {
+            return 0;
+        }
+        return publishedCount.get() * (double) TimeUnit.SECONDS.toNanos(1) / busyNanos;
+    }
+}
@@ -0,0 +1,150 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link PublishRequestLeaseStore} held in memory, for tests and single node development. Nodes sharing an instance
+ * behave as they would sharing a table, including leases expiring on the store's clock.
+ */
+public class InMemoryPublishRequestLeaseStore implements PublishRequestLeaseStore {
+
+    private final LongSupplier clockMillis;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Instantiates a new, empty store on the system clock.
+     */
+    public InMemoryPublishRequestLeaseStore() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * Instantiates a new, empty store.
+     *
+     * @param clockMillis supplies the current time in milliseconds, leases expire on it
+     */
+    public InMemoryPublishRequestLeaseStore(LongSupplier clockMillis) {
+        this.clockMillis = clockMillis;
+    }
+
+    @Override
+    public synchronized void put(BookPublishRequest request) {
+        if (entries.containsKey(request.getPublishingRecordId())) {
+            throw new IllegalStateException("Publish request " + request.getPublishingRecordId() + " already exists");
+        }
+        entries.put(request.getPublishingRecordId(), new Entry(request, clockMillis.getAsLong()));
+    }
+
+    @Override
+    public synchronized List<LeasedPublishRequest> acquire(String owner, int maxRequests, long leaseMillis) {
+        long now = clockMillis.getAsLong();
+        Set<String> leasedBooks = new HashSet<>();
+        for (Entry entry : entries.values()) {
+            if (entry.isLeased(now) && entry.request.getBookId() != null) {
+                leasedBooks.add(entry.request.getBookId());
+            }
+        }
+
+        // Entries are in the order they were put, only the oldest request of a book that has none leased may go.
+        Set<String> seenBooks = new HashSet<>();
+        List<LeasedPublishRequest> leased = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (leased.size() >= maxRequests) {
+                break;
+            }
+            String bookId = entry.request.getBookId();
+            if (bookId != null && (!seenBooks.add(bookId) || leasedBooks.contains(bookId))) {
+                continue;
+            }
+            if (entry.isLeased(now) || entry.availableAtMillis > now) {
+                continue;
+            }
+            entry.owner = owner;
+            entry.leaseExpiresAtMillis = now + leaseMillis;
+            leased.add(new LeasedPublishRequest(entry.request, entry.attempts));
+        }
+        return leased;
+    }
+
+    @Override
+    public synchronized boolean renew(String publishingRecordId, String owner, long leaseMillis) {
+        Entry entry = heldBy(publishingRecordId, owner);
+        if (entry == null) {
+            return false;
+        }
+        entry.leaseExpiresAtMillis = clockMillis.getAsLong() + leaseMillis;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean complete(String publishingRecordId, String owner) {
+        if (heldBy(publishingRecordId, owner) == null) {
+            return false;
+        }
+        entries.remove(publishingRecordId);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean release(String publishingRecordId, String owner, long delayMillis, int attempts) {
+        Entry entry = heldBy(publishingRecordId, owner);
+        if (entry == null) {
+            return false;
+        }
+        entry.owner = null;
+        entry.leaseExpiresAtMillis = 0;
+        entry.availableAtMillis = clockMillis.getAsLong() + delayMillis;
+        entry.attempts = attempts;
+        return true;
+    }
+
+    @Override
+    public synchronized BookPublishRequest remove(String publishingRecordId) {
+        Entry entry = entries.get(publishingRecordId);
+        if (entry == null || entry.isLeased(clockMillis.getAsLong())) {
+            return null;
+        }
+        entries.remove(publishingRecordId);
+        return entry.request;
+    }
+
+    @Override
+    public synchronized int countPending() {
+        return entries.size();
+    }
+
+    private Entry heldBy(String publishingRecordId, String owner) {
+        Entry entry = entries.get(publishingRecordId);
+        if (entry == null || !entry.isLeased(clockMillis.getAsLong()) || !Objects.equals(entry.owner, owner)) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * A pending request and its lease.
+     */
+    private static final class Entry {
+        private final BookPublishRequest request;
+        private long availableAtMillis;
+        private String owner;
+        private long leaseExpiresAtMillis;
+        private int attempts;
+
+        private Entry(BookPublishRequest request, long availableAtMillis) {
+            this.request = request;
+            this.availableAtMillis = availableAtMillis;
+        }
+
+        private boolean isLeased(long now) {
+            return owner != null && leaseExpiresAtMillis > now;
+        }
+    }
+}
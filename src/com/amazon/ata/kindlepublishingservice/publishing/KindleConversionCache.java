@@ -0,0 +1,324 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsConstants;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caches the Kindle formatted text of books by a SHA-256 digest of their text, so a resubmission with byte-identical
+ * text, such as a title or genre edit, skips the conversion entirely.
+ *
+ * Converted text is held in memory in least recently used order up to a byte limit. With a disk directory configured,
+ * every conversion is also written to disk up to a second byte limit, so conversions survive eviction and restarts.
+ * Concurrent requests for the same text share a single conversion. The digest of text spooled to disk is computed as it
+ * is spooled, so a hit never reads the text back.
+ */
+public class KindleConversionCache {
+
+    private static final Logger log = LogManager.getLogger(KindleConversionCache.class);
+
+    private static final String DISK_FILE_SUFFIX = ".kindle";
+    // Heap held by a cached entry besides its text: the digest key and the map entry.
+    private static final long ENTRY_OVERHEAD_BYTES = 192;
+
+    private final MetricsPublisher metricsPublisher;
+    private final long maxMemoryBytes;
+    private final Path diskDirectory;
+    private final long maxDiskBytes;
+    private final UnaryOperator<String> converter;
+    private final Function<SpooledText, String> spooledConverter;
+    private final Map<String, String> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    // Guards the disk tier separately so disk writes never hold up memory lookups.
+    private final Object diskLock = new Object();
+    private long memoryBytes;
+    private long diskBytes = -1;
+
+    /**
+     * Instantiates a new, empty KindleConversionCache.
+     *
+     * @param metricsPublisher registry the cache hits and misses are reported to
+     * @param maxMemoryBytes the most heap the cached text may hold
+     * @param diskDirectory the directory of the on-disk tier, or null to keep conversions in memory only
+     * @param maxDiskBytes the most disk space the on-disk tier may use
+     */
+    public KindleConversionCache(MetricsPublisher metricsPublisher, long maxMemoryBytes, Path diskDirectory,
+                                 long maxDiskBytes) {
+        this(metricsPublisher, maxMemoryBytes, diskDirectory, maxDiskBytes, KindleFormatConverter::convertText,
+            KindleFormatConverter::convertText);
+    }
+
+    @VisibleForTesting
+    KindleConversionCache(MetricsPublisher metricsPublisher, long maxMemoryBytes, Path diskDirectory,
+                          long maxDiskBytes, UnaryOperator<String> converter) {
+        this(metricsPublisher, maxMemoryBytes, diskDirectory, maxDiskBytes, converter,
+            spooledText -> converter.apply(spooledText.read()));
+    }
+
+    private KindleConversionCache(MetricsPublisher metricsPublisher, long maxMemoryBytes, Path diskDirectory,
+                                  long maxDiskBytes, UnaryOperator<String> converter,
+                                  Function<SpooledText, String> spooledConverter) {
+        this.metricsPublisher = metricsPublisher;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.diskDirectory = diskDirectory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.converter = converter;
+        this.spooledConverter = spooledConverter;
+        metricsPublisher.registerGauge(MetricsConstants.CONVERSION_CACHE_MEMORY_BYTES, this::getMemoryBytes);
+    }
+
+    /**
+     * Returns a cache that holds nothing, so every request is converted.
+     *
+     * @return a disabled cache
+     */
+    public static KindleConversionCache disabled() {
+        return new KindleConversionCache(new MetricsPublisher(), 0, null, 0);
+    }
+
+    /**
+     * Formats the request into its Kindle format, converting its text only if the same text has not been converted
+     * before.
+     *
+     * @param publishRequest contains information about a book to be published
+     * @return returns a kindle formatted book
+     */
+    public KindleFormattedBook format(BookPublishRequest publishRequest) {
+        SpooledText spooledText = publishRequest.getSpooledText();
+        if (spooledText != null) {
+            return KindleFormatConverter.format(publishRequest,
+                convert(spooledText.getDigest(), () -> spooledConverter.apply(spooledText)));
+        }
+        if (publishRequest.getText() == null) {
+            return KindleFormatConverter.format(publishRequest);
+        }
+        return KindleFormatConverter.format(publishRequest, convert(publishRequest.getText()));
+    }
+
+    /**
+     * Returns the Kindle format of the text, from the cache if possible.
+     *
+     * @param text the text to convert
+     * @return the converted text
+     */
+    String convert(String text) {
+        return convert(digest(text), () -> converter.apply(text));
+    }
+
+    private String convert(String digest, Supplier<String> conversionOnMiss) {
+        String converted = getFromMemory(digest);
+        if (converted != null) {
+            metricsPublisher.addCount(MetricsConstants.CONVERSION_CACHE_HIT_COUNT, 1);
+            return converted;
+        }
+
+        CompletableFuture<String> conversion = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(digest, conversion);
+        if (running != null) {
+            metricsPublisher.addCount(MetricsConstants.CONVERSION_CACHE_HIT_COUNT, 1);
+            return await(running);
+        }
+
+        try {
+            // Another caller may have finished converting between the memory lookup and claiming the digest.
+            converted = getFromMemory(digest);
+            if (converted != null) {
+                metricsPublisher.addCount(MetricsConstants.CONVERSION_CACHE_HIT_COUNT, 1);
+            } else {
+                converted = readFromDisk(digest);
+                if (converted != null) {
+                    metricsPublisher.addCount(MetricsConstants.CONVERSION_CACHE_DISK_HIT_COUNT, 1);
+                } else {
+                    metricsPublisher.addCount(MetricsConstants.CONVERSION_CACHE_MISS_COUNT, 1);
+                    converted = conversionOnMiss.get();
+                    writeToDisk(digest, converted);
+                }
+                putInMemory(digest, converted);
+            }
+            conversion.complete(converted);
+            return converted;
+        } catch (RuntimeException e) {
+            conversion.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(digest, conversion);
+        }
+    }
+
+    /**
+     * Returns the heap held by the text cached in memory.
+     *
+     * @return the cached bytes
+     */
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    private synchronized String getFromMemory(String digest) {
+        return memory.get(digest);
+    }
+
+    private synchronized void putInMemory(String digest, String converted) {
+        long entryBytes = entryBytes(converted);
+        if (entryBytes > maxMemoryBytes) {
+            return;
+        }
+        String previous = memory.put(digest, converted);
+        if (previous != null) {
+            memoryBytes -= entryBytes(previous);
+        }
+        memoryBytes += entryBytes;
+
+        Iterator<String> leastRecentlyUsed = memory.values().iterator();
+        while (memoryBytes > maxMemoryBytes) {
+            memoryBytes -= entryBytes(leastRecentlyUsed.next());
+            leastRecentlyUsed.remove();
+        }
+    }
+
+    private String readFromDisk(String digest) {
+        if (diskDirectory == null) {
+            return null;
+        }
+        Path file = diskDirectory.resolve(digest + DISK_FILE_SUFFIX);
+        try {
+            String converted = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            // Keeps recently read files from being evicted first.
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return converted;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("Unable to read cached Kindle conversion {}", file, e);
+            return null;
+        }
+    }
+
+    private void writeToDisk(String digest, String converted) {
+        if (diskDirectory == null) {
+            return;
+        }
+        byte[] bytes = converted.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxDiskBytes) {
+            return;
+        }
+        synchronized (diskLock) {
+            try {
+                if (diskBytes < 0) {
+                    Files.createDirectories(diskDirectory);
+                    diskBytes = listDiskFiles().stream().mapToLong(KindleConversionCache::sizeOf).sum();
+                }
+
+                // Write to a temporary file first so a crash never leaves a partial conversion behind.
+                Path file = diskDirectory.resolve(digest + DISK_FILE_SUFFIX);
+                Path temporary = Files.createTempFile(diskDirectory, digest, ".tmp");
+                Files.write(temporary, bytes);
+                long replacedBytes = sizeOf(file);
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                diskBytes += bytes.length - replacedBytes;
+
+                if (diskBytes > maxDiskBytes) {
+                    evictFromDisk();
+                }
+            } catch (IOException e) {
+                log.warn("Unable to write Kindle conversion {} to the disk cache", digest, e);
+            }
+        }
+    }
+
+    // Deletes the least recently used files until the disk tier is back under its limit.
+    private void evictFromDisk() throws IOException {
+        List<Path> files = listDiskFiles();
+        files.sort(Comparator.comparingLong(KindleConversionCache::lastModified));
+        for (Path file : files) {
+            if (diskBytes <= maxDiskBytes) {
+                return;
+            }
+            long size = sizeOf(file);
+            Files.deleteIfExists(file);
+            diskBytes -= size;
+        }
+    }
+
+    private List<Path> listDiskFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(diskDirectory, "*" + DISK_FILE_SUFFIX)) {
+            entries.forEach(files::add);
+        }
+        return files;
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // Strings hold two bytes per char on the heap.
+    private static long entryBytes(String converted) {
+        return 2L * converted.length() + ENTRY_OVERHEAD_BYTES;
+    }
+
+    private static String await(CompletableFuture<String> conversion) {
+        try {
+            return conversion.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static String digest(String text) {
+        try {
+            return toHex(MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static String toHex(byte[] hash) {
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
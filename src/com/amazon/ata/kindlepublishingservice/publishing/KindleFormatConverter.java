@@ -2,11 +2,31 @@ package com.amazon.ata.kindlepublishingservice.publishing;
 
 import com.amazon.ata.kindlepublishing.utils.KindleConversionUtils;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ForkJoinPool;
+
 /**
- * Contains methods that help convert a book to its Kindle format.
+ * Contains methods that help convert a book to its Kindle format. Large texts are split at chapter and paragraph
+ * boundaries and the pieces are converted in parallel.
  */
 public final class KindleFormatConverter {
 
+    // Conversion parallelism and the smallest piece worth converting on its own, override with
+    // -Dkindlepublishing.conversion.parallelism=N and -Dkindlepublishing.conversion.minSegmentChars=N
+    private static final int CONVERSION_PARALLELISM = Math.max(1, Integer.getInteger(
+        "kindlepublishing.conversion.parallelism", Runtime.getRuntime().availableProcessors()));
+    private static final int MIN_SEGMENT_CHARS = Integer.getInteger("kindlepublishing.conversion.minSegmentChars",
+        64 * 1024);
+    // Chars of a spooled text read into memory at once, never fewer than parallelism * minSegmentChars, override with
+    // -Dkindlepublishing.conversion.windowChars=N
+    private static final int WINDOW_CHARS = Integer.getInteger("kindlepublishing.conversion.windowChars",
+        1024 * 1024);
+
+    private static final ParallelTextConverter TEXT_CONVERTER = new ParallelTextConverter(
+        new ForkJoinPool(CONVERSION_PARALLELISM), MIN_SEGMENT_CHARS, KindleConversionUtils::convertTextToKindleFormat);
+
     private KindleFormatConverter(){}
 
     /**
@@ -15,8 +35,44 @@ public final class KindleFormatConverter {
      * @return returns a kindle formatted book
      */
     public static KindleFormattedBook format(BookPublishRequest publishRequest) {
+        if (publishRequest.getSpooledText() != null) {
+            return format(publishRequest, convertText(publishRequest.getSpooledText()));
+        }
+        return format(publishRequest, convertText(publishRequest.getText()));
+    }
+
+    /**
+     * Converts the text of a book to its kindle format.
+     * @param text the text to convert
+     * @return the converted text
+     */
+    static String convertText(String text) {
+        return TEXT_CONVERTER.apply(text);
+    }
+
+    /**
+     * Converts the text of a book spooled to disk to its kindle format, reading it a window at a time.
+     * @param text the spooled text to convert
+     * @return the converted text
+     */
+    static String convertText(SpooledText text) {
+        try (Reader reader = text.openReader()) {
+            return TEXT_CONVERTER.apply(reader, WINDOW_CHARS);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read spooled text " + text.getFile(), e);
+        }
+    }
+
+    /**
+     * Formats the book fields in the provided publishRequest, using text that has already been converted to its kindle
+     * format.
+     * @param publishRequest contains information about a book to be published
+     * @param kindleFormattedText the request's text in its kindle format
+     * @return returns a kindle formatted book
+     */
+    static KindleFormattedBook format(BookPublishRequest publishRequest, String kindleFormattedText) {
         return KindleFormattedBook.builder()
-            .withText(KindleConversionUtils.convertTextToKindleFormat(publishRequest.getText()))
+            .withText(kindleFormattedText)
             .withAuthor(publishRequest.getAuthor())
             .withTitle(publishRequest.getTitle())
             .withGenre(publishRequest.getGenre())
@@ -0,0 +1,274 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsConstants;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One node's view of a {@link PublishRequestLeaseStore} shared by every node of the service. Requests added on any
+ * node are taken by whichever node has a worker free: an idle worker leases a few requests at a time and a heartbeat
+ * keeps the leases of requests this node holds alive until they are completed or released. If this node dies its
+ * leases stop being renewed and the requests are taken by another node once the leases expire.
+ *
+ * A lease that could not be renewed, for example after a long pause, is dropped locally and counted, since another
+ * node may already have taken the request.
+ */
+public class LeasedPublishQueue {
+
+    private static final Logger log = LogManager.getLogger(LeasedPublishQueue.class);
+
+    private final PublishRequestLeaseStore store;
+    private final String owner;
+    private final long leaseMillis;
+    private final int prefetch;
+    private final long idlePollMillis;
+    private final MetricsPublisher metricsPublisher;
+    // Leased requests not yet handed to a worker.
+    private final BlockingQueue<BookPublishRequest> leased = new LinkedBlockingQueue<>();
+    // Every request this node holds a lease on, handed out or not, with the attempts made before the lease.
+    private final ConcurrentMap<String, Integer> held = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private ScheduledExecutorService heartbeat;
+
+    /**
+     * Instantiates a new LeasedPublishQueue.
+     *
+     * @param store the store shared by every node
+     * @param owner identifies this node, must be unique among the nodes sharing the store
+     * @param leaseMillis how long a lease lasts without a heartbeat, the heartbeat runs three times per lease
+     * @param prefetch the most requests this node holds leases on at once
+     * @param idlePollMillis how long a waiting worker sleeps between attempts to lease new work
+     * @param metricsPublisher registry the pending requests and lease activity are reported to
+     */
+    public LeasedPublishQueue(PublishRequestLeaseStore store, String owner, long leaseMillis, int prefetch,
+                              long idlePollMillis, MetricsPublisher metricsPublisher) {
+        this.store = store;
+        this.owner = owner;
+        this.leaseMillis = leaseMillis;
+        this.prefetch = prefetch;
+        this.idlePollMillis = idlePollMillis;
+        this.metricsPublisher = metricsPublisher;
+        metricsPublisher.registerGauge(MetricsConstants.LEASED_QUEUE_PENDING_DEPTH, pendingCount::get);
+        metricsPublisher.registerGauge(MetricsConstants.LEASED_QUEUE_HELD_LEASES, held::size);
+    }
+
+    /**
+     * Adds a request any node can take.
+     *
+     * @param request the request to publish
+     */
+    public void add(BookPublishRequest request) {
+        store.put(request);
+        pendingCount.incrementAndGet();
+    }
+
+    /**
+     * Returns the next request this node holds a lease on, leasing more from the store if it holds none.
+     *
+     * @return the next request, or null if no request is available to this node
+     */
+    public BookPublishRequest poll() {
+        BookPublishRequest request = leased.poll();
+        if (request != null) {
+            return request;
+        }
+        acquire();
+        return leased.poll();
+    }
+
+    /**
+     * Returns the next request, waiting up to the given timeout for one to become available on any node.
+     *
+     * @param timeout how long to wait before giving up
+     * @param unit the unit of the timeout
+     * @return the next request, or null if none became available before the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public BookPublishRequest take(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            BookPublishRequest request = poll();
+            if (request != null) {
+                return request;
+            }
+            long waitNanos = deadline - System.nanoTime();
+            if (waitNanos <= 0) {
+                return null;
+            }
+            // Another worker on this node may lease something in the meantime.
+            request = leased.poll(Math.min(waitNanos, TimeUnit.MILLISECONDS.toNanos(idlePollMillis)),
+                TimeUnit.NANOSECONDS);
+            if (request != null) {
+                return request;
+            }
+        }
+    }
+
+    /**
+     * Removes a finished request from the store.
+     *
+     * @param publishingRecordId the publishing record id of the request
+     */
+    public void complete(String publishingRecordId) {
+        if (held.remove(publishingRecordId) == null) {
+            return;
+        }
+        if (store.complete(publishingRecordId, owner)) {
+            pendingCount.decrementAndGet();
+        } else {
+            leaseLost(publishingRecordId);
+        }
+    }
+
+    /**
+     * Gives a request back to the store to be taken again by any node once the delay elapses, counting one more
+     * attempt against it.
+     *
+     * @param request the request to publish again
+     * @param delayMillis how long the request is hidden from every node
+     */
+    public void release(BookPublishRequest request, long delayMillis) {
+        Integer attempts = held.remove(request.getPublishingRecordId());
+        if (attempts == null) {
+            return;
+        }
+        if (!store.release(request.getPublishingRecordId(), owner, delayMillis, attempts + 1)) {
+            leaseLost(request.getPublishingRecordId());
+        }
+    }
+
+    /**
+     * Removes a request from the store if no node is publishing it.
+     *
+     * @param publishingRecordId the publishing record id of the request
+     * @return the removed request, or null if there is no such request or a node holds a lease on it
+     */
+    public BookPublishRequest cancel(String publishingRecordId) {
+        // Leased by this node but not yet handed to a worker, give it back so it can be removed.
+        if (leased.removeIf(request -> publishingRecordId.equals(request.getPublishingRecordId()))) {
+            Integer attempts = held.remove(publishingRecordId);
+            if (attempts != null && !store.release(publishingRecordId, owner, 0, attempts)) {
+                leaseLost(publishingRecordId);
+            }
+        }
+        BookPublishRequest removed = store.remove(publishingRecordId);
+        if (removed != null) {
+            pendingCount.decrementAndGet();
+        }
+        return removed;
+    }
+
+    /**
+     * Returns how many times a request this node holds was attempted before, on any node.
+     *
+     * @param publishingRecordId the publishing record id of the request
+     * @return the number of earlier attempts, zero if this node does not hold the request
+     */
+    public int getAttempts(String publishingRecordId) {
+        return held.getOrDefault(publishingRecordId, 0);
+    }
+
+    /**
+     * Returns the number of requests pending in the store as of the last heartbeat, plus those added since.
+     *
+     * @return the number of pending requests across every node
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Stops the heartbeat and gives every lease this node holds back to the store, so other nodes can take the
+     * requests right away instead of waiting for the leases to expire. Call once the workers have stopped.
+     */
+    public void close() {
+        synchronized (this) {
+            if (heartbeat != null) {
+                heartbeat.shutdownNow();
+                heartbeat = null;
+            }
+        }
+        leased.clear();
+        for (Map.Entry<String, Integer> lease : new ArrayList<>(held.entrySet())) {
+            held.remove(lease.getKey());
+            try {
+                store.release(lease.getKey(), owner, 0, lease.getValue());
+            } catch (RuntimeException e) {
+                log.warn("Unable to release lease on publishing request {}, it is available once the lease expires",
+                    lease.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * Renews every lease this node holds and refreshes the pending count. Runs on the heartbeat thread.
+     */
+    void heartbeat() {
+        for (String publishingRecordId : new ArrayList<>(held.keySet())) {
+            if (!store.renew(publishingRecordId, owner, leaseMillis) && held.remove(publishingRecordId) != null) {
+                leased.removeIf(request -> publishingRecordId.equals(request.getPublishingRecordId()));
+                leaseLost(publishingRecordId);
+            }
+        }
+        pendingCount.set(store.countPending());
+    }
+
+    private synchronized void acquire() {
+        // Another worker may have leased something while this one waited for the lock.
+        if (!leased.isEmpty()) {
+            return;
+        }
+        int wanted = prefetch - held.size();
+        if (wanted <= 0) {
+            return;
+        }
+        List<LeasedPublishRequest> acquired = store.acquire(owner, wanted, leaseMillis);
+        if (acquired.isEmpty()) {
+            return;
+        }
+        startHeartbeat();
+        for (LeasedPublishRequest lease : acquired) {
+            held.put(lease.getRequest().getPublishingRecordId(), lease.getAttempts());
+            leased.add(lease.getRequest());
+        }
+        metricsPublisher.addCount(MetricsConstants.LEASED_QUEUE_ACQUIRED_COUNT, acquired.size());
+    }
+
+    private void startHeartbeat() {
+        if (heartbeat != null) {
+            return;
+        }
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "publish-lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = Math.max(1, leaseMillis / 3);
+        heartbeat.scheduleWithFixedDelay(() -> {
+            try {
+                heartbeat();
+            } catch (RuntimeException e) {
+                // An exception escaping a scheduled run would stop every future heartbeat.
+                log.warn("Unable to renew publish request leases", e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void leaseLost(String publishingRecordId) {
+        log.warn("Lost the lease on publishing request {}, another node may publish it again", publishingRecordId);
+        metricsPublisher.addCount(MetricsConstants.LEASED_QUEUE_LEASE_LOST_COUNT, 1);
+    }
+}
@@ -0,0 +1,29 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+/**
+ * A publish request leased from a {@link PublishRequestLeaseStore}, along with how many times it was attempted before.
+ */
+public final class LeasedPublishRequest {
+
+    private final BookPublishRequest request;
+    private final int attempts;
+
+    /**
+     * Instantiates a new LeasedPublishRequest.
+     *
+     * @param request the leased request
+     * @param attempts the number of times the request was attempted before this lease
+     */
+    public LeasedPublishRequest(BookPublishRequest request, int attempts) {
+        this.request = request;
+        this.attempts = attempts;
+    }
+
+    public BookPublishRequest getRequest() {
+        return request;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+}
@@ -0,0 +1,122 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Spools uploaded manuscripts to files in a directory as they stream in, so the text of a book never has to be held
+ * on the heap while it is received or queued. The digest the {@link KindleConversionCache} keys conversions by is
+ * computed on the way, so a cached conversion can be found without reading the text back.
+ *
+ * Files left behind by the previous run are deleted on first use. Their requests were either never admitted or are
+ * journaled with a link to the text that the journal keeps in its own directory.
+ */
+public class ManuscriptSpool {
+
+    private static final Logger log = LogManager.getLogger(ManuscriptSpool.class);
+
+    private static final String FILE_PREFIX = "manuscript";
+    private static final String FILE_SUFFIX = ".txt";
+    private static final int BUFFER_CHARS = 8192;
+
+    private final Path directory;
+    private boolean opened;
+
+    /**
+     * Instantiates a new ManuscriptSpool. No files are touched until the spool is first used.
+     *
+     * @param directory the directory manuscripts are spooled to, created on first use
+     */
+    public ManuscriptSpool(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Copies UTF-8 text from the stream to a new file in the spool directory. The stream is read to its end but not
+     * closed.
+     *
+     * @param utf8Text the text to spool
+     * @return a handle to the spooled text
+     */
+    public SpooledText spool(InputStream utf8Text) {
+        Path file;
+        try {
+            ensureOpen();
+            file = Files.createTempFile(directory, FILE_PREFIX, FILE_SUFFIX);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create a spool file in " + directory, e);
+        }
+
+        MessageDigest sha256 = sha256();
+        long charCount = 0;
+        // Decode and encode again rather than copy bytes, so the file and digest match the text as a String would.
+        Reader in = new InputStreamReader(utf8Text, StandardCharsets.UTF_8);
+        try (Writer out = new OutputStreamWriter(new DigestOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file)), sha256), StandardCharsets.UTF_8)) {
+            char[] buffer = new char[BUFFER_CHARS];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                charCount += read;
+            }
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw new UncheckedIOException("Unable to spool manuscript to " + file, e);
+        } catch (RuntimeException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+        return new SpooledText(file, charCount, KindleConversionCache.toHex(sha256.digest()));
+    }
+
+    private synchronized void ensureOpen() throws IOException {
+        if (opened) {
+            return;
+        }
+        Files.createDirectories(directory);
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                if (Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} manuscripts spooled by the previous run from {}", deleted, directory);
+        }
+        opened = true;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Unable to delete partial spool file {}", file, e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
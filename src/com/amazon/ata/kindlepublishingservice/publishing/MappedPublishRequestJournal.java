@@ -0,0 +1,582 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.recommendationsservice.types.BookGenre;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of publish requests kept in memory-mapped segment files on local disk.
+ *
+ * Each record is written as its payload length, a CRC32 of the payload and the payload itself. Queued requests are
+ * appended as enqueue records and finished requests as complete records. Appends are made durable by a single flusher
+ * thread that forces the mapped segment to disk, so every append waiting while one force is running is committed by
+ * the next one. Complete records are not waited on, a lost complete record only means the request is replayed.
+ *
+ * When a segment fills up the journal checkpoints: the requests that are still unfinished are written to a fresh
+ * segment, one record at a time, and the old segment is deleted. On first use the journal reads any segments left by
+ * the previous run, stops at the first torn or corrupt record, and checkpoints the unfinished requests so
+ * {@link #recover()} can return them.
+ *
+ * The text of a request spooled to disk is not copied into its record. The spool file is linked into the journal
+ * directory, or copied there if it cannot be linked, and the record holds the name of that file along with the length
+ * and digest of the text. The journal's file outlives the spool file and is deleted once the request completes, so a
+ * record only ever holds a few hundred bytes however long the book is, and journaling never reads the text onto the
+ * heap.
+ */
+public class MappedPublishRequestJournal implements PublishRequestJournal {
+
+    private static final Logger log = LogManager.getLogger(MappedPublishRequestJournal.class);
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final byte ENQUEUE_RECORD = 1;
+    private static final byte COMPLETE_RECORD = 2;
+    private static final byte SPOOLED_ENQUEUE_RECORD = 3;
+    private static final String TEXT_PREFIX = "text-";
+    private static final String TEXT_SUFFIX = ".txt";
+    private static final long FLUSH_RETRY_MILLIS = 100;
+
+    private final Path directory;
+    private final int segmentBytes;
+
+    // Unfinished requests by publishing record id, in the order they were queued.
+    private final Map<String, JournaledRequest> pending = new LinkedHashMap<>();
+    private List<BookPublishRequest> recovered = new ArrayList<>();
+    private Segment segment;
+    private long generation;
+    private long writtenRecords;
+    private long durableRecords;
+    private boolean opened;
+    private boolean closed;
+    private Thread flusher;
+
+    /**
+     * Instantiates a new MappedPublishRequestJournal. No files are touched until the journal is first used.
+     *
+     * @param directory the directory holding the journal's segment files
+     * @param segmentBytes the size of each segment file
+     */
+    public MappedPublishRequestJournal(Path directory, int segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+    }
+
+    @Override
+    public void append(BookPublishRequest request) {
+        appendAll(Collections.singletonList(request));
+    }
+
+    @Override
+    public void appendAll(List<BookPublishRequest> requests) {
+        synchronized (this) {
+            ensureOpen();
+        }
+        // Link the spooled text and encode outside the lock, so concurrent appends share a flush.
+        List<BookPublishRequest> journaled = new ArrayList<>(requests.size());
+        List<byte[]> records = new ArrayList<>(requests.size());
+        try {
+            for (BookPublishRequest request : requests) {
+                BookPublishRequest retained = retainText(request);
+                journaled.add(retained);
+                records.add(encodeEnqueue(retained));
+            }
+        } catch (RuntimeException e) {
+            journaled.forEach(MappedPublishRequestJournal::deleteText);
+            throw e;
+        }
+
+        long lastRecordNumber = 0;
+        synchronized (this) {
+            ensureOpen();
+            for (int i = 0; i < records.size(); i++) {
+                lastRecordNumber = write(records.get(i));
+                pending.put(journaled.get(i).getPublishingRecordId(),
+                    new JournaledRequest(journaled.get(i), RECORD_HEADER_BYTES + records.get(i).length));
+            }
+            notifyAll();
+        }
+        // Records become durable in order, so waiting for the last one covers the batch.
+        awaitDurable(lastRecordNumber);
+    }
+
+    @Override
+    public synchronized void complete(String publishingRecordId) {
+        ensureOpen();
+        JournaledRequest completed = pending.remove(publishingRecordId);
+        if (completed == null) {
+            return;
+        }
+        write(encodeComplete(publishingRecordId));
+        notifyAll();
+        // Should the complete record be lost, the request is found without its text on recovery and dropped.
+        deleteText(completed.request);
+    }
+
+    @Override
+    public synchronized List<BookPublishRequest> recover() {
+        ensureOpen();
+        List<BookPublishRequest> requests = recovered;
+        recovered = new ArrayList<>();
+        return requests;
+    }
+
+    /**
+     * Rewrites the unfinished requests into a fresh segment and deletes the current one.
+     */
+    public synchronized void checkpoint() {
+        ensureOpen();
+        rollSegment(0);
+    }
+
+    @Override
+    public void close() {
+        Thread flusherToJoin;
+        synchronized (this) {
+            if (!opened || closed) {
+                return;
+            }
+            segment.buffer.force();
+            durableRecords = writtenRecords;
+            closed = true;
+            notifyAll();
+            segment.close();
+            flusherToJoin = flusher;
+        }
+        try {
+            flusherToJoin.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of requests that are queued but not finished.
+     *
+     * @return the unfinished request count
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Publish request journal is closed");
+        }
+        if (opened) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(directory);
+            List<Path> previousSegments = listSegments();
+            for (Path previousSegment : previousSegments) {
+                generation = Math.max(generation, parseGeneration(previousSegment));
+                readSegment(previousSegment);
+            }
+            dropRequestsWithoutText();
+            recovered = new ArrayList<>(pending.size());
+            for (JournaledRequest journaledRequest : pending.values()) {
+                recovered.add(journaledRequest.request);
+            }
+
+            rollSegment(0);
+            for (Path previousSegment : previousSegments) {
+                Files.deleteIfExists(previousSegment);
+            }
+            deleteUnreferencedText();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open publish request journal in " + directory, e);
+        }
+
+        if (!recovered.isEmpty()) {
+            log.info("Recovered {} unfinished publish requests from {}", recovered.size(), directory);
+        }
+
+        flusher = new Thread(this::flushLoop, "publish-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        opened = true;
+    }
+
+    // Must hold the lock. Returns the number of the written record.
+    private long write(byte[] payload) {
+        if (segment.buffer.remaining() < RECORD_HEADER_BYTES + payload.length) {
+            rollSegment(RECORD_HEADER_BYTES + payload.length);
+        }
+        putRecord(segment.buffer, payload);
+        return ++writtenRecords;
+    }
+
+    // Must hold the lock. Leaves room for extraBytes after the rewritten requests.
+    private void rollSegment(int extraBytes) {
+        long liveBytes = 0;
+        for (JournaledRequest journaledRequest : pending.values()) {
+            liveBytes += journaledRequest.recordBytes;
+        }
+
+        long size = Math.max(segmentBytes, 2 * liveBytes + extraBytes);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Unfinished publish requests do not fit in a journal segment");
+        }
+
+        Segment previous = segment;
+        try {
+            segment = Segment.create(directory, generation + 1, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create publish request journal segment", e);
+        }
+        generation++;
+
+        // Encoded one at a time, so only a single record is ever held on the heap besides the requests themselves.
+        for (JournaledRequest journaledRequest : pending.values()) {
+            putRecord(segment.buffer, encodeEnqueue(journaledRequest.request));
+        }
+        segment.buffer.force();
+
+        // Every unfinished request is now durable in the new segment.
+        durableRecords = writtenRecords;
+        notifyAll();
+
+        if (previous != null) {
+            previous.close();
+            try {
+                Files.deleteIfExists(previous.path);
+            } catch (IOException e) {
+                log.warn("Unable to delete checkpointed journal segment {}", previous.path, e);
+            }
+        }
+    }
+
+    private void awaitDurable(long recordNumber) {
+        synchronized (this) {
+            while (durableRecords < recordNumber) {
+                if (closed) {
+                    throw new IllegalStateException("Publish request journal closed before the record was durable");
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for the publish request journal", e);
+                }
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            MappedByteBuffer buffer;
+            long target;
+            synchronized (this) {
+                while (!closed && durableRecords >= writtenRecords) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                buffer = segment.buffer;
+                target = writtenRecords;
+            }
+
+            // Appends arriving while this force runs are committed together by the next one.
+            try {
+                buffer.force();
+            } catch (RuntimeException e) {
+                log.error("Unable to flush the publish request journal", e);
+                sleepQuietly(FLUSH_RETRY_MILLIS);
+                continue;
+            }
+
+            synchronized (this) {
+                durableRecords = Math.max(durableRecords, target);
+                notifyAll();
+            }
+        }
+    }
+
+    private void readSegment(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                if (checksum != checksum(payload)) {
+                    log.warn("Ignoring corrupt record and the rest of journal segment {}", path);
+                    break;
+                }
+                applyRecord(payload);
+            }
+        }
+    }
+
+    private void applyRecord(byte[] payload) {
+        ByteBuffer record = ByteBuffer.wrap(payload);
+        byte type = record.get();
+        if (type == ENQUEUE_RECORD || type == SPOOLED_ENQUEUE_RECORD) {
+            String publishingRecordId = readString(record);
+            String bookId = readString(record);
+            String title = readString(record);
+            String author = readString(record);
+            String genre = readString(record);
+            BookPublishRequest.Builder request = BookPublishRequest.builder()
+                .withPublishingRecordId(publishingRecordId)
+                .withBookId(bookId)
+                .withTitle(title)
+                .withAuthor(author)
+                .withGenre(genre == null ? null : BookGenre.valueOf(genre));
+            if (type == SPOOLED_ENQUEUE_RECORD) {
+                Path file = directory.resolve(readString(record));
+                long charCount = record.getLong();
+                request.withSpooledText(new SpooledText(file, charCount, readString(record)));
+            } else {
+                request.withText(readString(record));
+            }
+            pending.put(publishingRecordId,
+                new JournaledRequest(request.build(), RECORD_HEADER_BYTES + payload.length));
+        } else if (type == COMPLETE_RECORD) {
+            pending.remove(readString(record));
+        }
+    }
+
+    // Links the spool file of a spooled request into the journal directory and returns the request reading its text
+    // from there, so the text survives the spool file until the request completes.
+    private BookPublishRequest retainText(BookPublishRequest request) {
+        SpooledText spooledText = request.getSpooledText();
+        if (spooledText == null) {
+            return request;
+        }
+        Path file = directory.resolve(TEXT_PREFIX + request.getPublishingRecordId() + TEXT_SUFFIX);
+        try {
+            Files.deleteIfExists(file);
+            try {
+                Files.createLink(file, spooledText.getFile());
+            } catch (IOException | UnsupportedOperationException e) {
+                // Not linkable, such as a spool on another file system.
+                Files.copy(spooledText.getFile(), file);
+            }
+            // The text must be on disk before the record pointing at it is.
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            deleteText(file);
+            throw new UncheckedIOException("Unable to journal the text of publish request " +
+                request.getPublishingRecordId(), e);
+        }
+        return BookPublishRequest.builder()
+            .withPublishingRecordId(request.getPublishingRecordId())
+            .withBookId(request.getBookId())
+            .withTitle(request.getTitle())
+            .withAuthor(request.getAuthor())
+            .withGenre(request.getGenre())
+            .withSpooledText(new SpooledText(file, spooledText.getCharCount(), spooledText.getDigest()))
+            .build();
+    }
+
+    // A request whose text is gone completed before its complete record was durable, or cannot be published anyway.
+    private void dropRequestsWithoutText() {
+        pending.values().removeIf(journaledRequest -> {
+            SpooledText spooledText = journaledRequest.request.getSpooledText();
+            if (spooledText == null || Files.exists(spooledText.getFile())) {
+                return false;
+            }
+            log.warn("Dropping journaled publish request {}, its text {} no longer exists",
+                journaledRequest.request.getPublishingRecordId(), spooledText.getFile());
+            return true;
+        });
+    }
+
+    private void deleteUnreferencedText() throws IOException {
+        List<Path> referenced = new ArrayList<>();
+        for (JournaledRequest journaledRequest : pending.values()) {
+            if (journaledRequest.request.getSpooledText() != null) {
+                referenced.add(journaledRequest.request.getSpooledText().getFile());
+            }
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, TEXT_PREFIX + "*" + TEXT_SUFFIX)) {
+            for (Path file : files) {
+                if (!referenced.contains(file)) {
+                    deleteText(file);
+                }
+            }
+        }
+    }
+
+    private static void deleteText(BookPublishRequest request) {
+        if (request.getSpooledText() != null) {
+            deleteText(request.getSpooledText().getFile());
+        }
+    }
+
+    private static void deleteText(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Unable to delete journaled text {}", file, e);
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            files.forEach(segments::add);
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static long parseGeneration(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static void putRecord(ByteBuffer buffer, byte[] payload) {
+        buffer.putInt(payload.length);
+        buffer.putInt(checksum(payload));
+        buffer.put(payload);
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    // A spooled request is written with the name of its text file rather than the text itself.
+    private static byte[] encodeEnqueue(BookPublishRequest request) {
+        SpooledText spooledText = request.getSpooledText();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(spooledText == null ? ENQUEUE_RECORD : SPOOLED_ENQUEUE_RECORD);
+            writeString(out, request.getPublishingRecordId());
+            writeString(out, request.getBookId());
+            writeString(out, request.getTitle());
+            writeString(out, request.getAuthor());
+            writeString(out, request.getGenre() == null ? null : request.getGenre().name());
+            if (spooledText == null) {
+                writeString(out, request.getText());
+            } else {
+                writeString(out, spooledText.getFile().getFileName().toString());
+                out.writeLong(spooledText.getCharCount());
+                writeString(out, spooledText.getDigest());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeComplete(String publishingRecordId) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(COMPLETE_RECORD);
+            writeString(out, publishingRecordId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Strings are written as their UTF-8 length and bytes, writeUTF would limit the text to 64KB.
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * An unfinished request as journaled, along with the size of its record.
+     */
+    private static final class JournaledRequest {
+        private final BookPublishRequest request;
+        private final int recordBytes;
+
+        private JournaledRequest(BookPublishRequest request, int recordBytes) {
+            this.request = request;
+            this.recordBytes = recordBytes;
+        }
+    }
+
+    /**
+     * A journal segment file and its writable mapping.
+     */
+    private static final class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        private Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private static Segment create(Path directory, long generation, long size) throws IOException {
+            Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, generation, SEGMENT_SUFFIX));
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            channel.force(true);
+            return new Segment(path, channel, buffer);
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Unable to close journal segment {}", path, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A journal that records nothing. Used when journaling is disabled, queued requests are then lost on restart.
+ */
+public class NoOpPublishRequestJournal implements PublishRequestJournal {
+
+    @Override
+    public void append(BookPublishRequest request) {
+    }
+
+    @Override
+    public void complete(String publishingRecordId) {
+    }
+
+    @Override
+    public List<BookPublishRequest> recover() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void close() {
+    }
+}
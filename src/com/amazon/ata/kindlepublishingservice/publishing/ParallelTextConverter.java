@@ -0,0 +1,235 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Converts large texts by splitting them into segments, converting the segments in parallel on a
+ * {@link ForkJoinPool} and joining the results in their original order.
+ *
+ * Cuts are placed at a chapter heading where one is near, otherwise at a paragraph break, a line break or whitespace,
+ * so a segment never splits a word. A text is split into at most one segment per thread of the pool and every segment
+ * holds at least the configured number of chars, so small texts are converted in a single call. The segment converter
+ * must convert a text the same whether it is whole or in pieces.
+ *
+ * A text spooled to disk can be converted from a {@link Reader} a bounded window at a time, so only the windows being
+ * converted and the converted result are ever on the heap, never the whole original text. Each window is split across
+ * the whole pool like a text of its own, so a spooled text takes one round of segment conversions per window.
+ */
+final class ParallelTextConverter implements UnaryOperator<String> {
+
+    // Keeps a window within the largest array the VM will allocate.
+    private static final int MAX_WINDOW_CHARS = Integer.MAX_VALUE - 8;
+    private static final Pattern CHAPTER_HEADING = Pattern.compile("(?m)^(?:CHAPTER|Chapter|chapter)\\b");
+
+    private final ForkJoinPool pool;
+    private final int minSegmentChars;
+    private final UnaryOperator<String> segmentConverter;
+
+    /**
+     * Instantiates a new ParallelTextConverter.
+     *
+     * @param pool the pool segments are converted on, its parallelism caps the number of segments
+     * @param minSegmentChars the fewest chars in a segment
+     * @param segmentConverter converts a single segment
+     */
+    ParallelTextConverter(ForkJoinPool pool, int minSegmentChars, UnaryOperator<String> segmentConverter) {
+        this.pool = pool;
+        this.minSegmentChars = Math.max(1, minSegmentChars);
+        this.segmentConverter = segmentConverter;
+    }
+
+    @Override
+    public String apply(String text) {
+        List<String> segments = split(text);
+        if (segments.size() == 1) {
+            return segmentConverter.apply(text);
+        }
+
+        String[] converted = new String[segments.size()];
+        pool.invoke(new ConvertSegments(segments, converted, 0, segments.size()));
+        StringBuilder joined = new StringBuilder(text.length());
+        for (String segment : converted) {
+            joined.append(segment);
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Converts the text read from the reader in windows of up to the given number of chars, each cut at the last
+     * paragraph, line or word boundary in it and converted like a whole text. The rest of a window is carried into
+     * the next one.
+     *
+     * A window is never smaller than one full-size segment per thread of the pool, so every window is converted
+     * across the whole pool. The next window is read and queued while the pool converts the one before it, so at most
+     * two windows are on the heap at once.
+     *
+     * @param text the text to convert, read to its end but not closed
+     * @param windowChars the most chars read into memory at once, besides the carried over rest of a window, raised
+     *                    to the pool's parallelism times the fewest chars in a segment
+     * @return the converted text
+     * @throws IOException if the text cannot be read
+     */
+    String apply(Reader text, int windowChars) throws IOException {
+        long poolChars = (long) pool.getParallelism() * minSegmentChars;
+        char[] buffer = new char[(int) Math.min(MAX_WINDOW_CHARS, Math.max(Math.max(2, windowChars), poolChars))];
+        StringBuilder converted = new StringBuilder();
+        ForkJoinTask<String> converting = null;
+        String carried = "";
+        try {
+            while (true) {
+                int filled = 0;
+                int read = 0;
+                while (filled < buffer.length && (read = text.read(buffer, filled, buffer.length - filled)) != -1) {
+                    filled += read;
+                }
+                String window = carried + new String(buffer, 0, filled);
+                if (read == -1) {
+                    if (converting != null) {
+                        converted.append(converting.join());
+                        converting = null;
+                    }
+                    if (!window.isEmpty() || converted.length() == 0) {
+                        converted.append(apply(window));
+                    }
+                    return converted.toString();
+                }
+                int cut = findLastBoundary(window);
+                String segment = window.substring(0, cut);
+                carried = window.substring(cut);
+                ForkJoinTask<String> next = pool.submit(() -> apply(segment));
+                if (converting != null) {
+                    converted.append(converting.join());
+                }
+                converting = next;
+            }
+        } finally {
+            if (converting != null) {
+                converting.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Splits the text into segments of roughly equal size, cutting at the nearest chapter, paragraph, line or word
+     * boundary after each target position.
+     *
+     * @param text the text to split
+     * @return the segments in order, a single segment if the text is too small to split
+     */
+    List<String> split(String text) {
+        if (text == null) {
+            return Collections.singletonList(text);
+        }
+        int segmentCount = (int) Math.min(pool.getParallelism(), text.length() / minSegmentChars);
+        if (segmentCount <= 1) {
+            return Collections.singletonList(text);
+        }
+
+        int targetChars = text.length() / segmentCount;
+        List<String> segments = new ArrayList<>(segmentCount);
+        int start = 0;
+        for (int i = 1; i < segmentCount; i++) {
+            int target = Math.max(start + 1, (int) ((long) text.length() * i / segmentCount));
+            int cut = findBoundary(text, target, Math.min(text.length(), target + targetChars / 2));
+            if (cut <= start || cut >= text.length()) {
+                continue;
+            }
+            segments.add(text.substring(start, cut));
+            start = cut;
+        }
+        segments.add(text.substring(start));
+        return segments;
+    }
+
+    // Returns the best cut at or after from and before limit, or from itself when there is no boundary.
+    private static int findBoundary(String text, int from, int limit) {
+        Matcher chapter = CHAPTER_HEADING.matcher(text).region(from, limit).useAnchoringBounds(false);
+        if (chapter.find()) {
+            return chapter.start();
+        }
+
+        int paragraph = text.indexOf("\n\n", from);
+        if (paragraph >= 0 && paragraph < limit) {
+            return paragraph + 2;
+        }
+
+        int line = text.indexOf('\n', from);
+        if (line >= 0 && line < limit) {
+            return line + 1;
+        }
+
+        for (int i = from; i < limit; i++) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                return i + 1;
+            }
+        }
+
+        // Never split a surrogate pair.
+        return Character.isHighSurrogate(text.charAt(from - 1)) ? from + 1 : from;
+    }
+
+    // Returns the cut after the last paragraph, line or word boundary in the back half of the window, or the end of
+    // the window when there is none.
+    private static int findLastBoundary(String window) {
+        int from = window.length() / 2;
+        int paragraph = window.lastIndexOf("\n\n");
+        if (paragraph >= from) {
+            return paragraph + 2;
+        }
+
+        int line = window.lastIndexOf('\n');
+        if (line >= from) {
+            return line + 1;
+        }
+
+        for (int i = window.length() - 1; i >= from; i--) {
+            if (Character.isWhitespace(window.charAt(i))) {
+                return i + 1;
+            }
+        }
+
+        // Never split a surrogate pair.
+        int end = window.length();
+        return Character.isHighSurrogate(window.charAt(end - 1)) ? end - 1 : end;
+    }
+
+    /**
+     * Converts a range of segments, forking until each task converts a single segment.
+     */
+    private final class ConvertSegments extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> segments;
+        private final String[] converted;
+        private final int from;
+        private final int to;
+
+        private ConvertSegments(List<String> segments, String[] converted, int from, int to) {
+            this.segments = segments;
+            this.converted = converted;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                converted[from] = segmentConverter.apply(segments.get(from));
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ConvertSegments(segments, converted, from, middle),
+                new ConvertSegments(segments, converted, middle, to));
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsConstants;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One stage of the {@link PublishingPipeline}. The stage's threads are the lanes of a {@link StripedExecutor} keyed by
+ * book id: each thread takes jobs from its own bounded queue, does the stage's work on them and hands them to the next
+ * stage, waiting while the next stage's lane is full. Since every job for a book passes through the same lane of every
+ * stage, jobs for a book leave the pipeline in the order they entered it, while jobs for different books run in
+ * parallel. A job that fails is handed to the failure stage instead, skipping the stages in between.
+ */
+final class PipelineStage {
+
+    /**
+     * The work a stage does on each job.
+     */
+    interface Work {
+        void process(PublishingJob job) throws Exception;
+    }
+
+    private static final Logger log = LogManager.getLogger(PipelineStage.class);
+
+    // Upper bound on how long a stop request can go unnoticed by a blocked stage thread.
+    private static final long POLL_MILLIS = 200;
+
+    private final String name;
+    private final StripedExecutor lanes;
+    private final Work work;
+    private final MetricsPublisher metricsPublisher;
+    private final AtomicInteger busyThreads = new AtomicInteger();
+    private PipelineStage next;
+    private PipelineStage failureStage;
+
+    /**
+     * Instantiates a new, stopped PipelineStage.
+     *
+     * @param name identifies the stage in thread names and metrics
+     * @param threadCount the number of jobs the stage works on at once
+     * @param capacity the number of jobs that may wait for the stage, split evenly between its threads
+     * @param work the work done on each job
+     * @param metricsPublisher registry the stage's occupancy and latency are reported to
+     */
+    PipelineStage(String name, int threadCount, int capacity, Work work, MetricsPublisher metricsPublisher) {
+        this(name, threadCount, threadCount, capacity, work, metricsPublisher);
+    }
+
+    /**
+     * Instantiates a new, stopped PipelineStage whose thread count can be changed while it runs.
+     *
+     * @param name identifies the stage in thread names and metrics
+     * @param threadCount the number of jobs the stage works on at once
+     * @param maxThreadCount the most threads the stage can be resized to
+     * @param capacity the number of jobs that may wait for the stage, split evenly between its starting threads
+     * @param work the work done on each job
+     * @param metricsPublisher registry the stage's occupancy and latency are reported to
+     */
+    PipelineStage(String name, int threadCount, int maxThreadCount, int capacity, Work work,
+                  MetricsPublisher metricsPublisher) {
+        this.name = name;
+        this.lanes = new StripedExecutor(String.format(MetricsConstants.PIPELINE_STAGE_LANES, name), threadCount,
+            maxThreadCount, Math.max(1, capacity / Math.max(1, threadCount)), metricsPublisher);
+        this.work = work;
+        this.metricsPublisher = metricsPublisher;
+
+        metricsPublisher.registerGauge(String.format(MetricsConstants.PIPELINE_STAGE_QUEUE_DEPTH, name),
+            lanes::getQueueDepth);
+        metricsPublisher.registerGauge(String.format(MetricsConstants.PIPELINE_STAGE_BUSY_THREADS, name),
+            busyThreads::get);
+    }
+
+    /**
+     * Sets where jobs go after this stage.
+     *
+     * @param next the stage that receives jobs this stage completed, null for the last stage
+     * @param failureStage the stage that receives jobs that failed, null if failures end here
+     */
+    void connect(PipelineStage next, PipelineStage failureStage) {
+        this.next = next;
+        this.failureStage = failureStage;
+    }
+
+    /**
+     * Offers a job to the lane of its book, waiting up to the timeout for room in the lane's queue.
+     *
+     * @param job the job to process
+     * @param timeout how long to wait for room
+     * @param unit the unit of the timeout
+     * @return true if the job was queued, false if the queue stayed full
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean offer(PublishingJob job, long timeout, TimeUnit unit) throws InterruptedException {
+        job.enteredStage();
+        return lanes.offer(job.getBookId(), () -> processJob(job), timeout, unit);
+    }
+
+    void start() {
+        lanes.start();
+    }
+
+    /**
+     * Stops the stage after the jobs its threads are working on. Jobs still waiting in the queues are dropped, the
+     * publish request journal queues them again on the next start.
+     */
+    void stop() {
+        lanes.shutdown();
+    }
+
+    /**
+     * Waits for the stage's threads to exit after {@link #stop()}.
+     *
+     * @param timeoutMillis how long to wait for all of the threads together
+     * @return true if every thread exited in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitStopped(long timeoutMillis) throws InterruptedException {
+        return lanes.awaitTermination(timeoutMillis);
+    }
+
+    /**
+     * Waits for the stage to finish every job queued for it. Only meaningful once nothing hands it new jobs.
+     *
+     * @param timeoutMillis how long to wait
+     * @return true if the stage has no job left, waiting or in progress
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (!lanes.isIdle()) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(Math.min(POLL_MILLIS, 10));
+        }
+        return true;
+    }
+
+    boolean isRunning() {
+        return lanes.isRunning();
+    }
+
+    /**
+     * Changes the number of the stage's threads. Jobs already waiting for the stage keep their thread, so the jobs
+     * for a book stay in order.
+     *
+     * @param threadCount the number of threads to use
+     * @return true if the stage now runs the requested number of threads
+     */
+    boolean resize(int threadCount) {
+        return lanes.resize(threadCount);
+    }
+
+    int getThreadCount() {
+        return lanes.getLaneCount();
+    }
+
+    int getMaxThreadCount() {
+        return lanes.getMaxLaneCount();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getQueueDepth() {
+        return lanes.getQueueDepth();
+    }
+
+    private void processJob(PublishingJob job) {
+        busyThreads.incrementAndGet();
+        long startTime = System.nanoTime();
+        metricsPublisher.recordLatency(String.format(MetricsConstants.PIPELINE_STAGE_WAIT_TIME, name),
+            startTime - job.getStageEnteredNanos());
+        try {
+            work.process(job);
+        } catch (Exception e) {
+            log.error("Publishing stage {} failed to process request {}", name, job.getPublishingRecordId(), e);
+            job.fail("Exception during processing", e);
+            metricsPublisher.addCount(String.format(MetricsConstants.PIPELINE_STAGE_FAILED_COUNT, name), 1);
+        } finally {
+            metricsPublisher.recordLatency(String.format(MetricsConstants.PIPELINE_STAGE_LATENCY, name),
+                System.nanoTime() - startTime);
+            busyThreads.decrementAndGet();
+        }
+
+        PipelineStage target = job.isFailed() ? failureStage : next;
+        if (target == this || target == null) {
+            return;
+        }
+        try {
+            handOff(target, job);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handOff(PipelineStage target, PublishingJob job) throws InterruptedException {
+        // Keep waiting while the target runs, even if this stage is stopping, so a book that was saved always reaches
+        // the publish status stage.
+        while (!target.offer(job, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (!target.isRunning()) {
+                log.warn("Publishing stage {} stopped before request {} could move to stage {}", name,
+                    job.getPublishingRecordId(), target.getName());
+                return;
+            }
+        }
+    }
+}
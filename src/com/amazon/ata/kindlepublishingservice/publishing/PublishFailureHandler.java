@@ -0,0 +1,133 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
+import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsConstants;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides what happens to a publish request whose publish threw. A transient failure, such as DynamoDB throttling, is
+ * retried after an exponential backoff by scheduling the request back into the {@link BookPublishRequestManager}, so
+ * the worker moves on instead of waiting out the delay. A request that fails for any other reason, or keeps failing
+ * after the last attempt, is written to the {@link DeadLetterStore} and marked FAILED. Dead letters can be published
+ * again with {@link #replayDeadLetter(String)}.
+ */
+public class PublishFailureHandler {
+
+    private static final Logger log = LogManager.getLogger(PublishFailureHandler.class);
+
+    private static final String FAILURE_MESSAGE = "Exception during processing";
+
+    private final BookPublishRequestManager bookPublishRequestManager;
+    private final PublishingStatusDao publishingStatusDao;
+    private final PublishRetryPolicy retryPolicy;
+    private final DeadLetterStore deadLetterStore;
+    private final MetricsPublisher metricsPublisher;
+
+    /**
+     * Instantiates a new PublishFailureHandler.
+     *
+     * @param bookPublishRequestManager the queue retries are scheduled into
+     * @param publishingStatusDao the DAO final statuses are written to
+     * @param retryPolicy decides which failures are retried and when
+     * @param deadLetterStore keeps the requests that are given up on
+     * @param metricsPublisher registry retries and dead letters are counted in
+     */
+    public PublishFailureHandler(BookPublishRequestManager bookPublishRequestManager,
+                                 PublishingStatusDao publishingStatusDao, PublishRetryPolicy retryPolicy,
+                                 DeadLetterStore deadLetterStore, MetricsPublisher metricsPublisher) {
+        this.bookPublishRequestManager = bookPublishRequestManager;
+        this.publishingStatusDao = publishingStatusDao;
+        this.retryPolicy = retryPolicy;
+        this.deadLetterStore = deadLetterStore;
+        this.metricsPublisher = metricsPublisher;
+    }
+
+    /**
+     * Schedules a retry of a request whose publish threw, or gives up on it and records it as FAILED.
+     *
+     * @param request the request that failed
+     * @param bookId the id of the book being published, null if the book was not created yet
+     * @param failure what the publish threw
+     */
+    public void handleFailure(BookPublishRequest request, String bookId, Exception failure) {
+        String publishingRecordId = request.getPublishingRecordId();
+        int retries = bookPublishRequestManager.getRetryCount(publishingRecordId);
+
+        if (retryPolicy.shouldRetry(failure, retries)) {
+            long delayMillis = retryPolicy.backoffMillis(retries + 1);
+            BookPublishRequest newer = bookPublishRequestManager.scheduleRetry(request, delayMillis,
+                TimeUnit.MILLISECONDS);
+            if (newer == null) {
+                log.warn("Publishing request {} failed, retry {} of {} in {} ms", publishingRecordId, retries + 1,
+                    retryPolicy.getMaxAttempts() - 1, delayMillis, failure);
+                metricsPublisher.addCount(MetricsConstants.PUBLISH_RETRY_COUNT, 1);
+                return;
+            }
+
+            // A newer submission for the book is already waiting, publishing this one again would overwrite it.
+            publishingStatusDao.setPublishingStatus(publishingRecordId, PublishingRecordStatus.SUPERSEDED, bookId,
+                "Superseded by publishing record " + newer.getPublishingRecordId());
+            bookPublishRequestManager.markBookPublishRequestComplete(publishingRecordId);
+            return;
+        }
+
+        log.error("Publishing request {} failed after {} attempts, moving it to the dead-letter store",
+            publishingRecordId, retries + 1, failure);
+        try {
+            // The request's spool file is deleted once it is marked complete below.
+            deadLetterStore.add(new DeadLetter(request.withTextInMemory(), retries + 1, String.valueOf(failure),
+                System.currentTimeMillis()));
+            metricsPublisher.addCount(MetricsConstants.PUBLISH_DEAD_LETTERED_COUNT, 1);
+        } catch (RuntimeException e) {
+            log.error("Unable to write dead letter for publishing request {}", publishingRecordId, e);
+        }
+        publishingStatusDao.setPublishingStatus(publishingRecordId, PublishingRecordStatus.FAILED, bookId,
+            FAILURE_MESSAGE);
+        bookPublishRequestManager.markBookPublishRequestComplete(publishingRecordId);
+    }
+
+    /**
+     * Removes a request from the dead-letter store and queues it for publishing again under the same publishing
+     * record. An earlier request for the same book that is still queued is marked SUPERSEDED.
+     *
+     * @param publishingRecordId the publishing record id of the dead letter
+     * @return the queued request, or null if there is no dead letter for the publishing record
+     * @throws com.amazon.ata.kindlepublishingservice.exceptions.PublishingQueueFullException if the queue is at
+     *         capacity, the dead letter is then kept
+     */
+    public BookPublishRequest replayDeadLetter(String publishingRecordId) {
+        DeadLetter deadLetter = deadLetterStore.get(publishingRecordId);
+        if (deadLetter == null) {
+            return null;
+        }
+        BookPublishRequest request = deadLetter.getRequest();
+        bookPublishRequestManager.ensureCapacityFor(request);
+        deadLetterStore.remove(publishingRecordId);
+
+        BookPublishRequest superseded = bookPublishRequestManager.addBookPublishRequest(request);
+        publishingStatusDao.setPublishingStatus(publishingRecordId, PublishingRecordStatus.QUEUED,
+            request.getBookId());
+        if (superseded != null) {
+            publishingStatusDao.setPublishingStatus(superseded.getPublishingRecordId(),
+                PublishingRecordStatus.SUPERSEDED, superseded.getBookId(),
+                "Superseded by publishing record " + publishingRecordId);
+        }
+        log.info("Replayed dead letter {} after {} failed attempts", publishingRecordId, deadLetter.getAttempts());
+        return request;
+    }
+
+    /**
+     * Returns every dead letter, oldest failure first.
+     *
+     * @return the requests that were given up on
+     */
+    public List<DeadLetter> listDeadLetters() {
+        return deadLetterStore.list();
+    }
+}
@@ -0,0 +1,116 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How the {@link BookPublishRequestManager} orders the requests waiting in its queue. In FIFO order requests are
+ * published in the order they were submitted. In fair order every author is a tenant with its own queue and the
+ * authors take turns, so an author submitting thousands of revisions cannot starve the rest. An author with a weight
+ * gets that many requests per turn, authors without one get a single request.
+ */
+public final class PublishQueueFairness {
+
+    private static final String FIFO_TENANT = "";
+    private static final String UNKNOWN_AUTHOR = "";
+
+    private final boolean byAuthor;
+    private final Map<String, Integer> authorWeights;
+
+    private PublishQueueFairness(boolean byAuthor, Map<String, Integer> authorWeights) {
+        this.byAuthor = byAuthor;
+        this.authorWeights = authorWeights;
+    }
+
+    /**
+     * Returns the order that publishes requests in the order they were submitted.
+     *
+     * @return FIFO order
+     */
+    public static PublishQueueFairness fifo() {
+        return new PublishQueueFairness(false, Collections.emptyMap());
+    }
+
+    /**
+     * Returns the order that lets authors take turns.
+     *
+     * @param authorWeights the number of requests per turn of the authors that get more than one
+     * @return fair order by author
+     */
+    public static PublishQueueFairness byAuthor(Map<String, Integer> authorWeights) {
+        return new PublishQueueFairness(true, new HashMap<>(authorWeights));
+    }
+
+    /**
+     * Parses author weights written as {@code author=weight} pairs separated by semicolons, for example
+     * {@code Jane Austen=4;Big House Publishing=2}. Author names may contain commas and spaces, leading and trailing
+     * spaces are ignored.
+     *
+     * @param spec the weights, may be null or empty
+     * @return the weight of every author in the spec
+     * @throws IllegalArgumentException if a pair has no author or its weight is not a positive number
+     */
+    public static Map<String, Integer> parseWeights(String spec) {
+        Map<String, Integer> weights = new HashMap<>();
+        if (spec == null) {
+            return weights;
+        }
+        for (String pair : spec.split(";")) {
+            if (pair.trim().isEmpty()) {
+                continue;
+            }
+            int separator = pair.lastIndexOf('=');
+            String author = separator < 0 ? "" : pair.substring(0, separator).trim();
+            int weight;
+            try {
+                weight = separator < 0 ? 0 : Integer.parseInt(pair.substring(separator + 1).trim());
+            } catch (NumberFormatException e) {
+                weight = 0;
+            }
+            if (author.isEmpty() || weight < 1) {
+                throw new IllegalArgumentException(String.format("Invalid author weight '%s', expected " +
+                    "author=weight with a positive weight", pair.trim()));
+            }
+            weights.put(author, weight);
+        }
+        return weights;
+    }
+
+    public boolean isByAuthor() {
+        return byAuthor;
+    }
+
+    /**
+     * Returns the tenant a request is queued for.
+     *
+     * @param request the request
+     * @return the request's author in fair order, the same tenant for every request in FIFO order
+     */
+    String tenantOf(BookPublishRequest request) {
+        return tenantOfAuthor(request.getAuthor());
+    }
+
+    /**
+     * Returns the tenant the requests of an author are queued for.
+     *
+     * @param author the author, may be null
+     * @return the author in fair order, the same tenant for every author in FIFO order
+     */
+    String tenantOfAuthor(String author) {
+        if (!byAuthor) {
+            return FIFO_TENANT;
+        }
+        return author == null ? UNKNOWN_AUTHOR : author;
+    }
+
+    /**
+     * Returns the number of requests a tenant gets per turn.
+     *
+     * @param tenant the tenant
+     * @return the tenant's weight, one if it has none
+     */
+    int weightOf(String tenant) {
+        return authorWeights.getOrDefault(tenant, 1);
+    }
+}
@@ -0,0 +1,49 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import java.util.List;
+
+/**
+ * Durable record of the book publish requests that have been queued but not yet finished, so they survive a restart
+ * of the service.
+ */
+public interface PublishRequestJournal {
+
+    /**
+     * Records that a request was queued. Returns once the record is durable.
+     *
+     * @param request the queued request
+     */
+    void append(BookPublishRequest request);
+
+    /**
+     * Records that several requests were queued. Returns once every record is durable, implementations should make
+     * the whole batch durable at once rather than one request at a time.
+     *
+     * @param requests the queued requests
+     */
+    default void appendAll(List<BookPublishRequest> requests) {
+        for (BookPublishRequest request : requests) {
+            append(request);
+        }
+    }
+
+    /**
+     * Records that a request reached a final publishing status and no longer needs to be replayed.
+     *
+     * @param publishingRecordId the publishing record id of the finished request
+     */
+    void complete(String publishingRecordId);
+
+    /**
+     * Returns the requests that were queued but not finished before the last shutdown, in the order they were
+     * queued. Each request is returned once; later calls return an empty list.
+     *
+     * @return the unfinished requests to queue again
+     */
+    List<BookPublishRequest> recover();
+
+    /**
+     * Flushes anything outstanding and releases the journal's files.
+     */
+    void close();
+}
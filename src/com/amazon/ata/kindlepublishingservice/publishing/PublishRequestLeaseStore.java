@@ -0,0 +1,77 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import java.util.List;
+
+/**
+ * Shared storage of pending publish requests that several service nodes take work from. A node takes a request by
+ * acquiring a lease on it, which hides the request from every other node until the lease expires, and keeps the lease
+ * alive with heartbeats while it works on the request. If the node dies its leases expire and any other node can take
+ * the requests. Every change is a conditional write, so two nodes never hold the same lease.
+ *
+ * A book's requests are leased one at a time and oldest first: while a node holds a lease on one request for a book,
+ * no node can lease another request for that book.
+ */
+public interface PublishRequestLeaseStore {
+
+    /**
+     * Adds a request that any node can lease right away.
+     *
+     * @param request the request to publish
+     */
+    void put(BookPublishRequest request);
+
+    /**
+     * Leases up to the given number of requests that are not leased by any node, oldest first.
+     *
+     * @param owner identifies the node taking the leases
+     * @param maxRequests the most requests to lease
+     * @param leaseMillis how long the leases last without a heartbeat
+     * @return the leased requests, empty if none are available
+     */
+    List<LeasedPublishRequest> acquire(String owner, int maxRequests, long leaseMillis);
+
+    /**
+     * Extends a lease held by the owner.
+     *
+     * @param publishingRecordId the publishing record id of the leased request
+     * @param owner the node holding the lease
+     * @param leaseMillis how long the lease lasts from now
+     * @return false if the owner no longer holds the lease
+     */
+    boolean renew(String publishingRecordId, String owner, long leaseMillis);
+
+    /**
+     * Removes a request the owner finished.
+     *
+     * @param publishingRecordId the publishing record id of the leased request
+     * @param owner the node holding the lease
+     * @return false if the owner no longer holds the lease, the request is then left for its new owner
+     */
+    boolean complete(String publishingRecordId, String owner);
+
+    /**
+     * Gives up a lease so the request can be leased again once the delay elapses.
+     *
+     * @param publishingRecordId the publishing record id of the leased request
+     * @param owner the node holding the lease
+     * @param delayMillis how long the request stays hidden from every node
+     * @param attempts the number of times the request has been attempted, kept with the request
+     * @return false if the owner no longer holds the lease
+     */
+    boolean release(String publishingRecordId, String owner, long delayMillis, int attempts);
+
+    /**
+     * Removes a request that no node holds a lease on, such as one waiting to retry.
+     *
+     * @param publishingRecordId the publishing record id of the request
+     * @return the removed request, or null if there is no such request or a node holds a lease on it
+     */
+    BookPublishRequest remove(String publishingRecordId);
+
+    /**
+     * Returns the number of requests that are pending, leased or not.
+     *
+     * @return the number of pending requests
+     */
+    int countPending();
+}
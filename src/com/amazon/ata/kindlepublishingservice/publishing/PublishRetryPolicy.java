@@ -0,0 +1,86 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.retry.RetryUtils;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a failed publish is worth retrying and how long to wait before the retry.
+ *
+ * Only transient AWS failures are retried: throttling, 5xx responses, clock skew and client errors such as timeouts
+ * that the SDK marks retryable. Anything else, such as a validation error or a bug, fails the same way every time.
+ * The delay doubles with every retry up to a cap, and a random half of it is dropped so requests that failed
+ * together, such as during a throttling spike, do not retry together.
+ */
+public class PublishRetryPolicy {
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    /**
+     * Instantiates a new PublishRetryPolicy.
+     *
+     * @param maxAttempts the most times a request is published, including the first attempt
+     * @param baseDelayMillis the delay before the first retry, before jitter
+     * @param maxDelayMillis the longest delay before any retry, before jitter
+     */
+    public PublishRetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = Math.max(1, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+    }
+
+    /**
+     * Returns whether a request that failed should be published again.
+     *
+     * @param failure what the publish threw
+     * @param retries the number of times the request has already been retried
+     * @return true if the failure is transient and the request has attempts left
+     */
+    public boolean shouldRetry(Throwable failure, int retries) {
+        return retries + 1 < maxAttempts && isRetryable(failure);
+    }
+
+    /**
+     * Returns whether a failure is transient, looking through the exception's causes.
+     *
+     * @param failure what the publish threw
+     * @return true if the same publish may succeed later
+     */
+    public boolean isRetryable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof AmazonServiceException) {
+                AmazonServiceException serviceException = (AmazonServiceException) cause;
+                return RetryUtils.isThrottlingException(serviceException)
+                    || RetryUtils.isRetryableServiceException(serviceException)
+                    || RetryUtils.isClockSkewError(serviceException);
+            }
+            if (cause instanceof SdkClientException) {
+                return ((SdkClientException) cause).isRetryable();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns how long to wait before a retry: the exponential delay for the retry, less a random amount of up to
+     * half of it.
+     *
+     * @param retry the retry about to be scheduled, starting at 1
+     * @return the delay in milliseconds
+     */
+    public long backoffMillis(int retry) {
+        long delay = baseDelayMillis << Math.min(Math.max(0, retry - 1), 30);
+        if (delay <= 0 || delay > maxDelayMillis) {
+            delay = maxDelayMillis;
+        }
+        return delay - ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+}
@@ -0,0 +1,83 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
+import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Records that a request was published, once its book is saved to the catalog, and completes the request.
+ *
+ * From then on the request must never reach the {@link PublishFailureHandler}: a retry would save the book again as a
+ * duplicate catalog version and a dead letter would write FAILED over a successful publish. So only the SUCCESSFUL
+ * status write is retried, in place, while the {@link PublishRetryPolicy} deems its failure transient. The request is
+ * completed whether or not the status could be written, and a failure to complete it is only logged.
+ */
+public class PublishSuccessRecorder {
+
+    private static final Logger log = LogManager.getLogger(PublishSuccessRecorder.class);
+
+    private final PublishingStatusDao publishingStatusDao;
+    private final BookPublishRequestManager bookPublishRequestManager;
+    private final PublishRetryPolicy retryPolicy;
+
+    /**
+     * Instantiates a new PublishSuccessRecorder.
+     *
+     * @param publishingStatusDao the DAO the SUCCESSFUL status is written to
+     * @param bookPublishRequestManager the queue published requests are completed in
+     * @param retryPolicy decides which failed status writes are retried and when
+     */
+    public PublishSuccessRecorder(PublishingStatusDao publishingStatusDao,
+                                  BookPublishRequestManager bookPublishRequestManager,
+                                  PublishRetryPolicy retryPolicy) {
+        this.publishingStatusDao = publishingStatusDao;
+        this.bookPublishRequestManager = bookPublishRequestManager;
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Writes the SUCCESSFUL status of a request whose book is saved to the catalog, then completes the request.
+     * Never throws.
+     *
+     * @param publishingRecordId the publishing record id of the request
+     * @param bookId the id of the published book
+     */
+    public void recordSuccess(String publishingRecordId, String bookId) {
+        writeSuccessfulStatus(publishingRecordId, bookId);
+        try {
+            bookPublishRequestManager.markBookPublishRequestComplete(publishingRecordId);
+        } catch (RuntimeException e) {
+            log.error("Unable to complete published request {}, it may be published again after a restart",
+                publishingRecordId, e);
+        }
+    }
+
+    private void writeSuccessfulStatus(String publishingRecordId, String bookId) {
+        for (int retries = 0; ; retries++) {
+            try {
+                publishingStatusDao.setPublishingStatus(publishingRecordId, PublishingRecordStatus.SUCCESSFUL, bookId);
+                return;
+            } catch (RuntimeException e) {
+                if (!retryPolicy.shouldRetry(e, retries) || !sleep(retryPolicy.backoffMillis(retries + 1))) {
+                    log.error("Published book {} but unable to record publishing request {} as SUCCESSFUL", bookId,
+                        publishingRecordId, e);
+                    return;
+                }
+                log.warn("Unable to record publishing request {} as SUCCESSFUL, retry {} of {}", publishingRecordId,
+                    retries + 1, retryPolicy.getMaxAttempts() - 1, e);
+            }
+        }
+    }
+
+    // Returns false if interrupted, so a stopping worker gives up on the status rather than delaying the stop.
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.metrics.LatencyStats;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsConstants;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically resizes the {@link BookPublisher} between a minimum and a maximum worker count.
+ *
+ * Every evaluation reads the depth of the publish queue, the age of its oldest request, the average latency of the
+ * DynamoDB calls made while publishing since the last evaluation and the number of publishes retried since then,
+ * which counts throttled and timed out calls. Retries or latency above the limit mean DynamoDB is struggling, so the
+ * worker count is halved. Otherwise a backlog, requests waiting longer than the target age or more than a few per
+ * worker, adds half again as many workers, but only while latency stays well under the limit. A queue that stays
+ * nearly empty and fresh gives back one worker at a time.
+ *
+ * To keep the count from flapping, the thresholds for adding and removing workers are far apart, a condition has to
+ * hold for several evaluations in a row before it acts, and no decision is made for a few evaluations after a resize
+ * while its effect shows up in the signals. Every resize is logged with the signals that caused it.
+ */
+public class PublishWorkerAutoscaler {
+
+    private static final Logger log = LogManager.getLogger(PublishWorkerAutoscaler.class);
+
+    // Consecutive evaluations a condition must hold before the worker count changes.
+    private static final int SCALE_UP_EVALUATIONS = 2;
+    private static final int SCALE_DOWN_EVALUATIONS = 6;
+    private static final int BACK_OFF_EVALUATIONS = 2;
+    // Evaluations skipped after a resize.
+    private static final int COOLDOWN_EVALUATIONS = 3;
+    // More queued requests than this per worker is a backlog, fewer than one per worker is idle.
+    private static final int BACKLOG_PER_WORKER = 4;
+    // Workers are only added while latency is below this share of the limit.
+    private static final double LATENCY_HEADROOM = 0.75;
+
+    private final BookPublisher bookPublisher;
+    private final BookPublishRequestManager bookPublishRequestManager;
+    private final MetricsPublisher metricsPublisher;
+    private final List<String> latencyMetrics;
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final long intervalSeconds;
+    private final long targetQueueAgeMillis;
+    private final long latencyLimitMillis;
+    // Readings of each latency metric and of the retry counter at the last evaluation.
+    private final Map<String, long[]> lastLatencyReadings = new HashMap<>();
+    private long lastRetryCount;
+    private int scaleUpStreak;
+    private int scaleDownStreak;
+    private int backOffStreak;
+    private int cooldown;
+    private ScheduledExecutorService scheduler;
+
+    private PublishWorkerAutoscaler(Builder builder) {
+        this.bookPublisher = builder.bookPublisher;
+        this.bookPublishRequestManager = builder.bookPublishRequestManager;
+        this.metricsPublisher = builder.metricsPublisher;
+        this.latencyMetrics = new ArrayList<>(builder.latencyMetrics);
+        this.maxWorkers = Math.max(1, Math.min(builder.maxWorkers, bookPublisher.getMaxWorkerCount()));
+        this.minWorkers = Math.max(1, Math.min(builder.minWorkers, this.maxWorkers));
+        this.intervalSeconds = builder.intervalSeconds;
+        this.targetQueueAgeMillis = Math.max(1, builder.targetQueueAgeMillis);
+        this.latencyLimitMillis = Math.max(1, builder.latencyLimitMillis);
+        this.lastRetryCount = metricsPublisher.getCount(MetricsConstants.PUBLISH_RETRY_COUNT);
+        metricsPublisher.registerGauge(MetricsConstants.PUBLISH_WORKER_COUNT, bookPublisher::getWorkerCount);
+    }
+
+    /**
+     * Starts evaluating on a daemon thread. Does nothing if the interval is zero or less, or the publisher cannot be
+     * resized.
+     */
+    public synchronized void start() {
+        if (scheduler != null || intervalSeconds <= 0) {
+            return;
+        }
+        if (bookPublisher.getMaxWorkerCount() <= 1) {
+            log.info("Publish worker autoscaling is off, the publisher cannot be resized");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "publish-worker-autoscaler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::evaluate, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        log.info("Autoscaling publish workers between {} and {}, starting at {}", minWorkers, maxWorkers,
+            bookPublisher.getWorkerCount());
+    }
+
+    /**
+     * Stops evaluating, leaving the publisher at its current size.
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * Reads the signals, decides on a worker count and resizes the publisher if it changed.
+     */
+    public void evaluate() {
+        try {
+            int workers = bookPublisher.getWorkerCount();
+            Decision decision = decide(workers, bookPublishRequestManager.getQueueDepth(),
+                bookPublishRequestManager.getOldestQueuedAgeMillis(), readLatencyMillis(), readRetries());
+            if (decision.getWorkerCount() == workers) {
+                return;
+            }
+
+            log.info("Scaling publish workers from {} to {}: {}", workers, decision.getWorkerCount(),
+                decision.getReason());
+            if (!bookPublisher.resizeWorkers(decision.getWorkerCount())) {
+                log.warn("Unable to scale publish workers to {}, now at {}", decision.getWorkerCount(),
+                    bookPublisher.getWorkerCount());
+                metricsPublisher.addCount(MetricsConstants.AUTOSCALER_RESIZE_FAILED_COUNT, 1);
+                return;
+            }
+            metricsPublisher.addCount(decision.getWorkerCount() > workers
+                ? MetricsConstants.AUTOSCALER_SCALE_UP_COUNT : MetricsConstants.AUTOSCALER_SCALE_DOWN_COUNT, 1);
+        } catch (RuntimeException e) {
+            // An exception escaping a scheduled run would cancel every future evaluation.
+            log.warn("Unable to evaluate publish worker count", e);
+        }
+    }
+
+    /**
+     * Decides on the worker count for one evaluation, updating the streaks that provide the hysteresis.
+     *
+     * @param workers the current worker count
+     * @param queueDepth the number of requests waiting to be published
+     * @param oldestQueuedAgeMillis how long the oldest waiting request has waited
+     * @param latencyMillis the average DynamoDB latency since the last evaluation, zero if there were no calls
+     * @param retries the number of publishes retried since the last evaluation
+     * @return the worker count to use and why
+     */
+    Decision decide(int workers, int queueDepth, long oldestQueuedAgeMillis, long latencyMillis, long retries) {
+        if (workers < minWorkers || workers > maxWorkers) {
+            resetStreaks();
+            int bounded = Math.max(minWorkers, Math.min(workers, maxWorkers));
+            return new Decision(bounded, String.format("outside the bounds of %d to %d workers", minWorkers,
+                maxWorkers));
+        }
+        if (cooldown > 0) {
+            cooldown--;
+            return new Decision(workers, "cooling down after a resize");
+        }
+
+        String signals = String.format("queue depth %d, oldest request %d ms, DynamoDB latency %d ms, %d retries",
+            queueDepth, oldestQueuedAgeMillis, latencyMillis, retries);
+
+        if (retries > 0 || latencyMillis > latencyLimitMillis) {
+            scaleUpStreak = 0;
+            scaleDownStreak = 0;
+            if (++backOffStreak >= BACK_OFF_EVALUATIONS && workers > minWorkers) {
+                return resized(Math.max(minWorkers, workers / 2), "DynamoDB is throttling or slow, " + signals);
+            }
+            return new Decision(workers, signals);
+        }
+        backOffStreak = 0;
+
+        boolean backlog = oldestQueuedAgeMillis > targetQueueAgeMillis
+            || queueDepth > (long) workers * BACKLOG_PER_WORKER;
+        if (backlog && latencyMillis < latencyLimitMillis * LATENCY_HEADROOM) {
+            scaleDownStreak = 0;
+            if (++scaleUpStreak >= SCALE_UP_EVALUATIONS && workers < maxWorkers) {
+                return resized(Math.min(maxWorkers, workers + Math.max(1, workers / 2)), "backlog, " + signals);
+            }
+            return new Decision(workers, signals);
+        }
+        scaleUpStreak = 0;
+
+        boolean idle = queueDepth < workers && oldestQueuedAgeMillis < targetQueueAgeMillis / 4;
+        if (idle) {
+            if (++scaleDownStreak >= SCALE_DOWN_EVALUATIONS && workers > minWorkers) {
+                return resized(workers - 1, "idle, " + signals);
+            }
+            return new Decision(workers, signals);
+        }
+        scaleDownStreak = 0;
+        return new Decision(workers, signals);
+    }
+
+    private Decision resized(int workerCount, String reason) {
+        resetStreaks();
+        cooldown = COOLDOWN_EVALUATIONS;
+        return new Decision(workerCount, reason);
+    }
+
+    private void resetStreaks() {
+        scaleUpStreak = 0;
+        scaleDownStreak = 0;
+        backOffStreak = 0;
+    }
+
+    // The largest average latency of the watched metrics over the calls made since the last reading.
+    private long readLatencyMillis() {
+        long latencyNanos = 0;
+        for (String name : latencyMetrics) {
+            LatencyStats stats = metricsPublisher.getLatency(name);
+            long count = stats.getCount();
+            long totalNanos = stats.getTotal(TimeUnit.NANOSECONDS);
+            long[] last = lastLatencyReadings.put(name, new long[] {count, totalNanos});
+            long calls = last == null ? count : count - last[0];
+            long callNanos = last == null ? totalNanos : totalNanos - last[1];
+            if (calls > 0) {
+                latencyNanos = Math.max(latencyNanos, callNanos / calls);
+            }
+        }
+        return TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+    }
+
+    private long readRetries() {
+        long retryCount = metricsPublisher.getCount(MetricsConstants.PUBLISH_RETRY_COUNT);
+        long retries = retryCount - lastRetryCount;
+        lastRetryCount = retryCount;
+        return retries;
+    }
+
+    /**
+     * A worker count along with the signals that led to it.
+     */
+    static final class Decision {
+        private final int workerCount;
+        private final String reason;
+
+        private Decision(int workerCount, String reason) {
+            this.workerCount = workerCount;
+            this.reason = reason;
+        }
+
+        int getWorkerCount() {
+            return workerCount;
+        }
+
+        String getReason() {
+            return reason;
+        }
+    }
+
+    /**
+     * Returns a new PublishWorkerAutoscaler.Builder object.
+     * @return a new PublishWorkerAutoscaler.Builder object.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * PublishWorkerAutoscaler builder static inner class.
+     */
+    public static final class Builder {
+        private BookPublisher bookPublisher;
+        private BookPublishRequestManager bookPublishRequestManager;
+        private MetricsPublisher metricsPublisher;
+        private List<String> latencyMetrics = Collections.emptyList();
+        private int minWorkers = 1;
+        private int maxWorkers = 1;
+        private long intervalSeconds;
+        private long targetQueueAgeMillis = 10000;
+        private long latencyLimitMillis = 200;
+
+        /**
+         * Builder constructor.
+         */
+        //CHECKSTYLE:OFF:HiddenField
+        public Builder() {
+        }
+
+        /**
+         * Sets the publisher that is resized and returns a reference to this Builder so the methods can be chained together.
+         *
+         * @param bookPublisher The publisher that is resized.
+         * @return a reference to this Builder.
+         */
+        public Builder withBookPublisher(BookPublisher bookPublisher) {
+            this.bookPublisher = bookPublisher;
+            return this;
+        }
+
+        /**
+         * Sets the queue whose depth and age are watched and returns a reference to this Builder so the methods can be chained together.
+         *
+         * @param bookPublishRequestManager The queue whose depth and age are watched.
+         * @return a reference to this Builder.
+         */
+        public Builder withBookPublishRequestManager(BookPublishRequestManager bookPublishRequestManager) {
+            this.bookPublishRequestManager = bookPublishRequestManager;
+            return this;
+        }
+
+        /**
+         * Sets the registry latencies and retries are read from and returns a reference to this Builder so the methods can be chained together.
+         *
+         * @param metricsPublisher The registry latencies and retries are read from.
+         * @return a reference to this Builder.
+         */
+        public Builder withMetricsPublisher(MetricsPublisher metricsPublisher) {
+            this.metricsPublisher = metricsPublisher;
+            return this;
+        }
+
+        /**
+         * Sets the latency metrics of the DynamoDB calls made while publishing and returns a reference to this Builder
+         * so the methods can be chained together.
+         *
+         * @param latencyMetrics The names of the latency metrics to watch.
+         * @return a reference to this Builder.
+         */
+        public Builder withLatencyMetrics(List<String> latencyMetrics) {
+            this.latencyMetrics = latencyMetrics;
+            return this;
+        }
+
+        /**
+         * Sets the fewest workers to scale down to and returns a reference to this Builder so the methods can be chained together.
+         *
+         * @param minWorkers The fewest workers to scale down to.
+         * @return a reference to this Builder.
+         */
+        public Builder withMinWorkers(int minWorkers) {
+            this.minWorkers = minWorkers;
+            return this;
+        }
+
+        /**
+         * Sets the most workers to scale up to and returns a reference to this Builder so the methods can be chained
+         * together. It is capped at the most workers the publisher can be resized to.
+         *
+         * @param maxWorkers The most workers to scale up to.
+         * @return a reference to this Builder.
+         */
+        public Builder withMaxWorkers(int maxWorkers) {
+            this.maxWorkers = maxWorkers;
+            return this;
+        }
+
+        /**
+         * Sets the time between evaluations and returns a reference to this Builder so the methods can be chained
+         * together. Zero or less never evaluates.
+         *
+         * @param intervalSeconds The time between evaluations.
+         * @return a reference to this Builder.
+         */
+        public Builder withIntervalSeconds(long intervalSeconds) {
+            this.intervalSeconds = intervalSeconds;
+            return this;
+        }
+
+        /**
+         * Sets how long a request may wait in the queue before workers are added and returns a reference to this
+         * Builder so the methods can be chained together.
+         *
+         * @param targetQueueAgeMillis The age of the oldest request above which workers are added.
+         * @return a reference to this Builder.
+         */
+        public Builder withTargetQueueAgeMillis(long targetQueueAgeMillis) {
+            this.targetQueueAgeMillis = targetQueueAgeMillis;
+            return this;
+        }
+
+        /**
+         * Sets the average DynamoDB latency above which workers are removed and returns a reference to this Builder so
+         * the methods can be chained together.
+         *
+         * @param latencyLimitMillis The average latency above which workers are removed.
+         * @return a reference to this Builder.
+         */
+        public Builder withLatencyLimitMillis(long latencyLimitMillis) {
+            this.latencyLimitMillis = latencyLimitMillis;
+            return this;
+        }
+
+        /**
+         * Returns a PublishWorkerAutoscaler built from the parameters previously set.
+         *
+         * @return a PublishWorkerAutoscaler built with parameters of this PublishWorkerAutoscaler.Builder
+         */
+        public PublishWorkerAutoscaler build() {
+            return new PublishWorkerAutoscaler(this);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+/**
+ * A publish request on its way through the {@link PublishingPipeline}, along with what the stages it has passed
+ * through produced.
+ */
+final class PublishingJob {
+
+    private final BookPublishRequest request;
+    private String bookId;
+    private KindleFormattedBook kindleFormattedBook;
+    private String failureMessage;
+    private Exception failureCause;
+    private long stageEnteredNanos;
+
+    PublishingJob(BookPublishRequest request) {
+        this.request = request;
+        this.bookId = request.getBookId();
+    }
+
+    BookPublishRequest getRequest() {
+        return request;
+    }
+
+    String getPublishingRecordId() {
+        return request.getPublishingRecordId();
+    }
+
+    /**
+     * Returns the id of the book being published. Null for a new book until the persist stage has assigned one.
+     *
+     * @return the book id
+     */
+    String getBookId() {
+        return bookId;
+    }
+
+    void setBookId(String bookId) {
+        this.bookId = bookId;
+    }
+
+    KindleFormattedBook getKindleFormattedBook() {
+        return kindleFormattedBook;
+    }
+
+    void setKindleFormattedBook(KindleFormattedBook kindleFormattedBook) {
+        this.kindleFormattedBook = kindleFormattedBook;
+    }
+
+    /**
+     * Marks the job as failed. A failed job skips the remaining stages and goes straight to the failure stage.
+     *
+     * @param message the message recorded with the FAILED status
+     */
+    void fail(String message) {
+        this.failureMessage = message;
+    }
+
+    /**
+     * Marks the job as failed by an exception, which the publish status stage may retry.
+     *
+     * @param message the message recorded with the FAILED status
+     * @param cause what the stage threw
+     */
+    void fail(String message, Exception cause) {
+        this.failureMessage = message;
+        this.failureCause = cause;
+    }
+
+    boolean isFailed() {
+        return failureMessage != null;
+    }
+
+    String getFailureMessage() {
+        return failureMessage;
+    }
+
+    /**
+     * Returns what failed the job, null if it was not failed or was failed for a known reason.
+     *
+     * @return the exception a stage threw
+     */
+    Exception getFailureCause() {
+        return failureCause;
+    }
+
+    long getStageEnteredNanos() {
+        return stageEnteredNanos;
+    }
+
+    void enteredStage() {
+        this.stageEnteredNanos = System.nanoTime();
+    }
+}
@@ -0,0 +1,463 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.dao.CatalogDao;
+import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
+import com.amazon.ata.kindlepublishingservice.dynamodb.models.CatalogItemVersion;
+import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
+import com.amazon.ata.kindlepublishingservice.exceptions.BookNotFoundException;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes books in four stages connected by bounded queues, so the slow Kindle conversion of one book overlaps with
+ * the DynamoDB reads and writes of others:
+ *
+ * <ol>
+ *     <li>validate: marks the request IN_PROGRESS and checks that a book being updated exists</li>
+ *     <li>convert: converts the book to its Kindle format, through the {@link KindleConversionCache}</li>
+ *     <li>persist: saves the converted book to the catalog</li>
+ *     <li>publish status: records the SUCCESSFUL or FAILED status and completes the request</li>
+ * </ol>
+ *
+ * Each stage has its own thread count. When a stage's queue is full the stage before it waits, so the backlog stays
+ * in the {@link BookPublishRequestManager} where submissions are admitted. A request that fails in any stage goes
+ * straight to the publish status stage to record the failure. With a {@link PublishFailureHandler} configured, a
+ * request that failed with an exception is handed to it there, to retry or dead-letter. A request whose book was
+ * saved is never handed to it, the {@link PublishSuccessRecorder} records its status and completes it.
+ *
+ * The convert and persist stages, which do the slow work, can be resized while the pipeline runs. The pipeline's
+ * worker count is the number of convert threads, and the persist stage keeps the ratio of persist to convert threads
+ * the pipeline was built with.
+ */
+public class PublishingPipeline {
+
+    private static final Logger log = LogManager.getLogger(PublishingPipeline.class);
+
+    // Upper bound on how long a stop request can go unnoticed by the feeder.
+    private static final long POLL_MILLIS = 200;
+
+    private final BookPublishRequestManager bookPublishRequestManager;
+    private final PublishingStatusDao publishingStatusDao;
+    private final CatalogDao catalogDao;
+    private final KindleConversionCache kindleConversionCache;
+    private final PublishFailureHandler publishFailureHandler;
+    private final PublishSuccessRecorder publishSuccessRecorder;
+    private final PipelineStage validateStage;
+    private final PipelineStage convertStage;
+    private final PipelineStage persistStage;
+    private final PipelineStage publishStatusStage;
+    private final List<PipelineStage> stages;
+    private final int convertThreads;
+    private final int persistThreads;
+    private Thread feeder;
+    private volatile boolean running;
+
+    private PublishingPipeline(Builder builder) {
+        this.bookPublishRequestManager = builder.bookPublishRequestManager;
+        this.publishingStatusDao = builder.publishingStatusDao;
+        this.catalogDao = builder.catalogDao;
+        this.kindleConversionCache = builder.kindleConversionCache == null ? KindleConversionCache.disabled()
+            : builder.kindleConversionCache;
+        this.publishFailureHandler = builder.publishFailureHandler;
+        // Without a recorder the SUCCESSFUL status is written once, never retried.
+        this.publishSuccessRecorder = builder.publishSuccessRecorder == null ? new PublishSuccessRecorder(
+            publishingStatusDao, bookPublishRequestManager, new PublishRetryPolicy(1, 1, 1))
+            : builder.publishSuccessRecorder;
+        MetricsPublisher metricsPublisher = builder.metricsPublisher;
+        this.convertThreads = Math.max(1, builder.convertThreads);
+        this.persistThreads = Math.max(1, builder.persistThreads);
+        int maxWorkers = Math.max(convertThreads, builder.maxWorkerCount);
+
+        validateStage = new PipelineStage("Validate", builder.validateThreads, builder.stageCapacity,
+            this::validate, metricsPublisher);
+        convertStage = new PipelineStage("Convert", convertThreads, maxWorkers, builder.stageCapacity,
+            this::convert, metricsPublisher);
+        persistStage = new PipelineStage("Persist", persistThreads, persistThreadsFor(maxWorkers),
+            builder.stageCapacity, this::persist, metricsPublisher);
+        publishStatusStage = new PipelineStage("PublishStatus", builder.publishStatusThreads,
+            builder.stageCapacity, this::recordStatus, metricsPublisher);
+
+        validateStage.connect(convertStage, publishStatusStage);
+        convertStage.connect(persistStage, publishStatusStage);
+        persistStage.connect(publishStatusStage, publishStatusStage);
+        publishStatusStage.connect(null, null);
+        stages = Arrays.asList(validateStage, convertStage, persistStage, publishStatusStage);
+    }
+
+    /**
+     * Starts every stage and begins taking requests from the {@link BookPublishRequestManager}.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        stages.forEach(PipelineStage::start);
+        feeder = new Thread(this::feed, "publish-pipeline-feeder");
+        feeder.setDaemon(true);
+        feeder.start();
+        log.info("Started publishing pipeline");
+    }
+
+    /**
+     * Stops taking requests and waits, up to {@link BookPublisher#STOP_TIMEOUT_MILLIS}, for the jobs the stages are
+     * working on. Jobs still waiting for the validate, convert or persist stage are dropped and not completed in the
+     * journal, so they are published on the next start. The publish status stage stops last, once it has recorded
+     * every job handed to it, since a job there has already saved its book and publishing it again would add a
+     * duplicate version.
+     *
+     * @return true if every stage stopped in time, false if jobs may still finish after the journal is closed
+     */
+    public synchronized boolean stop() {
+        if (!running) {
+            return true;
+        }
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BookPublisher.STOP_TIMEOUT_MILLIS);
+        List<PipelineStage> workStages = Arrays.asList(validateStage, convertStage, persistStage);
+        workStages.forEach(PipelineStage::stop);
+        boolean stopped = true;
+        try {
+            feeder.join(remainingMillis(deadline));
+            for (PipelineStage stage : workStages) {
+                stopped &= stage.awaitStopped(remainingMillis(deadline));
+            }
+            // Nothing hands the publish status stage new jobs once the stages before it have stopped.
+            stopped &= publishStatusStage.awaitIdle(remainingMillis(deadline));
+            publishStatusStage.stop();
+            stopped &= publishStatusStage.awaitStopped(remainingMillis(deadline));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            publishStatusStage.stop();
+            stopped = false;
+        }
+        return stopped;
+    }
+
+    // At least a millisecond, since a join of zero would wait forever.
+    private static long remainingMillis(long deadline) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the number of jobs waiting between stages.
+     *
+     * @return the number of queued jobs across all stages
+     */
+    public int getQueuedJobCount() {
+        return stages.stream().mapToInt(PipelineStage::getQueueDepth).sum();
+    }
+
+    /**
+     * Returns the number of books the pipeline converts at once.
+     *
+     * @return the number of convert stage threads
+     */
+    public int getWorkerCount() {
+        return convertStage.getThreadCount();
+    }
+
+    public int getMaxWorkerCount() {
+        return convertStage.getMaxThreadCount();
+    }
+
+    /**
+     * Changes the number of convert stage threads, and the number of persist stage threads along with it. Takes
+     * effect at once: jobs already waiting for a stage keep their thread, new jobs spread over the new thread count.
+     *
+     * @param workerCount the number of convert stage threads, capped at the maximum the pipeline was built with
+     * @return true if both stages now run the requested number of threads
+     */
+    public boolean resizeWorkers(int workerCount) {
+        int workers = Math.max(1, Math.min(workerCount, getMaxWorkerCount()));
+        return convertStage.resize(workers)
+            && persistStage.resize(persistThreadsFor(workers))
+            && workers == workerCount;
+    }
+
+    private int persistThreadsFor(int workers) {
+        return Math.max(1, (int) Math.round((double) workers * persistThreads / convertThreads));
+    }
+
+    private void feed() {
+        while (running) {
+            BookPublishRequest request;
+            try {
+                request = bookPublishRequestManager.takeBookPublishRequest(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (request == null) {
+                    continue;
+                }
+                PublishingJob job = new PublishingJob(request);
+                while (!validateStage.offer(job, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (!running) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void validate(PublishingJob job) {
+        publishingStatusDao.setPublishingStatus(job.getPublishingRecordId(), PublishingRecordStatus.IN_PROGRESS,
+            job.getBookId());
+
+        // Fail an update of a missing book before spending time converting it.
+        if (job.getBookId() != null) {
+            try {
+                catalogDao.validateBookExists(job.getBookId());
+            } catch (BookNotFoundException e) {
+                job.fail("Book to update does not exist");
+            }
+        }
+    }
+
+    private void convert(PublishingJob job) {
+        job.setKindleFormattedBook(kindleConversionCache.format(job.getRequest()));
+    }
+
+    private void persist(PublishingJob job) {
+        try {
+            CatalogItemVersion catalogItemVersion = catalogDao.createOrUpdateBook(job.getKindleFormattedBook());
+            job.setBookId(catalogItemVersion.getBookId());
+        } catch (BookNotFoundException e) {
+            job.fail("Book to update does not exist");
+        }
+    }
+
+    private void recordStatus(PublishingJob job) {
+        if (!job.isFailed()) {
+            // The book is saved, a retry or dead letter from here on would publish it twice or mark it FAILED.
+            publishSuccessRecorder.recordSuccess(job.getPublishingRecordId(), job.getBookId());
+            return;
+        }
+        try {
+            if (job.getFailureCause() != null && publishFailureHandler != null) {
+                publishFailureHandler.handleFailure(job.getRequest(), job.getBookId(), job.getFailureCause());
+                return;
+            }
+            publishingStatusDao.setPublishingStatus(job.getPublishingRecordId(), PublishingRecordStatus.FAILED,
+                job.getBookId(), job.getFailureMessage());
+            bookPublishRequestManager.markBookPublishRequestComplete(job.getPublishingRecordId());
+        } catch (RuntimeException e) {
+            // This is the last stage, nothing after it would complete the request or move it out of IN_PROGRESS.
+            log.error("Unable to record the status of publishing request {}", job.getPublishingRecordId(), e);
+            handleStatusFailure(job, e);
+        }
+    }
+
+    private void handleStatusFailure(PublishingJob job, Exception failure) {
+        try {
+            if (publishFailureHandler != null && job.getFailureCause() == null) {
+                publishFailureHandler.handleFailure(job.getRequest(), job.getBookId(), failure);
+                return;
+            }
+            publishingStatusDao.setPublishingStatus(job.getPublishingRecordId(), PublishingRecordStatus.FAILED,
+                job.getBookId(), "Exception during processing");
+        } catch (RuntimeException e) {
+            log.error("Unable to record the failure of publishing request {}", job.getPublishingRecordId(), e);
+        }
+        bookPublishRequestManager.markBookPublishRequestComplete(job.getPublishingRecordId());
+    }
+
+    /**
+     * Returns a new PublishingPipeline.Builder object.
+     * @return a new PublishingPipeline.Builder object.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * PublishingPipeline builder static inner class. Every stage defaults to one thread.
+     */
+    public static final class Builder {
+        private BookPublishRequestManager bookPublishRequestManager;
+        private PublishingStatusDao publishingStatusDao;
+        private CatalogDao catalogDao;
+        private MetricsPublisher metricsPublisher;
+        private KindleConversionCache kindleConversionCache;
+        private PublishFailureHandler publishFailureHandler;
+        private PublishSuccessRecorder publishSuccessRecorder;
+        private int validateThreads = 1;
+        private int convertThreads = 1;
+        private int persistThreads = 1;
+        private int publishStatusThreads = 1;
+        private int stageCapacity = 16;
+        private int maxWorkerCount;
+
+        /**
+         * Builder constructor.
+         */
+        //CHECKSTYLE:OFF:HiddenField
+        public Builder() {
+        }
+
+        /**
+         * Sets the queue the pipeline takes requests from and returns a reference to this Builder so the methods can be chained together.
+         *
+         * @param bookPublishRequestManager The queue the pipeline takes requests from.
+         * @return a reference to this Builder.
+         */
+        public Builder withBookPublishRequestManager(BookPublishRequestManager bookPublishRequestManager) {
+            this.bookPublishRequestManager = bookPublishRequestManager;
+            return this;
+        }
+
+        /**
+         * Sets the DAO publishing statuses are written to and returns a reference to this Builder so the methods can be chained together.
+         *
+         * @param publishingStatusDao The DAO publishing statuses are written to.
+         * @return a reference to this Builder.
+         */
+        public Builder withPublishingStatusDao(PublishingStatusDao publishingStatusDao) {
+            this.publishingStatusDao = publishingStatusDao;
+            return this;
+        }
+
+        /**
+         * Sets the DAO published books are saved to and returns a reference to this Builder so the methods can be chained together.
+         *
+         * @param catalogDao The DAO published books are saved to.
+         * @return a reference to this Builder.
+         */
+        public Builder withCatalogDao(CatalogDao catalogDao) {
+            this.catalogDao = catalogDao;
+            return this;
+        }
+
+        /**
+         * Sets the registry stage metrics are reported to and returns a reference to this Builder so the methods can be chained together.
+         *
+         * @param metricsPublisher The registry stage metrics are reported to.
+         * @return a reference to this Builder.
+         */
+        public Builder withMetricsPublisher(MetricsPublisher metricsPublisher) {
+            this.metricsPublisher = metricsPublisher;
+            return this;
+        }
+
+        /**
+         * Sets the cache of Kindle conversions and returns a reference to this Builder so the methods can be chained
+         * together. Without one every book is converted.
+         *
+         * @param kindleConversionCache The cache of Kindle conversions.
+         * @return a reference to this Builder.
+         */
+        public Builder withKindleConversionCache(KindleConversionCache kindleConversionCache) {
+            this.kindleConversionCache = kindleConversionCache;
+            return this;
+        }
+
+        /**
+         * Sets the handler of requests that failed with an exception and returns a reference to this Builder so the
+         * methods can be chained together. Without one such requests are marked FAILED.
+         *
+         * @param publishFailureHandler The handler that retries or dead-letters failed requests.
+         * @return a reference to this Builder.
+         */
+        public Builder withPublishFailureHandler(PublishFailureHandler publishFailureHandler) {
+            this.publishFailureHandler = publishFailureHandler;
+            return this;
+        }
+
+        /**
+         * Sets the recorder of published requests and returns a reference to this Builder so the methods can be
+         * chained together. Without one the SUCCESSFUL status is written once and not retried.
+         *
+         * @param publishSuccessRecorder The recorder that writes the SUCCESSFUL status and completes the request.
+         * @return a reference to this Builder.
+         */
+        public Builder withPublishSuccessRecorder(PublishSuccessRecorder publishSuccessRecorder) {
+            this.publishSuccessRecorder = publishSuccessRecorder;
+            return this;
+        }
+
+        /**
+         * Sets the number of validate stage threads and returns a reference to this Builder so the methods can be chained together.
+         *
+         * @param validateThreads The number of validate stage threads.
+         * @return a reference to this Builder.
+         */
+        public Builder withValidateThreads(int validateThreads) {
+            this.validateThreads = validateThreads;
+            return this;
+        }
+
+        /**
+         * Sets the number of convert stage threads and returns a reference to this Builder so the methods can be chained together.
+         *
+         * @param convertThreads The number of convert stage threads.
+         * @return a reference to this Builder.
+         */
+        public Builder withConvertThreads(int convertThreads) {
+            this.convertThreads = convertThreads;
+            return this;
+        }
+
+        /**
+         * Sets the number of persist stage threads and returns a reference to this Builder so the methods can be chained together.
+         *
+         * @param persistThreads The number of persist stage threads.
+         * @return a reference to this Builder.
+         */
+        public Builder withPersistThreads(int persistThreads) {
+            this.persistThreads = persistThreads;
+            return this;
+        }
+
+        /**
+         * Sets the number of publish status stage threads and returns a reference to this Builder so the methods can be chained together.
+         *
+         * @param publishStatusThreads The number of publish status stage threads.
+         * @return a reference to this Builder.
+         */
+        public Builder withPublishStatusThreads(int publishStatusThreads) {
+            this.publishStatusThreads = publishStatusThreads;
+            return this;
+        }
+
+        /**
+         * Sets the number of jobs that may wait for each stage and returns a reference to this Builder so the methods can be chained together.
+         *
+         * @param stageCapacity The number of jobs that may wait for each stage.
+         * @return a reference to this Builder.
+         */
+        public Builder withStageCapacity(int stageCapacity) {
+            this.stageCapacity = stageCapacity;
+            return this;
+        }
+
+        /**
+         * Sets the most convert stage threads the pipeline can be resized to and returns a reference to this Builder
+         * so the methods can be chained together. Without one the pipeline keeps the thread counts it was built with.
+         *
+         * @param maxWorkerCount The most convert stage threads the pipeline can be resized to.
+         * @return a reference to this Builder.
+         */
+        public Builder withMaxWorkerCount(int maxWorkerCount) {
+            this.maxWorkerCount = maxWorkerCount;
+            return this;
+        }
+
+        /**
+         * Returns a PublishingPipeline built from the parameters previously set.
+         *
+         * @return a PublishingPipeline built with parameters of this PublishingPipeline.Builder
+         */
+        public PublishingPipeline build() {
+            return new PublishingPipeline(this);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.dynamodb.models.PublishingStatusItem;
+import com.amazon.ata.kindlepublishingservice.exceptions.PublishingStatusWaitLimitException;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsConstants;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wakes callers waiting for the next publishing status of a request as soon as this node writes one, so clients can
+ * wait for a change in a single long-poll instead of reading the status table in a loop.
+ *
+ * A waiter is a future registered under its publishing record id, it holds no thread while it waits. The number of
+ * waiters is capped, so memory stays bounded however many clients wait: once the cap is reached, further waits are
+ * refused with a {@link PublishingStatusWaitLimitException}. Every wait ends after its timeout, which a single timer
+ * thread enforces.
+ *
+ * Only statuses written through this node are seen. With requests shared between nodes, a status written by another
+ * node reaches a waiter when its wait times out and the client reads the status again.
+ */
+public class PublishingStatusNotifier {
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final int maxWaiters;
+    private final ConcurrentMap<String, Set<CompletableFuture<PublishingStatusItem>>> waiters =
+        new ConcurrentHashMap<>();
+    private final AtomicInteger waiterCount = new AtomicInteger();
+    private final ScheduledThreadPoolExecutor timer;
+    private final MetricsPublisher metricsPublisher;
+
+    /**
+     * Instantiates a new PublishingStatusNotifier.
+     *
+     * @param maxWaiters the most callers that may wait at once
+     * @param metricsPublisher registry the number of waiters is reported to
+     */
+    public PublishingStatusNotifier(int maxWaiters, MetricsPublisher metricsPublisher) {
+        this.maxWaiters = maxWaiters;
+        this.metricsPublisher = metricsPublisher;
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "publishing-status-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // A wait that ends early takes its timeout with it, rather than leaving it queued until it would have fired.
+        timer.setRemoveOnCancelPolicy(true);
+        metricsPublisher.registerGauge(MetricsConstants.STATUS_WAITERS, this::getWaiterCount);
+    }
+
+    /**
+     * Waits for the next status written for a request. The wait ends early if the returned future is cancelled.
+     *
+     * @param publishingRecordId the publishing record id of the request
+     * @param timeout the longest time to wait
+     * @param unit the unit of the timeout
+     * @return a future completed with the next status written, or with null once the timeout elapses
+     * @throws PublishingStatusWaitLimitException if the most callers allowed are already waiting
+     */
+    public CompletableFuture<PublishingStatusItem> awaitNextStatus(String publishingRecordId, long timeout,
+                                                                   TimeUnit unit) {
+        if (waiterCount.incrementAndGet() > maxWaiters) {
+            waiterCount.decrementAndGet();
+            metricsPublisher.addCount(MetricsConstants.STATUS_WAIT_REJECTED_COUNT, 1);
+            throw new PublishingStatusWaitLimitException("Too many callers are waiting for a publishing status",
+                RETRY_AFTER_SECONDS);
+        }
+
+        CompletableFuture<PublishingStatusItem> waiter = new CompletableFuture<>();
+        waiters.computeIfAbsent(publishingRecordId, id -> ConcurrentHashMap.newKeySet()).add(waiter);
+        ScheduledFuture<?> timeoutTask = timer.schedule(() -> waiter.complete(null), timeout, unit);
+        waiter.whenComplete((item, failure) -> {
+            timeoutTask.cancel(false);
+            waiters.computeIfPresent(publishingRecordId, (id, recordWaiters) -> {
+                recordWaiters.remove(waiter);
+                return recordWaiters.isEmpty() ? null : recordWaiters;
+            });
+            waiterCount.decrementAndGet();
+        });
+        return waiter;
+    }
+
+    /**
+     * Wakes every caller waiting for a status of the item's request.
+     *
+     * @param item the status that was written
+     */
+    public void publish(PublishingStatusItem item) {
+        Set<CompletableFuture<PublishingStatusItem>> recordWaiters = waiters.remove(item.getPublishingRecordId());
+        if (recordWaiters == null) {
+            return;
+        }
+        for (CompletableFuture<PublishingStatusItem> waiter : recordWaiters) {
+            waiter.complete(item);
+        }
+    }
+
+    /**
+     * Returns the number of callers waiting.
+     *
+     * @return the waiter count
+     */
+    public int getWaiterCount() {
+        return waiterCount.get();
+    }
+}
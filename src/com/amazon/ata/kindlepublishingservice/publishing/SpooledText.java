@@ -0,0 +1,103 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A handle to the text of a book spooled to a file by a {@link ManuscriptSpool}, so a queued request holds a
+ * constant amount of heap however long its text is. The text is read back incrementally when it is converted.
+ *
+ * Whoever spooled the text deletes it unless the {@link BookPublishRequestManager} claimed it, from then on the
+ * manager deletes it once the request reaches a final status.
+ */
+public final class SpooledText {
+
+    private static final Logger log = LogManager.getLogger(SpooledText.class);
+
+    private final Path file;
+    private final long charCount;
+    private final String digest;
+    private volatile boolean claimed;
+
+    /**
+     * Instantiates a new SpooledText.
+     *
+     * @param file the file holding the text in UTF-8
+     * @param charCount the length of the text in chars
+     * @param digest the hex SHA-256 digest of the text's UTF-8 bytes
+     */
+    SpooledText(Path file, long charCount, String digest) {
+        this.file = file;
+        this.charCount = charCount;
+        this.digest = digest;
+    }
+
+    /**
+     * Opens a reader over the text, which the caller must close.
+     *
+     * @return a buffered reader positioned at the start of the text
+     * @throws IOException if the file cannot be opened
+     */
+    public Reader openReader() throws IOException {
+        return Files.newBufferedReader(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the whole text onto the heap, for the places that need it as a single String.
+     *
+     * @return the text
+     */
+    public String read() {
+        try {
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read spooled text " + file, e);
+        }
+    }
+
+    /**
+     * Deletes the file, once the request holding this text reached a final status.
+     */
+    public void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Unable to delete spooled text {}, it is removed on the next start", file, e);
+        }
+    }
+
+    /**
+     * Records that the publish request manager took ownership of the text and will delete it.
+     */
+    void claim() {
+        claimed = true;
+    }
+
+    /**
+     * Returns whether the publish request manager took ownership of the text, so its spooler must not delete it.
+     *
+     * @return true once claimed
+     */
+    public boolean isClaimed() {
+        return claimed;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getCharCount() {
+        return charCount;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+}
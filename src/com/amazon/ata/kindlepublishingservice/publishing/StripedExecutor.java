@@ -0,0 +1,420 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsConstants;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs tasks on a fixed number of lanes, each a single thread with its own bounded queue. Tasks with the same key
+ * always run on the same lane, so they run one at a time in the order they were submitted, while tasks with different
+ * keys run in parallel. Tasks without a key go to the lane with the shortest queue.
+ *
+ * Each lane reports its queue depth and the number of tasks it ran. The executor also reports how much busier its
+ * busiest lane is than the average, which shows when a few hot keys are pinning work to a single lane.
+ *
+ * An executor may be created with more lanes than it starts with and resized between one lane and that maximum
+ * while running. A resize takes effect at once and does not wait for any task: a key with tasks queued or running
+ * keeps its lane until they are done, so its tasks stay in order, and every other key moves to its lane for the new
+ * lane count right away. A lane that is removed finishes the tasks it still holds and then stops its thread.
+ */
+public class StripedExecutor {
+
+    private static final Logger log = LogManager.getLogger(StripedExecutor.class);
+
+    // Upper bound on how long a shutdown can go unnoticed by an idle lane.
+    private static final long POLL_MILLIS = 200;
+
+    private final String name;
+    private final List<Lane> lanes;
+    // The lane of every key with tasks queued or running, guarded by this.
+    private final Map<String, Route> routes = new HashMap<>();
+    private volatile int activeLanes;
+    private volatile boolean running;
+
+    /**
+     * Instantiates a new, stopped StripedExecutor.
+     *
+     * @param name identifies the executor in thread names and as the prefix of its metrics
+     * @param laneCount the number of lanes
+     * @param laneCapacity the number of tasks that may wait on each lane
+     * @param metricsPublisher registry the lane metrics are reported to
+     */
+    public StripedExecutor(String name, int laneCount, int laneCapacity, MetricsPublisher metricsPublisher) {
+        this(name, laneCount, laneCount, laneCapacity, metricsPublisher);
+    }
+
+    /**
+     * Instantiates a new, stopped StripedExecutor that can be resized up to a maximum number of lanes.
+     *
+     * @param name identifies the executor in thread names and as the prefix of its metrics
+     * @param laneCount the number of lanes to start with
+     * @param maxLaneCount the most lanes the executor can be resized to
+     * @param laneCapacity the number of tasks that may wait on each lane
+     * @param metricsPublisher registry the lane metrics are reported to
+     */
+    public StripedExecutor(String name, int laneCount, int maxLaneCount, int laneCapacity,
+                           MetricsPublisher metricsPublisher) {
+        int maxLanes = Math.max(1, Math.max(laneCount, maxLaneCount));
+        this.name = name;
+        this.lanes = new ArrayList<>(maxLanes);
+        this.activeLanes = Math.min(maxLanes, Math.max(1, laneCount));
+        for (int i = 0; i < maxLanes; i++) {
+            Lane lane = new Lane(i + 1, Math.max(1, laneCapacity));
+            lanes.add(lane);
+            metricsPublisher.registerGauge(String.format(MetricsConstants.STRIPED_LANE_QUEUE_DEPTH, name, lane.id),
+                lane.queue::size);
+            metricsPublisher.registerGauge(String.format(MetricsConstants.STRIPED_LANE_EXECUTED_COUNT, name, lane.id),
+                lane.executed::get);
+        }
+        metricsPublisher.registerGauge(String.format(MetricsConstants.STRIPED_LANE_IMBALANCE, name),
+            this::getImbalancePercent);
+    }
+
+    /**
+     * Starts a thread for every lane in use.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        startLanes();
+    }
+
+    // Called holding this. Starts the lanes in use, and any removed lane still holding tasks.
+    private void startLanes() {
+        for (int i = 0; i < lanes.size(); i++) {
+            Lane lane = lanes.get(i);
+            if (lane.threadRunning || (i >= activeLanes && lane.assigned == 0)) {
+                continue;
+            }
+            lane.threadRunning = true;
+            Thread thread = new Thread(lane, String.format("%s-lane-%d", name, lane.id));
+            thread.setDaemon(true);
+            lane.thread = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * Changes the number of lanes in use, without waiting for the queued or running tasks. Keys with tasks queued or
+     * running stay on their lane until those tasks are done, so a key's tasks stay in order even though the key may
+     * move to another lane afterwards.
+     *
+     * @param laneCount the number of lanes to use, capped between one and the maximum the executor was created with
+     * @return true if the executor now uses the requested number of lanes, false if the count was outside those bounds
+     */
+    public synchronized boolean resize(int laneCount) {
+        int target = Math.max(1, Math.min(laneCount, lanes.size()));
+        activeLanes = target;
+        if (running) {
+            startLanes();
+        }
+        return target == laneCount;
+    }
+
+    /**
+     * Stops every lane after the task it is running. Tasks still waiting are dropped.
+     */
+    public synchronized void shutdown() {
+        running = false;
+    }
+
+    /**
+     * Waits for every lane thread to exit after {@link #shutdown()}.
+     *
+     * @param timeoutMillis how long to wait for all of the lanes together
+     * @return true if every lane thread exited in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        synchronized (this) {
+            for (Lane lane : lanes) {
+                if (lane.thread != null) {
+                    threads.add(lane.thread);
+                }
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (Thread thread : threads) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            // A join of zero would wait forever.
+            if (remainingMillis > 0) {
+                thread.join(remainingMillis);
+            }
+            if (thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns whether every task handed to the executor has finished or been dropped.
+     *
+     * @return true if no task is queued or running on any lane
+     */
+    public synchronized boolean isIdle() {
+        for (Lane lane : lanes) {
+            if (lane.assigned > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Queues a task on the key's lane, waiting while the lane is full.
+     *
+     * @param key the key the task is ordered by, null if it needs no ordering
+     * @param task the task to run
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void execute(String key, Runnable task) throws InterruptedException {
+        Lane lane = assign(key);
+        boolean queued = false;
+        try {
+            lane.queue.put(new Task(key, task));
+            queued = true;
+        } finally {
+            if (!queued) {
+                release(lane, key);
+            }
+        }
+    }
+
+    /**
+     * Queues a task on the key's lane, waiting up to the timeout for room.
+     *
+     * @param key the key the task is ordered by, null if it needs no ordering
+     * @param task the task to run
+     * @param timeout how long to wait for room
+     * @param unit the unit of the timeout
+     * @return true if the task was queued, false if the lane stayed full
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean offer(String key, Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        Lane lane = assign(key);
+        boolean queued = false;
+        try {
+            queued = lane.queue.offer(new Task(key, task), timeout, unit);
+            return queued;
+        } finally {
+            if (!queued) {
+                release(lane, key);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the lane the key's tasks run on.
+     *
+     * @param key the key, null for the lane with the shortest queue
+     * @return the lane index
+     */
+    synchronized int laneFor(String key) {
+        int laneCount = activeLanes;
+        if (key == null) {
+            int shortest = 0;
+            for (int i = 1; i < laneCount; i++) {
+                if (lanes.get(i).queue.size() < lanes.get(shortest).queue.size()) {
+                    shortest = i;
+                }
+            }
+            return shortest;
+        }
+        Route route = routes.get(key);
+        if (route != null) {
+            return route.lane;
+        }
+        return Math.floorMod(spread(key.hashCode()), laneCount);
+    }
+
+    // Picks the task's lane and counts the task against it, so the lane and the key's route outlive the task.
+    private synchronized Lane assign(String key) {
+        int index = laneFor(key);
+        if (key != null) {
+            routes.computeIfAbsent(key, k -> new Route(index)).pending++;
+        }
+        Lane lane = lanes.get(index);
+        lane.assigned++;
+        return lane;
+    }
+
+    private synchronized void release(Lane lane, String key) {
+        lane.assigned--;
+        if (key == null) {
+            return;
+        }
+        Route route = routes.get(key);
+        if (route != null && --route.pending == 0) {
+            routes.remove(key);
+        }
+    }
+
+    public int getLaneCount() {
+        return activeLanes;
+    }
+
+    public int getMaxLaneCount() {
+        return lanes.size();
+    }
+
+    /**
+     * Returns the number of tasks waiting across all lanes.
+     *
+     * @return the total queue depth
+     */
+    public int getQueueDepth() {
+        return lanes.stream().mapToInt(lane -> lane.queue.size()).sum();
+    }
+
+    /**
+     * Returns the number of tasks waiting on one lane.
+     *
+     * @param lane the lane index
+     * @return the lane's queue depth
+     */
+    public int getQueueDepth(int lane) {
+        return lanes.get(lane).queue.size();
+    }
+
+    /**
+     * Returns how many percent more tasks the busiest lane has run and has waiting than the average lane.
+     *
+     * @return zero when the load is even, 100 when the busiest lane carries twice the average
+     */
+    public long getImbalancePercent() {
+        int laneCount = activeLanes;
+        long total = 0;
+        long busiest = 0;
+        for (Lane lane : lanes.subList(0, laneCount)) {
+            long load = lane.executed.get() + lane.queue.size();
+            total += load;
+            busiest = Math.max(busiest, load);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        return busiest * 100 * laneCount / total - 100;
+    }
+
+    // Hash codes of similar strings differ mostly in their low bits, mix in the high bits before taking the modulus.
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+
+    /**
+     * The lane a key's queued and running tasks are on, and how many there are.
+     */
+    private static final class Route {
+        private final int lane;
+        private int pending;
+
+        private Route(int lane) {
+            this.lane = lane;
+        }
+    }
+
+    /**
+     * A queued task along with the key it is ordered by.
+     */
+    private static final class Task {
+        private final String key;
+        private final Runnable runnable;
+
+        private Task(String key, Runnable runnable) {
+            this.key = key;
+            this.runnable = runnable;
+        }
+    }
+
+    /**
+     * A single thread and the queue of tasks it runs in order.
+     */
+    private final class Lane implements Runnable {
+        private final int id;
+        private final BlockingQueue<Task> queue;
+        private final AtomicLong executed = new AtomicLong();
+        // Tasks assigned to the lane that have not finished, including those still being queued. Guarded by the
+        // executor, as are the fields below.
+        private int assigned;
+        private boolean threadRunning;
+        private Thread thread;
+
+        private Lane(int id, int capacity) {
+            this.id = id;
+            this.queue = new LinkedBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Task task;
+                try {
+                    task = running ? queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS) : null;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    exit();
+                    return;
+                }
+                if (task != null) {
+                    runTask(task);
+                    continue;
+                }
+                synchronized (StripedExecutor.this) {
+                    if (!running) {
+                        // Dropped tasks will never run, stop counting them so their keys can move lanes again.
+                        List<Task> dropped = new ArrayList<>();
+                        queue.drainTo(dropped);
+                        for (Task droppedTask : dropped) {
+                            release(this, droppedTask.key);
+                        }
+                        threadRunning = false;
+                        return;
+                    }
+                    // A removed lane stops once it has run every task assigned to it.
+                    if (id > activeLanes && assigned == 0) {
+                        threadRunning = false;
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void runTask(Task task) {
+            try {
+                task.runnable.run();
+            } catch (RuntimeException e) {
+                log.error("Task failed on lane {} of {}", id, name, e);
+            } finally {
+                release(this, task.key);
+            }
+            executed.incrementAndGet();
+        }
+
+        private void exit() {
+            synchronized (StripedExecutor.this) {
+                threadRunning = false;
+            }
+        }
+    }
+}
@@ -10,12 +10,15 @@ import java.util.UUID;
 
 public class KindlePublishingUtils {
 
-    private static Map<PublishingRecordStatus, String> statusToMessage = ImmutableMap.of(
-        PublishingRecordStatus.QUEUED, "Queued for publishing at %s",
-        PublishingRecordStatus.IN_PROGRESS, "Processing started at %s",
-        PublishingRecordStatus.SUCCESSFUL, "Book published at %s",
-        PublishingRecordStatus.FAILED, "Book publish failed at %s"
-    );
+    private static Map<PublishingRecordStatus, String> statusToMessage =
+        ImmutableMap.<PublishingRecordStatus, String>builder()
+            .put(PublishingRecordStatus.QUEUED, "Queued for publishing at %s")
+            .put(PublishingRecordStatus.IN_PROGRESS, "Processing started at %s")
+            .put(PublishingRecordStatus.SUCCESSFUL, "Book published at %s")
+            .put(PublishingRecordStatus.FAILED, "Book publish failed at %s")
+            .put(PublishingRecordStatus.SUPERSEDED, "Superseded by a newer submission at %s")
+            .put(PublishingRecordStatus.CANCELLED, "Publishing cancelled at %s")
+            .build();
 
     /**
      * Generates a book id to save into the database.
@@ -0,0 +1,87 @@
+package com.amazon.ata.kindlepublishingservice.activity;
+
+import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
+import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
+import com.amazon.ata.kindlepublishingservice.exceptions.PublishingNotCancellableException;
+import com.amazon.ata.kindlepublishingservice.exceptions.PublishingStatusNotFoundException;
+import com.amazon.ata.kindlepublishingservice.models.requests.CancelBookPublishingRequest;
+import com.amazon.ata.kindlepublishingservice.models.response.CancelBookPublishingResponse;
+import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequest;
+import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequestManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class CancelBookPublishingActivityTest {
+
+    @Mock
+    private PublishingStatusDao publishingStatusDao;
+
+    @Mock
+    private BookPublishRequestManager bookPublishRequestManager;
+
+    @InjectMocks
+    private CancelBookPublishingActivity activity;
+
+    @BeforeEach
+    public void setup() {
+        initMocks(this);
+    }
+
+    @Test
+    public void execute_requestQueued_recordsCancelled() {
+        // GIVEN
+        CancelBookPublishingRequest request = CancelBookPublishingRequest.builder()
+            .withPublishingRecordId("publishing.123")
+            .build();
+        BookPublishRequest queued = BookPublishRequest.builder()
+            .withPublishingRecordId("publishing.123")
+            .withBookId("book.123")
+            .build();
+        when(bookPublishRequestManager.cancelBookPublishRequest("publishing.123")).thenReturn(queued);
+
+        // WHEN
+        CancelBookPublishingResponse response = activity.execute(request);
+
+        // THEN
+        assertEquals("publishing.123", response.getPublishingRecordId());
+        verify(publishingStatusDao).setPublishingStatus("publishing.123", PublishingRecordStatus.CANCELLED,
+            "book.123");
+    }
+
+    @Test
+    public void execute_requestNoLongerQueued_throwsNotCancellable() {
+        // GIVEN
+        CancelBookPublishingRequest request = CancelBookPublishingRequest.builder()
+            .withPublishingRecordId("publishing.123")
+            .build();
+        when(bookPublishRequestManager.cancelBookPublishRequest("publishing.123")).thenReturn(null);
+        when(publishingStatusDao.getPublishingStatuses("publishing.123")).thenReturn(Collections.emptyList());
+
+        // WHEN + THEN
+        assertThrows(PublishingNotCancellableException.class, () -> activity.execute(request));
+        verify(publishingStatusDao, never()).setPublishingStatus(anyString(), any(), any());
+    }
+
+    @Test
+    public void execute_unknownPublishingRecord_throwsNotFound() {
+        // GIVEN
+        CancelBookPublishingRequest request = CancelBookPublishingRequest.builder()
+            .withPublishingRecordId("publishing.unknown")
+            .build();
+        when(publishingStatusDao.getPublishingStatuses("publishing.unknown"))
+            .thenThrow(new PublishingStatusNotFoundException("missing"));
+
+        // WHEN + THEN
+        assertThrows(PublishingStatusNotFoundException.class, () -> activity.execute(request));
+    }
+}
@@ -0,0 +1,146 @@
+package com.amazon.ata.kindlepublishingservice.activity;
+
+import com.amazon.ata.kindlepublishingservice.clients.RecommendationsServiceClient;
+import com.amazon.ata.kindlepublishingservice.dao.CatalogDao;
+import com.amazon.ata.kindlepublishingservice.dynamodb.models.CatalogItemVersion;
+import com.amazon.ata.kindlepublishingservice.exceptions.BookLookupLimitException;
+import com.amazon.ata.kindlepublishingservice.exceptions.BookNotFoundException;
+import com.amazon.ata.kindlepublishingservice.models.BookLookupResult;
+import com.amazon.ata.kindlepublishingservice.models.requests.GetBooksRequest;
+import com.amazon.ata.kindlepublishingservice.models.response.GetBooksResponse;
+import com.amazon.ata.recommendationsservice.types.BookGenre;
+import com.amazon.ata.recommendationsservice.types.BookRecommendation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class GetBooksActivityTest {
+
+    private static final String TITLE = "Title of Book";
+    private static final String AUTHOR = "Book Author";
+    private static final String ASIN = "B123456789";
+
+    @Mock
+    private CatalogDao catalogDao;
+
+    @Mock
+    private RecommendationsServiceClient recommendationsServiceClient;
+
+    private ExecutorService lookupExecutor;
+    private GetBooksActivity activity;
+
+    @BeforeEach
+    public void setup() {
+        initMocks(this);
+        lookupExecutor = Executors.newFixedThreadPool(4);
+        activity = new GetBooksActivity(catalogDao, recommendationsServiceClient, lookupExecutor);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        lookupExecutor.shutdownNow();
+    }
+
+    @Test
+    public void execute_someBooksMissing_returnsResultPerBookInRequestOrder() {
+        // GIVEN
+        when(catalogDao.getBookFromCatalog("book.1")).thenReturn(catalogItem("book.1", BookGenre.FANTASY));
+        when(catalogDao.getBookFromCatalog("notAbook.2")).thenThrow(new BookNotFoundException("No book found"));
+        when(catalogDao.getBookFromCatalog("book.3")).thenReturn(catalogItem("book.3", BookGenre.MYSTERY));
+        when(recommendationsServiceClient.getBookRecommendations(BookGenre.FANTASY)).thenReturn(recommendations());
+        when(recommendationsServiceClient.getBookRecommendations(BookGenre.MYSTERY)).thenReturn(recommendations());
+
+        // WHEN
+        GetBooksResponse response = activity.execute(request("book.1", "notAbook.2", "book.3"));
+
+        // THEN
+        List<BookLookupResult> results = response.getResults();
+        assertEquals(3, results.size(), "Expected one result per book id in the request.");
+        assertEquals("book.1", results.get(0).getBook().getBookId());
+        assertEquals(TITLE, results.get(0).getRecommendations().get(0).getTitle());
+        assertEquals("notAbook.2", results.get(1).getBookId());
+        assertNull(results.get(1).getBook(), "Expected no book for a book id that does not exist.");
+        assertNotNull(results.get(1).getError(), "Expected an error for a book id that does not exist.");
+        assertEquals("book.3", results.get(2).getBook().getBookId());
+        assertNull(results.get(2).getError());
+    }
+
+    @Test
+    public void execute_booksShareGenreAndRepeat_readsEachBookAndGenreOnce() {
+        // GIVEN
+        when(catalogDao.getBookFromCatalog("book.1")).thenReturn(catalogItem("book.1", BookGenre.FANTASY));
+        when(catalogDao.getBookFromCatalog("book.2")).thenReturn(catalogItem("book.2", BookGenre.FANTASY));
+        when(recommendationsServiceClient.getBookRecommendations(BookGenre.FANTASY)).thenReturn(recommendations());
+
+        // WHEN
+        GetBooksResponse response = activity.execute(request("book.1", "book.2", "book.1"));
+
+        // THEN
+        assertEquals(3, response.getResults().size());
+        assertEquals("book.1", response.getResults().get(2).getBook().getBookId());
+        verify(catalogDao, times(1)).getBookFromCatalog("book.1");
+        verify(recommendationsServiceClient, times(1)).getBookRecommendations(BookGenre.FANTASY);
+    }
+
+    @Test
+    public void execute_catalogReadFails_throwsCatalogException() {
+        // GIVEN
+        when(catalogDao.getBookFromCatalog("book.1")).thenThrow(new IllegalStateException("Catalog unavailable"));
+
+        // WHEN & THEN
+        assertThrows(IllegalStateException.class, () -> activity.execute(request("book.1")), "Expected a catalog " +
+                "failure other than a missing book to fail the call.");
+    }
+
+    @Test
+    public void execute_tooManyBookIds_throwsBookLookupLimitException() {
+        // GIVEN
+        String[] bookIds = new String[GetBooksActivity.MAX_BOOK_IDS + 1];
+        for (int i = 0; i < bookIds.length; i++) {
+            bookIds[i] = "book." + i;
+        }
+
+        // WHEN & THEN
+        assertThrows(BookLookupLimitException.class, () -> activity.execute(request(bookIds)), "Expected a request " +
+                "for more than the most book ids one call may ask for to be rejected.");
+        verify(catalogDao, never()).getBookFromCatalog(any());
+    }
+
+    private static GetBooksRequest request(String... bookIds) {
+        return GetBooksRequest.builder()
+                .withBookIds(Arrays.asList(bookIds))
+                .build();
+    }
+
+    private static CatalogItemVersion catalogItem(String bookId, BookGenre genre) {
+        CatalogItemVersion catalogItem = new CatalogItemVersion();
+        catalogItem.setVersion(1);
+        catalogItem.setBookId(bookId);
+        catalogItem.setInactive(false);
+        catalogItem.setGenre(genre);
+        return catalogItem;
+    }
+
+    private static List<BookRecommendation> recommendations() {
+        return Collections.singletonList(new BookRecommendation(TITLE, AUTHOR, ASIN));
+    }
+}
@@ -0,0 +1,63 @@
+package com.amazon.ata.kindlepublishingservice.activity;
+
+import com.amazon.ata.kindlepublishingservice.models.DeadLetterRecord;
+import com.amazon.ata.kindlepublishingservice.models.response.GetDeadLettersResponse;
+import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequest;
+import com.amazon.ata.kindlepublishingservice.publishing.DeadLetter;
+import com.amazon.ata.kindlepublishingservice.publishing.PublishFailureHandler;
+import com.amazon.ata.recommendationsservice.types.BookGenre;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class GetDeadLettersActivityTest {
+
+    @Mock
+    private PublishFailureHandler publishFailureHandler;
+
+    @InjectMocks
+    private GetDeadLettersActivity activity;
+
+    @BeforeEach
+    public void setup() {
+        initMocks(this);
+    }
+
+    @Test
+    public void execute_deadLetterExists_returnsItWithoutText() {
+        // GIVEN
+        BookPublishRequest request = BookPublishRequest.builder()
+            .withPublishingRecordId("publishing.123")
+            .withBookId("book.123")
+            .withTitle("Title")
+            .withAuthor("Author")
+            .withGenre(BookGenre.FANTASY)
+            .withText("It was a dark and stormy night.")
+            .build();
+        when(publishFailureHandler.listDeadLetters())
+            .thenReturn(Collections.singletonList(new DeadLetter(request, 3, "throttled", 1000)));
+
+        // WHEN
+        GetDeadLettersResponse response = activity.execute();
+
+        // THEN
+        DeadLetterRecord expected = DeadLetterRecord.builder()
+            .withPublishingRecordId("publishing.123")
+            .withBookId("book.123")
+            .withTitle("Title")
+            .withAuthor("Author")
+            .withGenre("FANTASY")
+            .withAttempts(3)
+            .withReason("throttled")
+            .withFailedAtMillis(1000)
+            .build();
+        assertEquals(Collections.singletonList(expected), response.getDeadLetters());
+    }
+}
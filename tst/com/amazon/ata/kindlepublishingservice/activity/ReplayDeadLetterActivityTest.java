@@ -0,0 +1,60 @@
+package com.amazon.ata.kindlepublishingservice.activity;
+
+import com.amazon.ata.kindlepublishingservice.exceptions.DeadLetterNotFoundException;
+import com.amazon.ata.kindlepublishingservice.models.requests.ReplayDeadLetterRequest;
+import com.amazon.ata.kindlepublishingservice.models.response.ReplayDeadLetterResponse;
+import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequest;
+import com.amazon.ata.kindlepublishingservice.publishing.PublishFailureHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class ReplayDeadLetterActivityTest {
+
+    @Mock
+    private PublishFailureHandler publishFailureHandler;
+
+    @InjectMocks
+    private ReplayDeadLetterActivity activity;
+
+    @BeforeEach
+    public void setup() {
+        initMocks(this);
+    }
+
+    @Test
+    public void execute_deadLetterExists_returnsPublishingRecordId() {
+        // GIVEN
+        ReplayDeadLetterRequest request = ReplayDeadLetterRequest.builder()
+            .withPublishingRecordId("publishing.123")
+            .build();
+        when(publishFailureHandler.replayDeadLetter("publishing.123")).thenReturn(BookPublishRequest.builder()
+            .withPublishingRecordId("publishing.123")
+            .withBookId("book.123")
+            .build());
+
+        // WHEN
+        ReplayDeadLetterResponse response = activity.execute(request);
+
+        // THEN
+        assertEquals("publishing.123", response.getPublishingRecordId());
+    }
+
+    @Test
+    public void execute_noDeadLetter_throwsDeadLetterNotFound() {
+        // GIVEN
+        ReplayDeadLetterRequest request = ReplayDeadLetterRequest.builder()
+            .withPublishingRecordId("publishing.123")
+            .build();
+        when(publishFailureHandler.replayDeadLetter("publishing.123")).thenReturn(null);
+
+        // WHEN + THEN
+        assertThrows(DeadLetterNotFoundException.class, () -> activity.execute(request));
+    }
+}
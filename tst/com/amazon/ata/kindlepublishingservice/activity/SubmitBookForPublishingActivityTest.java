@@ -5,6 +5,7 @@ import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
 import com.amazon.ata.kindlepublishingservice.dynamodb.models.PublishingStatusItem;
 import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
 import com.amazon.ata.kindlepublishingservice.exceptions.BookNotFoundException;
+import com.amazon.ata.kindlepublishingservice.exceptions.PublishingQueueFullException;
 import com.amazon.ata.kindlepublishingservice.models.requests.SubmitBookForPublishingRequest;
 import com.amazon.ata.kindlepublishingservice.models.response.SubmitBookForPublishingResponse;
 import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequest;
@@ -13,6 +14,7 @@ import com.amazon.ata.recommendationsservice.types.BookGenre;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 
@@ -59,7 +61,7 @@ public class SubmitBookForPublishingActivityTest {
                 eq(PublishingRecordStatus.QUEUED),
                 eq(request.getBookId()))).thenReturn(item);
         ArgumentCaptor<BookPublishRequestManager> captor = ArgumentCaptor.forClass(BookPublishRequestManager.class);
-        doNothing().when(bookPublishRequestManager).addBookPublishRequest(any(BookPublishRequest.class));
+        when(bookPublishRequestManager.addBookPublishRequest(any(BookPublishRequest.class))).thenReturn(null);
 
 
 
@@ -115,6 +117,30 @@ public class SubmitBookForPublishingActivityTest {
         verify(catalogDao, never()).removeBookFromCatalog(request.getBookId());
     }
 
+    @Test
+    public void execute_publishingQueueFull_rejectsBeforeTouchingCatalog() {
+        // GIVEN
+        SubmitBookForPublishingRequest request = SubmitBookForPublishingRequest.builder()
+                .withAuthor("Author")
+                .withTitle("Title")
+                .withBookId("book.123")
+                .withGenre(BookGenre.FANTASY.name())
+                .build();
+
+        doThrow(new PublishingQueueFullException("Publishing queue is full", 30))
+                .when(bookPublishRequestManager).ensureCapacityFor(any(BookPublishRequest.class));
+
+        // WHEN
+        PublishingQueueFullException exception = assertThrows(PublishingQueueFullException.class,
+                () -> activity.execute(request));
+
+        // THEN
+        assertEquals(30, exception.getRetryAfterSeconds(), "Expected the retry hint to be passed through.");
+        verify(catalogDao, never()).validateBookExists(anyString());
+        verify(catalogDao, never()).removeActiveOrInactiveBookFromCatalog(anyString());
+        verify(publishingStatusDao, never()).setPublishingStatus(anyString(), any(), any());
+    }
+
 //    @Test
 //    public void execute_BookIdDoesExist_OldVersionIsMadeInactive() {
 //
@@ -148,4 +174,86 @@ public class SubmitBookForPublishingActivityTest {
 
 
 
+
+    @Test
+    public void execute_earlierRequestForBookQueued_marksEarlierRequestSuperseded() {
+        // GIVEN
+        SubmitBookForPublishingRequest request = SubmitBookForPublishingRequest.builder()
+                .withAuthor("Author")
+                .withTitle("Title")
+                .withBookId("book.123")
+                .withGenre(BookGenre.FANTASY.name())
+                .build();
+
+        PublishingStatusItem item = new PublishingStatusItem();
+        item.setPublishingRecordId("publishing.456");
+        when(publishingStatusDao.setPublishingStatus(anyString(),
+                eq(PublishingRecordStatus.QUEUED),
+                eq(request.getBookId()))).thenReturn(item);
+        BookPublishRequest superseded = BookPublishRequest.builder()
+                .withPublishingRecordId("publishing.123")
+                .withBookId("book.123")
+                .build();
+        when(bookPublishRequestManager.addBookPublishRequest(any(BookPublishRequest.class))).thenReturn(superseded);
+
+        // WHEN
+        activity.execute(request);
+
+        // THEN
+        verify(publishingStatusDao).setPublishingStatus(eq("publishing.123"),
+                eq(PublishingRecordStatus.SUPERSEDED),
+                eq("book.123"),
+                startsWith("Superseded by publishing record "));
+    }
+
+    @Test
+    public void execute_newRequest_recordsQueuedStatusBeforeQueueing() {
+        // GIVEN
+        SubmitBookForPublishingRequest request = SubmitBookForPublishingRequest.builder()
+                .withAuthor("Author")
+                .withTitle("Title")
+                .withGenre(BookGenre.FANTASY.name())
+                .build();
+
+        PublishingStatusItem item = new PublishingStatusItem();
+        item.setPublishingRecordId("publishing.123");
+        when(publishingStatusDao.setPublishingStatus(anyString(),
+                eq(PublishingRecordStatus.QUEUED),
+                any())).thenReturn(item);
+
+        // WHEN
+        activity.execute(request);
+
+        // THEN
+        InOrder inOrder = inOrder(publishingStatusDao, bookPublishRequestManager);
+        inOrder.verify(publishingStatusDao).setPublishingStatus(anyString(), eq(PublishingRecordStatus.QUEUED), any());
+        inOrder.verify(bookPublishRequestManager).addBookPublishRequest(any(BookPublishRequest.class));
+    }
+
+    @Test
+    public void execute_queueFillsUpAfterCapacityCheck_marksRequestFailedAndRethrows() {
+        // GIVEN
+        SubmitBookForPublishingRequest request = SubmitBookForPublishingRequest.builder()
+                .withAuthor("Author")
+                .withTitle("Title")
+                .withGenre(BookGenre.FANTASY.name())
+                .build();
+
+        PublishingStatusItem item = new PublishingStatusItem();
+        item.setPublishingRecordId("publishing.123");
+        when(publishingStatusDao.setPublishingStatus(anyString(),
+                eq(PublishingRecordStatus.QUEUED),
+                any())).thenReturn(item);
+        when(bookPublishRequestManager.addBookPublishRequest(any(BookPublishRequest.class)))
+                .thenThrow(new PublishingQueueFullException("Publishing queue is full", 30));
+
+        // WHEN
+        assertThrows(PublishingQueueFullException.class, () -> activity.execute(request));
+
+        // THEN
+        verify(publishingStatusDao).setPublishingStatus(anyString(),
+                eq(PublishingRecordStatus.FAILED),
+                any(),
+                anyString());
+    }
 }
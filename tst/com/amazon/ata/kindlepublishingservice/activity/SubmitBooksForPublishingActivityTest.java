@@ -0,0 +1,176 @@
+package com.amazon.ata.kindlepublishingservice.activity;
+
+import com.amazon.ata.kindlepublishingservice.dao.CatalogDao;
+import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
+import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
+import com.amazon.ata.kindlepublishingservice.exceptions.PublishingQueueFullException;
+import com.amazon.ata.kindlepublishingservice.models.BookSubmissionResult;
+import com.amazon.ata.kindlepublishingservice.models.requests.SubmitBookForPublishingRequest;
+import com.amazon.ata.kindlepublishingservice.models.requests.SubmitBooksForPublishingRequest;
+import com.amazon.ata.kindlepublishingservice.models.response.SubmitBooksForPublishingResponse;
+import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequest;
+import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequestManager;
+import com.amazon.ata.recommendationsservice.types.BookGenre;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class SubmitBooksForPublishingActivityTest {
+
+    @Mock
+    private PublishingStatusDao publishingStatusDao;
+
+    @Mock
+    private CatalogDao catalogDao;
+
+    @Mock
+    private BookPublishRequestManager bookPublishRequestManager;
+
+    @InjectMocks
+    private SubmitBooksForPublishingActivity activity;
+
+    @BeforeEach
+    public void setup() {
+        initMocks(this);
+    }
+
+    @Test
+    public void execute_mixOfValidAndInvalidBooks_queuesValidBooksInOneBatch() {
+        // GIVEN
+        SubmitBooksForPublishingRequest request = SubmitBooksForPublishingRequest.builder()
+            .withBooks(Arrays.asList(
+                book(null, BookGenre.FANTASY.name()),
+                book("book.exists", BookGenre.FANTASY.name()),
+                book("book.missing", BookGenre.FANTASY.name()),
+                book(null, "NOT_A_GENRE")))
+            .build();
+        when(catalogDao.findExistingBookIds(anyCollection())).thenReturn(Collections.singleton("book.exists"));
+        when(bookPublishRequestManager.addBookPublishRequests(anyList())).thenReturn(Collections.emptyList());
+
+        // WHEN
+        SubmitBooksForPublishingResponse response = activity.execute(request);
+
+        // THEN
+        List<BookSubmissionResult> results = response.getResults();
+        assertEquals(4, results.size(), "Expected one result per submitted book.");
+        assertNotNull(results.get(0).getPublishingRecordId());
+        assertNotNull(results.get(1).getPublishingRecordId());
+        assertNull(results.get(2).getPublishingRecordId());
+        assertEquals("Book does not exist", results.get(2).getError());
+        assertNull(results.get(3).getPublishingRecordId());
+
+        ArgumentCaptor<List> queuedCaptor = ArgumentCaptor.forClass(List.class);
+        verify(bookPublishRequestManager, times(1)).addBookPublishRequests(queuedCaptor.capture());
+        assertEquals(2, queuedCaptor.getValue().size());
+        verify(publishingStatusDao, times(1)).setPublishingStatuses(anyList(), eq(PublishingRecordStatus.QUEUED));
+        verify(publishingStatusDao, never()).setPublishingStatus(anyString(), any(), any());
+        verify(catalogDao, never()).removeActiveOrInactiveBookFromCatalog(anyString());
+    }
+
+    @Test
+    public void execute_olderRequestWaiting_marksItSuperseded() {
+        // GIVEN
+        SubmitBooksForPublishingRequest request = SubmitBooksForPublishingRequest.builder()
+            .withBooks(Collections.singletonList(book("book.1", BookGenre.FANTASY.name())))
+            .build();
+        BookPublishRequest older = BookPublishRequest.builder()
+            .withPublishingRecordId("publishing.older")
+            .withBookId("book.1")
+            .build();
+        when(catalogDao.findExistingBookIds(anyCollection())).thenReturn(Collections.singleton("book.1"));
+        when(bookPublishRequestManager.addBookPublishRequests(anyList()))
+            .thenReturn(Collections.singletonList(older));
+
+        // WHEN
+        SubmitBooksForPublishingResponse response = activity.execute(request);
+
+        // THEN
+        verify(publishingStatusDao).setPublishingStatus(eq("publishing.older"), eq(PublishingRecordStatus.SUPERSEDED),
+            eq("book.1"), eq("Superseded by publishing record " + response.getResults().get(0).getPublishingRecordId()));
+    }
+
+    @Test
+    public void execute_validBooks_recordsQueuedBeforeQueueing() {
+        // GIVEN
+        SubmitBooksForPublishingRequest request = SubmitBooksForPublishingRequest.builder()
+            .withBooks(Collections.singletonList(book(null, BookGenre.FANTASY.name())))
+            .build();
+        when(catalogDao.findExistingBookIds(anyCollection())).thenReturn(Collections.emptySet());
+        when(bookPublishRequestManager.addBookPublishRequests(anyList())).thenReturn(Collections.emptyList());
+
+        // WHEN
+        activity.execute(request);
+
+        // THEN
+        InOrder inOrder = inOrder(publishingStatusDao, bookPublishRequestManager);
+        inOrder.verify(publishingStatusDao).setPublishingStatuses(anyList(), eq(PublishingRecordStatus.QUEUED));
+        inOrder.verify(bookPublishRequestManager).addBookPublishRequests(anyList());
+    }
+
+    @Test
+    public void execute_queueFillsUpAfterCapacityCheck_recordsFailedAndRethrows() {
+        // GIVEN
+        SubmitBooksForPublishingRequest request = SubmitBooksForPublishingRequest.builder()
+            .withBooks(Collections.singletonList(book(null, BookGenre.FANTASY.name())))
+            .build();
+        PublishingQueueFullException queueFull = new PublishingQueueFullException("Publishing queue is full", 1);
+        when(catalogDao.findExistingBookIds(anyCollection())).thenReturn(Collections.emptySet());
+        when(bookPublishRequestManager.addBookPublishRequests(anyList())).thenThrow(queueFull);
+
+        // WHEN
+        PublishingQueueFullException thrown = assertThrows(PublishingQueueFullException.class,
+            () -> activity.execute(request));
+
+        // THEN
+        assertSame(queueFull, thrown);
+        verify(publishingStatusDao).setPublishingStatuses(anyList(), eq(PublishingRecordStatus.FAILED),
+            eq("Request could not be queued for publishing"));
+    }
+
+    @Test
+    public void execute_failedStatusCannotBeWritten_addsItAsSuppressed() {
+        // GIVEN
+        SubmitBooksForPublishingRequest request = SubmitBooksForPublishingRequest.builder()
+            .withBooks(Collections.singletonList(book(null, BookGenre.FANTASY.name())))
+            .build();
+        IllegalStateException statusFailure = new IllegalStateException("status table unavailable");
+        when(catalogDao.findExistingBookIds(anyCollection())).thenReturn(Collections.emptySet());
+        when(bookPublishRequestManager.addBookPublishRequests(anyList()))
+            .thenThrow(new PublishingQueueFullException("Publishing queue is full", 1));
+        when(publishingStatusDao.setPublishingStatuses(anyList(), eq(PublishingRecordStatus.FAILED), anyString()))
+            .thenThrow(statusFailure);
+
+        // WHEN
+        PublishingQueueFullException thrown = assertThrows(PublishingQueueFullException.class,
+            () -> activity.execute(request));
+
+        // THEN
+        assertSame(statusFailure, thrown.getSuppressed()[0]);
+    }
+
+    private static SubmitBookForPublishingRequest book(String bookId, String genre) {
+        return SubmitBookForPublishingRequest.builder()
+            .withBookId(bookId)
+            .withTitle("Title")
+            .withAuthor("Author")
+            .withText("This is a story.")
+            .withGenre(genre)
+            .build();
+    }
+}
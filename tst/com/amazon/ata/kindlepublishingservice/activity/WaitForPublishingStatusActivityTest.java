@@ -0,0 +1,89 @@
+package com.amazon.ata.kindlepublishingservice.activity;
+
+import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
+import com.amazon.ata.kindlepublishingservice.dynamodb.models.PublishingStatusItem;
+import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import com.amazon.ata.kindlepublishingservice.models.requests.WaitForPublishingStatusRequest;
+import com.amazon.ata.kindlepublishingservice.models.response.GetPublishingStatusResponse;
+import com.amazon.ata.kindlepublishingservice.publishing.PublishingStatusNotifier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class WaitForPublishingStatusActivityTest {
+
+    @Mock
+    private PublishingStatusDao publishingStatusDao;
+
+    private PublishingStatusNotifier notifier;
+    private WaitForPublishingStatusActivity activity;
+
+    @BeforeEach
+    public void setup() {
+        initMocks(this);
+        notifier = new PublishingStatusNotifier(10, new MetricsPublisher());
+        activity = new WaitForPublishingStatusActivity(publishingStatusDao, notifier);
+    }
+
+    @Test
+    public void execute_moreStatusesThanKnown_respondsWithoutWaiting() {
+        // GIVEN
+        when(publishingStatusDao.getPublishingStatuses("publishing.123"))
+            .thenReturn(Collections.singletonList(item(PublishingRecordStatus.QUEUED)));
+
+        // WHEN
+        CompletableFuture<GetPublishingStatusResponse> response = activity.execute(request(0));
+
+        // THEN
+        assertTrue(response.isDone());
+        assertEquals(1, response.join().getPublishingStatusHistory().size());
+        assertEquals(0, notifier.getWaiterCount(), "Expected the wait to be given up.");
+    }
+
+    @Test
+    public void execute_noNewStatus_respondsWhenNextStatusIsWrittenWithoutReadingAgain() throws Exception {
+        // GIVEN
+        when(publishingStatusDao.getPublishingStatuses("publishing.123"))
+            .thenReturn(Collections.singletonList(item(PublishingRecordStatus.QUEUED)));
+        CompletableFuture<GetPublishingStatusResponse> response = activity.execute(request(1));
+        assertFalse(response.isDone(), "Expected the caller to wait for a new status.");
+
+        // WHEN
+        notifier.publish(item(PublishingRecordStatus.IN_PROGRESS));
+
+        // THEN
+        GetPublishingStatusResponse history = response.get(1, TimeUnit.SECONDS);
+        assertEquals(2, history.getPublishingStatusHistory().size());
+        assertEquals("IN_PROGRESS", history.getPublishingStatusHistory().get(1).getStatus());
+        verify(publishingStatusDao, times(1)).getPublishingStatuses("publishing.123");
+    }
+
+    private static WaitForPublishingStatusRequest request(int knownStatusCount) {
+        return WaitForPublishingStatusRequest.builder()
+            .withPublishingRecordId("publishing.123")
+            .withKnownStatusCount(knownStatusCount)
+            .withTimeoutSeconds(10)
+            .build();
+    }
+
+    private static PublishingStatusItem item(PublishingRecordStatus status) {
+        PublishingStatusItem item = new PublishingStatusItem();
+        item.setPublishingRecordId("publishing.123");
+        item.setStatus(status);
+        item.setStatusMessage(status.name());
+        return item;
+    }
+}
@@ -0,0 +1,47 @@
+package com.amazon.ata.kindlepublishingservice.controllers;
+
+import com.amazon.ata.kindlepublishingservice.App;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ControllerTest {
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setup() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new Controller()).build();
+    }
+
+    @Test
+    public void getMetrics_countersAndLatencies_returnsFlatJsonObjectOfNumbers() throws Exception {
+        // GIVEN
+        MetricsPublisher metricsPublisher = App.component.provideMetricsPublisher();
+        metricsPublisher.addCount("ControllerTest.Count", 2);
+        metricsPublisher.recordLatency("ControllerTest.Time", TimeUnit.MILLISECONDS.toNanos(5));
+
+        // WHEN + THEN
+        mockMvc.perform(get("/metrics"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$").isMap())
+            .andExpect(jsonPath("$['ControllerTest.Count']").value(2))
+            .andExpect(jsonPath("$['ControllerTest.Time.Count']").value(1))
+            .andExpect(jsonPath("$['ControllerTest.Time.AvgMicros']").value(5000))
+            .andExpect(jsonPath("$['ControllerTest.Time.MaxMicros']").value(5000))
+            .andExpect(jsonPath("$['ControllerTest.Time.P50Micros']").isNumber())
+            .andExpect(jsonPath("$['ControllerTest.Time.P99Micros']").isNumber())
+            .andExpect(jsonPath("$['ControllerTest.Time.P999Micros']").isNumber());
+    }
+}
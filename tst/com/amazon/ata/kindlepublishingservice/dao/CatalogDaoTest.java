@@ -5,17 +5,32 @@ import com.amazon.ata.kindlepublishingservice.exceptions.BookNotFoundException;
 import com.amazon.ata.kindlepublishingservice.publishing.KindleFormattedBook;
 import com.amazon.ata.recommendationsservice.types.BookGenre;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
 import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedQueryList;
+import com.amazonaws.services.dynamodbv2.datamodeling.TransactionWriteRequest;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -28,6 +43,9 @@ public class CatalogDaoTest {
     @Mock
     private DynamoDBMapper dynamoDbMapper;
 
+    @Mock
+    private TextBlobStore textBlobStore;
+
 
     @InjectMocks
     private CatalogDao catalogDao;
@@ -177,7 +195,12 @@ public class CatalogDaoTest {
         //WHEN
         CatalogItemVersion bookToDelete = catalogDao.removeBookFromCatalog(bookId);
 
-        verify(dynamoDbMapper).save(item);
+        List<Object> updates = transactionOperations(TransactionWriteRequest.TransactionWriteOperationType.Update);
+        assertEquals(2, updates.size(), "Expected the version and its pointer to be updated.");
+        assertEquals(2, ((CatalogItemVersion) updates.get(0)).getVersion());
+        assertTrue(((CatalogItemVersion) updates.get(0)).isInactive(), "Expected the version to be set inactive.");
+        assertEquals(CatalogDao.LATEST_POINTER_VERSION, ((CatalogItemVersion) updates.get(1)).getVersion());
+        assertTrue(((CatalogItemVersion) updates.get(1)).isInactive(), "Expected the pointer to be set inactive.");
         assertTrue(item.isInactive(), "Expected item isInactive to be set to [true] but is: " + item.isInactive());
 
     }
@@ -245,4 +268,335 @@ public class CatalogDaoTest {
 
 
 
-}
\ No newline at end of file
+
+    @Test
+    public void findExistingBookIds_someBooksExist_returnsThoseFoundByBatchLoad() {
+        // GIVEN
+        CatalogItemVersion existing = new CatalogItemVersion();
+        existing.setBookId("book.1");
+        existing.setVersion(1);
+        when(dynamoDbMapper.batchLoad(any(Iterable.class)))
+            .thenReturn(Collections.singletonMap("CatalogItemVersions", Collections.singletonList(existing)));
+
+        // WHEN
+        Set<String> existingBookIds = catalogDao.findExistingBookIds(Arrays.asList("book.1", "book.2", "book.1"));
+
+        // THEN
+        assertEquals(Collections.singleton("book.1"), existingBookIds);
+        ArgumentCaptor<Iterable> keysCaptor = ArgumentCaptor.forClass(Iterable.class);
+        verify(dynamoDbMapper).batchLoad(keysCaptor.capture());
+        List<CatalogItemVersion> keys = new ArrayList<>();
+        keysCaptor.getValue().forEach(key -> keys.add((CatalogItemVersion) key));
+        assertEquals(2, keys.size(), "Expected each book to be looked up once.");
+        assertEquals(1, keys.get(0).getVersion(), "Expected books to be looked up by their first version.");
+    }
+
+    @Test
+    public void createOrUpdateBook_longText_offloadsTextToBlobStore() {
+        // GIVEN
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 100_000) {
+            text.append("It was a dark and stormy night. ");
+        }
+        KindleFormattedBook kindleFormattedBook = KindleFormattedBook.builder()
+                .withAuthor("author").withGenre(BookGenre.ACTION).withText(text.toString()).withTitle("Title").build();
+        when(textBlobStore.put(text.toString())).thenReturn("digest");
+
+        // WHEN
+        catalogDao.createOrUpdateBook(kindleFormattedBook);
+
+        // THEN
+        CatalogItemVersion saved = (CatalogItemVersion) transactionPuts().get(0);
+        assertEquals("digest", saved.getTextDigest(), "Expected the item to point at the stored text.");
+        assertNull(saved.getUncompressedText(), "Expected the text not to be copied into the item.");
+        assertNull(saved.getCompressedText(), "Expected the text not to be copied into the item.");
+    }
+
+    @Test
+    public void getBookFromCatalog_offloadedText_fetchesTextOnlyWhenRead() {
+        // GIVEN
+        CatalogItemVersion item = new CatalogItemVersion();
+        item.setBookId("book.123");
+        item.setVersion(2);
+        item.setTextDigest("digest");
+        when(dynamoDbMapper.query(eq(CatalogItemVersion.class), any(DynamoDBQueryExpression.class))).thenReturn(list);
+        when(list.isEmpty()).thenReturn(false);
+        when(list.get(0)).thenReturn(item);
+        when(textBlobStore.get("digest")).thenReturn("text");
+
+        // WHEN
+        CatalogItemVersion book = catalogDao.getBookFromCatalog("book.123");
+
+        // THEN
+        verify(textBlobStore, never()).get(any());
+        assertEquals("text", book.getText());
+        assertEquals("text", book.getText());
+        verify(textBlobStore, times(1)).get("digest");
+    }
+
+    @Test
+    public void getBookFromCatalog_pointerExists_readsPointerWithoutQuery() {
+        // GIVEN
+        CatalogItemVersion pointer = new CatalogItemVersion();
+        pointer.setBookId("book.123");
+        pointer.setVersion(CatalogDao.LATEST_POINTER_VERSION);
+        pointer.setLatestVersion(3);
+        pointer.setTitle("Title");
+        CatalogItemVersion item = new CatalogItemVersion();
+        item.setBookId("book.123");
+        item.setVersion(3);
+        item.setTitle("Title");
+        item.setText("text");
+        when(dynamoDbMapper.load(eq(CatalogItemVersion.class), eq("book.123"), eq(CatalogDao.LATEST_POINTER_VERSION),
+            any(DynamoDBMapperConfig.class))).thenReturn(pointer);
+        when(dynamoDbMapper.load(eq(CatalogItemVersion.class), eq("book.123"), eq(3),
+            any(DynamoDBMapperConfig.class))).thenReturn(item);
+
+        // WHEN
+        CatalogItemVersion book = catalogDao.getBookFromCatalog("book.123");
+
+        // THEN
+        assertEquals(3, book.getVersion(), "Expected the version the pointer names.");
+        assertNull(book.getLatestVersion(), "Expected the pointer attribute to be cleared.");
+        assertEquals("Title", book.getTitle());
+        assertEquals("text", book.getText(), "Expected the text of the version the pointer names.");
+        verify(dynamoDbMapper, never()).query(eq(CatalogItemVersion.class), any(DynamoDBQueryExpression.class));
+    }
+
+    @Test
+    public void getBookFromCatalog_updatedBetweenPointerAndVersionReads_rereadsPointer() {
+        // GIVEN
+        CatalogItemVersion pointerBefore = new CatalogItemVersion();
+        pointerBefore.setBookId("book.123");
+        pointerBefore.setVersion(CatalogDao.LATEST_POINTER_VERSION);
+        pointerBefore.setLatestVersion(3);
+        CatalogItemVersion pointerAfter = new CatalogItemVersion();
+        pointerAfter.setBookId("book.123");
+        pointerAfter.setVersion(CatalogDao.LATEST_POINTER_VERSION);
+        pointerAfter.setLatestVersion(4);
+        CatalogItemVersion replaced = new CatalogItemVersion();
+        replaced.setBookId("book.123");
+        replaced.setVersion(3);
+        replaced.setInactive(true);
+        CatalogItemVersion item = new CatalogItemVersion();
+        item.setBookId("book.123");
+        item.setVersion(4);
+        item.setText("text");
+        when(dynamoDbMapper.load(eq(CatalogItemVersion.class), eq("book.123"), eq(CatalogDao.LATEST_POINTER_VERSION),
+            any(DynamoDBMapperConfig.class))).thenReturn(pointerBefore, pointerAfter);
+        when(dynamoDbMapper.load(eq(CatalogItemVersion.class), eq("book.123"), eq(3),
+            any(DynamoDBMapperConfig.class))).thenReturn(replaced);
+        when(dynamoDbMapper.load(eq(CatalogItemVersion.class), eq("book.123"), eq(4),
+            any(DynamoDBMapperConfig.class))).thenReturn(item);
+
+        // WHEN
+        CatalogItemVersion book = catalogDao.getBookFromCatalog("book.123");
+
+        // THEN
+        assertEquals(4, book.getVersion(), "Expected the version the pointer moved to.");
+        verify(dynamoDbMapper, never()).query(eq(CatalogItemVersion.class), any(DynamoDBQueryExpression.class));
+    }
+
+    @Test
+    public void getBookFromCatalog_pointerAndVersionInactive_throwsWithoutRereading() {
+        // GIVEN
+        CatalogItemVersion pointer = new CatalogItemVersion();
+        pointer.setBookId("book.123");
+        pointer.setVersion(CatalogDao.LATEST_POINTER_VERSION);
+        pointer.setLatestVersion(3);
+        pointer.setInactive(true);
+        CatalogItemVersion item = new CatalogItemVersion();
+        item.setBookId("book.123");
+        item.setVersion(3);
+        item.setInactive(true);
+        when(dynamoDbMapper.load(eq(CatalogItemVersion.class), eq("book.123"), eq(CatalogDao.LATEST_POINTER_VERSION),
+            any(DynamoDBMapperConfig.class))).thenReturn(pointer);
+        when(dynamoDbMapper.load(eq(CatalogItemVersion.class), eq("book.123"), eq(3),
+            any(DynamoDBMapperConfig.class))).thenReturn(item);
+
+        // WHEN + THEN
+        assertThrows(BookNotFoundException.class, () -> catalogDao.getBookFromCatalog("book.123"));
+        verify(dynamoDbMapper, times(1)).load(eq(CatalogItemVersion.class), eq("book.123"),
+            eq(CatalogDao.LATEST_POINTER_VERSION), any(DynamoDBMapperConfig.class));
+    }
+
+    @Test
+    public void getBookFromCatalog_pointerHoldsTextDigest_readsTextFromBlobStoreOnly() {
+        // GIVEN
+        CatalogItemVersion pointer = new CatalogItemVersion();
+        pointer.setBookId("book.123");
+        pointer.setVersion(CatalogDao.LATEST_POINTER_VERSION);
+        pointer.setLatestVersion(3);
+        pointer.setTextDigest("digest");
+        when(dynamoDbMapper.load(eq(CatalogItemVersion.class), eq("book.123"), eq(CatalogDao.LATEST_POINTER_VERSION),
+            any(DynamoDBMapperConfig.class))).thenReturn(pointer);
+        when(textBlobStore.get("digest")).thenReturn("text");
+
+        // WHEN
+        CatalogItemVersion book = catalogDao.getBookFromCatalog("book.123");
+
+        // THEN
+        assertEquals(3, book.getVersion());
+        assertEquals("text", book.getText());
+        verify(dynamoDbMapper, never()).load(eq(CatalogItemVersion.class), eq("book.123"), eq(3),
+            any(DynamoDBMapperConfig.class));
+    }
+
+    @Test
+    public void getBookFromCatalog_noPointer_queriesAndBackfillsPointer() {
+        // GIVEN
+        CatalogItemVersion item = new CatalogItemVersion();
+        item.setBookId("book.123");
+        item.setVersion(2);
+        when(dynamoDbMapper.query(eq(CatalogItemVersion.class), any(DynamoDBQueryExpression.class))).thenReturn(list);
+        when(list.isEmpty()).thenReturn(false);
+        when(list.get(0)).thenReturn(item);
+
+        // WHEN
+        CatalogItemVersion book = catalogDao.getBookFromCatalog("book.123");
+
+        // THEN
+        assertEquals(2, book.getVersion());
+        ArgumentCaptor<CatalogItemVersion> pointerCaptor = ArgumentCaptor.forClass(CatalogItemVersion.class);
+        verify(dynamoDbMapper).save(pointerCaptor.capture(), any(DynamoDBSaveExpression.class));
+        assertEquals(CatalogDao.LATEST_POINTER_VERSION, pointerCaptor.getValue().getVersion());
+        assertEquals(Integer.valueOf(2), pointerCaptor.getValue().getLatestVersion());
+    }
+
+    @Test
+    public void createOrUpdateBook_newBook_writesVersionAndPointerInOneTransaction() {
+        // GIVEN
+        KindleFormattedBook kindleFormattedBook = KindleFormattedBook.builder()
+                .withAuthor("author").withGenre(BookGenre.ACTION).withText("text").withTitle("Title").build();
+
+        // WHEN
+        CatalogItemVersion item = catalogDao.createOrUpdateBook(kindleFormattedBook);
+
+        // THEN
+        List<Object> puts = transactionPuts();
+        assertEquals(2, puts.size(), "Expected the version and its pointer in one transaction.");
+        CatalogItemVersion pointer = (CatalogItemVersion) puts.get(1);
+        assertEquals(item.getBookId(), pointer.getBookId());
+        assertEquals(CatalogDao.LATEST_POINTER_VERSION, pointer.getVersion());
+        assertEquals(Integer.valueOf(1), pointer.getLatestVersion());
+        assertEquals("Title", pointer.getTitle());
+        assertNull(pointer.getUncompressedText(), "Expected the text not to be copied into the pointer.");
+        assertNull(pointer.getCompressedText(), "Expected the text not to be copied into the pointer.");
+    }
+
+    @Test
+    public void createOrUpdateBook_existingBook_writesVersionBumpInOneTransaction() {
+        // GIVEN
+        when(dynamoDbMapper.query(eq(CatalogItemVersion.class), any(DynamoDBQueryExpression.class))).thenReturn(list);
+        when(list.isEmpty()).thenReturn(false);
+        when(list.get(0)).thenReturn(pointerMetadata("book.123", 2));
+        KindleFormattedBook kindleFormattedBook = KindleFormattedBook.builder().withBookId("book.123")
+                .withAuthor("author").withGenre(BookGenre.ACTION).withText("new text").withTitle("New Title").build();
+
+        // WHEN
+        CatalogItemVersion item = catalogDao.createOrUpdateBook(kindleFormattedBook);
+
+        // THEN
+        verify(dynamoDbMapper, times(1)).transactionWrite(any(TransactionWriteRequest.class));
+        List<Object> updates = transactionOperations(TransactionWriteRequest.TransactionWriteOperationType.Update);
+        assertEquals(1, updates.size(), "Expected the previous version to be updated.");
+        CatalogItemVersion previous = (CatalogItemVersion) updates.get(0);
+        assertEquals(2, previous.getVersion());
+        assertTrue(previous.isInactive(), "Expected the previous version to be inactive.");
+        assertNull(previous.getTitle(), "Expected only the inactive flag to be written.");
+        List<Object> puts = transactionPuts();
+        assertEquals(2, puts.size(), "Expected the next version and the pointer.");
+        assertEquals(3, item.getVersion());
+        assertFalse(item.isInactive());
+        assertEquals("New Title", item.getTitle());
+        assertEquals("new text", item.getText());
+        assertEquals(item, puts.get(0));
+        assertEquals(Integer.valueOf(3), ((CatalogItemVersion) puts.get(1)).getLatestVersion());
+        verify(dynamoDbMapper, never()).load(eq(CatalogItemVersion.class), any(), any(),
+            any(DynamoDBMapperConfig.class));
+    }
+
+    @Test
+    public void createOrUpdateBook_concurrentVersionBump_retriesOnNewLatestVersion() {
+        // GIVEN another publisher writes version 3 between the first read and the first write
+        when(dynamoDbMapper.query(eq(CatalogItemVersion.class), any(DynamoDBQueryExpression.class))).thenReturn(list);
+        when(list.isEmpty()).thenReturn(false);
+        when(list.get(0)).thenReturn(pointerMetadata("book.123", 2), pointerMetadata("book.123", 3));
+        doThrow(new TransactionCanceledException("cancelled").withCancellationReasons(
+                new CancellationReason().withCode("None"),
+                new CancellationReason().withCode("ConditionalCheckFailed"),
+                new CancellationReason().withCode("ConditionalCheckFailed")))
+            .doNothing()
+            .when(dynamoDbMapper).transactionWrite(any(TransactionWriteRequest.class));
+        KindleFormattedBook kindleFormattedBook = KindleFormattedBook.builder().withBookId("book.123")
+                .withAuthor("author").withGenre(BookGenre.ACTION).withText("text").withTitle("Title").build();
+
+        // WHEN
+        CatalogItemVersion item = catalogDao.createOrUpdateBook(kindleFormattedBook);
+
+        // THEN
+        assertEquals(4, item.getVersion(), "Expected the update to go on top of the concurrent version.");
+        verify(dynamoDbMapper, times(2)).transactionWrite(any(TransactionWriteRequest.class));
+    }
+
+    @Test
+    public void createOrUpdateBook_throttledVersionBump_doesNotRetry() {
+        // GIVEN
+        when(dynamoDbMapper.query(eq(CatalogItemVersion.class), any(DynamoDBQueryExpression.class))).thenReturn(list);
+        when(list.isEmpty()).thenReturn(false);
+        when(list.get(0)).thenReturn(pointerMetadata("book.123", 2));
+        doThrow(new TransactionCanceledException("cancelled").withCancellationReasons(
+                new CancellationReason().withCode("ThrottlingError")))
+            .when(dynamoDbMapper).transactionWrite(any(TransactionWriteRequest.class));
+        KindleFormattedBook kindleFormattedBook = KindleFormattedBook.builder().withBookId("book.123")
+                .withAuthor("author").withGenre(BookGenre.ACTION).withText("text").withTitle("Title").build();
+
+        // WHEN && THEN
+        assertThrows(TransactionCanceledException.class, () -> catalogDao.createOrUpdateBook(kindleFormattedBook));
+        verify(dynamoDbMapper, times(1)).transactionWrite(any(TransactionWriteRequest.class));
+    }
+
+    @Test
+    public void validateBookExists_pointerExists_readsOnlyItsMetadata() {
+        // GIVEN
+        when(dynamoDbMapper.query(eq(CatalogItemVersion.class), any(DynamoDBQueryExpression.class))).thenReturn(list);
+        when(list.isEmpty()).thenReturn(false);
+        when(list.get(0)).thenReturn(pointerMetadata("book.123", 2));
+
+        // WHEN
+        catalogDao.validateBookExists("book.123");
+
+        // THEN
+        verify(dynamoDbMapper, times(1)).query(eq(CatalogItemVersion.class), any(DynamoDBQueryExpression.class));
+        verify(dynamoDbMapper, never()).load(eq(CatalogItemVersion.class), any(), any(),
+            any(DynamoDBMapperConfig.class));
+    }
+
+    // The pointer as read by a projection, without title, author or text.
+    private static CatalogItemVersion pointerMetadata(String bookId, int latestVersion) {
+        CatalogItemVersion pointer = new CatalogItemVersion();
+        pointer.setBookId(bookId);
+        pointer.setVersion(CatalogDao.LATEST_POINTER_VERSION);
+        pointer.setLatestVersion(latestVersion);
+        return pointer;
+    }
+
+    private List<Object> transactionPuts() {
+        return transactionOperations(TransactionWriteRequest.TransactionWriteOperationType.Put);
+    }
+
+    private List<Object> transactionOperations(TransactionWriteRequest.TransactionWriteOperationType type) {
+        ArgumentCaptor<TransactionWriteRequest> requestCaptor = ArgumentCaptor.forClass(TransactionWriteRequest.class);
+        verify(dynamoDbMapper, atLeastOnce()).transactionWrite(requestCaptor.capture());
+        List<Object> objects = new ArrayList<>();
+        for (TransactionWriteRequest request : requestCaptor.getAllValues()) {
+            for (TransactionWriteRequest.TransactionWriteOperation operation
+                    : request.getTransactionWriteOperations()) {
+                if (operation.getTransactionWriteOperationType() == type) {
+                    objects.add(operation.getObject());
+                }
+            }
+        }
+        return objects;
+    }
+}
@@ -0,0 +1,167 @@
+package com.amazon.ata.kindlepublishingservice.dao;
+
+import com.amazon.ata.kindlepublishingservice.dynamodb.models.CatalogItemVersion;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsConstants;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CatalogItemCacheTest {
+
+    private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private MetricsPublisher metricsPublisher;
+    private AtomicLong clock;
+    private Map<String, Integer> loads;
+
+    @BeforeEach
+    public void setup() {
+        metricsPublisher = new MetricsPublisher();
+        clock = new AtomicLong();
+        loads = new HashMap<>();
+    }
+
+    @Test
+    public void get_readTwice_loadsOnceAndReturnsCopies() {
+        // GIVEN
+        CatalogItemCache cache = new CatalogItemCache(metricsPublisher, 1 << 20, TTL_NANOS, clock::get);
+
+        // WHEN
+        CatalogItemVersion first = cache.get("book.1", loader());
+        first.setTitle("changed by caller");
+        CatalogItemVersion second = cache.get("book.1", loader());
+
+        // THEN
+        assertEquals(1, loadCount("book.1"));
+        assertFalse(first == second);
+        assertEquals("title of book.1", second.getTitle());
+        assertEquals(1, metricsPublisher.getCount(MetricsConstants.CATALOG_CACHE_HIT_COUNT));
+        assertEquals(1, metricsPublisher.getCount(MetricsConstants.CATALOG_CACHE_MISS_COUNT));
+        assertEquals(50, cache.getHitRatioPercent());
+    }
+
+    @Test
+    public void get_afterInvalidate_loadsAgain() {
+        // GIVEN
+        CatalogItemCache cache = new CatalogItemCache(metricsPublisher, 1 << 20, TTL_NANOS, clock::get);
+        cache.get("book.1", loader());
+
+        // WHEN
+        cache.invalidate("book.1");
+        cache.get("book.1", loader());
+
+        // THEN
+        assertEquals(2, loadCount("book.1"));
+    }
+
+    @Test
+    public void get_invalidatedWhileLoading_doesNotCacheLoadedVersion() {
+        // GIVEN a write that lands while the version before it is being read
+        CatalogItemCache cache = new CatalogItemCache(metricsPublisher, 1 << 20, TTL_NANOS, clock::get);
+        Function<String, CatalogItemVersion> racingLoader = bookId -> {
+            CatalogItemVersion stale = loader().apply(bookId);
+            cache.invalidate(bookId);
+            return stale;
+        };
+
+        // WHEN
+        cache.get("book.1", racingLoader);
+        cache.get("book.1", loader());
+
+        // THEN
+        assertEquals(2, loadCount("book.1"));
+    }
+
+    @Test
+    public void get_afterTimeToLive_loadsAgain() {
+        // GIVEN
+        CatalogItemCache cache = new CatalogItemCache(metricsPublisher, 1 << 20, TTL_NANOS, clock::get);
+        cache.get("book.1", loader());
+
+        // WHEN
+        clock.addAndGet(TTL_NANOS);
+        cache.get("book.1", loader());
+
+        // THEN
+        assertEquals(2, loadCount("book.1"));
+    }
+
+    @Test
+    public void get_bookWithoutVersion_isNotCached() {
+        // GIVEN
+        CatalogItemCache cache = new CatalogItemCache(metricsPublisher, 1 << 20, TTL_NANOS, clock::get);
+
+        // WHEN
+        CatalogItemVersion missing = cache.get("book.1", bookId -> null);
+
+        // THEN
+        assertNull(missing);
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void get_scanOfBooksReadOnce_keepsFrequentlyReadBooks() {
+        // GIVEN a cache that fits about 20 books, holding 10 books read many times
+        CatalogItemCache cache = new CatalogItemCache(metricsPublisher, 20 * 600, TTL_NANOS, clock::get);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 10; i++) {
+                cache.get("hot." + i, loader());
+            }
+        }
+
+        // WHEN 500 other books are read once each
+        for (int i = 0; i < 500; i++) {
+            cache.get("cold." + i, loader());
+        }
+
+        // THEN
+        for (int i = 0; i < 10; i++) {
+            cache.get("hot." + i, loader());
+            assertEquals(1, loadCount("hot." + i), "hot." + i + " was evicted by the scan");
+        }
+        assertTrue(cache.getMemoryBytes() <= 20 * 600);
+        assertTrue(metricsPublisher.getCount(MetricsConstants.CATALOG_CACHE_EVICTION_COUNT) > 0);
+    }
+
+    @Test
+    public void get_disabled_alwaysLoads() {
+        // GIVEN
+        CatalogItemCache cache = CatalogItemCache.disabled();
+
+        // WHEN
+        cache.get("book.1", loader());
+        cache.get("book.1", loader());
+
+        // THEN
+        assertEquals(2, loadCount("book.1"));
+        assertFalse(cache.getSize() > 0);
+    }
+
+    private int loadCount(String bookId) {
+        return loads.getOrDefault(bookId, 0);
+    }
+
+    private Function<String, CatalogItemVersion> loader() {
+        return bookId -> {
+            loads.merge(bookId, 1, Integer::sum);
+            CatalogItemVersion item = new CatalogItemVersion();
+            item.setBookId(bookId);
+            item.setVersion(1);
+            item.setTitle("title of " + bookId);
+            item.setAuthor("author");
+            item.setText("text");
+            return item;
+        };
+    }
+}
@@ -0,0 +1,108 @@
+package com.amazon.ata.kindlepublishingservice.dao;
+
+import com.amazon.ata.kindlepublishingservice.dynamodb.models.CatalogItemVersion;
+import com.amazon.ata.kindlepublishingservice.publishing.KindleFormattedBook;
+import com.amazon.ata.recommendationsservice.types.BookGenre;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares looking up the latest version of a book with {@link CatalogDao#getBookFromCatalog}, with no cache in
+ * front of the table, against querying its versions newest first, for books with 1 and 5 versions. The lookup is a
+ * strongly consistent GetItem of the latest-version pointer followed by a GetItem of the version it names, since the
+ * benchmark's text is kept in the table. Runs against the CatalogItemVersions table in us-west-2 with the default
+ * credentials, and deletes the books it creates. Run with ./gradlew benchmark.
+ */
+@Tag("benchmark")
+public class CatalogLatestVersionBenchmark {
+
+    private static final int[] VERSION_COUNTS = {1, 5};
+    private static final int BOOKS = 10;
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 20;
+
+    @Test
+    public void latestVersion_lookupAndQuery_reportsLatency() {
+        DynamoDBMapper dynamoDbMapper = new DynamoDBMapper(AmazonDynamoDBClientBuilder.standard()
+            .withRegion(Regions.US_WEST_2)
+            .build());
+        // no cache, so every lookup reads the table
+        CatalogDao catalogDao = new CatalogDao(dynamoDbMapper, null, null);
+
+        System.out.println(String.format("%9s %-8s %10s %10s %10s", "versions", "path", "mean ms", "p50 ms",
+            "p99 ms"));
+        for (int versionCount : VERSION_COUNTS) {
+            List<CatalogItemVersion> books = new ArrayList<>();
+            try {
+                for (int i = 0; i < BOOKS; i++) {
+                    books.add(createBook(catalogDao, versionCount));
+                }
+                report(versionCount, "lookup", books, catalogDao::getBookFromCatalog);
+                report(versionCount, "query", books, catalogDao::queryLatestVersion);
+            } finally {
+                for (CatalogItemVersion book : books) {
+                    deleteBook(dynamoDbMapper, book);
+                }
+            }
+        }
+    }
+
+    private static CatalogItemVersion createBook(CatalogDao catalogDao, int versionCount) {
+        CatalogItemVersion book = null;
+        for (int version = 1; version <= versionCount; version++) {
+            book = catalogDao.createOrUpdateBook(KindleFormattedBook.builder()
+                .withBookId(book == null ? null : book.getBookId())
+                .withTitle("Benchmark title")
+                .withAuthor("Benchmark author")
+                .withGenre(BookGenre.FANTASY)
+                .withText("Benchmark text, version " + version)
+                .build());
+        }
+        return book;
+    }
+
+    private static void report(int versionCount, String path, List<CatalogItemVersion> books,
+                               Function<String, CatalogItemVersion> latestVersion) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            for (CatalogItemVersion book : books) {
+                latestVersion.apply(book.getBookId());
+            }
+        }
+        long[] nanos = new long[MEASURED_RUNS * books.size()];
+        int sample = 0;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            for (CatalogItemVersion book : books) {
+                long startTime = System.nanoTime();
+                CatalogItemVersion latest = latestVersion.apply(book.getBookId());
+                nanos[sample++] = System.nanoTime() - startTime;
+                assertEquals(book.getVersion(), latest.getVersion(), "Expected the latest version.");
+            }
+        }
+
+        Arrays.sort(nanos);
+        double millis = TimeUnit.MILLISECONDS.toNanos(1);
+        System.out.println(String.format("%9d %-8s %10.2f %10.2f %10.2f", versionCount, path,
+            Arrays.stream(nanos).average().orElse(0) / millis, nanos[nanos.length / 2] / millis,
+            nanos[nanos.length * 99 / 100] / millis));
+    }
+
+    private static void deleteBook(DynamoDBMapper dynamoDbMapper, CatalogItemVersion book) {
+        for (int version = CatalogDao.LATEST_POINTER_VERSION; version <= book.getVersion(); version++) {
+            CatalogItemVersion key = new CatalogItemVersion();
+            key.setBookId(book.getBookId());
+            key.setVersion(version);
+            dynamoDbMapper.delete(key);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.amazon.ata.kindlepublishingservice.dao;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FileTextBlobStoreTest {
+
+    private Path directory;
+    private FileTextBlobStore textBlobStore;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("text-blobs");
+        textBlobStore = new FileTextBlobStore(directory);
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    public void put_sameTextTwice_storesOneCopy() throws IOException {
+        // GIVEN
+        String digest = textBlobStore.put("It was a dark and stormy night.");
+
+        // WHEN
+        String sameDigest = textBlobStore.put("It was a dark and stormy night.");
+        String otherDigest = textBlobStore.put("It was a bright cold day in April.");
+
+        // THEN
+        assertEquals(digest, sameDigest);
+        assertNotEquals(digest, otherDigest);
+        assertEquals("It was a dark and stormy night.", textBlobStore.get(digest));
+        try (Stream<Path> files = Files.walk(directory)) {
+            assertEquals(2, files.filter(Files::isRegularFile).count(), "Expected identical text stored once.");
+        }
+    }
+
+    @Test
+    public void get_unknownDigest_throws() {
+        // WHEN + THEN
+        assertThrows(IllegalStateException.class, () -> textBlobStore.get(TextBlobStore.digestOf("missing")));
+    }
+}
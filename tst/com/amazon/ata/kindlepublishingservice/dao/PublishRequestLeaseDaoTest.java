@@ -0,0 +1,281 @@
+package com.amazon.ata.kindlepublishingservice.dao;
+
+import com.amazon.ata.kindlepublishingservice.dynamodb.models.PublishRequestLeaseItem;
+import com.amazon.ata.kindlepublishingservice.publishing.BookPublishRequest;
+import com.amazon.ata.kindlepublishingservice.publishing.LeasedPublishRequest;
+import com.amazon.ata.recommendationsservice.types.BookGenre;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBDeleteExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedQueryList;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class PublishRequestLeaseDaoTest {
+
+    private static final long NOW = 1_000_000L;
+    private static final long LEASE_MILLIS = 30_000L;
+    private static final String OWNER = "node-1";
+
+    @Mock
+    private DynamoDBMapper dynamoDbMapper;
+
+    @Mock
+    private TextBlobStore textBlobStore;
+
+    @Mock
+    private PaginatedQueryList<PublishRequestLeaseItem> queue;
+
+    private PublishRequestLeaseDao dao;
+
+    @BeforeEach
+    public void setup() {
+        initMocks(this);
+        dao = new PublishRequestLeaseDao(dynamoDbMapper, textBlobStore, () -> NOW);
+    }
+
+    @Test
+    public void put_largeText_storesTextDigestInsteadOfText() {
+        // GIVEN
+        String text = repeat('a', CatalogDao.TEXT_OFFLOAD_MIN_CHARS);
+        when(textBlobStore.put(text)).thenReturn("digest");
+        ArgumentCaptor<PublishRequestLeaseItem> captor = ArgumentCaptor.forClass(PublishRequestLeaseItem.class);
+
+        // WHEN
+        dao.put(request("publishing.1", "book.1", text));
+
+        // THEN
+        verify(dynamoDbMapper).save(captor.capture(), any(DynamoDBSaveExpression.class));
+        PublishRequestLeaseItem item = captor.getValue();
+        assertEquals("digest", item.getTextDigest(), "Expected large text to be stored by digest.");
+        assertNull(item.getText(), "Expected large text not to be stored in the item.");
+        assertNull(item.getCompressedText(), "Expected large text not to be stored in the item.");
+        assertEquals(PublishRequestLeaseItem.PUBLISH_QUEUE, item.getQueue());
+        assertEquals(Long.valueOf(0L), item.getLeaseExpiresAt(), "Expected a new request not to be leased.");
+    }
+
+    @Test
+    public void put_noTextStore_compressesLongText() {
+        // GIVEN
+        dao = new PublishRequestLeaseDao(dynamoDbMapper, null, () -> NOW);
+        String text = repeat('a', CatalogDao.TEXT_OFFLOAD_MIN_CHARS);
+        ArgumentCaptor<PublishRequestLeaseItem> captor = ArgumentCaptor.forClass(PublishRequestLeaseItem.class);
+
+        // WHEN
+        dao.put(request("publishing.1", "book.1", text));
+
+        // THEN
+        verify(dynamoDbMapper).save(captor.capture(), any(DynamoDBSaveExpression.class));
+        assertEquals(text, captor.getValue().getCompressedText(), "Expected long text to be stored compressed.");
+        assertNull(captor.getValue().getText());
+        assertNull(captor.getValue().getTextDigest());
+    }
+
+    @Test
+    public void acquire_pendingRequests_queriesIndexAndLeasesOldestRequestOfEachBook() {
+        // GIVEN
+        PublishRequestLeaseItem first = indexEntry("publishing.1", "book.1", 0L);
+        PublishRequestLeaseItem sameBook = indexEntry("publishing.2", "book.1", 0L);
+        PublishRequestLeaseItem leasedElsewhere = indexEntry("publishing.3", "book.2", NOW + 1);
+        leasedElsewhere.setOwner("node-2");
+        PublishRequestLeaseItem other = indexEntry("publishing.4", "book.3", 0L);
+        when(dynamoDbMapper.query(eq(PublishRequestLeaseItem.class), any(DynamoDBQueryExpression.class)))
+            .thenReturn(queue);
+        when(queue.iterator()).thenReturn(Arrays.asList(first, sameBook, leasedElsewhere, other).iterator());
+        when(dynamoDbMapper.load(eq(PublishRequestLeaseItem.class), eq("publishing.1"),
+            any(DynamoDBMapperConfig.class))).thenReturn(storedItem("publishing.1", "book.1"));
+        when(dynamoDbMapper.load(eq(PublishRequestLeaseItem.class), eq("publishing.4"),
+            any(DynamoDBMapperConfig.class))).thenReturn(storedItem("publishing.4", "book.3"));
+        ArgumentCaptor<DynamoDBQueryExpression> queryCaptor = ArgumentCaptor.forClass(DynamoDBQueryExpression.class);
+        ArgumentCaptor<PublishRequestLeaseItem> leaseCaptor = ArgumentCaptor.forClass(PublishRequestLeaseItem.class);
+        ArgumentCaptor<DynamoDBMapperConfig> configCaptor = ArgumentCaptor.forClass(DynamoDBMapperConfig.class);
+
+        // WHEN
+        List<LeasedPublishRequest> leased = dao.acquire(OWNER, 10, LEASE_MILLIS);
+
+        // THEN
+        assertEquals(2, leased.size(), "Expected the oldest free request of each book to be leased.");
+        assertEquals("publishing.1", leased.get(0).getRequest().getPublishingRecordId());
+        assertEquals("text", leased.get(0).getRequest().getText(), "Expected the text read from the table.");
+        assertEquals("publishing.4", leased.get(1).getRequest().getPublishingRecordId());
+
+        verify(dynamoDbMapper).query(eq(PublishRequestLeaseItem.class), queryCaptor.capture());
+        assertEquals(PublishRequestLeaseItem.QUEUE_INDEX, queryCaptor.getValue().getIndexName(),
+            "Expected requests to be found through the queue index.");
+        assertFalse(queryCaptor.getValue().isConsistentRead(), "Expected an eventually consistent index query.");
+
+        verify(dynamoDbMapper, never()).scan(eq(PublishRequestLeaseItem.class), any());
+        verify(dynamoDbMapper, times(2)).save(leaseCaptor.capture(), any(DynamoDBSaveExpression.class),
+            configCaptor.capture());
+        PublishRequestLeaseItem lease = leaseCaptor.getAllValues().get(0);
+        assertEquals(OWNER, lease.getOwner());
+        assertEquals(Long.valueOf(NOW + LEASE_MILLIS), lease.getLeaseExpiresAt());
+        assertNull(lease.getText(), "Expected taking a lease not to write the text.");
+        assertNull(lease.getTitle(), "Expected taking a lease not to write the rest of the request.");
+        assertEquals(DynamoDBMapperConfig.SaveBehavior.UPDATE_SKIP_NULL_ATTRIBUTES,
+            configCaptor.getValue().getSaveBehavior(), "Expected the lease to be taken with an update.");
+    }
+
+    @Test
+    public void acquire_leaseTakenSinceQuery_skipsRequest() {
+        // GIVEN
+        when(dynamoDbMapper.query(eq(PublishRequestLeaseItem.class), any(DynamoDBQueryExpression.class)))
+            .thenReturn(queue);
+        when(queue.iterator()).thenReturn(Arrays.asList(indexEntry("publishing.1", "book.1", 0L)).iterator());
+        doThrow(ConditionalCheckFailedException.class).when(dynamoDbMapper).save(any(PublishRequestLeaseItem.class),
+            any(DynamoDBSaveExpression.class), any(DynamoDBMapperConfig.class));
+
+        // WHEN
+        List<LeasedPublishRequest> leased = dao.acquire(OWNER, 10, LEASE_MILLIS);
+
+        // THEN
+        assertTrue(leased.isEmpty(), "Expected a request leased by another node since the query to be skipped.");
+        verify(dynamoDbMapper, never()).load(eq(PublishRequestLeaseItem.class), any(),
+            any(DynamoDBMapperConfig.class));
+    }
+
+    @Test
+    public void renew_leaseHeld_updatesExpiryConditionalOnOwner() {
+        // GIVEN
+        ArgumentCaptor<PublishRequestLeaseItem> leaseCaptor = ArgumentCaptor.forClass(PublishRequestLeaseItem.class);
+        ArgumentCaptor<DynamoDBSaveExpression> expressionCaptor =
+            ArgumentCaptor.forClass(DynamoDBSaveExpression.class);
+
+        // WHEN
+        boolean renewed = dao.renew("publishing.1", OWNER, LEASE_MILLIS);
+
+        // THEN
+        assertTrue(renewed);
+        verify(dynamoDbMapper).save(leaseCaptor.capture(), expressionCaptor.capture(),
+            any(DynamoDBMapperConfig.class));
+        assertEquals(Long.valueOf(NOW + LEASE_MILLIS), leaseCaptor.getValue().getLeaseExpiresAt());
+        assertNull(leaseCaptor.getValue().getText(), "Expected renewing not to write the text.");
+        assertEquals(OWNER, expressionCaptor.getValue().getExpected().get("owner").getValue().getS(),
+            "Expected the renewal to require the caller to hold the lease.");
+        verify(dynamoDbMapper, never()).load(eq(PublishRequestLeaseItem.class), any());
+    }
+
+    @Test
+    public void renew_leaseLost_returnsFalse() {
+        // GIVEN
+        doThrow(ConditionalCheckFailedException.class).when(dynamoDbMapper).save(any(PublishRequestLeaseItem.class),
+            any(DynamoDBSaveExpression.class), any(DynamoDBMapperConfig.class));
+
+        // WHEN
+        boolean renewed = dao.renew("publishing.1", OWNER, LEASE_MILLIS);
+
+        // THEN
+        assertFalse(renewed, "Expected a lease held by another node not to be renewed.");
+    }
+
+    @Test
+    public void complete_leaseHeld_deletesConditionalOnOwner() {
+        // GIVEN
+        ArgumentCaptor<DynamoDBDeleteExpression> expressionCaptor =
+            ArgumentCaptor.forClass(DynamoDBDeleteExpression.class);
+
+        // WHEN
+        boolean completed = dao.complete("publishing.1", OWNER);
+
+        // THEN
+        assertTrue(completed);
+        verify(dynamoDbMapper).delete(any(PublishRequestLeaseItem.class), expressionCaptor.capture());
+        assertEquals(OWNER, expressionCaptor.getValue().getExpected().get("owner").getValue().getS());
+    }
+
+    @Test
+    public void remove_requestLeased_returnsNullWithoutDeleting() {
+        // GIVEN
+        PublishRequestLeaseItem item = storedItem("publishing.1", "book.1");
+        item.setOwner("node-2");
+        item.setLeaseExpiresAt(NOW + 1);
+        when(dynamoDbMapper.load(eq(PublishRequestLeaseItem.class), eq("publishing.1"),
+            any(DynamoDBMapperConfig.class))).thenReturn(item);
+
+        // WHEN
+        BookPublishRequest removed = dao.remove("publishing.1");
+
+        // THEN
+        assertNull(removed, "Expected a leased request not to be removed.");
+        verify(dynamoDbMapper, never()).delete(any(PublishRequestLeaseItem.class),
+            any(DynamoDBDeleteExpression.class));
+    }
+
+    @Test
+    public void countPending_countsQueueIndex() {
+        // GIVEN
+        ArgumentCaptor<DynamoDBQueryExpression> queryCaptor = ArgumentCaptor.forClass(DynamoDBQueryExpression.class);
+        when(dynamoDbMapper.count(eq(PublishRequestLeaseItem.class), any(DynamoDBQueryExpression.class)))
+            .thenReturn(3);
+
+        // WHEN
+        int pending = dao.countPending();
+
+        // THEN
+        assertEquals(3, pending);
+        verify(dynamoDbMapper).count(eq(PublishRequestLeaseItem.class), queryCaptor.capture());
+        assertEquals(PublishRequestLeaseItem.QUEUE_INDEX, queryCaptor.getValue().getIndexName());
+    }
+
+    private static BookPublishRequest request(String publishingRecordId, String bookId, String text) {
+        return BookPublishRequest.builder()
+            .withPublishingRecordId(publishingRecordId)
+            .withBookId(bookId)
+            .withTitle("Title")
+            .withAuthor("Author")
+            .withGenre(BookGenre.FANTASY)
+            .withText(text)
+            .build();
+    }
+
+    // What the queue index projects, no title or text.
+    private static PublishRequestLeaseItem indexEntry(String id, String bookId, long leaseExpiresAt) {
+        PublishRequestLeaseItem entry = new PublishRequestLeaseItem();
+        entry.setId(id);
+        entry.setQueue(PublishRequestLeaseItem.PUBLISH_QUEUE);
+        entry.setBookId(bookId);
+        entry.setEnqueuedAt(NOW - 10);
+        entry.setAvailableAt(NOW - 10);
+        entry.setLeaseExpiresAt(leaseExpiresAt);
+        return entry;
+    }
+
+    private static PublishRequestLeaseItem storedItem(String id, String bookId) {
+        PublishRequestLeaseItem item = indexEntry(id, bookId, NOW + LEASE_MILLIS);
+        item.setOwner(OWNER);
+        item.setTitle("Title");
+        item.setAuthor("Author");
+        item.setGenre(BookGenre.FANTASY.name());
+        item.setText("text");
+        item.setAttempts(0);
+        return item;
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
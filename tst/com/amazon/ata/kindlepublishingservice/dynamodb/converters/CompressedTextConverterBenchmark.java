@@ -0,0 +1,81 @@
+package com.amazon.ata.kindlepublishingservice.dynamodb.converters;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures the stored size of compressed book text, the read capacity a strongly consistent read of it costs and the
+ * time spent decompressing it on read, for 10 KB to 1 MB manuscripts. Run with ./gradlew benchmark.
+ *
+ * The manuscripts are drawn at random from a vocabulary of English words, repeated text would compress unrealistically
+ * well.
+ */
+@Tag("benchmark")
+public class CompressedTextConverterBenchmark {
+
+    private static final int[] TEXT_SIZES = {10 * 1024, 100 * 1024, 1024 * 1024};
+    private static final int RCU_BYTES = 4096;
+    private static final int WARMUP_RUNS = 20;
+    private static final int MEASURED_RUNS = 50;
+    private static final String[] WORDS = ("the of and to a in that was he it his with as had for she on at her be by "
+        + "which not but from have they you this were all said one him so my there an what when their would been if "
+        + "no out me into more who them up some could man time only little very about upon before than old night "
+        + "house over any should like such our rain storm wind window letter morning through door without again "
+        + "captain lady river garden never father mother across whispered afterwards thought remembered silence")
+        .split(" ");
+
+    @Test
+    public void unconvert_manuscriptSizes_reportsSizeCapacityAndDecodeTime() {
+        CompressedTextConverter converter = new CompressedTextConverter();
+
+        System.out.println(String.format("%10s %12s %12s %8s %8s %8s %12s", "text", "raw bytes", "stored bytes",
+            "ratio", "raw RCU", "RCU", "decode ms"));
+        for (int textSize : TEXT_SIZES) {
+            String text = manuscript(textSize);
+            int rawBytes = text.getBytes(StandardCharsets.UTF_8).length;
+            byte[] stored = converter.convert(text);
+
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                converter.unconvert(stored);
+            }
+            long bestNanos = Long.MAX_VALUE;
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                long startTime = System.nanoTime();
+                String decoded = converter.unconvert(stored);
+                bestNanos = Math.min(bestNanos, System.nanoTime() - startTime);
+                assertEquals(text.length(), decoded.length(), "Expected the text to round trip.");
+            }
+
+            System.out.println(String.format("%9dK %12d %12d %7.2fx %8d %8d %12.3f", textSize / 1024, rawBytes,
+                stored.length, rawBytes / (double) stored.length, readCapacityUnits(rawBytes),
+                readCapacityUnits(stored.length), bestNanos / (double) TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+    }
+
+    private static long readCapacityUnits(int itemBytes) {
+        return (itemBytes + RCU_BYTES - 1) / RCU_BYTES;
+    }
+
+    private static String manuscript(int chars) {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder(chars + 64);
+        int chapter = 1;
+        while (text.length() < chars) {
+            text.append("Chapter ").append(chapter++).append("\n\n");
+            for (int sentence = 0; sentence < 200 && text.length() < chars; sentence++) {
+                int words = 6 + random.nextInt(14);
+                for (int word = 0; word < words; word++) {
+                    text.append(word == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                text.append(random.nextInt(6) == 0 ? ".\n\n" : ". ");
+            }
+        }
+        return text.toString();
+    }
+}
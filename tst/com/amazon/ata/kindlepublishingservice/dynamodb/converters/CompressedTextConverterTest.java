@@ -0,0 +1,78 @@
+package com.amazon.ata.kindlepublishingservice.dynamodb.converters;
+
+import com.amazon.ata.kindlepublishingservice.dynamodb.models.CatalogItemVersion;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompressedTextConverterTest {
+
+    private final CompressedTextConverter converter = new CompressedTextConverter();
+
+    @Test
+    public void convert_longText_roundTripsCompressed() {
+        // GIVEN
+        String text = manuscript(20000);
+
+        // WHEN
+        byte[] stored = converter.convert(text);
+
+        // THEN
+        assertEquals(text, converter.unconvert(stored));
+        assertTrue(stored.length < text.getBytes(StandardCharsets.UTF_8).length / 2,
+            "Expected the stored text to be well under its UTF-8 size.");
+    }
+
+    @Test
+    public void unconvert_unknownOrTruncatedValue_throws() {
+        // GIVEN
+        byte[] stored = converter.convert(manuscript(20000));
+
+        // WHEN + THEN
+        assertThrows(IllegalStateException.class, () -> converter.unconvert(new byte[] {42, 1, 2}));
+        assertThrows(IllegalStateException.class,
+            () -> converter.unconvert(Arrays.copyOf(stored, stored.length / 2)));
+    }
+
+    @Test
+    public void catalogItemVersion_textLength_picksTheAttributeItIsStoredIn() {
+        // GIVEN
+        CatalogItemVersion shortBook = new CatalogItemVersion();
+        shortBook.setText("A short story.");
+        CatalogItemVersion longBook = new CatalogItemVersion();
+        longBook.setText(manuscript(20000));
+
+        // WHEN + THEN
+        assertEquals("A short story.", shortBook.getUncompressedText());
+        assertNull(shortBook.getCompressedText());
+        assertNull(longBook.getUncompressedText());
+        assertEquals(longBook.getText(), longBook.getCompressedText());
+    }
+
+    @Test
+    public void catalogItemVersion_itemWrittenBeforeCompression_readsPlainText() {
+        // GIVEN
+        String text = manuscript(20000);
+        CatalogItemVersion legacyItem = new CatalogItemVersion();
+
+        // WHEN
+        legacyItem.setUncompressedText(text);
+
+        // THEN
+        assertEquals(text, legacyItem.getText());
+    }
+
+    private static String manuscript(int chars) {
+        StringBuilder text = new StringBuilder(chars + 64);
+        while (text.length() < chars) {
+            text.append("It was a dark and stormy night \u2014 the rain fell in torrents.\n\n");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,69 @@
+package com.amazon.ata.kindlepublishingservice.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyStatsTest {
+
+    @Test
+    public void getPercentile_uniformSamples_reportsWithinHistogramPrecision() {
+        // GIVEN
+        LatencyStats stats = new LatencyStats();
+        for (long millis = 1; millis <= 1000; millis++) {
+            stats.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        // WHEN
+        long p50 = stats.getPercentile(50, TimeUnit.MICROSECONDS);
+        long p99 = stats.getPercentile(99, TimeUnit.MICROSECONDS);
+        long p999 = stats.getPercentile(99.9, TimeUnit.MICROSECONDS);
+
+        // THEN
+        assertWithin(500_000, p50);
+        assertWithin(990_000, p99);
+        assertWithin(999_000, p999);
+        assertEquals(1000, stats.getPercentile(100, TimeUnit.MILLISECONDS), "Expected the maximum at p100.");
+    }
+
+    @Test
+    public void getPercentile_slowOutliers_separatesTailFromMedian() {
+        // GIVEN
+        LatencyStats stats = new LatencyStats();
+        for (int i = 0; i < 990; i++) {
+            stats.record(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        for (int i = 0; i < 10; i++) {
+            stats.record(TimeUnit.SECONDS.toNanos(10));
+        }
+
+        // WHEN + THEN
+        assertWithin(10_000, stats.getPercentile(50, TimeUnit.MICROSECONDS));
+        assertWithin(10_000, stats.getPercentile(99, TimeUnit.MICROSECONDS));
+        assertWithin(10_000_000, stats.getPercentile(99.9, TimeUnit.MICROSECONDS));
+    }
+
+    @Test
+    public void getPercentile_nothingRecorded_returnsZero() {
+        // WHEN + THEN
+        assertEquals(0, new LatencyStats().getPercentile(99, TimeUnit.MICROSECONDS));
+    }
+
+    @Test
+    public void bucketOf_everyMagnitude_upperBoundCoversValue() {
+        for (long value = 1; value > 0 && value < (1L << 45); value = value * 3 + 1) {
+            int bucket = LatencyStats.bucketOf(value);
+            assertTrue(LatencyStats.upperBoundOf(bucket) >= value, "Expected the bucket to hold " + value);
+            assertTrue(bucket == 0 || LatencyStats.upperBoundOf(bucket - 1) < value,
+                "Expected " + value + " to be in the lowest bucket that can hold it");
+        }
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 50,
+            String.format("Expected %d within 2%% of %d", actual, expected));
+    }
+}
@@ -0,0 +1,85 @@
+package com.amazon.ata.kindlepublishingservice.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MetricsLogReporterTest {
+
+    @Test
+    public void formatReport_latencyAndCounters_writesLatencyLineThenCounterLine() {
+        // GIVEN
+        MetricsPublisher metricsPublisher = new MetricsPublisher();
+        metricsPublisher.recordLatency("Publish.Time", TimeUnit.MILLISECONDS.toNanos(5));
+        metricsPublisher.addCount("Publish.Succeeded", 2);
+        metricsPublisher.registerGauge("Publish.QueueDepth", () -> 7);
+        MetricsLogReporter reporter = new MetricsLogReporter(metricsPublisher, 60);
+
+        // WHEN
+        List<String> lines = reporter.formatReport();
+
+        // THEN
+        assertEquals(Arrays.asList(
+            "Publish.Time count=1 p50=5.000ms p99=5.000ms p999=5.000ms max=5.000ms",
+            "Counters and gauges: {Publish.QueueDepth=7, Publish.Succeeded=2}"), lines);
+    }
+
+    @Test
+    public void formatReport_latencyWithoutSamples_leavesItOut() {
+        // GIVEN
+        MetricsPublisher metricsPublisher = new MetricsPublisher();
+        metricsPublisher.getLatency("Publish.Time");
+        MetricsLogReporter reporter = new MetricsLogReporter(metricsPublisher, 60);
+
+        // WHEN
+        List<String> lines = reporter.formatReport();
+
+        // THEN
+        assertEquals(Arrays.asList("Counters and gauges: {}"), lines);
+    }
+
+    @Test
+    public void stop_afterStart_writesOneLastReport() {
+        // GIVEN
+        CountingReporter reporter = new CountingReporter(60);
+        reporter.start();
+
+        // WHEN
+        reporter.stop();
+        reporter.stop();
+
+        // THEN
+        assertEquals(1, reporter.reports.get(), "Expected one report when stopped, and none when stopped again.");
+    }
+
+    @Test
+    public void stop_neverStarted_doesNotReport() {
+        // GIVEN
+        CountingReporter reporter = new CountingReporter(0);
+        reporter.start();
+
+        // WHEN
+        reporter.stop();
+
+        // THEN
+        assertEquals(0, reporter.reports.get(), "Expected no report from a reporter that never reports.");
+    }
+
+    private static final class CountingReporter extends MetricsLogReporter {
+        private final AtomicInteger reports = new AtomicInteger();
+
+        private CountingReporter(long intervalSeconds) {
+            super(new MetricsPublisher(), intervalSeconds);
+        }
+
+        @Override
+        public void report() {
+            reports.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.exceptions.PublishingQueueFullException;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsConstants;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import com.amazon.ata.recommendationsservice.types.BookGenre;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BookPublishRequestManagerTest {
+
+    private MetricsPublisher metricsPublisher;
+    private BookPublishRequestManager requestManager;
+
+    @BeforeEach
+    public void setup() {
+        metricsPublisher = new MetricsPublisher();
+        requestManager = new BookPublishRequestManager(metricsPublisher);
+    }
+
+    @Test
+    public void getBookPublishRequestToProcess_emptyQueue_returnsNull() {
+        // WHEN + THEN
+        assertNull(requestManager.getBookPublishRequestToProcess(), "Expected null from an empty queue.");
+    }
+
+    @Test
+    public void getBookPublishRequestToProcess_requestsQueued_returnsInOrder() {
+        // GIVEN
+        requestManager.addBookPublishRequest(request("publishing.1"));
+        requestManager.addBookPublishRequest(request("publishing.2"));
+
+        // WHEN + THEN
+        assertEquals("publishing.1", requestManager.getBookPublishRequestToProcess().getPublishingRecordId());
+        assertEquals("publishing.2", requestManager.getBookPublishRequestToProcess().getPublishingRecordId());
+        assertEquals(2, metricsPublisher.getLatency(MetricsConstants.PUBLISH_QUEUE_WAIT_TIME).getCount(),
+            "Expected the wait time of every dequeued request to be recorded.");
+    }
+
+    @Test
+    public void takeBookPublishRequest_emptyQueue_returnsNullAfterTimeout() throws InterruptedException {
+        // WHEN + THEN
+        assertNull(requestManager.takeBookPublishRequest(10, TimeUnit.MILLISECONDS),
+            "Expected null when nothing is added before the timeout.");
+    }
+
+    @Test
+    public void takeBookPublishRequest_requestAddedWhileWaiting_returnsRequest() throws InterruptedException {
+        // GIVEN
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            requestManager.addBookPublishRequest(request("publishing.1"));
+        });
+        producer.start();
+
+        // WHEN
+        long startTime = System.nanoTime();
+        BookPublishRequest request = requestManager.takeBookPublishRequest(5, TimeUnit.SECONDS);
+
+        // THEN
+        assertEquals("publishing.1", request.getPublishingRecordId());
+        assertTrue(System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(5),
+            "Expected the waiting caller to wake when the request was added.");
+        producer.join();
+    }
+
+    @Test
+    public void addBookPublishRequest_requestLimitReached_throwsQueueFull() {
+        // GIVEN
+        requestManager = new BookPublishRequestManager(metricsPublisher, 2, Long.MAX_VALUE);
+        requestManager.addBookPublishRequest(request("publishing.1"));
+        requestManager.addBookPublishRequest(request("publishing.2"));
+
+        // WHEN
+        PublishingQueueFullException exception = assertThrows(PublishingQueueFullException.class,
+            () -> requestManager.addBookPublishRequest(request("publishing.3")));
+
+        // THEN
+        assertTrue(exception.getRetryAfterSeconds() > 0, "Expected a positive retry hint.");
+        assertEquals(2, requestManager.getQueueDepth(), "Expected the rejected request not to be queued.");
+        assertEquals(1, metricsPublisher.getCount(MetricsConstants.PUBLISH_QUEUE_REJECTED_COUNT));
+    }
+
+    @Test
+    public void addBookPublishRequest_textByteLimitReached_throwsQueueFull() {
+        // GIVEN
+        requestManager = new BookPublishRequestManager(metricsPublisher, Integer.MAX_VALUE, 40);
+        requestManager.addBookPublishRequest(request("publishing.1"));
+
+        // WHEN + THEN
+        assertThrows(PublishingQueueFullException.class,
+            () -> requestManager.ensureCapacityFor(request("publishing.2")));
+    }
+
+    @Test
+    public void addBookPublishRequest_emptyQueueAndOversizedText_admitsRequest() {
+        // GIVEN
+        requestManager = new BookPublishRequestManager(metricsPublisher, Integer.MAX_VALUE, 1);
+
+        // WHEN
+        requestManager.addBookPublishRequest(request("publishing.1"));
+
+        // THEN
+        assertEquals(1, requestManager.getQueueDepth(), "Expected an empty queue to admit any single request.");
+    }
+
+    @Test
+    public void addBookPublishRequest_roomFreedByDrain_admitsRequest() {
+        // GIVEN
+        requestManager = new BookPublishRequestManager(metricsPublisher, 2, Long.MAX_VALUE);
+        requestManager.addBookPublishRequest(request("publishing.1"));
+        requestManager.addBookPublishRequest(request("publishing.2"));
+        assertThrows(PublishingQueueFullException.class,
+            () -> requestManager.addBookPublishRequest(request("publishing.3")));
+        requestManager.getBookPublishRequestToProcess();
+
+        // WHEN
+        requestManager.addBookPublishRequest(request("publishing.3"));
+
+        // THEN
+        assertEquals(2, requestManager.getQueueDepth());
+    }
+
+    @Test
+    public void addBookPublishRequest_requestForSameBookQueued_supersedesQueuedRequest() {
+        // GIVEN
+        requestManager.addBookPublishRequest(request("publishing.1", "book.1"));
+        requestManager.addBookPublishRequest(request("publishing.2", "book.2"));
+
+        // WHEN
+        BookPublishRequest superseded = requestManager.addBookPublishRequest(request("publishing.3", "book.1"));
+
+        // THEN
+        assertEquals("publishing.1", superseded.getPublishingRecordId());
+        assertEquals(2, requestManager.getQueueDepth(), "Expected the superseded request to leave the queue.");
+        assertEquals("publishing.2", requestManager.getBookPublishRequestToProcess().getPublishingRecordId());
+        assertEquals("publishing.3", requestManager.getBookPublishRequestToProcess().getPublishingRecordId());
+        assertNull(requestManager.getBookPublishRequestToProcess());
+        assertEquals(1, metricsPublisher.getCount(MetricsConstants.PUBLISH_QUEUE_SUPERSEDED_COUNT));
+    }
+
+    @Test
+    public void addBookPublishRequest_earlierRequestAlreadyTaken_doesNotSupersede() throws InterruptedException {
+        // GIVEN
+        requestManager.addBookPublishRequest(request("publishing.1", "book.1"));
+        requestManager.takeBookPublishRequest(10, TimeUnit.MILLISECONDS);
+
+        // WHEN
+        BookPublishRequest superseded = requestManager.addBookPublishRequest(request("publishing.2", "book.1"));
+
+        // THEN
+        assertNull(superseded, "Expected a request being published not to be superseded.");
+        assertEquals("publishing.2", requestManager.takeBookPublishRequest(10, TimeUnit.MILLISECONDS)
+            .getPublishingRecordId());
+    }
+
+    @Test
+    public void scheduleRetry_delayNotElapsed_holdsRequestUntilDue() throws InterruptedException {
+        // GIVEN
+        requestManager.scheduleRetry(request("publishing.1", "book.1"), 100, TimeUnit.MILLISECONDS);
+
+        // WHEN
+        BookPublishRequest early = requestManager.getBookPublishRequestToProcess();
+        BookPublishRequest due = requestManager.takeBookPublishRequest(5, TimeUnit.SECONDS);
+
+        // THEN
+        assertNull(early, "Expected the retry to wait out its delay.");
+        assertEquals("publishing.1", due.getPublishingRecordId());
+        assertEquals(1, requestManager.getRetryCount("publishing.1"));
+        assertEquals(0, requestManager.getQueueDepth());
+    }
+
+    @Test
+    public void scheduleRetry_newerRequestForBookQueued_returnsNewerRequest() {
+        // GIVEN
+        requestManager.addBookPublishRequest(request("publishing.2", "book.1"));
+
+        // WHEN
+        BookPublishRequest newer = requestManager.scheduleRetry(request("publishing.1", "book.1"), 0,
+            TimeUnit.MILLISECONDS);
+
+        // THEN
+        assertEquals("publishing.2", newer.getPublishingRecordId());
+        assertEquals(1, requestManager.getQueueDepth(), "Expected the retry not to be queued.");
+    }
+
+    @Test
+    public void addBookPublishRequest_retryPendingForBook_supersedesRetry() {
+        // GIVEN
+        requestManager.scheduleRetry(request("publishing.1", "book.1"), 0, TimeUnit.MILLISECONDS);
+
+        // WHEN
+        BookPublishRequest superseded = requestManager.addBookPublishRequest(request("publishing.2", "book.1"));
+
+        // THEN
+        assertEquals("publishing.1", superseded.getPublishingRecordId());
+        assertEquals("publishing.2", requestManager.getBookPublishRequestToProcess().getPublishingRecordId());
+        assertNull(requestManager.getBookPublishRequestToProcess());
+    }
+
+    @Test
+    public void cancelBookPublishRequest_requestQueued_skipsItAndFreesItsBook() {
+        // GIVEN
+        requestManager.addBookPublishRequest(request("publishing.1", "book.1"));
+        requestManager.addBookPublishRequest(request("publishing.2", "book.2"));
+
+        // WHEN
+        BookPublishRequest cancelled = requestManager.cancelBookPublishRequest("publishing.1");
+
+        // THEN
+        assertEquals("publishing.1", cancelled.getPublishingRecordId());
+        assertEquals(1, requestManager.getQueueDepth(), "Expected the cancelled request to leave the queue.");
+        assertNull(requestManager.addBookPublishRequest(request("publishing.3", "book.1")),
+            "Expected nothing left to supersede for the cancelled book.");
+        assertEquals("publishing.2", requestManager.getBookPublishRequestToProcess().getPublishingRecordId());
+        assertEquals("publishing.3", requestManager.getBookPublishRequestToProcess().getPublishingRecordId());
+        assertEquals(1, metricsPublisher.getCount(MetricsConstants.PUBLISH_QUEUE_CANCELLED_COUNT));
+    }
+
+    @Test
+    public void cancelBookPublishRequest_retryPending_cancelsRetry() {
+        // GIVEN
+        requestManager.scheduleRetry(request("publishing.1", "book.1"), 0, TimeUnit.MILLISECONDS);
+
+        // WHEN
+        BookPublishRequest cancelled = requestManager.cancelBookPublishRequest("publishing.1");
+
+        // THEN
+        assertEquals("publishing.1", cancelled.getPublishingRecordId());
+        assertNull(requestManager.getBookPublishRequestToProcess());
+        assertEquals(0, requestManager.getRetryCount("publishing.1"));
+    }
+
+    @Test
+    public void cancelBookPublishRequest_requestAlreadyTaken_returnsNull() {
+        // GIVEN
+        requestManager.addBookPublishRequest(request("publishing.1", "book.1"));
+        requestManager.getBookPublishRequestToProcess();
+
+        // WHEN + THEN
+        assertNull(requestManager.cancelBookPublishRequest("publishing.1"),
+            "Expected a request being published not to be cancelled.");
+        assertNull(requestManager.cancelBookPublishRequest("publishing.unknown"));
+    }
+
+    @Test
+    public void addBookPublishRequests_batch_queuesInOrderAndSupersedesWithinBatch() {
+        // GIVEN
+        requestManager.addBookPublishRequest(request("publishing.1", "book.1"));
+
+        // WHEN
+        List<BookPublishRequest> superseded = requestManager.addBookPublishRequests(Arrays.asList(
+            request("publishing.2", "book.1"), request("publishing.3", "book.2"), request("publishing.4", "book.1")));
+
+        // THEN
+        assertEquals(2, superseded.size());
+        assertEquals("publishing.1", superseded.get(0).getPublishingRecordId());
+        assertEquals("publishing.2", superseded.get(1).getPublishingRecordId(),
+            "Expected a later request in the batch to supersede an earlier one for the same book.");
+        assertEquals("publishing.3", requestManager.getBookPublishRequestToProcess().getPublishingRecordId());
+        assertEquals("publishing.4", requestManager.getBookPublishRequestToProcess().getPublishingRecordId());
+        assertNull(requestManager.getBookPublishRequestToProcess());
+    }
+
+    @Test
+    public void addBookPublishRequests_batchDoesNotFit_queuesNone() {
+        // GIVEN
+        requestManager = new BookPublishRequestManager(metricsPublisher, 3, Long.MAX_VALUE);
+        requestManager.addBookPublishRequest(request("publishing.1"));
+
+        // WHEN + THEN
+        assertThrows(PublishingQueueFullException.class, () -> requestManager.addBookPublishRequests(
+            Arrays.asList(request("publishing.2"), request("publishing.3"), request("publishing.4"))));
+        assertEquals(1, requestManager.getQueueDepth(), "Expected no request of a rejected batch to be queued.");
+    }
+
+    @Test
+    public void addBookPublishRequest_spooledText_claimedOnlyOnceAdmitted() {
+        // GIVEN
+        requestManager = new BookPublishRequestManager(metricsPublisher, 1, Long.MAX_VALUE);
+        requestManager.addBookPublishRequest(request("publishing.1"));
+        SpooledText spooledText = new SpooledText(Paths.get("manuscript.txt"), 16, "digest");
+        BookPublishRequest spooled = BookPublishRequest.builder()
+            .withPublishingRecordId("publishing.2")
+            .withGenre(BookGenre.FANTASY)
+            .withSpooledText(spooledText)
+            .build();
+
+        // WHEN
+        assertThrows(PublishingQueueFullException.class, () -> requestManager.addBookPublishRequest(spooled));
+
+        // THEN
+        assertFalse(spooledText.isClaimed(), "Expected the text of a rejected request to be left to its spooler.");
+        requestManager.getBookPublishRequestToProcess();
+        requestManager.addBookPublishRequest(spooled);
+        assertTrue(spooledText.isClaimed(), "Expected the manager to own the text of an admitted request.");
+    }
+
+    @Test
+    public void takeBookPublishRequest_fairOrderWithProlificAuthor_interleavesOtherAuthors()
+        throws InterruptedException {
+        // GIVEN
+        requestManager = new BookPublishRequestManager(metricsPublisher, 100, Long.MAX_VALUE,
+            new NoOpPublishRequestJournal(), PublishQueueFairness.byAuthor(Collections.singletonMap("Priority", 2)));
+        for (int i = 0; i < 10; i++) {
+            requestManager.addBookPublishRequest(request("prolific." + i, null, "Prolific"));
+        }
+        requestManager.addBookPublishRequest(request("other.1", null, "Other"));
+        requestManager.addBookPublishRequest(request("priority.1", null, "Priority"));
+        requestManager.addBookPublishRequest(request("priority.2", null, "Priority"));
+
+        // WHEN
+        List<String> taken = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            taken.add(requestManager.takeBookPublishRequest(10, TimeUnit.MILLISECONDS).getPublishingRecordId());
+        }
+
+        // THEN
+        assertEquals(Arrays.asList("prolific.0", "other.1", "priority.1", "priority.2", "prolific.1"), taken,
+            "Expected authors to take turns, the weighted author taking two requests per turn.");
+        assertEquals(8, requestManager.getQueueDepth("Prolific"));
+        assertEquals(5, metricsPublisher.getLatency(String.format(MetricsConstants.PUBLISH_TENANT_WAIT_TIME,
+            "Prolific")).getCount() + metricsPublisher.getLatency(String.format(
+            MetricsConstants.PUBLISH_TENANT_WAIT_TIME, "Other")).getCount() + metricsPublisher.getLatency(
+            String.format(MetricsConstants.PUBLISH_TENANT_WAIT_TIME, "Priority")).getCount(),
+            "Expected the wait time of every dequeued request to be recorded per author.");
+    }
+
+    private BookPublishRequest request(String publishingRecordId) {
+        return request(publishingRecordId, null);
+    }
+
+    private BookPublishRequest request(String publishingRecordId, String bookId) {
+        return request(publishingRecordId, bookId, "Author");
+    }
+
+    private BookPublishRequest request(String publishingRecordId, String bookId, String author) {
+        return BookPublishRequest.builder()
+            .withPublishingRecordId(publishingRecordId)
+            .withBookId(bookId)
+            .withTitle("Title")
+            .withAuthor(author)
+            .withGenre(BookGenre.FANTASY)
+            .withText("This is a story.")
+            .build();
+    }
+}
@@ -7,6 +7,7 @@ import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
 import com.amazon.ata.kindlepublishingservice.dynamodb.models.CatalogItemVersion;
 import com.amazon.ata.kindlepublishingservice.dynamodb.models.PublishingStatusItem;
 import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
 import com.amazon.ata.recommendationsservice.types.BookGenre;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -29,14 +30,22 @@ public class BookPublishTaskTest {
     private PublishingStatusDao publishingStatusDao;
 
     @Mock
-    private KindleFormatConverter kindleFormatConverter;
+    private KindleConversionCache kindleConversionCache;
 
+    @Mock
+    private PublishFailureHandler publishFailureHandler;
+
+    @Mock
+    private PublishSuccessRecorder publishSuccessRecorder;
 
+    private BookPublishTask bookPublishTask;
 
     @BeforeEach
     public void setup() {
 
         initMocks(this);
+        bookPublishTask = new BookPublishTask(requestManager, publishingStatusDao, catalogDao, kindleConversionCache,
+                publishFailureHandler, publishSuccessRecorder, new MetricsPublisher());
     }
 
     @Test
@@ -44,8 +53,6 @@ public class BookPublishTaskTest {
 
         when(requestManager.getBookPublishRequestToProcess()).thenReturn(null);
 
-        BookPublishTask bookPublishTask = new BookPublishTask(requestManager, publishingStatusDao, catalogDao);
-
         bookPublishTask.run();
 
         verify(requestManager).getBookPublishRequestToProcess();
@@ -72,24 +79,85 @@ public class BookPublishTaskTest {
 
         KindleFormattedBook kindleFormattedBook = KindleFormattedBook.builder().build();
 
-        when(KindleFormatConverter.format(bookPublishRequest)).thenReturn(kindleFormattedBook);
+        when(kindleConversionCache.format(bookPublishRequest)).thenReturn(kindleFormattedBook);
 
         when(catalogDao.createOrUpdateBook(kindleFormattedBook)).thenReturn(catalogItemVersion);
 
         //WHEN
-        BookPublishTask bookPublishTask = new BookPublishTask(requestManager, publishingStatusDao, catalogDao);
-
         bookPublishTask.run();
 
         //THEN
         verify(requestManager, times(1)).getBookPublishRequestToProcess();
         verify(publishingStatusDao).setPublishingStatus(bookRecordId, recordStatus, bookId);
         verify(catalogDao).createOrUpdateBook(kindleFormattedBook);
+        verify(publishSuccessRecorder).recordSuccess(eq(bookRecordId), any());
 
     }
 
+    @Test
+    public void run_catalogSaveFails_recordsFailedWithoutSuccessful() {
+        // GIVEN
+        BookPublishRequest bookPublishRequest = BookPublishRequest.builder().withBookId("TestBookId")
+                .withAuthor("testAuthor").withGenre(BookGenre.ACTION).withPublishingRecordId("testRecordId")
+                .withText("testText").withTitle("testTitle").build();
+        when(requestManager.getBookPublishRequestToProcess()).thenReturn(bookPublishRequest);
+        when(catalogDao.createOrUpdateBook(any())).thenThrow(new IllegalStateException("catalog unavailable"));
+
+        MetricsPublisher metricsPublisher = new MetricsPublisher();
+        PublishFailureHandler failureHandler = new PublishFailureHandler(requestManager, publishingStatusDao,
+                new PublishRetryPolicy(1, 1, 1), mock(DeadLetterStore.class), metricsPublisher);
+
+        // WHEN
+        new BookPublishTask(requestManager, publishingStatusDao, catalogDao, kindleConversionCache, failureHandler,
+                publishSuccessRecorder, metricsPublisher).run();
 
+        // THEN
+        verify(publishingStatusDao).setPublishingStatus("testRecordId", PublishingRecordStatus.FAILED, "TestBookId",
+                "Exception during processing");
+        verify(publishSuccessRecorder, never()).recordSuccess(any(), any());
+        verify(requestManager).markBookPublishRequestComplete("testRecordId");
+    }
 
+    @Test
+    public void run_transientFailureWithHandler_handsRequestToHandler() {
+        // GIVEN
+        BookPublishRequest bookPublishRequest = BookPublishRequest.builder().withBookId("TestBookId")
+                .withAuthor("testAuthor").withGenre(BookGenre.ACTION).withPublishingRecordId("testRecordId")
+                .withText("testText").withTitle("testTitle").build();
+        RuntimeException throttled = new RuntimeException("throttled");
+        when(requestManager.getBookPublishRequestToProcess()).thenReturn(bookPublishRequest);
+        when(catalogDao.createOrUpdateBook(any())).thenThrow(throttled);
 
+        // WHEN
+        bookPublishTask.run();
 
+        // THEN
+        verify(publishFailureHandler).handleFailure(bookPublishRequest, "TestBookId", throttled);
+        verify(publishSuccessRecorder, never()).recordSuccess(any(), any());
+        verify(requestManager, never()).markBookPublishRequestComplete(any());
+    }
+
+    @Test
+    public void run_successfulStatusWriteFails_completesRequestWithoutFailingIt() {
+        // GIVEN
+        BookPublishRequest bookPublishRequest = BookPublishRequest.builder().withBookId("TestBookId")
+                .withAuthor("testAuthor").withGenre(BookGenre.ACTION).withPublishingRecordId("testRecordId")
+                .withText("testText").withTitle("testTitle").build();
+        when(requestManager.getBookPublishRequestToProcess()).thenReturn(bookPublishRequest);
+        when(catalogDao.createOrUpdateBook(any())).thenReturn(new CatalogItemVersion());
+        when(publishingStatusDao.setPublishingStatus("testRecordId", PublishingRecordStatus.SUCCESSFUL, "TestBookId"))
+                .thenThrow(new IllegalStateException("status table unavailable"));
+
+        // WHEN
+        new BookPublishTask(requestManager, publishingStatusDao, catalogDao, kindleConversionCache,
+                publishFailureHandler,
+                new PublishSuccessRecorder(publishingStatusDao, requestManager, new PublishRetryPolicy(1, 1, 1)),
+                new MetricsPublisher()).run();
+
+        // THEN
+        verify(requestManager).markBookPublishRequestComplete("testRecordId");
+        verify(publishFailureHandler, never()).handleFailure(any(), any(), any());
+        verify(publishingStatusDao, never()).setPublishingStatus(eq("testRecordId"), eq(PublishingRecordStatus.FAILED),
+                any(), any());
+    }
 }
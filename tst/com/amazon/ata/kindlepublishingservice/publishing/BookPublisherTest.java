@@ -2,14 +2,16 @@ package com.amazon.ata.kindlepublishingservice.publishing;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 
+import java.util.Arrays;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -22,12 +24,18 @@ public class BookPublisherTest {
     @Mock
     private Runnable publishTask;
 
-    @InjectMocks
+    @Mock
+    private DrainingPublishWorker firstWorker;
+
+    @Mock
+    private DrainingPublishWorker secondWorker;
+
     private BookPublisher bookPublisher;
 
     @BeforeEach
     public void setup(){
         initMocks(this);
+        bookPublisher = new BookPublisher(scheduledExecutorService, publishTask);
     }
 
     @Test
@@ -110,4 +118,39 @@ public class BookPublisherTest {
         verify(scheduledExecutorService).shutdown();
         assertFalse(bookPublisher.isRunning(), "Expected publisher to be shutdown after a call to stop().");
     }
+
+    @Test
+    public void start_drainMode_schedulesEveryWorker() {
+        // GIVEN
+        BookPublisher drainPublisher = new BookPublisher(scheduledExecutorService,
+            Arrays.asList(firstWorker, secondWorker));
+
+        // WHEN
+        drainPublisher.start();
+
+        // THEN
+        verify(scheduledExecutorService).scheduleWithFixedDelay(firstWorker, 0, 1, TimeUnit.SECONDS);
+        verify(scheduledExecutorService).scheduleWithFixedDelay(secondWorker, 0, 1, TimeUnit.SECONDS);
+        assertTrue(drainPublisher.isRunning(), "Expected publisher to be running after a call to start().");
+    }
+
+    @Test
+    public void stop_drainMode_stopsEveryWorker() throws InterruptedException {
+        // GIVEN
+        BookPublisher drainPublisher = new BookPublisher(scheduledExecutorService,
+            Arrays.asList(firstWorker, secondWorker));
+        drainPublisher.start();
+
+        // WHEN
+        drainPublisher.stop();
+
+        // THEN
+        verify(firstWorker).stop();
+        verify(secondWorker).stop();
+        verify(scheduledExecutorService).shutdown();
+        verify(scheduledExecutorService).awaitTermination(anyLong(), eq(TimeUnit.MILLISECONDS));
+        verify(firstWorker).awaitStopped(anyLong());
+        verify(secondWorker).awaitStopped(anyLong());
+        assertFalse(drainPublisher.isRunning(), "Expected publisher to be shutdown after a call to stop().");
+    }
 }
@@ -0,0 +1,88 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsConstants;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import com.amazon.ata.recommendationsservice.types.BookGenre;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class DeadLetterStoreTest {
+
+    private Path directory;
+    private MetricsPublisher metricsPublisher;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("dead-letters");
+        metricsPublisher = new MetricsPublisher();
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    public void list_afterRestart_returnsDeadLettersFromDisk() {
+        // GIVEN
+        DeadLetterStore store = new DeadLetterStore(directory, metricsPublisher);
+        store.add(new DeadLetter(request("publishing.1"), 5, "throttled", 1000));
+        store.add(new DeadLetter(request("publishing.2"), 1, "bug", 2000));
+
+        // WHEN
+        List<DeadLetter> deadLetters = new DeadLetterStore(directory, new MetricsPublisher()).list();
+
+        // THEN
+        assertEquals(2, deadLetters.size());
+        DeadLetter first = deadLetters.get(0);
+        assertEquals("publishing.1", first.getRequest().getPublishingRecordId());
+        assertEquals("book.1", first.getRequest().getBookId());
+        assertEquals(BookGenre.FANTASY, first.getRequest().getGenre());
+        assertEquals("It was a dark and stormy night.", first.getRequest().getText());
+        assertEquals(5, first.getAttempts());
+        assertEquals("throttled", first.getReason());
+        assertEquals(Long.valueOf(2), metricsPublisher.snapshot().get(MetricsConstants.DEAD_LETTER_DEPTH));
+    }
+
+    @Test
+    public void remove_deadLetterPresent_deletesItFromDisk() {
+        // GIVEN
+        DeadLetterStore store = new DeadLetterStore(directory, metricsPublisher);
+        store.add(new DeadLetter(request("publishing.1"), 5, "throttled", 1000));
+
+        // WHEN
+        DeadLetter removed = store.remove("publishing.1");
+
+        // THEN
+        assertEquals("publishing.1", removed.getRequest().getPublishingRecordId());
+        assertNull(store.remove("publishing.1"));
+        assertEquals(0, new DeadLetterStore(directory, new MetricsPublisher()).size());
+    }
+
+    private BookPublishRequest request(String publishingRecordId) {
+        return BookPublishRequest.builder()
+            .withPublishingRecordId(publishingRecordId)
+            .withBookId("book.1")
+            .withTitle("Title")
+            .withAuthor("Author")
+            .withGenre(BookGenre.FANTASY)
+            .withText("It was a dark and stormy night.")
+            .build();
+    }
+}
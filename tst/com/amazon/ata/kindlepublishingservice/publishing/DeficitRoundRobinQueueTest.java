@@ -0,0 +1,144 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DeficitRoundRobinQueueTest {
+
+    private final Set<String> dropped = new HashSet<>();
+
+    @Test
+    public void poll_tenantsWithDifferentBacklogs_takeTurns() {
+        // GIVEN
+        DeficitRoundRobinQueue<String> queue = queue(Collections.emptyMap());
+        for (int i = 1; i <= 1000; i++) {
+            queue.add("a." + i);
+        }
+        queue.add("b.1");
+        queue.add("c.1");
+        queue.add("b.2");
+
+        // WHEN
+        List<String> taken = drain(queue, 6);
+
+        // THEN
+        assertEquals(Arrays.asList("a.1", "b.1", "c.1", "a.2", "b.2", "a.3"), taken,
+            "Expected a tenant with a long backlog not to hold back the others.");
+        assertEquals(997, queue.size("a"));
+    }
+
+    @Test
+    public void poll_weightedTenant_getsWeightElementsPerTurn() {
+        // GIVEN
+        DeficitRoundRobinQueue<String> queue = queue(Collections.singletonMap("a", 3));
+        for (int i = 1; i <= 10; i++) {
+            queue.add("a." + i);
+            queue.add("b." + i);
+        }
+
+        // WHEN
+        List<String> taken = drain(queue, 8);
+
+        // THEN
+        assertEquals(Arrays.asList("a.1", "a.2", "a.3", "b.1", "a.4", "a.5", "a.6", "b.2"), taken);
+    }
+
+    @Test
+    public void poll_droppedElements_skippedWithoutCostingTurn() {
+        // GIVEN
+        DeficitRoundRobinQueue<String> queue = queue(Collections.singletonMap("a", 2));
+        queue.add("a.1");
+        queue.add("a.2");
+        queue.add("a.3");
+        queue.add("b.1");
+        dropped.add("a.1");
+
+        // WHEN
+        List<String> taken = drain(queue, 4);
+
+        // THEN
+        assertEquals(Arrays.asList("a.2", "a.3", "b.1"), taken);
+        assertEquals(0, queue.size("a"), "Expected an emptied tenant to leave the rotation.");
+    }
+
+    @Test
+    public void peekLowest_droppedHead_returnsOldestLiveElementAcrossTenants() {
+        // GIVEN
+        DeficitRoundRobinQueue<String> queue = queue(Collections.emptyMap());
+        queue.add("a.5");
+        queue.add("a.9");
+        queue.add("b.7");
+        dropped.add("a.5");
+
+        // WHEN
+        String lowest = queue.peekLowest(element -> Long.parseLong(element.substring(2)));
+
+        // THEN
+        assertEquals("b.7", lowest);
+    }
+
+    @Test
+    public void poll_elementAddedWhileWaiting_returnsElement() throws InterruptedException {
+        // GIVEN
+        DeficitRoundRobinQueue<String> queue = queue(Collections.emptyMap());
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            queue.add("a.1");
+        });
+        producer.start();
+
+        // WHEN
+        String element = queue.poll(5, TimeUnit.SECONDS);
+
+        // THEN
+        assertEquals("a.1", element);
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS), "Expected null once the timeout elapses.");
+    }
+
+    @Test
+    public void parseWeights_authorsWithCommas_parsesEveryPair() {
+        // WHEN
+        Map<String, Integer> weights = PublishQueueFairness.parseWeights(" Austen, Jane = 4 ;Big House=2;");
+
+        // THEN
+        assertEquals(Integer.valueOf(4), weights.get("Austen, Jane"));
+        assertEquals(Integer.valueOf(2), weights.get("Big House"));
+        assertTrue(PublishQueueFairness.parseWeights(null).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> PublishQueueFairness.parseWeights("Austen=0"));
+        assertThrows(IllegalArgumentException.class, () -> PublishQueueFairness.parseWeights("Austen"));
+    }
+
+    private DeficitRoundRobinQueue<String> queue(Map<String, Integer> weights) {
+        return new DeficitRoundRobinQueue<>(element -> element.substring(0, element.indexOf('.')),
+            tenant -> weights.getOrDefault(tenant, 1), element -> !dropped.contains(element));
+    }
+
+    private static List<String> drain(DeficitRoundRobinQueue<String> queue, int count) {
+        List<String> taken = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String element = queue.poll();
+            if (element == null) {
+                break;
+            }
+            taken.add(element);
+        }
+        return taken;
+    }
+}
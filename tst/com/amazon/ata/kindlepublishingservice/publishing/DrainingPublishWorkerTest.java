@@ -0,0 +1,119 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.dao.CatalogDao;
+import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
+import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import com.amazon.ata.recommendationsservice.types.BookGenre;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class DrainingPublishWorkerTest {
+
+    @Mock
+    private PublishingStatusDao publishingStatusDao;
+
+    @Mock
+    private CatalogDao catalogDao;
+
+    @Mock
+    private KindleConversionCache kindleConversionCache;
+
+    @Mock
+    private PublishFailureHandler publishFailureHandler;
+
+    @Mock
+    private PublishSuccessRecorder publishSuccessRecorder;
+
+    private BookPublishRequestManager requestManager;
+    private DrainingPublishWorker worker;
+
+    @BeforeEach
+    public void setup() {
+        initMocks(this);
+        MetricsPublisher metricsPublisher = new MetricsPublisher();
+        requestManager = new BookPublishRequestManager(metricsPublisher);
+        BookPublishTask publishTask = new BookPublishTask(requestManager, publishingStatusDao, catalogDao,
+            kindleConversionCache, publishFailureHandler, publishSuccessRecorder, metricsPublisher);
+        worker = new DrainingPublishWorker(1, requestManager, publishTask, metricsPublisher);
+
+        // fail fast before conversion so the test does not wait on the Kindle converter
+        when(publishingStatusDao.setPublishingStatus(any(), eq(PublishingRecordStatus.IN_PROGRESS), any()))
+            .thenThrow(new IllegalStateException("status table unavailable"));
+    }
+
+    @Test
+    public void run_requestsQueued_drainsQueue() throws InterruptedException {
+        // GIVEN
+        requestManager.addBookPublishRequest(request("publishing.1"));
+        requestManager.addBookPublishRequest(request("publishing.2"));
+
+        // WHEN
+        Thread workerThread = new Thread(worker);
+        workerThread.start();
+        waitForQueueToDrain();
+        worker.stop();
+        workerThread.join(5000);
+
+        // THEN
+        assertFalse(workerThread.isAlive(), "Expected the worker to exit after being stopped.");
+        assertEquals(2, worker.getPublishedCount(), "Expected the worker to count every processed request.");
+    }
+
+    @Test
+    public void run_requestAddedWhileIdle_picksUpRequest() throws InterruptedException {
+        // GIVEN
+        Thread workerThread = new Thread(worker);
+        workerThread.start();
+
+        // WHEN
+        requestManager.addBookPublishRequest(request("publishing.1"));
+        waitForQueueToDrain();
+        worker.stop();
+        workerThread.join(5000);
+
+        // THEN
+        assertEquals(1, worker.getPublishedCount(), "Expected an idle worker to pick up a new request.");
+    }
+
+    @Test
+    public void run_workerStopped_leavesQueueUntouched() {
+        // GIVEN
+        requestManager.addBookPublishRequest(request("publishing.1"));
+        worker.stop();
+
+        // WHEN
+        worker.run();
+
+        // THEN
+        assertEquals(1, requestManager.getQueueDepth(), "Expected a stopped worker to leave requests in the queue.");
+        assertEquals(0, worker.getBooksPerSecond(), "Expected no throughput for a worker that published nothing.");
+    }
+
+    private void waitForQueueToDrain() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (requestManager.getQueueDepth() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // give the worker a moment to finish the request it just took
+        Thread.sleep(100);
+    }
+
+    private BookPublishRequest request(String publishingRecordId) {
+        return BookPublishRequest.builder()
+            .withPublishingRecordId(publishingRecordId)
+            .withTitle("Title")
+            .withAuthor("Author")
+            .withGenre(BookGenre.FANTASY)
+            .withText("This is a story.")
+            .build();
+    }
+}
@@ -0,0 +1,145 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsConstants;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import com.amazon.ata.recommendationsservice.types.BookGenre;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class KindleConversionCacheTest {
+
+    private MetricsPublisher metricsPublisher;
+    private AtomicInteger conversions;
+    private Path directory;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        metricsPublisher = new MetricsPublisher();
+        conversions = new AtomicInteger();
+        directory = Files.createTempDirectory("conversion-cache");
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    public void format_sameTextResubmitted_skipsConversion() {
+        // GIVEN
+        KindleConversionCache cache = cache(1 << 20, null);
+        cache.format(request("Title", "This is a story."));
+
+        // WHEN
+        KindleFormattedBook formattedBook = cache.format(request("New Title", "This is a story."));
+
+        // THEN
+        assertEquals(1, conversions.get(), "Expected identical text to be converted once.");
+        assertEquals("New Title", formattedBook.getTitle(), "Expected the new metadata to be used.");
+        assertEquals("kindle:This is a story.", formattedBook.getText());
+        assertEquals(1, metricsPublisher.getCount(MetricsConstants.CONVERSION_CACHE_HIT_COUNT));
+        assertEquals(1, metricsPublisher.getCount(MetricsConstants.CONVERSION_CACHE_MISS_COUNT));
+    }
+
+    @Test
+    public void format_differentText_converts() {
+        // GIVEN
+        KindleConversionCache cache = cache(1 << 20, null);
+        cache.format(request("Title", "This is a story."));
+
+        // WHEN
+        cache.format(request("Title", "This is another story."));
+
+        // THEN
+        assertEquals(2, conversions.get());
+    }
+
+    @Test
+    public void format_memoryLimitReached_evictsLeastRecentlyUsed() {
+        // GIVEN
+        KindleConversionCache cache = cache(500, null);
+        cache.format(request("Title", "first"));
+        cache.format(request("Title", "second"));
+        cache.format(request("Title", "first"));
+
+        // WHEN
+        cache.format(request("Title", "third"));
+        cache.format(request("Title", "first"));
+        cache.format(request("Title", "second"));
+
+        // THEN
+        assertEquals(4, conversions.get(), "Expected only the least recently used text to be evicted.");
+    }
+
+    @Test
+    public void format_evictedFromMemory_servedFromDisk() {
+        // GIVEN
+        KindleConversionCache cache = cache(0, directory);
+        cache.format(request("Title", "This is a story."));
+
+        // WHEN
+        KindleConversionCache restarted = cache(0, directory);
+        KindleFormattedBook formattedBook = restarted.format(request("Title", "This is a story."));
+
+        // THEN
+        assertEquals(1, conversions.get());
+        assertEquals("kindle:This is a story.", formattedBook.getText());
+        assertEquals(1, metricsPublisher.getCount(MetricsConstants.CONVERSION_CACHE_DISK_HIT_COUNT));
+    }
+
+    @Test
+    public void format_spooledTextConvertedBefore_skipsReadingIt() throws IOException {
+        // GIVEN
+        KindleConversionCache cache = cache(1 << 20, null);
+        cache.format(request("Title", "This is a story."));
+        SpooledText spooledText = new ManuscriptSpool(directory.resolve("spool"))
+            .spool(new ByteArrayInputStream("This is a story.".getBytes(StandardCharsets.UTF_8)));
+        spooledText.delete();
+
+        // WHEN
+        KindleFormattedBook formattedBook = cache.format(BookPublishRequest.builder()
+            .withPublishingRecordId("publishing.2")
+            .withTitle("Title")
+            .withGenre(BookGenre.FANTASY)
+            .withSpooledText(spooledText)
+            .build());
+
+        // THEN
+        assertEquals(1, conversions.get(), "Expected the spooled text to be found by the digest taken as it spooled.");
+        assertEquals("kindle:This is a story.", formattedBook.getText());
+    }
+
+    private KindleConversionCache cache(long maxMemoryBytes, Path diskDirectory) {
+        return new KindleConversionCache(metricsPublisher, maxMemoryBytes, diskDirectory, 1 << 20, text -> {
+            conversions.incrementAndGet();
+            return "kindle:" + text;
+        });
+    }
+
+    private BookPublishRequest request(String title, String text) {
+        return BookPublishRequest.builder()
+            .withPublishingRecordId("publishing.1")
+            .withTitle(title)
+            .withAuthor("Author")
+            .withGenre(BookGenre.FANTASY)
+            .withText(text)
+            .build();
+    }
+}
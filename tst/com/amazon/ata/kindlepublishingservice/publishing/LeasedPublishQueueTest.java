@@ -0,0 +1,122 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import com.amazon.ata.recommendationsservice.types.BookGenre;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class LeasedPublishQueueTest {
+
+    private static final long LEASE_MILLIS = 30000;
+
+    private final AtomicLong clock = new AtomicLong(1000);
+    private InMemoryPublishRequestLeaseStore store;
+    private LeasedPublishQueue nodeA;
+    private LeasedPublishQueue nodeB;
+
+    @BeforeEach
+    public void setup() {
+        store = new InMemoryPublishRequestLeaseStore(clock::get);
+        nodeA = new LeasedPublishQueue(store, "nodeA", LEASE_MILLIS, 1, 10, new MetricsPublisher());
+        nodeB = new LeasedPublishQueue(store, "nodeB", LEASE_MILLIS, 1, 10, new MetricsPublisher());
+    }
+
+    @Test
+    public void poll_twoNodes_eachTakesADifferentRequest() {
+        // GIVEN
+        nodeA.add(request("publishing.1", "book.1"));
+        nodeA.add(request("publishing.2", "book.2"));
+
+        // WHEN
+        BookPublishRequest takenByA = nodeA.poll();
+        BookPublishRequest takenByB = nodeB.poll();
+
+        // THEN
+        assertEquals("publishing.1", takenByA.getPublishingRecordId());
+        assertEquals("publishing.2", takenByB.getPublishingRecordId(),
+            "Expected a request added on one node to be taken by another.");
+        assertNull(nodeA.poll(), "Expected no request to be leased twice.");
+    }
+
+    @Test
+    public void poll_leaseOfDeadNodeExpires_anotherNodeTakesIt() {
+        // GIVEN
+        nodeA.add(request("publishing.1", "book.1"));
+        nodeA.poll();
+        assertNull(nodeB.poll());
+
+        // WHEN
+        clock.addAndGet(LEASE_MILLIS + 1);
+
+        // THEN
+        assertEquals("publishing.1", nodeB.poll().getPublishingRecordId(),
+            "Expected the request to be taken over once the lease expired.");
+        nodeA.complete("publishing.1");
+        assertEquals(1, store.countPending(), "Expected the node that lost the lease not to remove the request.");
+    }
+
+    @Test
+    public void poll_bookAlreadyLeased_takesItsNextRequestOnlyOnceCompleted() {
+        // GIVEN
+        nodeA.add(request("publishing.1", "book.1"));
+        nodeA.add(request("publishing.2", "book.1"));
+        nodeA.poll();
+
+        // WHEN
+        BookPublishRequest whileLeased = nodeB.poll();
+        nodeA.complete("publishing.1");
+        BookPublishRequest afterComplete = nodeB.poll();
+
+        // THEN
+        assertNull(whileLeased, "Expected one request per book to be published at a time.");
+        assertEquals("publishing.2", afterComplete.getPublishingRecordId());
+    }
+
+    @Test
+    public void release_withDelay_requestReturnsAfterDelayWithAttemptCounted() {
+        // GIVEN
+        BookPublishRequest request = request("publishing.1", "book.1");
+        nodeA.add(request);
+        nodeA.poll();
+
+        // WHEN
+        nodeA.release(request, 500);
+
+        // THEN
+        assertNull(nodeB.poll(), "Expected the request to stay hidden until the delay elapsed.");
+        clock.addAndGet(500);
+        assertEquals("publishing.1", nodeB.poll().getPublishingRecordId());
+        assertEquals(1, nodeB.getAttempts("publishing.1"), "Expected the attempt to follow the request.");
+    }
+
+    @Test
+    public void heartbeat_renewsHeldLeases_soTheyOutliveTheLeaseDuration() {
+        // GIVEN
+        nodeA.add(request("publishing.1", "book.1"));
+        nodeA.poll();
+
+        // WHEN
+        clock.addAndGet(LEASE_MILLIS - 1);
+        nodeA.heartbeat();
+        clock.addAndGet(LEASE_MILLIS - 1);
+
+        // THEN
+        assertNull(nodeB.poll(), "Expected a renewed lease to still be held.");
+    }
+
+    private static BookPublishRequest request(String publishingRecordId, String bookId) {
+        return BookPublishRequest.builder()
+            .withPublishingRecordId(publishingRecordId)
+            .withBookId(bookId)
+            .withTitle("title")
+            .withAuthor("author")
+            .withText("text")
+            .withGenre(BookGenre.FANTASY)
+            .build();
+    }
+}
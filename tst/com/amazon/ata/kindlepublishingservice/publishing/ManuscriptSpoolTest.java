@@ -0,0 +1,77 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ManuscriptSpoolTest {
+
+    private static final String TEXT = "Chapter 1\n\nIt was a dark and stormy night \u2014 caf\u00e9 \ud83d\udcd6.\n";
+
+    private Path directory;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("manuscript-spool");
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    public void spool_utf8Text_readsBackTheSameText() throws IOException {
+        // GIVEN
+        ManuscriptSpool spool = new ManuscriptSpool(directory);
+
+        // WHEN
+        SpooledText spooledText = spool.spool(new ByteArrayInputStream(TEXT.getBytes(StandardCharsets.UTF_8)));
+
+        // THEN
+        assertEquals(TEXT, spooledText.read());
+        assertEquals(TEXT.length(), spooledText.getCharCount());
+        try (Reader reader = spooledText.openReader()) {
+            char[] start = new char[9];
+            assertEquals(9, reader.read(start));
+            assertEquals("Chapter 1", new String(start));
+        }
+        assertEquals(64, spooledText.getDigest().length(), "Expected a hex SHA-256 digest.");
+    }
+
+    @Test
+    public void spool_firstUse_deletesFilesOfThePreviousRun() throws IOException {
+        // GIVEN
+        SpooledText leftover = new ManuscriptSpool(directory)
+            .spool(new ByteArrayInputStream(TEXT.getBytes(StandardCharsets.UTF_8)));
+
+        // WHEN
+        SpooledText spooledText = new ManuscriptSpool(directory)
+            .spool(new ByteArrayInputStream(TEXT.getBytes(StandardCharsets.UTF_8)));
+
+        // THEN
+        assertFalse(Files.exists(leftover.getFile()), "Expected the previous run's file to be deleted.");
+        assertTrue(Files.exists(spooledText.getFile()));
+        assertEquals(leftover.getDigest(), spooledText.getDigest());
+        spooledText.delete();
+        assertFalse(Files.exists(spooledText.getFile()));
+    }
+}
@@ -0,0 +1,300 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import com.amazon.ata.recommendationsservice.types.BookGenre;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedPublishRequestJournalTest {
+
+    private static final int SEGMENT_BYTES = 4096;
+
+    private Path directory;
+    private Path spoolDirectory;
+    private MappedPublishRequestJournal journal;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("publish-journal");
+        spoolDirectory = Files.createTempDirectory("manuscript-spool");
+        journal = new MappedPublishRequestJournal(directory, SEGMENT_BYTES);
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        journal.close();
+        for (Path root : Arrays.asList(directory, spoolDirectory)) {
+            try (Stream<Path> files = Files.walk(root)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void recover_unfinishedRequests_returnsThemInOrder() {
+        // GIVEN
+        journal.append(request("publishing.1", "book.1"));
+        journal.append(request("publishing.2", null));
+        journal.append(request("publishing.3", "book.3"));
+        journal.complete("publishing.2");
+        journal.close();
+
+        // WHEN
+        journal = new MappedPublishRequestJournal(directory, SEGMENT_BYTES);
+        List<BookPublishRequest> recovered = journal.recover();
+
+        // THEN
+        assertEquals(2, recovered.size());
+        assertEquals("publishing.1", recovered.get(0).getPublishingRecordId());
+        assertEquals("book.1", recovered.get(0).getBookId());
+        assertEquals(BookGenre.FANTASY, recovered.get(0).getGenre());
+        assertEquals("This is a story.", recovered.get(0).getText());
+        assertEquals("publishing.3", recovered.get(1).getPublishingRecordId());
+        assertTrue(journal.recover().isEmpty(), "Expected recovered requests to be returned once.");
+    }
+
+    @Test
+    public void appendAll_batchOfRequests_recoveredInOrder() {
+        // GIVEN
+        journal.appendAll(Arrays.asList(request("publishing.1", "book.1"), request("publishing.2", "book.2"),
+            request("publishing.3", null)));
+        journal.complete("publishing.2");
+        journal.close();
+
+        // WHEN
+        journal = new MappedPublishRequestJournal(directory, SEGMENT_BYTES);
+        List<BookPublishRequest> recovered = journal.recover();
+
+        // THEN
+        assertEquals(2, recovered.size());
+        assertEquals("publishing.1", recovered.get(0).getPublishingRecordId());
+        assertEquals("publishing.3", recovered.get(1).getPublishingRecordId());
+    }
+
+    @Test
+    public void recover_moreRecordsThanOneSegment_checkpointsAndKeepsUnfinished() throws IOException {
+        // GIVEN
+        for (int i = 0; i < 200; i++) {
+            journal.append(request("publishing." + i, null));
+            if (i != 7) {
+                journal.complete("publishing." + i);
+            }
+        }
+        journal.close();
+
+        // WHEN
+        journal = new MappedPublishRequestJournal(directory, SEGMENT_BYTES);
+        List<BookPublishRequest> recovered = journal.recover();
+
+        // THEN
+        assertEquals(1, recovered.size());
+        assertEquals("publishing.7", recovered.get(0).getPublishingRecordId());
+        assertEquals(1, segments().size(), "Expected checkpointed segments to be deleted.");
+    }
+
+    @Test
+    public void recover_corruptRecord_keepsRecordsBeforeIt() throws IOException {
+        // GIVEN
+        journal.append(request("publishing.1", null));
+        journal.append(request("publishing.2", null));
+        journal.close();
+        Path segment = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // Flip the last byte of the second record's payload.
+            int firstRecordLength = file.readInt();
+            file.seek(8 + firstRecordLength);
+            int secondRecordLength = file.readInt();
+            long lastByte = 8 + firstRecordLength + 8 + secondRecordLength - 1;
+            file.seek(lastByte);
+            int value = file.read();
+            file.seek(lastByte);
+            file.write(value ^ 0xFF);
+        }
+
+        // WHEN
+        journal = new MappedPublishRequestJournal(directory, SEGMENT_BYTES);
+        List<BookPublishRequest> recovered = journal.recover();
+
+        // THEN
+        assertEquals(1, recovered.size());
+        assertEquals("publishing.1", recovered.get(0).getPublishingRecordId());
+    }
+
+    @Test
+    public void append_concurrentCallers_allRecordsDurable() throws Exception {
+        // GIVEN
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int producer = t;
+            producers.add(new Thread(() -> {
+                for (int i = 0; i < 25; i++) {
+                    journal.append(request("publishing." + producer + "." + i, null));
+                }
+            }));
+        }
+
+        // WHEN
+        producers.forEach(Thread::start);
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        journal.close();
+
+        // THEN
+        journal = new MappedPublishRequestJournal(directory, SEGMENT_BYTES);
+        assertEquals(100, journal.recover().size());
+    }
+
+    @Test
+    public void recover_spooledRequest_readsTextJournaledBesideTheSegmentsAfterSpoolFileIsDeleted()
+            throws IOException {
+        // GIVEN
+        // Longer than a whole segment, so it only fits by being kept out of the record.
+        String text = repeat("It was a dark and stormy night. ", 4 * SEGMENT_BYTES / 32);
+        SpooledText spooledText = new ManuscriptSpool(spoolDirectory)
+            .spool(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+        journal.append(spooledRequest("publishing.1", spooledText));
+        spooledText.delete();
+        journal.close();
+
+        // WHEN
+        journal = new MappedPublishRequestJournal(directory, SEGMENT_BYTES);
+        List<BookPublishRequest> recovered = journal.recover();
+
+        // THEN
+        assertEquals(1, recovered.size());
+        SpooledText recoveredText = recovered.get(0).getSpooledText();
+        assertNotNull(recoveredText, "Expected the text to stay on disk rather than be recovered onto the heap.");
+        assertEquals(directory, recoveredText.getFile().getParent());
+        assertEquals(text, recoveredText.read());
+        assertEquals(spooledText.getDigest(), recoveredText.getDigest());
+        assertEquals(text.length(), recoveredText.getCharCount());
+        assertEquals(SEGMENT_BYTES, Files.size(segments().get(0)), "Expected the record to hold no text.");
+    }
+
+    @Test
+    public void complete_spooledRequest_deletesJournaledText() throws IOException {
+        // GIVEN
+        SpooledText spooledText = new ManuscriptSpool(spoolDirectory)
+            .spool(new ByteArrayInputStream("This is a story.".getBytes(StandardCharsets.UTF_8)));
+        journal.append(spooledRequest("publishing.1", spooledText));
+
+        // WHEN
+        journal.complete("publishing.1");
+
+        // THEN
+        assertTrue(spooledText.read().length() > 0, "Expected the spool file to be left to its owner.");
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "text-*")) {
+            assertFalse(files.iterator().hasNext(), "Expected the journaled text to be deleted.");
+        }
+    }
+
+    @Test
+    public void recoverJournaledRequests_managerRestarted_requeuesUnfinishedRequests() {
+        // GIVEN
+        BookPublishRequestManager manager = new BookPublishRequestManager(
+            new MetricsPublisher(), 10, Long.MAX_VALUE, journal);
+        manager.addBookPublishRequest(request("publishing.1", null));
+        manager.addBookPublishRequest(request("publishing.2", null));
+        manager.markBookPublishRequestComplete(manager.getBookPublishRequestToProcess().getPublishingRecordId());
+        manager.close();
+
+        // WHEN
+        journal = new MappedPublishRequestJournal(directory, SEGMENT_BYTES);
+        BookPublishRequestManager restarted = new BookPublishRequestManager(
+            new MetricsPublisher(), 10, Long.MAX_VALUE, journal);
+        List<BookPublishRequest> superseded = restarted.recoverJournaledRequests();
+
+        // THEN
+        assertTrue(superseded.isEmpty());
+        assertEquals(1, restarted.getQueueDepth());
+        assertEquals("publishing.2", restarted.getBookPublishRequestToProcess().getPublishingRecordId());
+        assertNull(restarted.getBookPublishRequestToProcess());
+    }
+
+    @Test
+    public void recoverJournaledRequests_twoUnfinishedRequestsForBook_newerSupersedesOlder() {
+        // GIVEN
+        // The complete record of a superseded request is not waited on, so a crash can leave both unfinished.
+        journal.append(request("publishing.1", "book.1"));
+        journal.append(request("publishing.2", "book.2"));
+        journal.append(request("publishing.3", "book.1"));
+        journal.close();
+        journal = new MappedPublishRequestJournal(directory, SEGMENT_BYTES);
+        BookPublishRequestManager restarted = new BookPublishRequestManager(
+            new MetricsPublisher(), 10, Long.MAX_VALUE, journal);
+
+        // WHEN
+        List<BookPublishRequest> superseded = restarted.recoverJournaledRequests();
+
+        // THEN
+        assertEquals(1, superseded.size(), "Expected the older request for the book to be superseded.");
+        assertEquals("publishing.1", superseded.get(0).getPublishingRecordId());
+        assertEquals(2, restarted.getQueueDepth());
+        assertEquals("publishing.2", restarted.getBookPublishRequestToProcess().getPublishingRecordId());
+        assertEquals("publishing.3", restarted.getBookPublishRequestToProcess().getPublishingRecordId());
+        assertNull(restarted.getBookPublishRequestToProcess());
+        assertEquals(2, journal.getPendingCount(), "Expected the superseded request to be completed in the journal.");
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "journal-*.log")) {
+            files.forEach(segments::add);
+        }
+        return segments;
+    }
+
+    private static BookPublishRequest spooledRequest(String publishingRecordId, SpooledText spooledText) {
+        return BookPublishRequest.builder()
+            .withPublishingRecordId(publishingRecordId)
+            .withBookId("book.1")
+            .withTitle("Title")
+            .withAuthor("Author")
+            .withGenre(BookGenre.FANTASY)
+            .withSpooledText(spooledText)
+            .build();
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder repeated = new StringBuilder(value.length() * count);
+        for (int i = 0; i < count; i++) {
+            repeated.append(value);
+        }
+        return repeated.toString();
+    }
+
+    private BookPublishRequest request(String publishingRecordId, String bookId) {
+        return BookPublishRequest.builder()
+            .withPublishingRecordId(publishingRecordId)
+            .withBookId(bookId)
+            .withTitle("Title")
+            .withAuthor("Author")
+            .withGenre(BookGenre.FANTASY)
+            .withText("This is a story.")
+            .build();
+    }
+}
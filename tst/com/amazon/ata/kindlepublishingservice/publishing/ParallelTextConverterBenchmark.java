@@ -0,0 +1,119 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures the speedup of chapter level parallel conversion over converting a manuscript whole, for 100 KB to 10 MB
+ * texts at every power of two parallelism up to the core count. Run with ./gradlew benchmark.
+ *
+ * KindleConversionUtils sleeps for a fixed time whatever the size of the text, so the benchmark converts with a
+ * stand in whose cost grows with the text like a real conversion does.
+ */
+@Tag("benchmark")
+public class ParallelTextConverterBenchmark {
+
+    private static final int[] TEXT_SIZES = {100 * 1024, 1024 * 1024, 10 * 1024 * 1024};
+    private static final int MIN_SEGMENT_CHARS = 16 * 1024;
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 5;
+
+    @Test
+    public void apply_manuscriptSizes_reportsSpeedupByParallelism() {
+        List<Integer> parallelisms = new ArrayList<>();
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism < cores; parallelism *= 2) {
+            parallelisms.add(parallelism);
+        }
+        parallelisms.add(cores);
+
+        System.out.println(String.format("%10s %12s %12s %8s", "text", "parallelism", "best ms", "speedup"));
+        for (int textSize : TEXT_SIZES) {
+            String text = manuscript(textSize);
+            String expected = convertSegment(text);
+            long baselineNanos = 0;
+            for (int parallelism : parallelisms) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    ParallelTextConverter converter = new ParallelTextConverter(pool, MIN_SEGMENT_CHARS,
+                        ParallelTextConverterBenchmark::convertSegment);
+                    long bestNanos = measure(converter, text, expected);
+                    if (parallelism == 1) {
+                        baselineNanos = bestNanos;
+                    }
+                    System.out.println(String.format("%9dK %12d %12.1f %7.2fx", textSize / 1024, parallelism,
+                        bestNanos / (double) TimeUnit.MILLISECONDS.toNanos(1), baselineNanos / (double) bestNanos));
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    private static long measure(ParallelTextConverter converter, String text, String expected) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            converter.apply(text);
+        }
+        long bestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long startTime = System.nanoTime();
+            String converted = converter.apply(text);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - startTime);
+            assertEquals(expected.length(), converted.length(), "Expected the same conversion as the whole text.");
+        }
+        return bestNanos;
+    }
+
+    // Escapes markup characters and normalizes whitespace, doing a fixed amount of work per char.
+    private static String convertSegment(String text) {
+        StringBuilder converted = new StringBuilder(text.length() + text.length() / 16);
+        int checksum = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            for (int round = 0; round < 32; round++) {
+                checksum = 31 * checksum + c + round;
+            }
+            switch (c) {
+                case '&':
+                    converted.append("&amp;");
+                    break;
+                case '<':
+                    converted.append("&lt;");
+                    break;
+                case '>':
+                    converted.append("&gt;");
+                    break;
+                case '\t':
+                    converted.append(' ');
+                    break;
+                default:
+                    converted.append(c);
+            }
+        }
+        // Keeps the checksum loop from being optimized away.
+        if (checksum == 42) {
+            converted.append(' ');
+        }
+        return converted.toString();
+    }
+
+    private static String manuscript(int chars) {
+        StringBuilder text = new StringBuilder(chars + 256);
+        int chapter = 1;
+        while (text.length() < chars) {
+            text.append("Chapter ").append(chapter++).append("\n\n");
+            for (int paragraph = 0; paragraph < 20 && text.length() < chars; paragraph++) {
+                text.append("It was a dark & stormy night; the rain fell in <torrents> except at occasional ")
+                    .append("intervals, when it was checked by a violent gust of wind.\n\n");
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,138 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelTextConverterTest {
+
+    private ForkJoinPool pool;
+    private AtomicInteger conversions;
+
+    @BeforeEach
+    public void setup() {
+        pool = new ForkJoinPool(4);
+        conversions = new AtomicInteger();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void apply_smallText_convertsInOneCall() {
+        // GIVEN
+        ParallelTextConverter converter = new ParallelTextConverter(pool, 1000, this::upperCase);
+
+        // WHEN
+        String converted = converter.apply("This is a story.");
+
+        // THEN
+        assertEquals("THIS IS A STORY.", converted);
+        assertEquals(1, conversions.get());
+    }
+
+    @Test
+    public void apply_largeText_convertsSegmentsInOrder() {
+        // GIVEN
+        String text = manuscript(40);
+        ParallelTextConverter converter = new ParallelTextConverter(pool, 100, this::upperCase);
+
+        // WHEN
+        String converted = converter.apply(text);
+
+        // THEN
+        assertEquals(text.toUpperCase(), converted, "Expected the segments to be joined in their original order.");
+        assertEquals(4, conversions.get(), "Expected one segment per pool thread.");
+    }
+
+    @Test
+    public void apply_readerInWindows_matchesWholeTextConversion() throws IOException {
+        // GIVEN
+        String text = manuscript(40);
+        ParallelTextConverter converter = new ParallelTextConverter(pool, 100, this::upperCase);
+
+        // WHEN
+        String converted = converter.apply(new StringReader(text), 150);
+
+        // THEN
+        assertEquals(text.toUpperCase(), converted, "Expected the windows to be joined in their original order.");
+        assertTrue(conversions.get() > text.length() / 150, "Expected the text to be converted a window at a time.");
+    }
+
+    @Test
+    public void apply_readerWindowSmallerThanPool_splitsWindowAcrossWholePool() throws IOException {
+        // GIVEN
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 400; i++) {
+            text.append('x');
+        }
+        ParallelTextConverter converter = new ParallelTextConverter(pool, 100, this::upperCase);
+
+        // WHEN
+        String converted = converter.apply(new StringReader(text.toString()), 50);
+
+        // THEN
+        assertEquals(text.toString().toUpperCase(), converted);
+        assertEquals(4, conversions.get(), "Expected the window to be raised to one full segment per pool thread.");
+    }
+
+    @Test
+    public void split_chapterHeadingsPresent_cutsAtChapters() {
+        // GIVEN
+        String text = manuscript(8);
+        ParallelTextConverter converter = new ParallelTextConverter(pool, 100, this::upperCase);
+
+        // WHEN
+        List<String> segments = converter.split(text);
+
+        // THEN
+        assertEquals(text, String.join("", segments));
+        for (String segment : segments) {
+            assertTrue(segment.startsWith("Chapter "), "Expected every segment to start at a chapter heading.");
+        }
+    }
+
+    @Test
+    public void split_noBoundaries_cutsWithinText() {
+        // GIVEN
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append('x');
+        }
+        ParallelTextConverter converter = new ParallelTextConverter(pool, 100, this::upperCase);
+
+        // WHEN
+        List<String> segments = converter.split(text.toString());
+
+        // THEN
+        assertEquals(4, segments.size());
+        assertEquals(text.toString(), String.join("", segments));
+    }
+
+    private String upperCase(String text) {
+        conversions.incrementAndGet();
+        return text.toUpperCase();
+    }
+
+    private static String manuscript(int chapters) {
+        StringBuilder text = new StringBuilder();
+        for (int chapter = 1; chapter <= chapters; chapter++) {
+            text.append("Chapter ").append(chapter).append("\n\n");
+            for (int paragraph = 0; paragraph < 3; paragraph++) {
+                text.append("It was a dark and stormy night, and the story went on.\n\n");
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,221 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
+import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
+import com.amazon.ata.kindlepublishingservice.exceptions.PublishingQueueFullException;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import com.amazon.ata.recommendationsservice.types.BookGenre;
+import com.amazonaws.AmazonServiceException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class PublishFailureHandlerTest {
+
+    @Mock
+    private BookPublishRequestManager bookPublishRequestManager;
+
+    @Mock
+    private PublishingStatusDao publishingStatusDao;
+
+    private Path directory;
+    private DeadLetterStore deadLetterStore;
+    private PublishFailureHandler handler;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        initMocks(this);
+        directory = Files.createTempDirectory("dead-letters");
+        MetricsPublisher metricsPublisher = new MetricsPublisher();
+        deadLetterStore = new DeadLetterStore(directory, metricsPublisher);
+        handler = new PublishFailureHandler(bookPublishRequestManager, publishingStatusDao,
+            new PublishRetryPolicy(3, 1, 1), deadLetterStore, metricsPublisher);
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    public void handleFailure_throttled_schedulesRetry() {
+        // GIVEN
+        BookPublishRequest request = request("publishing.1");
+        when(bookPublishRequestManager.getRetryCount("publishing.1")).thenReturn(0);
+
+        // WHEN
+        handler.handleFailure(request, "book.1", throttled());
+
+        // THEN
+        verify(bookPublishRequestManager).scheduleRetry(eq(request), anyLong(), eq(TimeUnit.MILLISECONDS));
+        verify(publishingStatusDao, never()).setPublishingStatus(any(), any(), any(), any());
+        verify(bookPublishRequestManager, never()).markBookPublishRequestComplete(any());
+        assertEquals(0, deadLetterStore.size());
+    }
+
+    @Test
+    public void handleFailure_notRetryable_deadLettersAndRecordsFailed() {
+        // GIVEN
+        BookPublishRequest request = request("publishing.1");
+        when(bookPublishRequestManager.getRetryCount("publishing.1")).thenReturn(0);
+
+        // WHEN
+        handler.handleFailure(request, "book.1", new IllegalStateException("bug"));
+
+        // THEN
+        verify(bookPublishRequestManager, never()).scheduleRetry(any(), anyLong(), any());
+        verify(publishingStatusDao).setPublishingStatus("publishing.1", PublishingRecordStatus.FAILED, "book.1",
+            "Exception during processing");
+        verify(bookPublishRequestManager).markBookPublishRequestComplete("publishing.1");
+        DeadLetter deadLetter = deadLetterStore.get("publishing.1");
+        assertNotNull(deadLetter);
+        assertEquals(1, deadLetter.getAttempts());
+        assertEquals("java.lang.IllegalStateException: bug", deadLetter.getReason());
+    }
+
+    @Test
+    public void handleFailure_throttledOnLastAttempt_deadLetters() {
+        // GIVEN
+        BookPublishRequest request = request("publishing.1");
+        when(bookPublishRequestManager.getRetryCount("publishing.1")).thenReturn(2);
+
+        // WHEN
+        handler.handleFailure(request, "book.1", throttled());
+
+        // THEN
+        verify(bookPublishRequestManager, never()).scheduleRetry(any(), anyLong(), any());
+        verify(publishingStatusDao).setPublishingStatus("publishing.1", PublishingRecordStatus.FAILED, "book.1",
+            "Exception during processing");
+        assertEquals(3, deadLetterStore.get("publishing.1").getAttempts());
+    }
+
+    @Test
+    public void handleFailure_newerRequestQueued_recordsSupersededInsteadOfRetrying() {
+        // GIVEN
+        BookPublishRequest request = request("publishing.1");
+        when(bookPublishRequestManager.getRetryCount("publishing.1")).thenReturn(0);
+        when(bookPublishRequestManager.scheduleRetry(eq(request), anyLong(), eq(TimeUnit.MILLISECONDS)))
+            .thenReturn(request("publishing.2"));
+
+        // WHEN
+        handler.handleFailure(request, "book.1", throttled());
+
+        // THEN
+        verify(publishingStatusDao).setPublishingStatus("publishing.1", PublishingRecordStatus.SUPERSEDED, "book.1",
+            "Superseded by publishing record publishing.2");
+        verify(bookPublishRequestManager).markBookPublishRequestComplete("publishing.1");
+        assertEquals(0, deadLetterStore.size());
+    }
+
+    @Test
+    public void replayDeadLetter_deadLetterExists_queuesItAgainAsQueued() {
+        // GIVEN
+        deadLetterStore.add(new DeadLetter(request("publishing.1"), 3, "throttled", 1000));
+
+        // WHEN
+        BookPublishRequest replayed = handler.replayDeadLetter("publishing.1");
+
+        // THEN
+        assertEquals("publishing.1", replayed.getPublishingRecordId());
+        verify(bookPublishRequestManager).addBookPublishRequest(replayed);
+        verify(publishingStatusDao).setPublishingStatus("publishing.1", PublishingRecordStatus.QUEUED, "book.1");
+        assertNull(deadLetterStore.get("publishing.1"));
+    }
+
+    @Test
+    public void replayDeadLetter_olderRequestQueued_recordsItSuperseded() {
+        // GIVEN
+        deadLetterStore.add(new DeadLetter(request("publishing.2"), 3, "throttled", 1000));
+        when(bookPublishRequestManager.addBookPublishRequest(any())).thenReturn(request("publishing.1"));
+
+        // WHEN
+        handler.replayDeadLetter("publishing.2");
+
+        // THEN
+        verify(publishingStatusDao).setPublishingStatus("publishing.1", PublishingRecordStatus.SUPERSEDED, "book.1",
+            "Superseded by publishing record publishing.2");
+    }
+
+    @Test
+    public void replayDeadLetter_queueFull_keepsDeadLetter() {
+        // GIVEN
+        deadLetterStore.add(new DeadLetter(request("publishing.1"), 3, "throttled", 1000));
+        doThrow(new PublishingQueueFullException("Publishing queue is full", 1))
+            .when(bookPublishRequestManager).ensureCapacityFor(any(BookPublishRequest.class));
+
+        // WHEN + THEN
+        assertThrows(PublishingQueueFullException.class, () -> handler.replayDeadLetter("publishing.1"));
+        assertNotNull(deadLetterStore.get("publishing.1"));
+        verify(bookPublishRequestManager, never()).addBookPublishRequest(any());
+    }
+
+    @Test
+    public void replayDeadLetter_noDeadLetter_returnsNull() {
+        // WHEN
+        BookPublishRequest replayed = handler.replayDeadLetter("publishing.1");
+
+        // THEN
+        assertNull(replayed);
+        verify(bookPublishRequestManager, never()).addBookPublishRequest(any());
+    }
+
+    @Test
+    public void listDeadLetters_returnsOldestFailureFirst() {
+        // GIVEN
+        deadLetterStore.add(new DeadLetter(request("publishing.2"), 1, "bug", 2000));
+        deadLetterStore.add(new DeadLetter(request("publishing.1"), 3, "throttled", 1000));
+
+        // WHEN
+        List<DeadLetter> deadLetters = handler.listDeadLetters();
+
+        // THEN
+        assertEquals(2, deadLetters.size());
+        assertEquals("publishing.1", deadLetters.get(0).getRequest().getPublishingRecordId());
+        assertEquals("publishing.2", deadLetters.get(1).getRequest().getPublishingRecordId());
+    }
+
+    private static AmazonServiceException throttled() {
+        AmazonServiceException throttled = new AmazonServiceException("Rate exceeded");
+        throttled.setErrorCode("ProvisionedThroughputExceededException");
+        throttled.setStatusCode(400);
+        return throttled;
+    }
+
+    private static BookPublishRequest request(String publishingRecordId) {
+        return BookPublishRequest.builder()
+            .withPublishingRecordId(publishingRecordId)
+            .withBookId("book.1")
+            .withTitle("Title")
+            .withAuthor("Author")
+            .withGenre(BookGenre.FANTASY)
+            .withText("It was a dark and stormy night.")
+            .build();
+    }
+}
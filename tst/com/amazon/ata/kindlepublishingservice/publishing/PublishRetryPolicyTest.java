@@ -0,0 +1,56 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.exceptions.BookNotFoundException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PublishRetryPolicyTest {
+
+    private final PublishRetryPolicy retryPolicy = new PublishRetryPolicy(3, 100, 1000);
+
+    @Test
+    public void shouldRetry_throttled_retriesUntilAttemptsRunOut() {
+        // GIVEN
+        AmazonServiceException throttled = new AmazonServiceException("Rate exceeded");
+        throttled.setErrorCode("ProvisionedThroughputExceededException");
+        throttled.setStatusCode(400);
+
+        // WHEN + THEN
+        assertTrue(retryPolicy.shouldRetry(throttled, 0));
+        assertTrue(retryPolicy.shouldRetry(new IllegalStateException("wrapped", throttled), 1),
+            "Expected a wrapped throttling exception to be retried.");
+        assertFalse(retryPolicy.shouldRetry(throttled, 2), "Expected no retry after the last attempt.");
+    }
+
+    @Test
+    public void shouldRetry_permanentFailure_doesNotRetry() {
+        // GIVEN
+        AmazonServiceException invalid = new AmazonServiceException("One or more parameter values were invalid");
+        invalid.setErrorCode("ValidationException");
+        invalid.setStatusCode(400);
+
+        // WHEN + THEN
+        assertFalse(retryPolicy.shouldRetry(invalid, 0));
+        assertFalse(retryPolicy.shouldRetry(new BookNotFoundException("missing"), 0));
+        assertFalse(retryPolicy.shouldRetry(new NullPointerException(), 0));
+        assertTrue(retryPolicy.shouldRetry(new SdkClientException("Unable to execute HTTP request"), 0),
+            "Expected a client side failure such as a timeout to be retried.");
+    }
+
+    @Test
+    public void backoffMillis_laterRetries_doubleUpToCapWithJitter() {
+        for (int i = 0; i < 100; i++) {
+            long first = retryPolicy.backoffMillis(1);
+            long third = retryPolicy.backoffMillis(3);
+            long tenth = retryPolicy.backoffMillis(10);
+
+            assertTrue(first >= 50 && first <= 100, "Expected the first delay within half of the base delay.");
+            assertTrue(third >= 200 && third <= 400, "Expected the delay to double with every retry.");
+            assertTrue(tenth >= 500 && tenth <= 1000, "Expected the delay to stop growing at the cap.");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
+import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
+import com.amazonaws.AmazonServiceException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class PublishSuccessRecorderTest {
+
+    @Mock
+    private PublishingStatusDao publishingStatusDao;
+
+    @Mock
+    private BookPublishRequestManager bookPublishRequestManager;
+
+    private PublishSuccessRecorder recorder;
+
+    @BeforeEach
+    public void setup() {
+        initMocks(this);
+        recorder = new PublishSuccessRecorder(publishingStatusDao, bookPublishRequestManager,
+            new PublishRetryPolicy(3, 1, 1));
+    }
+
+    @Test
+    public void recordSuccess_throttledStatusWrite_retriesOnlyTheStatusWrite() {
+        // GIVEN
+        AmazonServiceException throttled = new AmazonServiceException("Rate exceeded");
+        throttled.setErrorCode("ProvisionedThroughputExceededException");
+        throttled.setStatusCode(400);
+        when(publishingStatusDao.setPublishingStatus("publishing.1", PublishingRecordStatus.SUCCESSFUL, "book.1"))
+            .thenThrow(throttled)
+            .thenReturn(null);
+
+        // WHEN
+        recorder.recordSuccess("publishing.1", "book.1");
+
+        // THEN
+        verify(publishingStatusDao, times(2)).setPublishingStatus("publishing.1", PublishingRecordStatus.SUCCESSFUL,
+            "book.1");
+        verify(bookPublishRequestManager).markBookPublishRequestComplete("publishing.1");
+    }
+
+    @Test
+    public void recordSuccess_statusWriteFailsForGood_completesWithoutFailingTheRequest() {
+        // GIVEN
+        when(publishingStatusDao.setPublishingStatus("publishing.1", PublishingRecordStatus.SUCCESSFUL, "book.1"))
+            .thenThrow(new IllegalStateException("status table unavailable"));
+
+        // WHEN
+        recorder.recordSuccess("publishing.1", "book.1");
+
+        // THEN
+        verify(publishingStatusDao, times(1)).setPublishingStatus("publishing.1", PublishingRecordStatus.SUCCESSFUL,
+            "book.1");
+        verify(publishingStatusDao, never()).setPublishingStatus(any(), eq(PublishingRecordStatus.FAILED), any(),
+            any());
+        verify(bookPublishRequestManager).markBookPublishRequestComplete("publishing.1");
+    }
+
+    @Test
+    public void recordSuccess_completeFails_doesNotThrow() {
+        // GIVEN
+        doThrow(new IllegalStateException("Publish request journal is closed"))
+            .when(bookPublishRequestManager).markBookPublishRequestComplete("publishing.1");
+
+        // WHEN
+        recorder.recordSuccess("publishing.1", "book.1");
+
+        // THEN
+        verify(publishingStatusDao).setPublishingStatus("publishing.1", PublishingRecordStatus.SUCCESSFUL, "book.1");
+    }
+}
@@ -0,0 +1,109 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PublishWorkerAutoscalerTest {
+
+    private PublishWorkerAutoscaler autoscaler;
+
+    @BeforeEach
+    public void setup() {
+        MetricsPublisher metricsPublisher = new MetricsPublisher();
+        StripedExecutor lanes = new StripedExecutor("autoscaled", 2, 16, 2, metricsPublisher);
+        BookPublishRequestManager manager = new BookPublishRequestManager(metricsPublisher);
+        BookPublisher publisher = new BookPublisher(null, Collections.singletonList(
+            new DrainingPublishWorker(1, manager, null, metricsPublisher, lanes)));
+        autoscaler = PublishWorkerAutoscaler.builder()
+            .withBookPublisher(publisher)
+            .withBookPublishRequestManager(manager)
+            .withMetricsPublisher(metricsPublisher)
+            .withMinWorkers(2)
+            .withMaxWorkers(8)
+            .withTargetQueueAgeMillis(10000)
+            .withLatencyLimitMillis(200)
+            .build();
+    }
+
+    @Test
+    public void decide_sustainedBacklog_scalesUpOnlyAfterConsecutiveEvaluations() {
+        // WHEN
+        int first = autoscaler.decide(4, 100, 20000, 20, 0).getWorkerCount();
+        int second = autoscaler.decide(4, 100, 20000, 20, 0).getWorkerCount();
+
+        // THEN
+        assertEquals(4, first, "Expected a single evaluation with a backlog to keep the worker count.");
+        assertEquals(6, second, "Expected a sustained backlog to add half again as many workers.");
+    }
+
+    @Test
+    public void decide_afterResize_waitsOutCooldownBeforeNextDecision() {
+        // GIVEN
+        autoscaler.decide(4, 100, 20000, 20, 0);
+        autoscaler.decide(4, 100, 20000, 20, 0);
+
+        // WHEN
+        int cooling = autoscaler.decide(6, 100, 20000, 20, 0).getWorkerCount();
+        autoscaler.decide(6, 100, 20000, 20, 0);
+        autoscaler.decide(6, 100, 20000, 20, 0);
+        autoscaler.decide(6, 100, 20000, 20, 0);
+        int afterCooldown = autoscaler.decide(6, 100, 20000, 20, 0).getWorkerCount();
+
+        // THEN
+        assertEquals(6, cooling, "Expected no decision right after a resize.");
+        assertEquals(8, afterCooldown, "Expected scaling up to stop at the maximum.");
+    }
+
+    @Test
+    public void decide_throttling_halvesWorkersEvenWithBacklog() {
+        // WHEN
+        autoscaler.decide(8, 100, 20000, 20, 3);
+        int workers = autoscaler.decide(8, 100, 20000, 20, 1).getWorkerCount();
+
+        // THEN
+        assertEquals(4, workers, "Expected retries of throttled calls to halve the workers.");
+    }
+
+    @Test
+    public void decide_backlogWithLatencyNearLimit_holdsWorkerCount() {
+        // WHEN
+        autoscaler.decide(4, 100, 20000, 180, 0);
+        int workers = autoscaler.decide(4, 100, 20000, 180, 0).getWorkerCount();
+
+        // THEN
+        assertEquals(4, workers, "Expected no workers added while DynamoDB latency is close to the limit.");
+    }
+
+    @Test
+    public void decide_idleQueue_removesOneWorkerAfterSustainedIdleness() {
+        // GIVEN
+        for (int i = 0; i < 5; i++) {
+            assertEquals(4, autoscaler.decide(4, 0, 0, 5, 0).getWorkerCount());
+        }
+        // A brief burst between the idle and backlog thresholds restarts the count.
+        autoscaler.decide(4, 8, 1000, 5, 0);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(4, autoscaler.decide(4, 0, 0, 5, 0).getWorkerCount());
+        }
+
+        // WHEN
+        int workers = autoscaler.decide(4, 0, 0, 5, 0).getWorkerCount();
+
+        // THEN
+        assertEquals(3, workers, "Expected an idle queue to give back a single worker.");
+    }
+
+    @Test
+    public void decide_belowMinimum_resizesToBound() {
+        // WHEN
+        int workers = autoscaler.decide(1, 0, 0, 0, 0).getWorkerCount();
+
+        // THEN
+        assertEquals(2, workers);
+    }
+}
@@ -0,0 +1,175 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.dao.CatalogDao;
+import com.amazon.ata.kindlepublishingservice.dao.PublishingStatusDao;
+import com.amazon.ata.kindlepublishingservice.dynamodb.models.CatalogItemVersion;
+import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
+import com.amazon.ata.kindlepublishingservice.exceptions.BookNotFoundException;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsConstants;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import com.amazon.ata.recommendationsservice.types.BookGenre;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class PublishingPipelineTest {
+
+    @Mock
+    private PublishingStatusDao publishingStatusDao;
+
+    @Mock
+    private CatalogDao catalogDao;
+
+    private MetricsPublisher metricsPublisher;
+    private BookPublishRequestManager requestManager;
+    private PublishingPipeline pipeline;
+
+    @BeforeEach
+    public void setup() {
+        initMocks(this);
+        metricsPublisher = new MetricsPublisher();
+        requestManager = new BookPublishRequestManager(metricsPublisher);
+        pipeline = PublishingPipeline.builder()
+            .withBookPublishRequestManager(requestManager)
+            .withPublishingStatusDao(publishingStatusDao)
+            .withCatalogDao(catalogDao)
+            .withMetricsPublisher(metricsPublisher)
+            .withStageCapacity(2)
+            .build();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        pipeline.stop();
+    }
+
+    @Test
+    public void start_updateOfMissingBook_recordsFailureWithoutConverting() {
+        // GIVEN
+        doThrow(new BookNotFoundException("missing")).when(catalogDao).validateBookExists("book.1");
+        requestManager.addBookPublishRequest(request("publishing.1", "book.1"));
+
+        // WHEN
+        pipeline.start();
+
+        // THEN
+        verify(publishingStatusDao, timeout(5000)).setPublishingStatus("publishing.1",
+            PublishingRecordStatus.FAILED, "book.1", "Book to update does not exist");
+        verify(publishingStatusDao, never()).setPublishingStatus(eq("publishing.1"),
+            eq(PublishingRecordStatus.SUCCESSFUL), any());
+        verify(catalogDao, never()).createOrUpdateBook(any());
+    }
+
+    @Test
+    public void start_statusWriteFails_recordsFailure() {
+        // GIVEN
+        when(publishingStatusDao.setPublishingStatus(any(), eq(PublishingRecordStatus.IN_PROGRESS), any()))
+            .thenThrow(new IllegalStateException("status table unavailable"));
+        requestManager.addBookPublishRequest(request("publishing.1", null));
+
+        // WHEN
+        pipeline.start();
+
+        // THEN
+        verify(publishingStatusDao, timeout(5000)).setPublishingStatus("publishing.1",
+            PublishingRecordStatus.FAILED, null, "Exception during processing");
+        assertEquals(1, metricsPublisher.getLatency(
+            String.format(MetricsConstants.PIPELINE_STAGE_LATENCY, "Validate")).getCount());
+    }
+
+    @Test
+    public void start_successfulStatusWriteFails_completesRequestWithoutFailingIt() throws InterruptedException {
+        // GIVEN
+        CatalogItemVersion published = new CatalogItemVersion();
+        published.setBookId("book.1");
+        when(catalogDao.createOrUpdateBook(any())).thenReturn(published);
+        when(publishingStatusDao.setPublishingStatus(any(), eq(PublishingRecordStatus.SUCCESSFUL), any()))
+            .thenThrow(new IllegalStateException("status table unavailable"));
+        requestManager.addBookPublishRequest(request("publishing.1", null));
+
+        // WHEN
+        pipeline.start();
+
+        // THEN
+        verify(publishingStatusDao, timeout(5000)).setPublishingStatus("publishing.1",
+            PublishingRecordStatus.SUCCESSFUL, "book.1");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (metricsPublisher.getLatency(MetricsConstants.PUBLISH_END_TO_END_LATENCY).getCount() == 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, metricsPublisher.getLatency(MetricsConstants.PUBLISH_END_TO_END_LATENCY).getCount(),
+            "Expected the request to be completed rather than left in progress.");
+        verify(publishingStatusDao, never()).setPublishingStatus(eq("publishing.1"),
+            eq(PublishingRecordStatus.FAILED), any(), any());
+        verify(catalogDao, times(1)).createOrUpdateBook(any());
+    }
+
+    @Test
+    public void stop_bookBeingPersisted_recordsItsStatusBeforeReturning() throws InterruptedException {
+        // GIVEN
+        CatalogItemVersion published = new CatalogItemVersion();
+        published.setBookId("book.1");
+        CountDownLatch persisting = new CountDownLatch(1);
+        when(catalogDao.createOrUpdateBook(any())).thenAnswer(invocation -> {
+            persisting.countDown();
+            Thread.sleep(500);
+            return published;
+        });
+        requestManager.addBookPublishRequest(request("publishing.1", null));
+        pipeline.start();
+        assertTrue(persisting.await(5, TimeUnit.SECONDS));
+
+        // WHEN
+        boolean stopped = pipeline.stop();
+
+        // THEN
+        assertTrue(stopped, "Expected the book being persisted to finish before the stop timeout.");
+        verify(publishingStatusDao).setPublishingStatus("publishing.1", PublishingRecordStatus.SUCCESSFUL, "book.1");
+        assertEquals(1, metricsPublisher.getLatency(MetricsConstants.PUBLISH_END_TO_END_LATENCY).getCount(),
+            "Expected the request to be completed before the pipeline stopped.");
+    }
+
+    @Test
+    public void stop_pipelineRunning_leavesQueuedRequests() {
+        // GIVEN
+        pipeline.start();
+        assertTrue(pipeline.isRunning());
+
+        // WHEN
+        pipeline.stop();
+        requestManager.addBookPublishRequest(request("publishing.1", null));
+
+        // THEN
+        assertFalse(pipeline.isRunning());
+        assertEquals(1, requestManager.getQueueDepth(), "Expected a stopped pipeline not to take requests.");
+    }
+
+    private BookPublishRequest request(String publishingRecordId, String bookId) {
+        return BookPublishRequest.builder()
+            .withPublishingRecordId(publishingRecordId)
+            .withBookId(bookId)
+            .withTitle("Title")
+            .withAuthor("Author")
+            .withGenre(BookGenre.FANTASY)
+            .withText("This is a story.")
+            .build();
+    }
+}
@@ -0,0 +1,73 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.dynamodb.models.PublishingStatusItem;
+import com.amazon.ata.kindlepublishingservice.enums.PublishingRecordStatus;
+import com.amazon.ata.kindlepublishingservice.exceptions.PublishingStatusWaitLimitException;
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PublishingStatusNotifierTest {
+
+    private final PublishingStatusNotifier notifier = new PublishingStatusNotifier(2, new MetricsPublisher());
+
+    @Test
+    public void publish_statusWritten_wakesOnlyWaitersOfThatRequest() throws Exception {
+        // GIVEN
+        CompletableFuture<PublishingStatusItem> waiter = notifier.awaitNextStatus("publishing.1", 10,
+            TimeUnit.SECONDS);
+        CompletableFuture<PublishingStatusItem> otherWaiter = notifier.awaitNextStatus("publishing.2", 10,
+            TimeUnit.SECONDS);
+        PublishingStatusItem item = item("publishing.1", PublishingRecordStatus.IN_PROGRESS);
+
+        // WHEN
+        notifier.publish(item);
+
+        // THEN
+        assertSame(item, waiter.get(1, TimeUnit.SECONDS));
+        assertFalse(otherWaiter.isDone(), "Expected a waiter of another request to keep waiting.");
+        assertEquals(1, notifier.getWaiterCount());
+        otherWaiter.cancel(false);
+        assertEquals(0, notifier.getWaiterCount(), "Expected a cancelled wait to stop counting.");
+    }
+
+    @Test
+    public void awaitNextStatus_noStatusWritten_completesWithNullAfterTimeout() throws Exception {
+        // WHEN
+        CompletableFuture<PublishingStatusItem> waiter = notifier.awaitNextStatus("publishing.1", 50,
+            TimeUnit.MILLISECONDS);
+
+        // THEN
+        assertNull(waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(0, notifier.getWaiterCount());
+    }
+
+    @Test
+    public void awaitNextStatus_waiterLimitReached_refusesWait() {
+        // GIVEN
+        notifier.awaitNextStatus("publishing.1", 10, TimeUnit.SECONDS);
+        notifier.awaitNextStatus("publishing.1", 10, TimeUnit.SECONDS);
+
+        // WHEN + THEN
+        assertThrows(PublishingStatusWaitLimitException.class,
+            () -> notifier.awaitNextStatus("publishing.2", 10, TimeUnit.SECONDS));
+        notifier.publish(item("publishing.1", PublishingRecordStatus.SUCCESSFUL));
+        notifier.awaitNextStatus("publishing.2", 10, TimeUnit.SECONDS);
+        assertEquals(1, notifier.getWaiterCount(), "Expected woken waiters to free their places.");
+    }
+
+    private static PublishingStatusItem item(String publishingRecordId, PublishingRecordStatus status) {
+        PublishingStatusItem item = new PublishingStatusItem();
+        item.setPublishingRecordId(publishingRecordId);
+        item.setStatus(status);
+        return item;
+    }
+}
@@ -0,0 +1,290 @@
+package com.amazon.ata.kindlepublishingservice.publishing;
+
+import com.amazon.ata.kindlepublishingservice.metrics.MetricsPublisher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StripedExecutorTest {
+
+    private StripedExecutor executor;
+
+    @BeforeEach
+    public void setup() {
+        executor = new StripedExecutor("test", 4, 64, new MetricsPublisher());
+    }
+
+    @AfterEach
+    public void cleanup() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1000);
+    }
+
+    @Test
+    public void awaitTermination_taskStillRunning_waitsForItUntilTimeout() throws InterruptedException {
+        // GIVEN
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.start();
+        executor.execute("book.123", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // WHEN
+        executor.shutdown();
+        boolean terminatedWhileRunning = executor.awaitTermination(100);
+        release.countDown();
+        boolean terminatedAfterTask = executor.awaitTermination(5000);
+
+        // THEN
+        assertFalse(terminatedWhileRunning, "Expected the lane running a task not to have exited.");
+        assertTrue(terminatedAfterTask, "Expected every lane to exit once its task finished.");
+        assertTrue(executor.isIdle());
+    }
+
+    @Test
+    public void execute_tasksForSameKey_runInSubmissionOrderOnOneThread() throws InterruptedException {
+        // GIVEN
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        ConcurrentHashMap<String, Boolean> threads = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(50);
+        executor.start();
+
+        // WHEN
+        for (int i = 0; i < 50; i++) {
+            int sequence = i;
+            executor.execute("book.123", () -> {
+                order.add(sequence);
+                threads.put(Thread.currentThread().getName(), true);
+                done.countDown();
+            });
+        }
+
+        // THEN
+        assertTrue(done.await(5, TimeUnit.SECONDS), "Expected every task to run.");
+        for (int i = 0; i < 50; i++) {
+            assertEquals(Integer.valueOf(i), order.get(i),
+                "Expected tasks for one key to run in the order they were submitted.");
+        }
+        assertEquals(1, threads.size(), "Expected tasks for one key to run on a single lane.");
+    }
+
+    @Test
+    public void execute_tasksForDifferentKeys_runInParallel() throws InterruptedException {
+        // GIVEN
+        String first = "book.1";
+        String second = keyOnOtherLane(first);
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(2);
+        executor.start();
+
+        // WHEN
+        for (String key : new String[] {first, second}) {
+            executor.execute(key, () -> {
+                bothRunning.countDown();
+                try {
+                    if (bothRunning.await(5, TimeUnit.SECONDS)) {
+                        done.countDown();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        // THEN
+        assertTrue(done.await(5, TimeUnit.SECONDS), "Expected tasks for different lanes to run at the same time.");
+    }
+
+    @Test
+    public void laneFor_noKey_picksShortestLane() throws InterruptedException {
+        // GIVEN
+        String key = "book.1";
+        int busyLane = executor.laneFor(key);
+        executor.execute(key, () -> { });
+
+        // WHEN
+        int lane = executor.laneFor(null);
+
+        // THEN
+        assertTrue(lane != busyLane, "Expected a task without a key to avoid the lane with waiting tasks.");
+    }
+
+    @Test
+    public void getImbalancePercent_allTasksOnOneLane_reportsBusiestLaneAgainstAverage() throws InterruptedException {
+        // GIVEN
+        for (int i = 0; i < 8; i++) {
+            executor.execute("book.1", () -> { });
+        }
+
+        // WHEN
+        long imbalance = executor.getImbalancePercent();
+
+        // THEN
+        assertEquals(300, imbalance, "Expected one lane of four to carry four times the average.");
+        assertEquals(8, executor.getQueueDepth(executor.laneFor("book.1")));
+    }
+
+    @Test
+    public void resize_whileTasksAreQueued_keepsTasksForKeyInOrderAndChangesLaneCount() throws InterruptedException {
+        // GIVEN
+        StripedExecutor resizable = new StripedExecutor("resizable", 1, 4, 64, new MetricsPublisher());
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(40);
+        resizable.start();
+        for (int i = 0; i < 20; i++) {
+            int sequence = i;
+            resizable.execute("book.123", () -> {
+                order.add(sequence);
+                done.countDown();
+            });
+        }
+
+        // WHEN
+        boolean resized = resizable.resize(4);
+        for (int i = 20; i < 40; i++) {
+            int sequence = i;
+            resizable.execute("book.123", () -> {
+                order.add(sequence);
+                done.countDown();
+            });
+        }
+
+        // THEN
+        try {
+            assertTrue(resized, "Expected the executor to resize to a lane count within its bounds.");
+            assertEquals(4, resizable.getLaneCount());
+            assertTrue(done.await(5, TimeUnit.SECONDS), "Expected every task to run.");
+            for (int i = 0; i < 40; i++) {
+                assertEquals(Integer.valueOf(i), order.get(i),
+                    "Expected tasks for one key to stay in submission order across the resize.");
+            }
+            assertTrue(resizable.resize(2));
+            assertEquals(2, resizable.getLaneCount());
+            assertTrue(resizable.laneFor("book.123") < 2, "Expected keys to map to the lanes still in use.");
+        } finally {
+            resizable.shutdown();
+            resizable.awaitTermination(1000);
+        }
+    }
+
+    @Test
+    public void resize_whileLaneRunsSlowTask_takesEffectAtOnceAndKeepsBusyKeyInOrder() throws InterruptedException {
+        // GIVEN one lane stuck on a slow task for book.123, with more of its tasks queued behind it
+        StripedExecutor resizable = new StripedExecutor("slow", 1, 4, 64, new MetricsPublisher());
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch busyKeyDone = new CountDownLatch(10);
+        resizable.start();
+        resizable.execute("book.123", () -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (int i = 0; i < 5; i++) {
+            int sequence = i;
+            resizable.execute("book.123", () -> {
+                order.add(sequence);
+                busyKeyDone.countDown();
+            });
+        }
+
+        try {
+            // WHEN
+            long startTime = System.nanoTime();
+            boolean resized = resizable.resize(4);
+            long resizeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            for (int i = 5; i < 10; i++) {
+                int sequence = i;
+                resizable.execute("book.123", () -> {
+                    order.add(sequence);
+                    busyKeyDone.countDown();
+                });
+            }
+            String otherKey = keyOffLane(resizable, "book.123");
+            CountDownLatch otherKeyDone = new CountDownLatch(1);
+            resizable.execute(otherKey, otherKeyDone::countDown);
+
+            // THEN
+            assertTrue(resized, "Expected the resize to succeed while a task is still running.");
+            assertTrue(resizeMillis < 1000, "Expected the resize not to wait for the slow task.");
+            assertEquals(4, resizable.getLaneCount());
+            assertTrue(otherKeyDone.await(5, TimeUnit.SECONDS),
+                "Expected a key on a new lane to run while the slow task blocks its old lane.");
+            release.countDown();
+            assertTrue(busyKeyDone.await(5, TimeUnit.SECONDS), "Expected every task to run.");
+            for (int i = 0; i < 10; i++) {
+                assertEquals(Integer.valueOf(i), order.get(i),
+                    "Expected the busy key's tasks to stay in submission order across the resize.");
+            }
+        } finally {
+            release.countDown();
+            resizable.shutdown();
+            resizable.awaitTermination(1000);
+        }
+    }
+
+    @Test
+    public void shutdown_tasksStillQueued_resizeDoesNotWaitForDroppedTasks() throws InterruptedException {
+        // GIVEN a lane busy with one task and holding more behind it
+        StripedExecutor resizable = new StripedExecutor("dropping", 1, 2, 64, new MetricsPublisher());
+        CountDownLatch release = new CountDownLatch(1);
+        resizable.start();
+        resizable.execute("book.123", () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (int i = 0; i < 5; i++) {
+            resizable.execute("book.123", () -> { });
+        }
+
+        // WHEN
+        resizable.shutdown();
+        release.countDown();
+        resizable.awaitTermination(1000);
+
+        // THEN
+        assertTrue(resizable.resize(2), "Expected the dropped tasks not to hold up a resize.");
+        assertTrue(resizable.laneFor("book.123") < 2, "Expected the key of the dropped tasks to move lanes again.");
+    }
+
+    private static String keyOffLane(StripedExecutor striped, String key) {
+        for (int i = 1; ; i++) {
+            String candidate = "book." + i;
+            if (striped.laneFor(candidate) != striped.laneFor(key)) {
+                return candidate;
+            }
+        }
+    }
+
+    private String keyOnOtherLane(String key) {
+        for (int i = 2; ; i++) {
+            String candidate = "book." + i;
+            if (executor.laneFor(candidate) != executor.laneFor(key)) {
+                return candidate;
+            }
+        }
+    }
+}
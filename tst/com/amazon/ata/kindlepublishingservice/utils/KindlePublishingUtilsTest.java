@@ -77,4 +77,16 @@ public class KindlePublishingUtilsTest {
         assertTrue(message.startsWith("Book publish failed"),"Expected message to start with 'Book publish " +
             "failed'.");
     }
+
+    @Test
+    public void generatePublishingStatusMessage_cancelledStatus_messageGenerated() {
+        // GIVEN
+
+        // WHEN
+        String message = KindlePublishingUtils.generatePublishingStatusMessage(PublishingRecordStatus.CANCELLED);
+
+        // THEN
+        assertTrue(message.startsWith("Publishing cancelled"), "Expected message to start with 'Publishing " +
+            "cancelled'.");
+    }
 }